@@ -94,12 +94,15 @@ func (l *DeleteCommentLogic) DeleteComment(in *comment.DeleteCommentRequest) (*c
 
 	// 只有物理删除的二级评论才发 DELETE 事件。
 	// 一级评论是软删除，占位仍会保留在列表中，不能再让下游重复扣减帖子评论数。
+	// 带上评论者和帖子作者，下游据此扣减用户统计 (user_stats)。
 	if doc.ParentID != "" {
 		if err := publishCommentEvent(l.ctx, l.svcCtx.MqChan, commentRoutingKeyDelete, &CommentEvent{
-			Type:      "DELETE",
-			CommentId: in.GetCommentId(),
-			PostId:    doc.PostID,
-			ParentId:  doc.ParentID,
+			Type:         "DELETE",
+			CommentId:    in.GetCommentId(),
+			PostId:       doc.PostID,
+			UserId:       doc.UserID,
+			PostAuthorId: post.UserID,
+			ParentId:     doc.ParentID,
 		}); err != nil {
 			appmetrics.ObserveRequest("delete_comment", "mq_publish_error", time.Since(start))
 			return nil, err
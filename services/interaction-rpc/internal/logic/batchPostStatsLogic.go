@@ -107,16 +107,18 @@ func (l *BatchPostStatsLogic) BatchPostStats(in *interaction.BatchPostStatsReque
 	if l.svcCtx.Mongo != nil {
 		// 评论数、评分总人数、评分均值目前仍由 Mongo posts 文档提供。
 		// 这部分不是高频切换状态，不需要像点赞/收藏那样完全依赖 Redis Set/Hash。
+		// posts 只存评分总分和人数，均值在这里现算；没迁移的旧文档还没有 ratingSum，退回读旧的 ratingAverage。
 		type postDoc struct {
-			ID            string  `bson:"_id"`
-			CommentCount  int32   `bson:"commentCount"`
-			RatingCount   int32   `bson:"ratingCount"`
-			RatingAverage float64 `bson:"ratingAverage"`
+			ID            string   `bson:"_id"`
+			CommentCount  int32    `bson:"commentCount"`
+			RatingCount   int32    `bson:"ratingCount"`
+			RatingSum     *float64 `bson:"ratingSum"`
+			RatingAverage float64  `bson:"ratingAverage"`
 		}
 		cursor, err := l.svcCtx.Mongo.Collection("posts").Find(
 			l.ctx,
 			bson.M{"_id": bson.M{"$in": in.GetPostIds()}},
-			options.Find().SetProjection(bson.M{"commentCount": 1, "ratingCount": 1, "ratingAverage": 1}),
+			options.Find().SetProjection(bson.M{"commentCount": 1, "ratingCount": 1, "ratingSum": 1, "ratingAverage": 1}),
 		)
 		if err != nil {
 			l.Logger.Errorf("mongo query error: %v", err)
@@ -130,7 +132,14 @@ func (l *BatchPostStatsLogic) BatchPostStats(in *interaction.BatchPostStatsReque
 				if st, ok := stats[doc.ID]; ok {
 					st.CommentCount = doc.CommentCount
 					st.RatingCount = doc.RatingCount
-					st.RatingAverage = doc.RatingAverage
+					switch {
+					case doc.RatingSum == nil:
+						st.RatingAverage = doc.RatingAverage
+					case doc.RatingCount > 0:
+						st.RatingAverage = *doc.RatingSum / float64(doc.RatingCount)
+					default:
+						st.RatingAverage = 0
+					}
 				}
 			}
 		}
@@ -0,0 +1,75 @@
+package logic
+
+import (
+	"context"
+	"time"
+
+	appmetrics "notification-rpc/internal/metrics"
+	"notification-rpc/internal/svc"
+	"notification-rpc/notification"
+
+	"github.com/zeromicro/go-zero/core/logx"
+	"go.mongodb.org/mongo-driver/mongo"
+	"go.mongodb.org/mongo-driver/mongo/options"
+)
+
+type BatchSaveNotificationsLogic struct {
+	ctx    context.Context
+	svcCtx *svc.ServiceContext
+	logx.Logger
+}
+
+func NewBatchSaveNotificationsLogic(ctx context.Context, svcCtx *svc.ServiceContext) *BatchSaveNotificationsLogic {
+	return &BatchSaveNotificationsLogic{
+		ctx:    ctx,
+		svcCtx: svcCtx,
+		Logger: logx.WithContext(ctx),
+	}
+}
+
+// 批量写入：一次 RPC 写一批普通通知 + 状态类通知
+// 普通通知一次 InsertMany，状态类通知一次 BulkWrite (每条一个 upsert)，都用无序写入，
+// 一条失败不会挡住同批其它通知。调用方整批重试时，状态类通知是幂等的，普通通知可能重复一条。
+func (l *BatchSaveNotificationsLogic) BatchSaveNotifications(in *notification.BatchSaveNotificationsRequest) (*notification.BatchSaveNotificationsResponse, error) {
+	start := time.Now()
+	resp := &notification.BatchSaveNotificationsResponse{}
+	coll := l.svcCtx.Mongo.Collection("notifications")
+
+	docs := make([]interface{}, 0, len(in.GetCreates()))
+	for _, payload := range in.GetCreates() {
+		if payload != nil {
+			docs = append(docs, newNotificationDoc(payload))
+		}
+	}
+	if len(docs) > 0 {
+		res, err := coll.InsertMany(l.ctx, docs, options.InsertMany().SetOrdered(false))
+		if err != nil {
+			appmetrics.ObserveRequest("batch_save_notifications", "mongo_error", time.Since(start))
+			return nil, err
+		}
+		resp.CreatedCount = int64(len(res.InsertedIDs))
+	}
+
+	models := make([]mongo.WriteModel, 0, len(in.GetUpserts()))
+	for _, payload := range in.GetUpserts() {
+		if payload == nil {
+			continue
+		}
+		filter, update := statusUpsert(payload)
+		models = append(models, mongo.NewUpdateOneModel().SetFilter(filter).SetUpdate(update).SetUpsert(true))
+	}
+	if len(models) > 0 {
+		if _, err := coll.BulkWrite(l.ctx, models, options.BulkWrite().SetOrdered(false)); err != nil {
+			appmetrics.ObserveRequest("batch_save_notifications", "mongo_error", time.Since(start))
+			return nil, err
+		}
+		resp.UpsertedCount = int64(len(models))
+	}
+
+	if len(docs) == 0 && len(models) == 0 {
+		appmetrics.ObserveRequest("batch_save_notifications", "empty_payload", time.Since(start))
+		return resp, nil
+	}
+	appmetrics.ObserveRequest("batch_save_notifications", "success", time.Since(start))
+	return resp, nil
+}
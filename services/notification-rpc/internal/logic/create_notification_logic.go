@@ -36,7 +36,19 @@ func (l *CreateNotificationLogic) CreateNotification(in *notification.CreateNoti
 		return &notification.Empty{}, nil
 	}
 
-	doc := model.NotificationDoc{
+	_, err := l.svcCtx.Mongo.Collection("notifications").InsertOne(l.ctx, newNotificationDoc(payload))
+	if err != nil {
+		appmetrics.ObserveRequest("create_notification", "mongo_error", time.Since(start))
+		return nil, err
+	}
+
+	appmetrics.ObserveRequest("create_notification", "success", time.Since(start))
+	return &notification.Empty{}, nil
+}
+
+// newNotificationDoc 把写入载荷转换成一条新的未读通知，单条和批量插入共用。
+func newNotificationDoc(payload *notification.NotificationPayload) model.NotificationDoc {
+	return model.NotificationDoc{
 		ReceiverID:     payload.GetReceiverId(),
 		SenderID:       payload.GetSenderId(),
 		SenderNickname: payload.GetSenderNickname(),
@@ -47,13 +59,4 @@ func (l *CreateNotificationLogic) CreateNotification(in *notification.CreateNoti
 		IsRead:         false,
 		CreatedAt:      time.Now(),
 	}
-
-	_, err := l.svcCtx.Mongo.Collection("notifications").InsertOne(l.ctx, doc)
-	if err != nil {
-		appmetrics.ObserveRequest("create_notification", "mongo_error", time.Since(start))
-		return nil, err
-	}
-
-	appmetrics.ObserveRequest("create_notification", "success", time.Since(start))
-	return &notification.Empty{}, nil
 }
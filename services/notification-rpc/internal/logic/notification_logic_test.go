@@ -165,6 +165,54 @@ func TestUpsertNotification_SecondUpsert_Updates(t *testing.T) {
 	})
 }
 
+// ---- BatchSaveNotifications ----
+
+func TestBatchSaveNotifications_Empty_ReturnsZero(t *testing.T) {
+	mt := mtest.New(t, mtest.NewOptions().ClientType(mtest.Mock))
+
+	mt.Run("空批次不调用 Mongo", func(mt *mtest.T) {
+		logic := NewBatchSaveNotificationsLogic(context.Background(), makeSvcCtx(mt))
+		resp, err := logic.BatchSaveNotifications(&notification.BatchSaveNotificationsRequest{})
+
+		require.NoError(t, err)
+		assert.Equal(t, int64(0), resp.GetCreatedCount())
+		assert.Equal(t, int64(0), resp.GetUpsertedCount())
+	})
+}
+
+func TestBatchSaveNotifications_CreatesAndUpserts(t *testing.T) {
+	mt := mtest.New(t, mtest.NewOptions().ClientType(mtest.Mock))
+
+	mt.Run("一次 InsertMany + 一次 BulkWrite", func(mt *mtest.T) {
+		mt.AddMockResponses(
+			// InsertMany
+			bson.D{{Key: "ok", Value: 1}, {Key: "n", Value: 2}},
+			// BulkWrite (upsert)
+			bson.D{
+				{Key: "ok", Value: 1},
+				{Key: "n", Value: 1},
+				{Key: "nModified", Value: 0},
+				{Key: "upserted", Value: bson.A{bson.D{{Key: "index", Value: 0}, {Key: "_id", Value: "new-id"}}}},
+			},
+		)
+
+		logic := NewBatchSaveNotificationsLogic(context.Background(), makeSvcCtx(mt))
+		resp, err := logic.BatchSaveNotifications(&notification.BatchSaveNotificationsRequest{
+			Creates: []*notification.NotificationPayload{
+				{ReceiverId: 10, SenderId: 20, Type: notification.NotificationType_COMMENT, TargetId: "post-abc"},
+				{ReceiverId: 11, SenderId: 20, Type: notification.NotificationType_REPLY, TargetId: "post-abc"},
+			},
+			Upserts: []*notification.NotificationPayload{
+				{ReceiverId: 10, SenderId: 30, Type: notification.NotificationType_LIKE_POST, TargetId: "post-abc"},
+			},
+		})
+
+		require.NoError(t, err)
+		assert.Equal(t, int64(2), resp.GetCreatedCount())
+		assert.Equal(t, int64(1), resp.GetUpsertedCount())
+	})
+}
+
 // ---- MarkAllRead ----
 
 func TestMarkAllRead_UpdatesAllUnread(t *testing.T) {
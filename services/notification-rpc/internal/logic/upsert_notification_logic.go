@@ -38,6 +38,24 @@ func (l *UpsertNotificationLogic) UpsertNotification(in *notification.UpsertNoti
 		return &notification.Empty{}, nil
 	}
 
+	filter, update := statusUpsert(payload)
+	_, err := l.svcCtx.Mongo.Collection("notifications").UpdateOne(
+		l.ctx,
+		filter,
+		update,
+		options.Update().SetUpsert(true),
+	)
+	if err != nil {
+		appmetrics.ObserveRequest("upsert_notification", "mongo_error", time.Since(start))
+		return nil, err
+	}
+
+	appmetrics.ObserveRequest("upsert_notification", "success", time.Since(start))
+	return &notification.Empty{}, nil
+}
+
+// statusUpsert 构造状态类通知的去重 upsert 条件和更新内容，单条和批量 upsert 共用。
+func statusUpsert(payload *notification.NotificationPayload) (bson.M, bson.M) {
 	typeName := model.FormatNotificationType(payload.GetType())
 	filter := bson.M{
 		"receiverId": payload.GetReceiverId(),
@@ -62,18 +80,5 @@ func (l *UpsertNotificationLogic) UpsertNotification(in *notification.UpsertNoti
 			"targetId":   payload.GetTargetId(),
 		},
 	}
-
-	_, err := l.svcCtx.Mongo.Collection("notifications").UpdateOne(
-		l.ctx,
-		filter,
-		update,
-		options.Update().SetUpsert(true),
-	)
-	if err != nil {
-		appmetrics.ObserveRequest("upsert_notification", "mongo_error", time.Since(start))
-		return nil, err
-	}
-
-	appmetrics.ObserveRequest("upsert_notification", "success", time.Since(start))
-	return &notification.Empty{}, nil
+	return filter, update
 }
@@ -69,3 +69,9 @@ func (s *NotificationServiceServer) CleanDuplicateNotifications(ctx context.Cont
 	l := logic.NewCleanDuplicateNotificationsLogic(ctx, s.svcCtx)
 	return l.CleanDuplicateNotifications(in)
 }
+
+// 批量写入：一次 RPC 写一批普通通知 + 状态类通知
+func (s *NotificationServiceServer) BatchSaveNotifications(ctx context.Context, in *notification.BatchSaveNotificationsRequest) (*notification.BatchSaveNotificationsResponse, error) {
+	l := logic.NewBatchSaveNotificationsLogic(ctx, s.svcCtx)
+	return l.BatchSaveNotifications(in)
+}
@@ -831,6 +831,113 @@ func (x *CleanDuplicateNotificationsResponse) GetDeletedCount() int64 {
 	return 0
 }
 
+// 批量写入：调用方 (platform-java) 攒一小批一次发过来，替代逐条 Create / Upsert。
+// creates 逐条插入；upserts 按 receiver_id + sender_id + type + target_id 去重 upsert，
+// 同一批里重复的状态类通知调用方已经合并过。
+type BatchSaveNotificationsRequest struct {
+	state         protoimpl.MessageState `protogen:"open.v1"`
+	Creates       []*NotificationPayload `protobuf:"bytes,1,rep,name=creates,proto3" json:"creates,omitempty"`
+	Upserts       []*NotificationPayload `protobuf:"bytes,2,rep,name=upserts,proto3" json:"upserts,omitempty"`
+	unknownFields protoimpl.UnknownFields
+	sizeCache     protoimpl.SizeCache
+}
+
+func (x *BatchSaveNotificationsRequest) Reset() {
+	*x = BatchSaveNotificationsRequest{}
+	mi := &file_notification_notification_proto_msgTypes[13]
+	ms := protoimpl.X.MessageStateOf(protoimpl.Pointer(x))
+	ms.StoreMessageInfo(mi)
+}
+
+func (x *BatchSaveNotificationsRequest) String() string {
+	return protoimpl.X.MessageStringOf(x)
+}
+
+func (*BatchSaveNotificationsRequest) ProtoMessage() {}
+
+func (x *BatchSaveNotificationsRequest) ProtoReflect() protoreflect.Message {
+	mi := &file_notification_notification_proto_msgTypes[13]
+	if x != nil {
+		ms := protoimpl.X.MessageStateOf(protoimpl.Pointer(x))
+		if ms.LoadMessageInfo() == nil {
+			ms.StoreMessageInfo(mi)
+		}
+		return ms
+	}
+	return mi.MessageOf(x)
+}
+
+// Deprecated: Use BatchSaveNotificationsRequest.ProtoReflect.Descriptor instead.
+func (*BatchSaveNotificationsRequest) Descriptor() ([]byte, []int) {
+	return file_notification_notification_proto_rawDescGZIP(), []int{13}
+}
+
+func (x *BatchSaveNotificationsRequest) GetCreates() []*NotificationPayload {
+	if x != nil {
+		return x.Creates
+	}
+	return nil
+}
+
+func (x *BatchSaveNotificationsRequest) GetUpserts() []*NotificationPayload {
+	if x != nil {
+		return x.Upserts
+	}
+	return nil
+}
+
+type BatchSaveNotificationsResponse struct {
+	state         protoimpl.MessageState `protogen:"open.v1"`
+	CreatedCount  int64                  `protobuf:"varint,1,opt,name=created_count,json=createdCount,proto3" json:"created_count,omitempty"`
+	UpsertedCount int64                  `protobuf:"varint,2,opt,name=upserted_count,json=upsertedCount,proto3" json:"upserted_count,omitempty"`
+	unknownFields protoimpl.UnknownFields
+	sizeCache     protoimpl.SizeCache
+}
+
+func (x *BatchSaveNotificationsResponse) Reset() {
+	*x = BatchSaveNotificationsResponse{}
+	mi := &file_notification_notification_proto_msgTypes[14]
+	ms := protoimpl.X.MessageStateOf(protoimpl.Pointer(x))
+	ms.StoreMessageInfo(mi)
+}
+
+func (x *BatchSaveNotificationsResponse) String() string {
+	return protoimpl.X.MessageStringOf(x)
+}
+
+func (*BatchSaveNotificationsResponse) ProtoMessage() {}
+
+func (x *BatchSaveNotificationsResponse) ProtoReflect() protoreflect.Message {
+	mi := &file_notification_notification_proto_msgTypes[14]
+	if x != nil {
+		ms := protoimpl.X.MessageStateOf(protoimpl.Pointer(x))
+		if ms.LoadMessageInfo() == nil {
+			ms.StoreMessageInfo(mi)
+		}
+		return ms
+	}
+	return mi.MessageOf(x)
+}
+
+// Deprecated: Use BatchSaveNotificationsResponse.ProtoReflect.Descriptor instead.
+func (*BatchSaveNotificationsResponse) Descriptor() ([]byte, []int) {
+	return file_notification_notification_proto_rawDescGZIP(), []int{14}
+}
+
+func (x *BatchSaveNotificationsResponse) GetCreatedCount() int64 {
+	if x != nil {
+		return x.CreatedCount
+	}
+	return 0
+}
+
+func (x *BatchSaveNotificationsResponse) GetUpsertedCount() int64 {
+	if x != nil {
+		return x.UpsertedCount
+	}
+	return 0
+}
+
 var File_notification_notification_proto protoreflect.FileDescriptor
 
 const file_notification_notification_proto_rawDesc = "" +
@@ -884,7 +991,13 @@ const file_notification_notification_proto_rawDesc = "" +
 	"\fnotification\x18\x01 \x01(\v2!.notification.NotificationPayloadR\fnotification\"$\n" +
 	"\"CleanDuplicateNotificationsRequest\"J\n" +
 	"#CleanDuplicateNotificationsResponse\x12#\n" +
-	"\rdeleted_count\x18\x01 \x01(\x03R\fdeletedCount*\xeb\x01\n" +
+	"\rdeleted_count\x18\x01 \x01(\x03R\fdeletedCount\"\x99\x01\n" +
+	"\x1dBatchSaveNotificationsRequest\x12;\n" +
+	"\acreates\x18\x01 \x03(\v2!.notification.NotificationPayloadR\acreates\x12;\n" +
+	"\aupserts\x18\x02 \x03(\v2!.notification.NotificationPayloadR\aupserts\"l\n" +
+	"\x1eBatchSaveNotificationsResponse\x12#\n" +
+	"\rcreated_count\x18\x01 \x01(\x03R\fcreatedCount\x12%\n" +
+	"\x0eupserted_count\x18\x02 \x01(\x03R\rupsertedCount*\xeb\x01\n" +
 	"\x10NotificationType\x12\x1d\n" +
 	"\x19NOTIFICATION_TYPE_UNKNOWN\x10\x00\x12\v\n" +
 	"\aCOMMENT\x10\x01\x12\t\n" +
@@ -900,7 +1013,7 @@ const file_notification_notification_proto_rawDesc = "" +
 	"\x11SYSTEM_AUDIT_PASS\x10\t\x12\x17\n" +
 	"\x13SYSTEM_AUDIT_REJECT\x10\n" +
 	"\x12\x16\n" +
-	"\x12SYSTEM_POST_DELETE\x10\v2\x95\x05\n" +
+	"\x12SYSTEM_POST_DELETE\x10\v2\x8a\x06\n" +
 	"\x13NotificationService\x12[\n" +
 	"\x0eGetUnreadCount\x12#.notification.GetUnreadCountRequest\x1a$.notification.GetUnreadCountResponse\x12d\n" +
 	"\x11ListNotifications\x12&.notification.ListNotificationsRequest\x1a'.notification.ListNotificationsResponse\x12D\n" +
@@ -908,7 +1021,8 @@ const file_notification_notification_proto_rawDesc = "" +
 	"\rMarkBatchRead\x12\".notification.MarkBatchReadRequest\x1a\x13.notification.Empty\x12R\n" +
 	"\x12CreateNotification\x12'.notification.CreateNotificationRequest\x1a\x13.notification.Empty\x12R\n" +
 	"\x12UpsertNotification\x12'.notification.UpsertNotificationRequest\x1a\x13.notification.Empty\x12\x82\x01\n" +
-	"\x1bCleanDuplicateNotifications\x120.notification.CleanDuplicateNotificationsRequest\x1a1.notification.CleanDuplicateNotificationsResponseB\x10Z\x0e./notificationb\x06proto3"
+	"\x1bCleanDuplicateNotifications\x120.notification.CleanDuplicateNotificationsRequest\x1a1.notification.CleanDuplicateNotificationsResponse\x12s\n" +
+	"\x16BatchSaveNotifications\x12+.notification.BatchSaveNotificationsRequest\x1a,.notification.BatchSaveNotificationsResponseB\x10Z\x0e./notificationb\x06proto3"
 
 var (
 	file_notification_notification_proto_rawDescOnce sync.Once
@@ -923,7 +1037,7 @@ func file_notification_notification_proto_rawDescGZIP() []byte {
 }
 
 var file_notification_notification_proto_enumTypes = make([]protoimpl.EnumInfo, 1)
-var file_notification_notification_proto_msgTypes = make([]protoimpl.MessageInfo, 13)
+var file_notification_notification_proto_msgTypes = make([]protoimpl.MessageInfo, 15)
 var file_notification_notification_proto_goTypes = []any{
 	(NotificationType)(0),                       // 0: notification.NotificationType
 	(*Empty)(nil),                               // 1: notification.Empty
@@ -939,6 +1053,8 @@ var file_notification_notification_proto_goTypes = []any{
 	(*UpsertNotificationRequest)(nil),           // 11: notification.UpsertNotificationRequest
 	(*CleanDuplicateNotificationsRequest)(nil),  // 12: notification.CleanDuplicateNotificationsRequest
 	(*CleanDuplicateNotificationsResponse)(nil), // 13: notification.CleanDuplicateNotificationsResponse
+	(*BatchSaveNotificationsRequest)(nil),       // 14: notification.BatchSaveNotificationsRequest
+	(*BatchSaveNotificationsResponse)(nil),      // 15: notification.BatchSaveNotificationsResponse
 }
 var file_notification_notification_proto_depIdxs = []int32{
 	0,  // 0: notification.Notification.type:type_name -> notification.NotificationType
@@ -946,25 +1062,29 @@ var file_notification_notification_proto_depIdxs = []int32{
 	2,  // 2: notification.ListNotificationsResponse.items:type_name -> notification.Notification
 	3,  // 3: notification.CreateNotificationRequest.notification:type_name -> notification.NotificationPayload
 	3,  // 4: notification.UpsertNotificationRequest.notification:type_name -> notification.NotificationPayload
-	4,  // 5: notification.NotificationService.GetUnreadCount:input_type -> notification.GetUnreadCountRequest
-	6,  // 6: notification.NotificationService.ListNotifications:input_type -> notification.ListNotificationsRequest
-	8,  // 7: notification.NotificationService.MarkAllRead:input_type -> notification.MarkAllReadRequest
-	9,  // 8: notification.NotificationService.MarkBatchRead:input_type -> notification.MarkBatchReadRequest
-	10, // 9: notification.NotificationService.CreateNotification:input_type -> notification.CreateNotificationRequest
-	11, // 10: notification.NotificationService.UpsertNotification:input_type -> notification.UpsertNotificationRequest
-	12, // 11: notification.NotificationService.CleanDuplicateNotifications:input_type -> notification.CleanDuplicateNotificationsRequest
-	5,  // 12: notification.NotificationService.GetUnreadCount:output_type -> notification.GetUnreadCountResponse
-	7,  // 13: notification.NotificationService.ListNotifications:output_type -> notification.ListNotificationsResponse
-	1,  // 14: notification.NotificationService.MarkAllRead:output_type -> notification.Empty
-	1,  // 15: notification.NotificationService.MarkBatchRead:output_type -> notification.Empty
-	1,  // 16: notification.NotificationService.CreateNotification:output_type -> notification.Empty
-	1,  // 17: notification.NotificationService.UpsertNotification:output_type -> notification.Empty
-	13, // 18: notification.NotificationService.CleanDuplicateNotifications:output_type -> notification.CleanDuplicateNotificationsResponse
-	12, // [12:19] is the sub-list for method output_type
-	5,  // [5:12] is the sub-list for method input_type
-	5,  // [5:5] is the sub-list for extension type_name
-	5,  // [5:5] is the sub-list for extension extendee
-	0,  // [0:5] is the sub-list for field type_name
+	3,  // 5: notification.BatchSaveNotificationsRequest.creates:type_name -> notification.NotificationPayload
+	3,  // 6: notification.BatchSaveNotificationsRequest.upserts:type_name -> notification.NotificationPayload
+	4,  // 7: notification.NotificationService.GetUnreadCount:input_type -> notification.GetUnreadCountRequest
+	6,  // 8: notification.NotificationService.ListNotifications:input_type -> notification.ListNotificationsRequest
+	8,  // 9: notification.NotificationService.MarkAllRead:input_type -> notification.MarkAllReadRequest
+	9,  // 10: notification.NotificationService.MarkBatchRead:input_type -> notification.MarkBatchReadRequest
+	10, // 11: notification.NotificationService.CreateNotification:input_type -> notification.CreateNotificationRequest
+	11, // 12: notification.NotificationService.UpsertNotification:input_type -> notification.UpsertNotificationRequest
+	12, // 13: notification.NotificationService.CleanDuplicateNotifications:input_type -> notification.CleanDuplicateNotificationsRequest
+	14, // 14: notification.NotificationService.BatchSaveNotifications:input_type -> notification.BatchSaveNotificationsRequest
+	5,  // 15: notification.NotificationService.GetUnreadCount:output_type -> notification.GetUnreadCountResponse
+	7,  // 16: notification.NotificationService.ListNotifications:output_type -> notification.ListNotificationsResponse
+	1,  // 17: notification.NotificationService.MarkAllRead:output_type -> notification.Empty
+	1,  // 18: notification.NotificationService.MarkBatchRead:output_type -> notification.Empty
+	1,  // 19: notification.NotificationService.CreateNotification:output_type -> notification.Empty
+	1,  // 20: notification.NotificationService.UpsertNotification:output_type -> notification.Empty
+	13, // 21: notification.NotificationService.CleanDuplicateNotifications:output_type -> notification.CleanDuplicateNotificationsResponse
+	15, // 22: notification.NotificationService.BatchSaveNotifications:output_type -> notification.BatchSaveNotificationsResponse
+	15, // [15:23] is the sub-list for method output_type
+	7,  // [7:15] is the sub-list for method input_type
+	7,  // [7:7] is the sub-list for extension type_name
+	7,  // [7:7] is the sub-list for extension extendee
+	0,  // [0:7] is the sub-list for field type_name
 }
 
 func init() { file_notification_notification_proto_init() }
@@ -978,7 +1098,7 @@ func file_notification_notification_proto_init() {
 			GoPackagePath: reflect.TypeOf(x{}).PkgPath(),
 			RawDescriptor: unsafe.Slice(unsafe.StringData(file_notification_notification_proto_rawDesc), len(file_notification_notification_proto_rawDesc)),
 			NumEnums:      1,
-			NumMessages:   13,
+			NumMessages:   15,
 			NumExtensions: 0,
 			NumServices:   1,
 		},
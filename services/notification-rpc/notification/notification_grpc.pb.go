@@ -26,6 +26,7 @@ const (
 	NotificationService_CreateNotification_FullMethodName          = "/notification.NotificationService/CreateNotification"
 	NotificationService_UpsertNotification_FullMethodName          = "/notification.NotificationService/UpsertNotification"
 	NotificationService_CleanDuplicateNotifications_FullMethodName = "/notification.NotificationService/CleanDuplicateNotifications"
+	NotificationService_BatchSaveNotifications_FullMethodName      = "/notification.NotificationService/BatchSaveNotifications"
 )
 
 // NotificationServiceClient is the client API for NotificationService service.
@@ -46,6 +47,8 @@ type NotificationServiceClient interface {
 	UpsertNotification(ctx context.Context, in *UpsertNotificationRequest, opts ...grpc.CallOption) (*Empty, error)
 	// 仅供管理/数据修复使用，便于迁移旧数据时执行一次清洗。
 	CleanDuplicateNotifications(ctx context.Context, in *CleanDuplicateNotificationsRequest, opts ...grpc.CallOption) (*CleanDuplicateNotificationsResponse, error)
+	// 批量写入：一次 RPC 写一批普通通知 + 状态类通知
+	BatchSaveNotifications(ctx context.Context, in *BatchSaveNotificationsRequest, opts ...grpc.CallOption) (*BatchSaveNotificationsResponse, error)
 }
 
 type notificationServiceClient struct {
@@ -126,6 +129,16 @@ func (c *notificationServiceClient) CleanDuplicateNotifications(ctx context.Cont
 	return out, nil
 }
 
+func (c *notificationServiceClient) BatchSaveNotifications(ctx context.Context, in *BatchSaveNotificationsRequest, opts ...grpc.CallOption) (*BatchSaveNotificationsResponse, error) {
+	cOpts := append([]grpc.CallOption{grpc.StaticMethod()}, opts...)
+	out := new(BatchSaveNotificationsResponse)
+	err := c.cc.Invoke(ctx, NotificationService_BatchSaveNotifications_FullMethodName, in, out, cOpts...)
+	if err != nil {
+		return nil, err
+	}
+	return out, nil
+}
+
 // NotificationServiceServer is the server API for NotificationService service.
 // All implementations must embed UnimplementedNotificationServiceServer
 // for forward compatibility.
@@ -144,6 +157,8 @@ type NotificationServiceServer interface {
 	UpsertNotification(context.Context, *UpsertNotificationRequest) (*Empty, error)
 	// 仅供管理/数据修复使用，便于迁移旧数据时执行一次清洗。
 	CleanDuplicateNotifications(context.Context, *CleanDuplicateNotificationsRequest) (*CleanDuplicateNotificationsResponse, error)
+	// 批量写入：一次 RPC 写一批普通通知 + 状态类通知
+	BatchSaveNotifications(context.Context, *BatchSaveNotificationsRequest) (*BatchSaveNotificationsResponse, error)
 	mustEmbedUnimplementedNotificationServiceServer()
 }
 
@@ -175,6 +190,9 @@ func (UnimplementedNotificationServiceServer) UpsertNotification(context.Context
 func (UnimplementedNotificationServiceServer) CleanDuplicateNotifications(context.Context, *CleanDuplicateNotificationsRequest) (*CleanDuplicateNotificationsResponse, error) {
 	return nil, status.Error(codes.Unimplemented, "method CleanDuplicateNotifications not implemented")
 }
+func (UnimplementedNotificationServiceServer) BatchSaveNotifications(context.Context, *BatchSaveNotificationsRequest) (*BatchSaveNotificationsResponse, error) {
+	return nil, status.Error(codes.Unimplemented, "method BatchSaveNotifications not implemented")
+}
 func (UnimplementedNotificationServiceServer) mustEmbedUnimplementedNotificationServiceServer() {}
 func (UnimplementedNotificationServiceServer) testEmbeddedByValue()                             {}
 
@@ -322,6 +340,24 @@ func _NotificationService_CleanDuplicateNotifications_Handler(srv interface{}, c
 	return interceptor(ctx, in, info, handler)
 }
 
+func _NotificationService_BatchSaveNotifications_Handler(srv interface{}, ctx context.Context, dec func(interface{}) error, interceptor grpc.UnaryServerInterceptor) (interface{}, error) {
+	in := new(BatchSaveNotificationsRequest)
+	if err := dec(in); err != nil {
+		return nil, err
+	}
+	if interceptor == nil {
+		return srv.(NotificationServiceServer).BatchSaveNotifications(ctx, in)
+	}
+	info := &grpc.UnaryServerInfo{
+		Server:     srv,
+		FullMethod: NotificationService_BatchSaveNotifications_FullMethodName,
+	}
+	handler := func(ctx context.Context, req interface{}) (interface{}, error) {
+		return srv.(NotificationServiceServer).BatchSaveNotifications(ctx, req.(*BatchSaveNotificationsRequest))
+	}
+	return interceptor(ctx, in, info, handler)
+}
+
 // NotificationService_ServiceDesc is the grpc.ServiceDesc for NotificationService service.
 // It's only intended for direct use with grpc.RegisterService,
 // and not to be introspected or modified (even as a copy)
@@ -357,6 +393,10 @@ var NotificationService_ServiceDesc = grpc.ServiceDesc{
 			MethodName: "CleanDuplicateNotifications",
 			Handler:    _NotificationService_CleanDuplicateNotifications_Handler,
 		},
+		{
+			MethodName: "BatchSaveNotifications",
+			Handler:    _NotificationService_BatchSaveNotifications_Handler,
+		},
 	},
 	Streams:  []grpc.StreamDesc{},
 	Metadata: "notification/notification.proto",
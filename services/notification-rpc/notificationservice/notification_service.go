@@ -14,6 +14,8 @@ import (
 )
 
 type (
+	BatchSaveNotificationsRequest       = notification.BatchSaveNotificationsRequest
+	BatchSaveNotificationsResponse      = notification.BatchSaveNotificationsResponse
 	CleanDuplicateNotificationsRequest  = notification.CleanDuplicateNotificationsRequest
 	CleanDuplicateNotificationsResponse = notification.CleanDuplicateNotificationsResponse
 	CreateNotificationRequest           = notification.CreateNotificationRequest
@@ -43,6 +45,8 @@ type (
 		UpsertNotification(ctx context.Context, in *UpsertNotificationRequest, opts ...grpc.CallOption) (*Empty, error)
 		// 仅供管理/数据修复使用，便于迁移旧数据时执行一次清洗。
 		CleanDuplicateNotifications(ctx context.Context, in *CleanDuplicateNotificationsRequest, opts ...grpc.CallOption) (*CleanDuplicateNotificationsResponse, error)
+		// 批量写入：一次 RPC 写一批普通通知 + 状态类通知
+		BatchSaveNotifications(ctx context.Context, in *BatchSaveNotificationsRequest, opts ...grpc.CallOption) (*BatchSaveNotificationsResponse, error)
 	}
 
 	defaultNotificationService struct {
@@ -97,3 +101,9 @@ func (m *defaultNotificationService) CleanDuplicateNotifications(ctx context.Con
 	client := notification.NewNotificationServiceClient(m.cli.Conn())
 	return client.CleanDuplicateNotifications(ctx, in, opts...)
 }
+
+// 批量写入：一次 RPC 写一批普通通知 + 状态类通知
+func (m *defaultNotificationService) BatchSaveNotifications(ctx context.Context, in *BatchSaveNotificationsRequest, opts ...grpc.CallOption) (*BatchSaveNotificationsResponse, error) {
+	client := notification.NewNotificationServiceClient(m.cli.Conn())
+	return client.BatchSaveNotifications(ctx, in, opts...)
+}
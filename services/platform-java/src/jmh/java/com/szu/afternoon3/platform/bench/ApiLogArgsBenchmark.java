@@ -0,0 +1,70 @@
+package com.szu.afternoon3.platform.bench;
+
+import com.szu.afternoon3.platform.component.ApiLogDispatcher;
+import com.szu.afternoon3.platform.dto.PostCreateDTO;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 接口日志参数序列化 (原 WebLogAspect.formatArgs，现在在 ApiLogDispatcher 的后台线程里执行)
+ * 每个被记录的请求一次，参数以发帖 DTO 为代表
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ApiLogArgsBenchmark {
+
+    private static final MethodHandle FORMAT_ARGS;
+
+    static {
+        try {
+            FORMAT_ARGS = MethodHandles.privateLookupIn(ApiLogDispatcher.class, MethodHandles.lookup())
+                    .findVirtual(ApiLogDispatcher.class, "formatArgs",
+                            MethodType.methodType(String.class, List.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private ApiLogDispatcher dispatcher;
+    private List<Object> postArgs;
+    private List<Object> simpleArgs;
+
+    @Setup
+    public void setup() {
+        // 不调用 init，只用到纯函数 formatArgs
+        dispatcher = new ApiLogDispatcher();
+
+        PostCreateDTO dto = new PostCreateDTO();
+        dto.setTitle(BenchTexts.TITLE);
+        dto.setContent(BenchTexts.content(800));
+        dto.setType(0);
+        dto.setImages(Arrays.asList("https://example.com/1.jpg", "https://example.com/2.jpg"));
+        dto.setTags(Arrays.asList("骑行", "深圳", "周末去哪儿"));
+        dto.setCoverWidth(1080);
+        dto.setCoverHeight(1350);
+        postArgs = Arrays.asList(dto);
+
+        // 列表接口常见的简单参数
+        simpleArgs = Arrays.asList(1, 20, "likes", "");
+    }
+
+    @Benchmark
+    public String formatPostArgs() throws Throwable {
+        return (String) FORMAT_ARGS.invokeExact(dispatcher, postArgs);
+    }
+
+    @Benchmark
+    public String formatSimpleArgs() throws Throwable {
+        return (String) FORMAT_ARGS.invokeExact(dispatcher, simpleArgs);
+    }
+}
@@ -0,0 +1,29 @@
+package com.szu.afternoon3.platform.bench;
+
+/**
+ * 基准测试共用的样例文本 (固定内容，保证不同提交之间可比)
+ */
+final class BenchTexts {
+
+    static final String TITLE = "周末深圳湾骑行路线分享｜附补给点和拍照机位";
+
+    static final String PARAGRAPH =
+            "早上七点从深圳湾公园南门出发，沿着滨海长廊一路骑到欢乐港湾，全程大概二十五公里。"
+            + "路上风很大但是景色真的绝，海边的日出一定要早点去占位置。补给点推荐红树林那边的便利店，"
+            + "水和能量棒都有。拍照机位的话人才公园的春笋和大桥同框最出片，傍晚五点半左右光线最好。"
+            + "新手建议租公共自行车就够了，不用专门买公路车，记得带防晒和头盔。#骑行 #深圳 #周末去哪儿\n";
+
+    private BenchTexts() {
+    }
+
+    /**
+     * 拼出约 length 个字符的正文
+     */
+    static String content(int length) {
+        StringBuilder sb = new StringBuilder(length + PARAGRAPH.length());
+        while (sb.length() < length) {
+            sb.append(PARAGRAPH);
+        }
+        return sb.substring(0, length);
+    }
+}
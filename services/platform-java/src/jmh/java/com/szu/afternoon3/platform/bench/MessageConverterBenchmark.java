@@ -0,0 +1,77 @@
+package com.szu.afternoon3.platform.bench;
+
+import com.szu.afternoon3.platform.config.RabbitConfig;
+import com.szu.afternoon3.platform.event.InteractionEvent;
+import com.szu.afternoon3.platform.event.PostCreateEvent;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RabbitConfig.jsonMessageConverter 的序列化 / 反序列化 (每条 MQ 消息生产、消费各一次)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageConverterBenchmark {
+
+    private MessageConverter converter;
+    private InteractionEvent interactionEvent;
+    private PostCreateEvent postCreateEvent;
+    private Message interactionMessage;
+    private Message postCreateMessage;
+
+    @Setup
+    public void setup() {
+        converter = new RabbitConfig().jsonMessageConverter();
+        interactionEvent = new InteractionEvent(1800000000000000001L, "6650f1c2a8b3c41d2e7f9a01", "LIKE", "ADD", null);
+        postCreateEvent = new PostCreateEvent(
+                "6650f1c2a8b3c41d2e7f9a01",
+                BenchTexts.content(800),
+                BenchTexts.TITLE,
+                Arrays.asList("https://example.com/1.jpg", "https://example.com/2.jpg"),
+                null,
+                1800000000000000001L,
+                Arrays.asList("骑行", "深圳", "周末去哪儿"),
+                0,
+                "https://example.com/1.jpg",
+                1080,
+                1350,
+                "骑行的小鹿",
+                "https://example.com/avatar.jpg");
+        interactionMessage = converter.toMessage(interactionEvent, new MessageProperties());
+        postCreateMessage = converter.toMessage(postCreateEvent, new MessageProperties());
+    }
+
+    @Benchmark
+    public Message interactionToMessage() {
+        return converter.toMessage(interactionEvent, new MessageProperties());
+    }
+
+    @Benchmark
+    public Object interactionFromMessage() {
+        return converter.fromMessage(interactionMessage);
+    }
+
+    @Benchmark
+    public Object interactionRoundTrip() {
+        return converter.fromMessage(converter.toMessage(interactionEvent, new MessageProperties()));
+    }
+
+    @Benchmark
+    public Object postCreateRoundTrip() {
+        return converter.fromMessage(converter.toMessage(postCreateEvent, new MessageProperties()));
+    }
+
+    @Benchmark
+    public Object postCreateFromMessage() {
+        return converter.fromMessage(postCreateMessage);
+    }
+}
@@ -0,0 +1,88 @@
+package com.szu.afternoon3.platform.bench;
+
+import com.szu.afternoon3.platform.entity.mongo.PostDoc;
+import com.szu.afternoon3.platform.service.impl.PostServiceImpl;
+import com.szu.afternoon3.platform.vo.PostVO;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PostDoc -> PostVO 基础转换 (列表页每条帖子都要走一次)
+ * baseConvertToVO 是私有方法，通过 MethodHandle 调用 (static final，JIT 会内联)；
+ * 另附 "每次新建 DateTimeFormatter" 与 "复用常量" 的对照
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PostConvertBenchmark {
+
+    private static final MethodHandle BASE_CONVERT;
+    private static final DateTimeFormatter CACHED_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    static {
+        try {
+            BASE_CONVERT = MethodHandles.privateLookupIn(PostServiceImpl.class, MethodHandles.lookup())
+                    .findVirtual(PostServiceImpl.class, "baseConvertToVO",
+                            MethodType.methodType(PostVO.class, PostDoc.class, boolean.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private PostServiceImpl postService;
+    private PostDoc doc;
+
+    @Setup
+    public void setup() {
+        postService = new PostServiceImpl();
+        doc = new PostDoc();
+        doc.setId("6650f1c2a8b3c41d2e7f9a01");
+        doc.setUserId(1800000000000000001L);
+        doc.setUserNickname("骑行的小鹿");
+        doc.setUserAvatar("https://example.com/avatar.jpg");
+        doc.setTitle(BenchTexts.TITLE);
+        doc.setContent(BenchTexts.content(800));
+        doc.setTags(Arrays.asList("骑行", "深圳", "周末去哪儿"));
+        doc.setType(0);
+        doc.setResources(Arrays.asList("https://example.com/1.jpg", "https://example.com/2.jpg"));
+        doc.setCover("https://example.com/1.jpg");
+        doc.setCoverWidth(1080);
+        doc.setCoverHeight(1350);
+        doc.setLikeCount(1024);
+        doc.setCollectCount(256);
+        doc.setCommentCount(64);
+        doc.setRatingSum(144.0);
+        doc.setRatingCount(32);
+        doc.setCreatedAt(LocalDateTime.of(2025, 6, 1, 8, 30, 0));
+    }
+
+    @Benchmark
+    public PostVO convertList() throws Throwable {
+        return (PostVO) BASE_CONVERT.invokeExact(postService, doc, false);
+    }
+
+    @Benchmark
+    public PostVO convertDetail() throws Throwable {
+        return (PostVO) BASE_CONVERT.invokeExact(postService, doc, true);
+    }
+
+    @Benchmark
+    public String formatWithNewFormatter() {
+        return doc.getCreatedAt().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+    }
+
+    @Benchmark
+    public String formatWithCachedFormatter() {
+        return doc.getCreatedAt().format(CACHED_FORMATTER);
+    }
+}
@@ -0,0 +1,51 @@
+package com.szu.afternoon3.platform.bench;
+
+import com.szu.afternoon3.platform.component.SensitiveWordFilter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 敏感词扫描：加载真实词库 (resources/sensitive/*.dat)，正文长度分三档
+ * 正常帖子基本不命中，全文扫完是最常见也是最慢的路径
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SensitiveWordFilterBenchmark {
+
+    @Param({"200", "2000", "20000"})
+    private int length;
+
+    private SensitiveWordFilter filter;
+    private String content;
+    private String[] postFields;
+
+    @Setup
+    public void setup() {
+        filter = new SensitiveWordFilter();
+        filter.init();
+        content = BenchTexts.content(length);
+        // 发帖校验：标题 + 正文 + 3 个标签
+        postFields = new String[]{BenchTexts.TITLE, content, "骑行", "深圳", "周末去哪儿"};
+    }
+
+    @Benchmark
+    public List<String> findAll() {
+        return filter.findAll(content);
+    }
+
+    @Benchmark
+    public String filter() {
+        return filter.filter(content);
+    }
+
+    @Benchmark
+    public SensitiveWordFilter.Hit postFieldsCheck() {
+        return filter.findFirstInFields(postFields);
+    }
+}
@@ -7,11 +7,13 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @MapperScan("com.szu.afternoon3.platform.mapper")
 @EnableMongoRepositories(basePackages = "com.szu.afternoon3.platform.repository")
 @EnableAsync
+@EnableScheduling
 public class PlatformApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,308 @@
+package com.szu.afternoon3.platform.common;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * 双数组 Aho–Corasick 自动机 (多模式串匹配)
+ * 构建完只剩几个 int 数组：状态 s 经字符码 c 转移到 t = base[s] + c，且要求 check[t] == s；
+ * 失配时沿 fail 链回退，扫描过程不创建任何对象。
+ *
+ * 匹配口径 (与原 WordTree 的非密集、非贪婪匹配一致)：
+ * 1. 跳过字符 (如空格、标点) 不参与匹配，出现在词中间时算作命中区间的一部分，"敏 感" 也能命中 "敏感"
+ * 2. 从最左的起点取最短的词，命中后从命中终点之后重新开始，命中区间互不重叠
+ *    (词典 {abcd, bc} 扫 "abcd" 命中 abcd 而不是先结束的 bc)
+ * 先结束的词不一定是最左起点的那个：遇到命中时先记为候选，等当前状态的最长前缀已经从候选起点之后开始
+ * (更靠左的词不可能再出现) 才确认；确认后从候选终点之后重扫，回退最多一个词长。
+ * 唯一的差别：以跳过字符结尾的词 (词库里有 "www.xxx.tk." 这种) 在 WordTree 里永远命不中 (它把结尾的跳过字符
+ * 记成了词尾)，这里按去掉结尾后的词正常命中。
+ *
+ * 构建后只读，可被多线程共享。
+ */
+public final class DoubleArrayAhoCorasick {
+
+    /**
+     * 命中回调，返回 false 表示不再继续扫描
+     */
+    @FunctionalInterface
+    public interface HitHandler {
+        /**
+         * @param start 命中区间起点 (含)
+         * @param end   命中区间终点 (含)
+         */
+        boolean onHit(int start, int end);
+    }
+
+    private static final int ROOT = 0;
+    private static final int FREE = -1;
+
+    // 字符 -> 字符码 (1..K)，词典里没出现过的字符为 0
+    private final char[] codes = new char[Character.MAX_VALUE + 1];
+    // 跳过字符
+    private final boolean[] skips = new boolean[Character.MAX_VALUE + 1];
+
+    private int[] base;
+    private int[] check;
+    private int[] fail;
+    // 在该状态结束的最长词的长度 (不含跳过字符)，0 表示不是词尾
+    private int[] outLen;
+    // 状态对应前缀的长度
+    private int[] depth;
+
+    private final int wordCount;
+
+    /**
+     * @param words 词条 (其中的跳过字符会被去掉)
+     * @param skip  哪些字符在匹配时跳过，null 表示不跳过
+     */
+    public DoubleArrayAhoCorasick(Collection<String> words, IntPredicate skip) {
+        if (skip != null) {
+            for (int ch = 0; ch <= Character.MAX_VALUE; ch++) {
+                skips[ch] = skip.test(ch);
+            }
+        }
+        Node root = buildTrie(words);
+        this.wordCount = root.count;
+        buildDoubleArray(root);
+        buildFail(root);
+    }
+
+    public int size() {
+        return wordCount;
+    }
+
+    /**
+     * 扫描 text[from, to)
+     * @return 命中次数 (handler 中途返回 false 时，含最后那一次)
+     */
+    public int scan(CharSequence text, int from, int to, HitHandler handler) {
+        int hits = 0;
+        int s = ROOT;
+        // k: 本轮已扫过的非跳过字符数；候选命中的起点按它计，终点是原文下标
+        int k = 0;
+        int candStart = 0;
+        int candEnd = -1;
+        int candLen = 0;
+        int i = from;
+        while (true) {
+            boolean done = i >= to;
+            if (!done) {
+                char ch = text.charAt(i);
+                if (skips[ch]) {
+                    i++;
+                    continue;
+                }
+                int c = codes[ch];
+                k++;
+                // 词典里没有的字符，任何前缀都断在这里
+                s = c == 0 ? ROOT : next(s, c);
+                int len = outLen[s];
+                // 同一终点取最长 = 起点最左；起点相同时先结束的更短，保留先到的
+                if (len > 0 && (candLen == 0 || k - len < candStart)) {
+                    candStart = k - len;
+                    candEnd = i;
+                    candLen = len;
+                }
+            }
+            // 当前最长前缀的起点不早于候选起点 (或已扫完)：不会再有更靠左的词，候选确认
+            if (candLen > 0 && (done || k - depth[s] >= candStart)) {
+                hits++;
+                if (handler != null && !handler.onHit(startOf(text, from, candEnd, candLen), candEnd)) {
+                    return hits;
+                }
+                i = candEnd + 1;
+                s = ROOT;
+                k = 0;
+                candLen = 0;
+                continue;
+            }
+            if (done) {
+                return hits;
+            }
+            i++;
+        }
+    }
+
+    public int scan(CharSequence text, HitHandler handler) {
+        return text == null ? 0 : scan(text, 0, text.length(), handler);
+    }
+
+    /**
+     * 是否至少命中一个词 (命中即停)
+     */
+    public boolean matches(CharSequence text) {
+        return text != null && scan(text, 0, text.length(), (start, end) -> false) > 0;
+    }
+
+    // --- Private Methods ---
+
+    private int next(int s, int c) {
+        while (true) {
+            int t = base[s] + c;
+            if (t < check.length && check[t] == s) {
+                return t;
+            }
+            if (s == ROOT) {
+                return ROOT;
+            }
+            s = fail[s];
+        }
+    }
+
+    /**
+     * 从终点往回数 len 个非跳过字符，得到命中区间起点
+     */
+    private int startOf(CharSequence text, int from, int end, int len) {
+        int i = end;
+        int remain = len;
+        while (i >= from) {
+            if (!skips[text.charAt(i)] && --remain == 0) {
+                return i;
+            }
+            i--;
+        }
+        return from;
+    }
+
+    private Node buildTrie(Collection<String> words) {
+        Node root = new Node(0);
+        char nextCode = 1;
+        for (String word : words) {
+            if (word == null) continue;
+            Node node = root;
+            for (int i = 0; i < word.length(); i++) {
+                char ch = word.charAt(i);
+                if (skips[ch]) continue;
+                if (codes[ch] == 0) {
+                    codes[ch] = nextCode++;
+                }
+                int depth = node.depth + 1;
+                node = node.children.computeIfAbsent((int) codes[ch], k -> new Node(depth));
+            }
+            if (node != root && !node.terminal) {
+                node.terminal = true;
+                root.count++;
+            }
+        }
+        return root;
+    }
+
+    /**
+     * 按层分配状态号：每个节点找一个 base，使它所有子节点落到的槽位都还空着
+     */
+    private void buildDoubleArray(Node root) {
+        int capacity = 1024;
+        base = new int[capacity];
+        check = new int[capacity];
+        Arrays.fill(check, FREE);
+        check[ROOT] = ROOT;
+        root.state = ROOT;
+
+        // 找 base 时从这里开始试；前面一段几乎占满时整体往后挪，避免每个节点都从头扫一遍 (O(n²))
+        int nextCheckPos = 1;
+        Deque<Node> queue = new ArrayDeque<>();
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            if (node.children.isEmpty()) continue;
+
+            int minCode = node.children.firstKey();
+            int maxCode = node.children.lastKey();
+            // pos 是第一个子节点的候选槽位，b = pos - minCode
+            int pos = Math.max(nextCheckPos, minCode + 1) - 1;
+            int occupied = 0;
+            boolean firstFreeSeen = false;
+            int b;
+            outer:
+            while (true) {
+                pos++;
+                if (pos >= check.length) {
+                    grow(pos + 1);
+                }
+                if (check[pos] != FREE) {
+                    occupied++;
+                    continue;
+                }
+                if (!firstFreeSeen) {
+                    nextCheckPos = pos;
+                    firstFreeSeen = true;
+                }
+                b = pos - minCode;
+                if (b + maxCode >= check.length) {
+                    grow(b + maxCode + 1);
+                }
+                for (int c : node.children.keySet()) {
+                    if (check[b + c] != FREE) {
+                        continue outer;
+                    }
+                }
+                break;
+            }
+            if (occupied >= 0.95 * (pos - nextCheckPos + 1)) {
+                nextCheckPos = pos;
+            }
+
+            base[node.state] = b;
+            for (Map.Entry<Integer, Node> entry : node.children.entrySet()) {
+                int t = b + entry.getKey();
+                check[t] = node.state;
+                entry.getValue().state = t;
+                queue.add(entry.getValue());
+            }
+        }
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = check.length;
+        while (capacity < minCapacity) {
+            capacity <<= 1;
+        }
+        int old = check.length;
+        base = Arrays.copyOf(base, capacity);
+        check = Arrays.copyOf(check, capacity);
+        Arrays.fill(check, old, capacity, FREE);
+    }
+
+    /**
+     * BFS 求失配指针；outLen 取自己 (是词尾时自己最长) 或失配状态的 outLen
+     */
+    private void buildFail(Node root) {
+        fail = new int[check.length];
+        outLen = new int[check.length];
+        depth = new int[check.length];
+
+        Deque<Node> queue = new ArrayDeque<>();
+        for (Node child : root.children.values()) {
+            fail[child.state] = ROOT;
+            outLen[child.state] = child.terminal ? child.depth : 0;
+            depth[child.state] = child.depth;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            for (Map.Entry<Integer, Node> entry : node.children.entrySet()) {
+                Node child = entry.getValue();
+                int f = next(fail[node.state], entry.getKey());
+                fail[child.state] = f;
+                outLen[child.state] = child.terminal ? child.depth : outLen[f];
+                depth[child.state] = child.depth;
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * 构建期的普通 Trie 节点，构建完即丢弃
+     */
+    private static final class Node {
+        private final int depth;
+        private final TreeMap<Integer, Node> children = new TreeMap<>();
+        private boolean terminal;
+        private int state;
+        private int count; // 只在根节点上用：词条数
+
+        private Node(int depth) {
+            this.depth = depth;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.szu.afternoon3.platform.common;
+
+import cn.hutool.core.codec.Base64;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.szu.afternoon3.platform.enums.ResultCode;
+import com.szu.afternoon3.platform.exception.AppException;
+import lombok.Data;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 游标分页 (Keyset) 的不透明游标
+ * 记录上一页最后一条的排序键 (时间 / 点赞数 + _id)，下一页从它之后继续查，
+ * 不再依赖 skip，翻得再深代价也一样，也不需要每次 count。
+ *
+ * 对外是 Base64URL(JSON)，前端只管原样回传，不要解析。
+ * 首页请求传空串 (cursor=) 即可。
+ */
+@Data
+public class PageCursor {
+
+    private Long time;          // 排序时间 (毫秒)，createdAt / viewTime / 收件箱 score
+    private Long likes;         // 按热度排序时的 likeCount (帖子上为空时也保持为空)
+    private String id;          // 最后一条的 _id (或 Redis member)，相同排序键时的兜底比较
+    private List<Object> after; // ES search_after 排序值
+    private Long origin;        // ES 热度排序的衰减原点，翻页期间固定，保证前后页算分一致
+
+    public static boolean isFirst(String cursor) {
+        return StrUtil.isBlank(cursor);
+    }
+
+    public static PageCursor of(LocalDateTime time, Long likes, String id) {
+        PageCursor cursor = new PageCursor();
+        cursor.setTime(toMillis(time));
+        cursor.setLikes(likes);
+        cursor.setId(id);
+        return cursor;
+    }
+
+    public String encode() {
+        JSONObject json = new JSONObject();
+        json.set("t", time);
+        json.set("l", likes);
+        json.set("i", id);
+        json.set("a", after);
+        json.set("o", origin);
+        return Base64.encodeUrlSafe(json.toString(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 解析前端回传的游标，首页 (空串) 返回 null
+     */
+    public static PageCursor decode(String cursor) {
+        if (isFirst(cursor)) {
+            return null;
+        }
+        try {
+            JSONObject json = JSONUtil.parseObj(Base64.decodeStr(cursor, StandardCharsets.UTF_8));
+            PageCursor result = new PageCursor();
+            result.setTime(json.getLong("t"));
+            result.setLikes(json.getLong("l"));
+            result.setId(json.getStr("i"));
+            result.setOrigin(json.getLong("o"));
+            JSONArray after = json.getJSONArray("a");
+            if (after != null) {
+                // JSON 反序列化后数字类型会变 (Integer/BigDecimal)，统一成 ES 认识的 Long/Double
+                List<Object> values = new ArrayList<>(after.size());
+                for (Object v : after) {
+                    if (v instanceof BigDecimal || v instanceof Float || v instanceof Double) {
+                        values.add(((Number) v).doubleValue());
+                    } else if (v instanceof Number) {
+                        values.add(((Number) v).longValue());
+                    } else {
+                        values.add(v);
+                    }
+                }
+                result.setAfter(values);
+            }
+            return result;
+        } catch (Exception e) {
+            throw new AppException(ResultCode.PARAM_ERROR, "分页游标无效");
+        }
+    }
+
+    /**
+     * 生成 "排在游标之后" 的 Mongo 条件 (全部按倒序)
+     * 按时间:  time < T  or (time = T and _id < I)
+     * 按热度:  likes < L or (likes = L and time < T) or (likes = L and time = T and _id < I) or likes 为空
+     * Mongo 倒序时 likeCount 为 null / 缺失的排在 0 后面，自成一段：$lt / $eq 都匹配不到它们，要单独一个分支；
+     * 游标停在这一段里时 (likes 为空) 只在这一段里按时间往后翻
+     * @param timeField 时间字段名 (createdAt / viewTime)
+     * @param byLikes 是否以 likeCount 为第一排序键
+     */
+    public Criteria toCriteria(String timeField, boolean byLikes) {
+        if (!hasKeyset()) {
+            throw new AppException(ResultCode.PARAM_ERROR, "分页游标无效");
+        }
+        LocalDateTime t = toLocalDateTime(time);
+        ObjectId oid = new ObjectId(id);
+
+        Criteria timeAfter = new Criteria().orOperator(
+                Criteria.where(timeField).lt(t),
+                new Criteria().andOperator(Criteria.where(timeField).is(t), Criteria.where("_id").lt(oid))
+        );
+        if (!byLikes) {
+            return timeAfter;
+        }
+        if (likes == null) {
+            return new Criteria().andOperator(Criteria.where("likeCount").is(null), timeAfter);
+        }
+        return new Criteria().orOperator(
+                Criteria.where("likeCount").lt(likes),
+                new Criteria().andOperator(Criteria.where("likeCount").is(likes), timeAfter),
+                Criteria.where("likeCount").is(null)
+        );
+    }
+
+    /**
+     * Mongo keyset 只认合法的时间 + ObjectId 游标 (ES 游标里也会顺带写上，便于降级续翻)
+     */
+    public boolean hasKeyset() {
+        return time != null && id != null && ObjectId.isValid(id);
+    }
+
+    public static long toMillis(LocalDateTime time) {
+        return time == null ? 0L : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
@@ -15,4 +15,78 @@ public interface RedisKey {
 
     // Key: inter:comment:like:{commentId}, Member: userId
     String COMMENT_LIKE_SET = "inter:comment:like:";
-}
\ No newline at end of file
+
+    // ZSet结构: 关注流收件箱 (写扩散)，Member: postId, Score: 发帖时间戳(ms)
+    // Key: feed:inbox:{userId}
+    String FEED_INBOX_ZSET = "feed:inbox:";
+
+    // ZSet结构: 作者发件箱 (大V 读扩散 + 关注/取关时增删收件箱)
+    // Key: feed:outbox:{authorId}
+    String FEED_OUTBOX_ZSET = "feed:outbox:";
+
+    // Set结构: 粉丝数超过阈值的大V 作者ID，发帖时不做写扩散
+    String FEED_CELEBRITY_SET = "feed:celebrity";
+
+    // String结构: 帖子二级缓存 (PostDoc JSON，空串表示帖子不存在)
+    // Key: post:cache:{postId}
+    String POST_CACHE = "post:cache:";
+
+    // Hash结构: 帖子浏览量增量缓冲，Field: postId, Value: 增量
+    // 定时任务先把它整体 RENAME 成 POST_VIEWS_DRAINING 再慢慢落库，新的浏览继续写进新的缓冲
+    String POST_VIEWS_BUFFER = "rednote:post:views:buffer";
+    String POST_VIEWS_DRAINING = "rednote:post:views:draining";
+
+    // String结构: 浏览量同步任务的分布式锁，多副本只有一个在跑
+    String POST_VIEWS_SYNC_LOCK = "rednote:lock:post-views-sync";
+
+    // ZSet结构: 热门标签排行，Member: 标签，Score: 有效帖子数 / 有效帖子总浏览量 (增量维护 + 定时对账)
+    String TAG_POST_COUNT_ZSET = "rednote:tags:hot:count";
+    String TAG_VIEW_SUM_ZSET = "rednote:tags:hot:views";
+
+    // Hash结构: 已计入排行的帖子及其标签，Field: postId, Value: 标签 (0x1F 分隔)
+    String TAG_POST_HASH = "rednote:tags:hot:posts";
+
+    // String结构: 热门标签对账任务的分布式锁
+    String TAG_REBUILD_LOCK = "rednote:lock:hot-tag-rebuild";
+
+    // Hash结构: 帖子 ES 索引重建进度 (目标索引、断点 _id、已写入条数、状态等)，用于查询进度和断点续跑
+    String ES_REINDEX_STATE = "rednote:es:reindex:posts";
+
+    // String结构: ES 索引重建任务的分布式锁
+    String ES_REINDEX_LOCK = "rednote:lock:es-reindex";
+
+    // String结构: AI 调用结果缓存，同样的内容不重复调模型
+    // Key: ai:result:{scene}:{sha256(模型+场景+人设+文本+图片+视频+温度)}
+    String AI_RESULT = "ai:result:";
+
+    // String结构: 用户名片缓存 (昵称/头像/角色/状态 JSON，空串表示用户不存在)
+    // Key: user:card:{userId}
+    String USER_CARD = "user:card:";
+
+    // Set结构: 关注关系邻接表 (按需从 user_follows 重建，"_" 为空 Set 占位成员)
+    // Key: follow:following:{userId} 我关注的人 / follow:followers:{userId} 关注我的人
+    String FOLLOW_FOLLOWING_SET = "follow:following:";
+    String FOLLOW_FOLLOWERS_SET = "follow:followers:";
+
+    // Set结构: 互关好友交集缓存 (SINTERSTORE 结果，短 TTL，关注关系变化时删除)
+    // Key: follow:friends:{userId}
+    String FOLLOW_FRIENDS_SET = "follow:friends:";
+
+    // Hash结构: 用户搜索索引增量同步进度 (lastId 新用户游标，updatedAt/updatedId 资料变更游标)
+    String USER_SEARCH_SYNC_STATE = "rednote:es:user-sync";
+
+    // String结构: 用户搜索索引同步任务的分布式锁
+    String USER_SEARCH_SYNC_LOCK = "rednote:lock:user-search-sync";
+
+    // Hash结构: 用户地区分布 (地区 -> 人数)，每日统计压实时整份重算
+    String STATS_REGION_HASH = "rednote:stats:region";
+
+    // String结构: 每日统计新用户扫描游标 (上次扫到的用户ID)
+    String STATS_USER_CURSOR = "rednote:stats:user-cursor";
+
+    // String结构: 每日统计任务的分布式锁
+    String STATS_DAILY_LOCK = "rednote:lock:daily-stats";
+
+    // String结构: 日志导出取消标记 (rednote:log-export:cancel:{exportId})
+    String LOG_EXPORT_CANCEL = "rednote:log-export:cancel:";
+}
@@ -0,0 +1,106 @@
+package com.szu.afternoon3.platform.common;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界无锁环形队列 (多生产者 / 单消费者)
+ * 每个槽位带一个序号：生产者 CAS 抢到槽位再写入，消费者看序号判断槽位是否已写好。
+ * 写满时 offer 直接返回 false，由调用方决定丢弃，绝不阻塞生产者线程。
+ *
+ * 注意：poll / drainTo 只能由同一个线程调用。
+ */
+public class RingBuffer<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong(); // 下一个可写位置 (生产者共享)
+    private final AtomicLong head = new AtomicLong(); // 下一个可读位置 (仅消费者写)
+
+    /**
+     * @param capacity 容量，会向上取整到 2 的幂
+     */
+    public RingBuffer(int capacity) {
+        int size = 1;
+        while (size < Math.max(2, capacity)) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 写入一个元素
+     * @return 队列已满返回 false
+     */
+    public boolean offer(E e) {
+        long pos = tail.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                // 槽位空闲，抢占它
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots.set(index, e);
+                    sequences.set(index, pos + 1); // 发布：消费者看到 pos+1 才会读
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                // 绕了一圈还没被消费，满了
+                return false;
+            } else {
+                // 被别的生产者抢先了
+                pos = tail.get();
+            }
+        }
+    }
+
+    /**
+     * 取出一个元素，没有返回 null
+     */
+    public E poll() {
+        long pos = head.get();
+        int index = (int) (pos & mask);
+        if (sequences.get(index) != pos + 1) {
+            return null;
+        }
+        E e = slots.get(index);
+        slots.set(index, null);
+        sequences.set(index, pos + mask + 1); // 归还槽位给下一圈的生产者
+        head.set(pos + 1);
+        return e;
+    }
+
+    /**
+     * 批量取出，最多 max 个
+     * @return 实际取出的个数
+     */
+    public int drainTo(List<E> target, int max) {
+        int n = 0;
+        E e;
+        while (n < max && (e = poll()) != null) {
+            target.add(e);
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * 当前积压的元素个数 (近似值)
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -1,9 +1,8 @@
 package com.szu.afternoon3.platform.common;
 
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.json.JSONUtil;
 import com.szu.afternoon3.platform.annotation.OperationLog;
-import com.szu.afternoon3.platform.config.RabbitConfig;
+import com.szu.afternoon3.platform.component.ApiLogDispatcher;
 import com.szu.afternoon3.platform.entity.mongo.ApiLogDoc;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -29,7 +28,10 @@ import org.springframework.web.multipart.MultipartFile;
 import java.lang.reflect.Method;
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Aspect
@@ -38,11 +40,13 @@ import java.util.stream.Collectors;
 public class WebLogAspect {
 
     @Autowired
-    private MqPublisher mqPublisher;
+    private ApiLogDispatcher apiLogDispatcher;
 
     // --- SpEL 解析工具 ---
     private final ExpressionParser parser = new SpelExpressionParser();
     private final DefaultParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+    // 每个方法的表达式只解析一次 (连同参数名一起缓存)
+    private final Map<Method, SpelMeta> spelCache = new ConcurrentHashMap<>();
 
     @Pointcut("execution(public * com.szu.afternoon3.platform.controller..*.*(..))")
     public void webLog() {}
@@ -124,7 +128,6 @@ public class WebLogAspect {
         logDoc.setIp(ip);
         logDoc.setMethod(request.getMethod());
         logDoc.setUri(uri);
-        logDoc.setParams(formatArgs(joinPoint.getArgs()));
 
         if (errorMsg != null) {
             logDoc.setStatus(500);
@@ -134,18 +137,17 @@ public class WebLogAspect {
         }
 
         // 4. 在发送 MQ 之前，直接在 Web 层打印详细日志 (Controller 层日志)
-        // 这样即使 MQ 挂了，你也能在控制台看到有请求进来
-        log.info("Request: [{} {}] IP:{} | User:{} | Cost:{}ms | Desc:{} | Args:{}",
+        // 这样即使 MQ 挂了，你也能在控制台看到有请求进来 (参数序列化放到后台线程，这里不再打印)
+        log.info("Request: [{} {}] IP:{} | User:{} | Cost:{}ms | Desc:{}",
                 request.getMethod(),
                 uri,
                 ip,
                 UserContext.getUserId(),
                 timeCost,
-                logDoc.getDescription(),
-                StrUtil.subPre(logDoc.getParams(), 100)); // 参数截取前100字符，防止日志太长刷屏
+                logDoc.getDescription());
 
-        // 4. 发送 MQ
-        mqPublisher.publish(RabbitConfig.PLATFORM_EXCHANGE, "log.info", logDoc);
+        // 5. 放进异步队列，由后台线程序列化参数、攒批发 MQ
+        apiLogDispatcher.dispatch(logDoc, safeArgs(joinPoint.getArgs()));
     }
 
     /**
@@ -153,8 +155,11 @@ public class WebLogAspect {
      */
     private String parseSpel(String expressionString, Method method, Object[] args) {
         try {
-            // 获取方法参数名 (如: ["dto", "id"])
-            String[] paramNames = parameterNameDiscoverer.getParameterNames(method);
+            SpelMeta meta = spelCache.computeIfAbsent(method, m -> new SpelMeta(
+                    parser.parseExpression(expressionString),
+                    // 获取方法参数名 (如: ["dto", "id"])
+                    parameterNameDiscoverer.getParameterNames(m)));
+            String[] paramNames = meta.paramNames;
             if (paramNames == null || paramNames.length == 0) {
                 return "";
             }
@@ -166,9 +171,8 @@ public class WebLogAspect {
                 context.setVariable(paramNames[i], args[i]);
             }
 
-            // 解析表达式 (如: "#dto.postId")
-            Expression expression = parser.parseExpression(expressionString);
-            Object value = expression.getValue(context);
+            // 求值 (如: "#dto.postId")
+            Object value = meta.expression.getValue(context);
             return value != null ? value.toString() : "";
 
         } catch (Exception e) {
@@ -177,18 +181,13 @@ public class WebLogAspect {
         }
     }
 
-    private String formatArgs(Object[] args) {
-        if (args == null || args.length == 0) return "";
-        try {
-            List<Object> safeArgs = Arrays.stream(args)
-                    .filter(arg -> !(arg instanceof MultipartFile))
-                    .filter(arg -> !(arg instanceof HttpServletRequest))
-                    .filter(arg -> !(arg instanceof HttpServletResponse))
-                    .collect(Collectors.toList());
-            return JSONUtil.toJsonStr(safeArgs);
-        } catch (Exception e) {
-            return "args_error";
-        }
+    private List<Object> safeArgs(Object[] args) {
+        if (args == null || args.length == 0) return Collections.emptyList();
+        return Arrays.stream(args)
+                .filter(arg -> !(arg instanceof MultipartFile))
+                .filter(arg -> !(arg instanceof HttpServletRequest))
+                .filter(arg -> !(arg instanceof HttpServletResponse))
+                .collect(Collectors.toList());
     }
 
     /**
@@ -224,4 +223,14 @@ public class WebLogAspect {
 
         return ip;
     }
+
+    private static class SpelMeta {
+        private final Expression expression;
+        private final String[] paramNames;
+
+        private SpelMeta(Expression expression, String[] paramNames) {
+            this.expression = expression;
+            this.paramNames = paramNames;
+        }
+    }
 }
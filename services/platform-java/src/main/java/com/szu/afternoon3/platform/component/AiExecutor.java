@@ -0,0 +1,246 @@
+package com.szu.afternoon3.platform.component;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.thread.NamedThreadFactory;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.szu.afternoon3.platform.common.RedisKey;
+import com.szu.afternoon3.platform.enums.AiScene;
+import com.szu.afternoon3.platform.service.AiModelClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * AI 调用统一出口
+ * 1. 独立线程池 + 有界队列：模型再慢也只占这几个线程，不会拖住 MQ 消费者和 Undertow 工作线程；队列满直接拒绝
+ * 2. 按场景设置超时：调用方最多等这么久，超时就放弃 (返回 null，由调用方走兜底)
+ * 3. 熔断：连续失败 / 超时达到阈值后一段时间内直接拒绝，到点放一个探测请求，成功才恢复
+ * 4. 结果缓存：按 (模型, 场景, 人设, 文本, 图片, 视频, 温度) 的 SHA-256 缓存在 Redis，
+ *    同样的内容重复审核 / 生成标签不再调模型。只缓存调用方认为有效的结果 (格式不对的不缓存)
+ */
+@Slf4j
+@Component
+public class AiExecutor {
+
+    @Autowired
+    private AiModelClient aiModelClient;
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 模型名参与缓存 key，换模型后旧结果自然失效
+    @Value("${ai.dashscope.model:qwen-vl-plus}")
+    private String modelName;
+
+    @Value("${app.ai.threads:8}")
+    private int threads;
+
+    @Value("${app.ai.queue-capacity:32}")
+    private int queueCapacity;
+
+    // 各场景超时 (毫秒)：同步接口短一些，MQ 里的长一些
+    @Value("${app.ai.tags-timeout-ms:8000}")
+    private long tagsTimeoutMs;
+
+    @Value("${app.ai.audit-timeout-ms:15000}")
+    private long auditTimeoutMs;
+
+    @Value("${app.ai.summary-timeout-ms:30000}")
+    private long summaryTimeoutMs;
+
+    @Value("${app.ai.reply-timeout-ms:30000}")
+    private long replyTimeoutMs;
+
+    // 连续失败多少次后熔断
+    @Value("${app.ai.breaker-failure-threshold:5}")
+    private int breakerFailureThreshold;
+
+    // 熔断持续时间，到点后放一个探测请求
+    @Value("${app.ai.breaker-open-seconds:30}")
+    private long breakerOpenSeconds;
+
+    @Value("${app.ai.cache-ttl-hours:24}")
+    private long cacheTtlHours;
+
+    private ThreadPoolExecutor executor;
+
+    // 熔断状态：openUntil = 0 表示闭合；> 0 表示熔断中 (过了这个时间点进入半开，只放一个探测请求)
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openUntil = 0;
+    private final AtomicBoolean probing = new AtomicBoolean(false);
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new NamedThreadFactory("ai-call-", true),
+                new ThreadPoolExecutor.AbortPolicy());
+        meterRegistry.gauge("ai.executor.queue", executor, e -> e.getQueue().size());
+        meterRegistry.gauge("ai.executor.active", executor, ThreadPoolExecutor::getActiveCount);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 调用模型
+     * @param cacheIf 结果满足条件时写缓存；传 null 表示这个场景不读也不写缓存 (比如每次都要不一样的聊天回复)
+     * @return 模型返回的文本；超时、失败、熔断、线程池满时返回 null
+     */
+    public String call(AiScene scene, String systemPrompt, String userText, List<String> images, String video,
+                       double temperature, Predicate<String> cacheIf) {
+        // 1. 查缓存
+        String cacheKey = null;
+        if (cacheIf != null) {
+            cacheKey = RedisKey.AI_RESULT + scene.name().toLowerCase() + ":"
+                    + hash(scene, systemPrompt, userText, images, video, temperature);
+            String cached = readCache(cacheKey);
+            if (cached != null) {
+                count(scene, "cache_hit");
+                return cached;
+            }
+        }
+
+        // 2. 熔断检查
+        if (!allow()) {
+            count(scene, "open");
+            log.warn("[AI {}] 熔断中，跳过调用", scene);
+            return null;
+        }
+
+        // 3. 提交到 AI 线程池
+        long startTime = System.currentTimeMillis();
+        Future<String> future;
+        try {
+            future = executor.submit(() -> aiModelClient.chat(scene, systemPrompt, userText, images, video, temperature));
+        } catch (RejectedExecutionException e) {
+            // 排队满了不算模型失败，但探测名额要还回去
+            probing.set(false);
+            count(scene, "rejected");
+            log.warn("[AI {}] AI 线程池已满，拒绝调用 (active={}, queue={})", scene, executor.getActiveCount(), executor.getQueue().size());
+            return null;
+        }
+
+        // 4. 限时等待结果
+        try {
+            String result = future.get(timeoutMs(scene), TimeUnit.MILLISECONDS);
+            onSuccess();
+            count(scene, "ok");
+            log.info("[AI {}] 调用成功，耗时: {} ms", scene, System.currentTimeMillis() - startTime);
+            if (cacheKey != null && result != null && cacheIf.test(result)) {
+                writeCache(cacheKey, result);
+            }
+            return result;
+        } catch (TimeoutException e) {
+            // 尽量打断底层调用，让线程早点还回来
+            future.cancel(true);
+            onFailure(scene);
+            count(scene, "timeout");
+            log.warn("[AI {}] 调用超时，已等待: {} ms", scene, System.currentTimeMillis() - startTime);
+            return null;
+        } catch (ExecutionException e) {
+            onFailure(scene);
+            count(scene, "error");
+            log.error("[AI {}] 调用异常，耗时: {} ms", scene, System.currentTimeMillis() - startTime, e.getCause());
+            return null;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            probing.set(false);
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    // --- Private Methods ---
+
+    private long timeoutMs(AiScene scene) {
+        return switch (scene) {
+            case TAGS -> tagsTimeoutMs;
+            case AUDIT -> auditTimeoutMs;
+            case SUMMARY -> summaryTimeoutMs;
+            case REPLY -> replyTimeoutMs;
+        };
+    }
+
+    /**
+     * 熔断闭合时放行；熔断到期后只放行一个探测请求
+     */
+    private boolean allow() {
+        long until = openUntil;
+        if (until == 0) return true;
+        if (System.currentTimeMillis() < until) return false;
+        return probing.compareAndSet(false, true);
+    }
+
+    private void onSuccess() {
+        consecutiveFailures.set(0);
+        if (openUntil != 0) {
+            log.info("[AI] 探测成功，熔断恢复");
+        }
+        openUntil = 0;
+        probing.set(false);
+    }
+
+    private void onFailure(AiScene scene) {
+        // 探测失败，或者连续失败达到阈值：(重新) 熔断
+        if (probing.compareAndSet(true, false) || consecutiveFailures.incrementAndGet() == breakerFailureThreshold) {
+            openUntil = System.currentTimeMillis() + breakerOpenSeconds * 1000;
+            log.warn("[AI {}] 连续调用失败，熔断 {} 秒", scene, breakerOpenSeconds);
+        }
+    }
+
+    private String hash(AiScene scene, String systemPrompt, String userText, List<String> images, String video, double temperature) {
+        // \u0000 分隔各段，\u0001 分隔图片，避免不同拼接方式撞出同一个串
+        String raw = String.join("\u0000",
+                modelName,
+                scene.name(),
+                StrUtil.nullToEmpty(systemPrompt),
+                StrUtil.nullToEmpty(userText),
+                CollUtil.isEmpty(images) ? "" : String.join("\u0001", images),
+                StrUtil.nullToEmpty(video),
+                String.valueOf(temperature));
+        return DigestUtil.sha256Hex(raw);
+    }
+
+    private String readCache(String key) {
+        try {
+            return redisTemplate.opsForValue().get(key);
+        } catch (Exception e) {
+            // Redis 不可用就当没命中，直接调模型
+            log.warn("AI 结果缓存读取失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeCache(String key, String value) {
+        try {
+            redisTemplate.opsForValue().set(key, value, cacheTtlHours, TimeUnit.HOURS);
+        } catch (Exception e) {
+            log.warn("AI 结果缓存写入失败: {}", e.getMessage());
+        }
+    }
+
+    private void count(AiScene scene, String result) {
+        Counter.builder("ai.calls")
+                .tag("scene", scene.name().toLowerCase())
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+}
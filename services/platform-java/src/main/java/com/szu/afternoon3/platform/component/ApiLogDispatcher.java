@@ -0,0 +1,174 @@
+package com.szu.afternoon3.platform.component;
+
+import cn.hutool.json.JSONUtil;
+import com.szu.afternoon3.platform.common.MqPublisher;
+import com.szu.afternoon3.platform.common.RingBuffer;
+import com.szu.afternoon3.platform.config.RabbitConfig;
+import com.szu.afternoon3.platform.entity.mongo.ApiLogDoc;
+import com.szu.afternoon3.platform.event.ApiLogBatchEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 接口日志异步投递
+ * 请求线程只把日志放进无锁环形队列 (满了直接丢弃并计数，绝不阻塞请求)，
+ * 后台单线程负责参数序列化 + 攒批，每批一条 log.batch 消息发到 MQ。
+ *
+ * 指标: api_log_queue_depth (当前积压) / api_log_dropped_total (队列满丢弃) / api_log_published_total
+ */
+@Slf4j
+@Component
+public class ApiLogDispatcher {
+
+    public static final String ROUTING_KEY_BATCH = "log.batch";
+
+    @Autowired
+    private MqPublisher mqPublisher;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 队列容量 (向上取整到 2 的幂)
+    @Value("${app.api-log.buffer-size:8192}")
+    private int bufferSize;
+
+    // 每条 MQ 消息最多携带的日志条数
+    @Value("${app.api-log.batch-size:200}")
+    private int batchSize;
+
+    // 攒不满一批时最多等多久发出
+    @Value("${app.api-log.flush-interval-ms:500}")
+    private long flushIntervalMs;
+
+    // 停机时把队列发完的最长时间，超时剩下的丢弃
+    @Value("${app.api-log.shutdown-timeout-ms:5000}")
+    private long shutdownTimeoutMs;
+
+    private RingBuffer<Entry> buffer;
+    private Thread worker;
+    private volatile boolean running = true;
+    private Counter dropped;
+    private Counter published;
+
+    @PostConstruct
+    public void init() {
+        buffer = new RingBuffer<>(bufferSize);
+        Gauge.builder("api.log.queue.depth", buffer, RingBuffer::size).register(meterRegistry);
+        dropped = Counter.builder("api.log.dropped").register(meterRegistry);
+        published = Counter.builder("api.log.published").register(meterRegistry);
+
+        worker = new Thread(this::runLoop, "api-log-dispatcher");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * 停机时让后台线程退出，再把队列里剩下的发完
+     * 一次 drainAndPublish 只发一批，积压多时要循环到队列清空 (或到截止时间)
+     */
+    @PreDestroy
+    public void shutdown() {
+        long deadline = System.currentTimeMillis() + shutdownTimeoutMs;
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(Math.max(1, shutdownTimeoutMs));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int sent = 0;
+        while (buffer.size() > 0 && System.currentTimeMillis() < deadline) {
+            int n = drainAndPublish();
+            if (n == 0) break;
+            sent += n;
+        }
+        int left = buffer.size();
+        if (left > 0) {
+            dropped.increment(left);
+            log.warn("停机时接口日志未发完, 丢弃 {} 条 (已发 {} 条)", left, sent);
+        }
+    }
+
+    /**
+     * 请求线程调用：投递一条日志
+     * @param args 已过滤掉文件/Request/Response 的参数，在后台线程里序列化成 params
+     */
+    public void dispatch(ApiLogDoc doc, List<Object> args) {
+        if (!buffer.offer(new Entry(doc, args))) {
+            dropped.increment();
+        }
+    }
+
+    // --- Private Methods ---
+
+    private void runLoop() {
+        while (running) {
+            try {
+                int sent = drainAndPublish();
+                if (sent < batchSize) {
+                    // 没攒满就歇一会，积压多时连续发不等待
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMs));
+                }
+            } catch (Exception e) {
+                log.error("接口日志投递异常", e);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMs));
+            }
+        }
+    }
+
+    /**
+     * 取出一批并发送 (只在后台线程 / 停机线程里调用，二者不会同时运行)
+     * @return 本次发送条数
+     */
+    private synchronized int drainAndPublish() {
+        List<Entry> entries = new ArrayList<>(Math.min(batchSize, buffer.size()));
+        buffer.drainTo(entries, batchSize);
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        List<ApiLogDoc> logs = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            entry.doc.setParams(formatArgs(entry.args));
+            logs.add(entry.doc);
+        }
+        try {
+            mqPublisher.publish(RabbitConfig.PLATFORM_EXCHANGE, ROUTING_KEY_BATCH, new ApiLogBatchEvent(logs));
+            published.increment(logs.size());
+        } catch (Exception e) {
+            // MQ 不可用时日志直接丢弃，不回填队列 (避免挤占新日志)
+            dropped.increment(logs.size());
+            log.warn("接口日志批量投递失败, 丢弃 {} 条: {}", logs.size(), e.getMessage());
+        }
+        return entries.size();
+    }
+
+    private String formatArgs(List<Object> args) {
+        if (args == null || args.isEmpty()) return "";
+        try {
+            return JSONUtil.toJsonStr(args);
+        } catch (Exception e) {
+            return "args_error";
+        }
+    }
+
+    private static class Entry {
+        private final ApiLogDoc doc;
+        private final List<Object> args;
+
+        private Entry(ApiLogDoc doc, List<Object> args) {
+            this.doc = doc;
+            this.args = args;
+        }
+    }
+}
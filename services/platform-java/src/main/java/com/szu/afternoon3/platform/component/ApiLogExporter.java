@@ -0,0 +1,320 @@
+package com.szu.afternoon3.platform.component;
+
+import cn.hutool.core.util.StrUtil;
+import com.szu.afternoon3.platform.common.RedisKey;
+import com.szu.afternoon3.platform.entity.mongo.ApiLogDoc;
+import com.szu.afternoon3.platform.enums.ResultCode;
+import com.szu.afternoon3.platform.exception.AppException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 操作日志流式导出
+ * 原来是查出前 5000 条放进 List，再用 Hutool 的内存 ExcelWriter 一次性写出，超出的静默丢掉。
+ * 现在用 Mongo 游标逐批拉取，边读边写：
+ * 1. xlsx: POI SXSSFWorkbook，内存里只保留最近 row-window 行，其余刷到临时文件；超过单表行数上限自动换 sheet
+ * 2. csv: 直接写响应流 (带 BOM，Excel 打开不乱码)
+ * 内存占用和导出行数无关。
+ *
+ * 取消：前端导出时带上 exportId，调用取消接口后每 cancel-check-rows 行检查一次标记 (写第一行之前也查一次，
+ * Redis，任意节点都能取消)。响应还没开始发时 (xlsx 总是如此) 清掉附件头，返回 "导出已取消" 的错误而不是空文件；
+ * csv 已经发出去一部分时，在末尾追加一行取消说明。
+ * 浏览器中途断开：csv 边写边发，下一次写响应抛 IOException 就停止并关闭游标；
+ * xlsx 要等所有行写进临时文件后才开始发响应，断开只能在最后才发现，所以 xlsx 单独有行数上限 (xlsx-max-rows)，
+ * 限制一次导出占用的临时文件和游标时间，更大的导出请用 csv。
+ * 截断 (超过行数上限)：文件最后追加一行说明，响应头 X-Export-Truncated 带上截断时的行数 (响应还没发出时才能带)。
+ */
+@Slf4j
+@Component
+public class ApiLogExporter {
+
+    public static final String FORMAT_CSV = "csv";
+    public static final String TRUNCATED_HEADER = "X-Export-Truncated";
+
+    private static final String[] HEADERS = {
+            "时间", "操作人ID", "角色", "模块", "操作内容", "业务ID",
+            "请求路径", "请求方法", "IP地址", "耗时(ms)", "状态", "错误信息"
+    };
+    private static final int[] COLUMN_WIDTHS = {20, 12, 8, 14, 20, 26, 36, 8, 16, 10, 6, 40};
+
+    // xlsx 单个 sheet 最多 1048576 行 (含表头)
+    private static final int MAX_ROWS_PER_SHEET = 1_048_575;
+
+    private static final DateTimeFormatter TIME_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 同时进行的导出数 (每个导出占一个请求线程和一条 Mongo 游标)
+    @Value("${app.log-export.max-concurrent:2}")
+    private int maxConcurrent;
+
+    // 游标每批从 Mongo 拉取的条数
+    @Value("${app.log-export.cursor-batch-size:1000}")
+    private int cursorBatchSize;
+
+    // SXSSF 内存中保留的行数
+    @Value("${app.log-export.row-window:200}")
+    private int rowWindow;
+
+    // 单次导出行数上限 (0 不限)，超出时截断并在日志里提示
+    @Value("${app.log-export.max-rows:0}")
+    private long maxRows;
+
+    // xlsx 的行数上限 (见类注释，断开检测不到，临时文件随行数增长)，和 max-rows 取较小的
+    @Value("${app.log-export.xlsx-max-rows:200000}")
+    private long xlsxMaxRows;
+
+    @Value("${app.log-export.cancel-check-rows:1000}")
+    private int cancelCheckRows;
+
+    private Semaphore permits;
+    private Counter exportedRows;
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(maxConcurrent);
+        exportedRows = Counter.builder("log.export.rows").register(meterRegistry);
+    }
+
+    /**
+     * 按查询条件流式导出到响应
+     * @param exportId 前端生成的导出ID，用于取消 (可为空)
+     */
+    public void export(Query query, String format, String exportId, HttpServletResponse response) {
+        if (!permits.tryAcquire()) {
+            throw new AppException(ResultCode.OPERATION_TOO_FREQUENT, "正在进行的导出任务太多，请稍后再试");
+        }
+        boolean csv = FORMAT_CSV.equalsIgnoreCase(format);
+        long start = System.currentTimeMillis();
+        try {
+            // 只取导出的列 (params 动辄几 KB，不拉)
+            query.fields().include("createdAt", "userId", "role", "module", "description", "bizId",
+                    "uri", "method", "ip", "timeCost", "status", "errorMsg");
+            query.cursorBatchSize(cursorBatchSize);
+
+            String fileName = URLEncoder.encode("管理员操作日志_" + System.currentTimeMillis() + (csv ? ".csv" : ".xlsx"),
+                    StandardCharsets.UTF_8);
+            response.setContentType(csv ? "text/csv;charset=utf-8"
+                    : "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet;charset=utf-8");
+            response.setHeader("Content-Disposition", "attachment;filename=" + fileName);
+
+            try (Stream<ApiLogDoc> stream = mongoTemplate.stream(query, ApiLogDoc.class)) {
+                long rows = csv ? writeCsv(stream, exportId, response) : writeXlsx(stream, exportId, response);
+                log.info("操作日志导出完成 format={} rows={} cost={}ms", csv ? "csv" : "xlsx", rows,
+                        System.currentTimeMillis() - start);
+            }
+        } catch (ExportCancelledException e) {
+            log.info("操作日志导出已取消 exportId={} rows={}", exportId, e.rows);
+            if (!response.isCommitted()) {
+                response.reset();
+                throw new AppException(ResultCode.EXPORT_CANCELLED);
+            }
+        } catch (IOException e) {
+            // 大多是浏览器中途断开；响应已经开始写，不能再返回 JSON 错误
+            log.warn("操作日志导出中断: {}", e.getMessage());
+        } finally {
+            permits.release();
+            if (StrUtil.isNotBlank(exportId)) {
+                redisTemplate.delete(RedisKey.LOG_EXPORT_CANCEL + exportId);
+            }
+        }
+    }
+
+    /**
+     * 取消导出 (标记保留一小时，导出开始前就取消也能生效)
+     */
+    public void cancel(String exportId) {
+        if (StrUtil.isBlank(exportId)) return;
+        redisTemplate.opsForValue().set(RedisKey.LOG_EXPORT_CANCEL + exportId, "1", 1, TimeUnit.HOURS);
+    }
+
+    // --- Private Methods ---
+
+    private long writeXlsx(Stream<ApiLogDoc> stream, String exportId, HttpServletResponse response) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindow);
+        // 临时文件压缩，大导出时磁盘占用小很多
+        workbook.setCompressTempFiles(true);
+        long limit = xlsxMaxRows > 0 && (maxRows <= 0 || xlsxMaxRows < maxRows) ? xlsxMaxRows : maxRows;
+        try {
+            Sheet sheet = newSheet(workbook, 1);
+            int rowInSheet = 0;
+            long rows = 0;
+            boolean truncated = false;
+            for (ApiLogDoc doc : (Iterable<ApiLogDoc>) stream::iterator) {
+                checkRow(rows, exportId);
+                if (limit > 0 && rows >= limit) {
+                    log.warn("操作日志 xlsx 导出超过上限 {} 行，已截断", limit);
+                    truncated = true;
+                    break;
+                }
+                if (rowInSheet >= MAX_ROWS_PER_SHEET) {
+                    sheet = newSheet(workbook, workbook.getNumberOfSheets() + 1);
+                    rowInSheet = 0;
+                }
+                Row row = sheet.createRow(++rowInSheet);
+                Object[] values = toRow(doc);
+                for (int i = 0; i < values.length; i++) {
+                    if (values[i] == null) continue;
+                    Cell cell = row.createCell(i);
+                    if (values[i] instanceof Number number) {
+                        cell.setCellValue(number.doubleValue());
+                    } else {
+                        cell.setCellValue(values[i].toString());
+                    }
+                }
+                rows++;
+                exportedRows.increment();
+            }
+            if (truncated) {
+                if (rowInSheet >= MAX_ROWS_PER_SHEET) {
+                    sheet = newSheet(workbook, workbook.getNumberOfSheets() + 1);
+                    rowInSheet = 0;
+                }
+                sheet.createRow(++rowInSheet).createCell(0).setCellValue(truncatedNote(rows, true));
+                response.setHeader(TRUNCATED_HEADER, String.valueOf(rows));
+            }
+            workbook.write(response.getOutputStream());
+            response.flushBuffer();
+            return rows;
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private long writeCsv(Stream<ApiLogDoc> stream, String exportId, HttpServletResponse response) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8), 64 * 1024);
+        writer.write('\uFEFF');
+        writeCsvLine(writer, HEADERS);
+        long rows = 0;
+        try {
+            for (ApiLogDoc doc : (Iterable<ApiLogDoc>) stream::iterator) {
+                checkRow(rows, exportId);
+                if (maxRows > 0 && rows >= maxRows) {
+                    log.warn("操作日志导出超过上限 {} 行，已截断", maxRows);
+                    if (!response.isCommitted()) {
+                        response.setHeader(TRUNCATED_HEADER, String.valueOf(rows));
+                    }
+                    writeCsvLine(writer, new Object[]{truncatedNote(rows, false)});
+                    break;
+                }
+                writeCsvLine(writer, toRow(doc));
+                rows++;
+                exportedRows.increment();
+            }
+        } catch (ExportCancelledException e) {
+            // 已经发出去一部分就没法再改成错误响应了，末尾说明一下；还没发出去的交给 export 返回取消错误
+            if (response.isCommitted()) {
+                writeCsvLine(writer, new Object[]{"导出已取消，只包含前 " + rows + " 行"});
+                writer.flush();
+            }
+            throw e;
+        }
+        writer.flush();
+        return rows;
+    }
+
+    private Sheet newSheet(SXSSFWorkbook workbook, int index) {
+        Sheet sheet = workbook.createSheet(index == 1 ? "操作日志" : "操作日志" + index);
+        // 流式写不能 autoSizeColumn (要回看所有行)，用固定列宽
+        for (int i = 0; i < COLUMN_WIDTHS.length; i++) {
+            sheet.setColumnWidth(i, COLUMN_WIDTHS[i] * 256);
+        }
+        Row header = sheet.createRow(0);
+        for (int i = 0; i < HEADERS.length; i++) {
+            header.createCell(i).setCellValue(HEADERS[i]);
+        }
+        return sheet;
+    }
+
+    private String truncatedNote(long rows, boolean xlsx) {
+        return "已截断：只导出了前 " + rows + " 行，" + (xlsx ? "完整数据请用 format=csv 导出" : "请缩小时间范围分批导出");
+    }
+
+    /**
+     * rows = 0 时也检查：开始导出前就点了取消、或者总行数不到一个检查间隔的导出都能取消
+     */
+    private void checkRow(long rows, String exportId) {
+        if (rows % cancelCheckRows == 0 && StrUtil.isNotBlank(exportId)
+                && Boolean.TRUE.equals(redisTemplate.hasKey(RedisKey.LOG_EXPORT_CANCEL + exportId))) {
+            throw new ExportCancelledException(rows);
+        }
+    }
+
+    private Object[] toRow(ApiLogDoc doc) {
+        return new Object[]{
+                doc.getCreatedAt() == null ? null : doc.getCreatedAt().format(TIME_FMT),
+                doc.getUserId(),
+                doc.getRole(),
+                doc.getModule(),
+                doc.getDescription(),
+                doc.getBizId(),
+                doc.getUri(),
+                doc.getMethod(),
+                doc.getIp(),
+                doc.getTimeCost(),
+                doc.getStatus() == null ? null : (doc.getStatus() == 200 ? "成功" : "失败"),
+                doc.getErrorMsg()
+        };
+    }
+
+    private void writeCsvLine(Writer writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) writer.write(',');
+            if (values[i] != null) {
+                writer.write(escapeCsv(values[i]));
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    private String escapeCsv(Object value) {
+        if (value instanceof Number) {
+            return value.toString();
+        }
+        String text = value.toString();
+        // 防公式注入：= + - @ 开头的文本在 Excel 里会被当成公式执行
+        if (!text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            text = "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+
+    private static class ExportCancelledException extends RuntimeException {
+        private final long rows;
+
+        ExportCancelledException(long rows) {
+            super(null, null, false, false);
+            this.rows = rows;
+        }
+    }
+}
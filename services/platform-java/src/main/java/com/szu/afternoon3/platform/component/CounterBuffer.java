@@ -0,0 +1,268 @@
+package com.szu.afternoon3.platform.component;
+
+import cn.hutool.core.thread.NamedThreadFactory;
+import com.szu.afternoon3.platform.entity.mongo.CommentDoc;
+import com.szu.afternoon3.platform.entity.mongo.DailyStatsDoc;
+import com.szu.afternoon3.platform.entity.mongo.PostDoc;
+import com.szu.afternoon3.platform.entity.mongo.UserStatsDoc;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.ScriptType;
+import org.springframework.data.elasticsearch.core.query.UpdateQuery;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 计数器写合并 (write-behind)
+ * 点赞/收藏/评论点赞这类计数，不再每条消息各打一次 Mongo $inc + 一次 ES 脚本更新，
+ * 而是先在内存里按 (文档, 字段) 累加增量，每隔 flush-interval-ms 合并成一次 Mongo bulk + 一次 ES _bulk。
+ * 爆款帖子一秒几千个赞，落库时只剩一条 $inc，ES 也不会再因为同一文档的并发脚本更新版本冲突。
+ *
+ * 代价：计数最多延迟一个刷新周期；进程被 kill -9 时丢失未刷出的增量 (正常停机会先刷完)。
+ */
+@Slf4j
+@Component
+public class CounterBuffer {
+
+    private static final String ES_POST_INDEX = "posts";
+
+    // 一个帖子的多个字段增量一次脚本加完，字段为 null 时按 0 处理
+    private static final String INC_SCRIPT =
+            "for (entry in params.deltas.entrySet()) { " +
+            "   def v = ctx._source[entry.getKey()]; " +
+            "   ctx._source[entry.getKey()] = (v == null ? 0 : v) + entry.getValue(); " +
+            "}";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 关闭后退化为原来的逐条写入
+    @Value("${app.counter-buffer.enable:true}")
+    private boolean enable;
+
+    @Value("${app.counter-buffer.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    // 待刷出的 key 数超过该值时不等定时器，立即触发一次刷新
+    @Value("${app.counter-buffer.max-pending:5000}")
+    private int maxPending;
+
+    // (实体, 文档ID, 字段) -> 累计增量；merge/remove 都是单 key 原子操作，刷新时不会丢并发写入的增量
+    private final ConcurrentHashMap<Key, Long> mongoPending = new ConcurrentHashMap<>();
+    // 需要同步到 ES posts 索引的增量 (目前只有 likeCount 参与 ES 排序)
+    private final ConcurrentHashMap<Key, Long> esPending = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+    private Counter mongoFlushed;
+    private Counter esFlushed;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("counter.buffer.pending", mongoPending, Map::size).tag("target", "mongo").register(meterRegistry);
+        Gauge.builder("counter.buffer.pending", esPending, Map::size).tag("target", "es").register(meterRegistry);
+        mongoFlushed = Counter.builder("counter.buffer.flushed").tag("target", "mongo").register(meterRegistry);
+        esFlushed = Counter.builder("counter.buffer.flushed").tag("target", "es").register(meterRegistry);
+
+        // 用自己的单线程调度 (不和 @Scheduled 任务抢线程)，刷新天然串行
+        scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("counter-flush-", true));
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停机时先停定时器，再把剩余增量全部刷出
+     * (Spring 会先停掉 MQ 监听容器，再执行 @PreDestroy，此时不会再有新增量进来)
+     */
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        log.info("计数缓冲已在停机前刷出, 剩余 mongo={}, es={}", mongoPending.size(), esPending.size());
+    }
+
+    /**
+     * 帖子计数增量
+     * @param syncEs 是否同时更新 ES 里的同名字段
+     */
+    public void incPost(String postId, String field, int delta, boolean syncEs) {
+        add(new Key(PostDoc.class, postId, field), delta, syncEs);
+    }
+
+    /**
+     * 评论计数增量 (评论不进 ES)
+     */
+    public void incComment(String commentId, String field, int delta) {
+        add(new Key(CommentDoc.class, commentId, field), delta, false);
+    }
+
+    /**
+     * 用户统计增量 (user_stats)
+     * 只更新已存在的统计文档，不存在时跳过 (首次读取会从源数据现算)
+     */
+    public void incUserStats(Long userId, String field, int delta) {
+        add(new Key(UserStatsDoc.class, userId, field), delta, false);
+    }
+
+    /**
+     * 每日统计增量 (daily_stats)，当天的文档不存在时 upsert 建出来
+     */
+    public void incDailyStats(String date, String field, long delta) {
+        add(new Key(DailyStatsDoc.class, date, field), delta, false);
+    }
+
+    /**
+     * 把当前缓冲的增量全部刷出 (定时器 / 停机 / 积压过多时调用)
+     */
+    public synchronized void flush() {
+        flushMongo();
+        flushEs();
+    }
+
+    // --- Private Methods ---
+
+    private void add(Key key, long delta, boolean syncEs) {
+        if (key.getId() == null || delta == 0) return;
+        mongoPending.merge(key, delta, Long::sum);
+        if (syncEs) {
+            esPending.merge(key, delta, Long::sum);
+        }
+        if (!enable || scheduler.isShutdown()) {
+            flush();
+        } else if (mongoPending.size() >= maxPending) {
+            scheduler.execute(this::flushQuietly);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("计数缓冲刷新异常", e);
+        }
+    }
+
+    private void flushMongo() {
+        Map<Key, Long> drained = drain(mongoPending);
+        if (drained.isEmpty()) return;
+
+        // 同一文档的多个字段合并成一条 update
+        Map<Class<?>, Map<Object, Update>> updates = new HashMap<>();
+        drained.forEach((key, delta) -> updates
+                .computeIfAbsent(key.getType(), k -> new LinkedHashMap<>())
+                .computeIfAbsent(key.getId(), k -> new Update())
+                .inc(key.getField(), delta));
+
+        for (Map.Entry<Class<?>, Map<Object, Update>> entry : updates.entrySet()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, entry.getKey());
+            // 每日统计按天 upsert，其余只改已存在的文档
+            boolean upsert = entry.getKey() == DailyStatsDoc.class;
+            // 用户统计顺带递增版本号，对账重算据此判断期间有没有增量进来
+            boolean versioned = entry.getKey() == UserStatsDoc.class;
+            entry.getValue().forEach((id, update) -> {
+                Query query = Query.query(Criteria.where("_id").is(id));
+                if (versioned) {
+                    update.inc("version", 1);
+                }
+                if (upsert) {
+                    bulk.upsert(query, update);
+                } else {
+                    bulk.updateOne(query, update);
+                }
+            });
+            try {
+                bulk.execute();
+                mongoFlushed.increment(entry.getValue().size());
+            } catch (BulkOperationException e) {
+                // 部分成功，无法区分哪些已生效，不重试 (重试会重复累加)
+                log.error("计数批量写 Mongo 部分失败 type={}, docs={}, errors={}",
+                        entry.getKey().getSimpleName(), entry.getValue().size(), e.getErrors().size());
+            } catch (Exception e) {
+                // 整批没发出去 (连接异常等)，放回缓冲下次再刷
+                log.error("计数批量写 Mongo 失败，放回缓冲 type={}, docs={}: {}",
+                        entry.getKey().getSimpleName(), entry.getValue().size(), e.getMessage());
+                drained.forEach((key, delta) -> {
+                    if (key.getType() == entry.getKey()) {
+                        mongoPending.merge(key, delta, Long::sum);
+                    }
+                });
+            }
+        }
+    }
+
+    private void flushEs() {
+        Map<Key, Long> drained = drain(esPending);
+        if (drained.isEmpty()) return;
+
+        // 同一帖子的多个字段合并成一条脚本更新
+        Map<String, Map<String, Object>> deltasByPost = new LinkedHashMap<>();
+        drained.forEach((key, delta) ->
+                deltasByPost.computeIfAbsent((String) key.getId(), k -> new HashMap<>()).put(key.getField(), delta));
+
+        List<UpdateQuery> queries = new ArrayList<>(deltasByPost.size());
+        deltasByPost.forEach((postId, deltas) -> {
+            Map<String, Object> params = new HashMap<>();
+            params.put("deltas", deltas);
+            queries.add(UpdateQuery.builder(postId)
+                    .withScript(INC_SCRIPT)
+                    .withScriptType(ScriptType.INLINE)
+                    .withParams(params)
+                    .withLang("painless")
+                    .withRetryOnConflict(3)
+                    .build());
+        });
+
+        try {
+            elasticsearchOperations.bulkUpdate(queries, IndexCoordinates.of(ES_POST_INDEX));
+            esFlushed.increment(queries.size());
+        } catch (Exception e) {
+            // 常见原因是 ES 里还没这篇帖子 (document_missing)，其余帖子已正常更新；ES 计数最终以重建索引为准
+            log.warn("计数批量写 ES 部分失败 docs={}: {}", queries.size(), e.getMessage());
+        }
+    }
+
+    private static Map<Key, Long> drain(ConcurrentHashMap<Key, Long> pending) {
+        Map<Key, Long> drained = new HashMap<>();
+        for (Key key : pending.keySet()) {
+            Long delta = pending.remove(key);
+            if (delta != null && delta != 0) {
+                drained.put(key, delta);
+            }
+        }
+        return drained;
+    }
+
+    @Data
+    private static class Key {
+        private final Class<?> type;
+        private final Object id; // 帖子/评论是 String，用户统计是 Long，每日统计是日期
+        private final String field;
+    }
+}
@@ -0,0 +1,311 @@
+package com.szu.afternoon3.platform.component;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.IdUtil;
+import com.szu.afternoon3.platform.common.RedisKey;
+import com.szu.afternoon3.platform.entity.mongo.UserFollowDoc;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.redis.connection.SortParameters;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.query.SortQueryBuilder;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 关注关系邻接表 (Redis Set)
+ * follow:following:{userId} = 我关注的人，follow:followers:{userId} = 关注我的人
+ * Mongo user_follows 仍是主存储；Set 按需从 Mongo 重建，长期不用自然过期
+ *
+ * 1. 互关好友 = SINTERSTORE(我关注的, 关注我的)，结果短暂缓存，分页用 SORT ... LIMIT
+ * 2. 搜索结果里的"我是否关注 / 是否关注我" = 两次 SMISMEMBER
+ * 3. 关注 / 取关时只改已存在的 Set (和关注流收件箱一样，不存在的下次读取时重建)，并删掉双方的好友缓存
+ *
+ * 重建和关注变更的竞争：重建先读 Mongo 再改名上线，中间到达的关注 / 取关改不到还不存在的正式 key。
+ * 所以重建开始时写一个标记，关注变更顺手删掉双方的标记；上线时标记没了就说明这期间有变更，丢掉重读。
+ * 另外 Set 是固定过期 (读取不续期)，万一还有没覆盖到的偏差，最多 ttl-days 后按 Mongo 重建纠正。
+ */
+@Slf4j
+@Component
+public class FollowGraph {
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // 邻接 Set 固定过期时间 (读取不续期，过期后按 Mongo 重建，兜底纠正偏差)
+    @Value("${app.follow-graph.ttl-days:7}")
+    private long ttlDays;
+
+    // 互关好友交集的缓存时间 (翻页期间复用，关注关系变化时主动删除)
+    @Value("${app.follow-graph.friends-ttl-seconds:60}")
+    private long friendsTtlSeconds;
+
+    // 重建时每批从 Mongo 读的条数
+    @Value("${app.follow-graph.rebuild-batch-size:1000}")
+    private int rebuildBatchSize;
+
+    // 空 Set 占位成员 (Redis 不存空 Set，用它区分"没有关注"和"还没重建")
+    private static final String EMPTY_MARKER = "_";
+
+    // 重建中标记 (值为本次重建的 token)，关注变更会删掉它
+    private static final String REBUILDING_SUFFIX = ":rebuilding";
+
+    // 重建期间一直有关注变更时的最多重读次数；最后一次照样上线，但只给很短的过期时间
+    private static final int MAX_REBUILD_ATTEMPTS = 3;
+    private static final long CONTENDED_TTL_SECONDS = 60;
+
+    /**
+     * 只改已存在的 Set，并作废双方正在进行的重建
+     * KEYS[1] 我关注的, KEYS[2] 对方的粉丝, KEYS[3] 我的好友缓存, KEYS[4] 对方的好友缓存,
+     * KEYS[5] KEYS[6] 前两个 Set 的重建标记
+     * ARGV[1] 'add' / 'rem', ARGV[2] 对方ID, ARGV[3] 我的ID
+     */
+    private static final DefaultRedisScript<Long> EDGE_SCRIPT = new DefaultRedisScript<>(
+            "local cmd = ARGV[1] == 'add' and 'SADD' or 'SREM' " +
+            "if redis.call('EXISTS', KEYS[1]) == 1 then redis.call(cmd, KEYS[1], ARGV[2]) end " +
+            "if redis.call('EXISTS', KEYS[2]) == 1 then redis.call(cmd, KEYS[2], ARGV[3]) end " +
+            "redis.call('DEL', KEYS[3], KEYS[4], KEYS[5], KEYS[6]) " +
+            "return 1",
+            Long.class);
+
+    /**
+     * 重建完成后原子替换
+     * KEYS[1] 正式 key, KEYS[2] 临时 key, KEYS[3] 重建标记
+     * ARGV[1] 过期秒数, ARGV[2] 本次重建 token, ARGV[3] 标记失效时仍要上线的过期秒数 (空串表示不上线)
+     * 返回 0: 别人已建好; 1: 上线; 2: 有变更但按短过期上线; -1: 有变更，丢弃重来
+     */
+    private static final DefaultRedisScript<Long> INSTALL_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then redis.call('DEL', KEYS[2]) return 0 end " +
+            "if redis.call('GET', KEYS[3]) == ARGV[2] then " +
+            "  redis.call('DEL', KEYS[3]) " +
+            "  redis.call('RENAME', KEYS[2], KEYS[1]) " +
+            "  redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+            "  return 1 " +
+            "end " +
+            "if ARGV[3] ~= '' then " +
+            "  redis.call('RENAME', KEYS[2], KEYS[1]) " +
+            "  redis.call('EXPIRE', KEYS[1], ARGV[3]) " +
+            "  return 2 " +
+            "end " +
+            "redis.call('DEL', KEYS[2]) " +
+            "return -1",
+            Long.class);
+
+    public void onFollow(Long userId, Long targetUserId) {
+        updateEdge("add", userId, targetUserId);
+    }
+
+    public void onUnfollow(Long userId, Long targetUserId) {
+        updateEdge("rem", userId, targetUserId);
+    }
+
+    /**
+     * 用户注销：删掉他自己的邻接 Set；别人 Set 里的他在读取时清理 (见 removeStaleFriends)
+     */
+    public void evictUser(Long userId) {
+        redisTemplate.delete(List.of(
+                RedisKey.FOLLOW_FOLLOWING_SET + userId,
+                RedisKey.FOLLOW_FOLLOWERS_SET + userId,
+                RedisKey.FOLLOW_FRIENDS_SET + userId));
+    }
+
+    /**
+     * 互关好友数
+     */
+    public long countFriends(Long userId) {
+        Long size = redisTemplate.opsForSet().size(friendsKey(userId));
+        return size == null ? 0 : size;
+    }
+
+    /**
+     * 互关好友分页 (按用户ID倒序)
+     * @param offset 从 0 开始
+     */
+    public List<Long> pageFriends(Long userId, long offset, long count) {
+        List<String> ids = redisTemplate.sort(SortQueryBuilder.sort(friendsKey(userId))
+                .order(SortParameters.Order.DESC)
+                .limit(offset, count)
+                .build());
+        return toLongs(ids);
+    }
+
+    /**
+     * 全部互关好友 ID (昵称筛选时用，数量 = 交集大小，不是关注总数)
+     */
+    public Set<Long> allFriends(Long userId) {
+        Set<String> ids = redisTemplate.opsForSet().members(friendsKey(userId));
+        return ids == null ? Collections.emptySet() : new HashSet<>(toLongs(ids));
+    }
+
+    /**
+     * 已经不存在的用户 (注销) 从我的邻接 Set 和好友缓存里移除
+     */
+    public void removeStaleFriends(Long userId, Collection<Long> staleIds) {
+        if (CollUtil.isEmpty(staleIds)) return;
+        Object[] members = staleIds.stream().map(String::valueOf).toArray();
+        redisTemplate.opsForSet().remove(RedisKey.FOLLOW_FOLLOWING_SET + userId, members);
+        redisTemplate.opsForSet().remove(RedisKey.FOLLOW_FOLLOWERS_SET + userId, members);
+        redisTemplate.opsForSet().remove(RedisKey.FOLLOW_FRIENDS_SET + userId, members);
+    }
+
+    /**
+     * userId 关注了 others 中的哪些人
+     */
+    public Set<Long> followingAmong(Long userId, Collection<Long> others) {
+        return membersAmong(followingKey(userId), others);
+    }
+
+    /**
+     * others 中的哪些人关注了 userId
+     */
+    public Set<Long> followersAmong(Long userId, Collection<Long> others) {
+        return membersAmong(followersKey(userId), others);
+    }
+
+    // --- Private Methods ---
+
+    private void updateEdge(String op, Long userId, Long targetUserId) {
+        try {
+            redisTemplate.execute(EDGE_SCRIPT,
+                    List.of(RedisKey.FOLLOW_FOLLOWING_SET + userId,
+                            RedisKey.FOLLOW_FOLLOWERS_SET + targetUserId,
+                            RedisKey.FOLLOW_FRIENDS_SET + userId,
+                            RedisKey.FOLLOW_FRIENDS_SET + targetUserId,
+                            RedisKey.FOLLOW_FOLLOWING_SET + userId + REBUILDING_SUFFIX,
+                            RedisKey.FOLLOW_FOLLOWERS_SET + targetUserId + REBUILDING_SUFFIX),
+                    op, String.valueOf(targetUserId), String.valueOf(userId));
+        } catch (Exception e) {
+            // 写失败时删掉两个 Set，下次读取按 Mongo 重建，避免长期不一致
+            log.warn("关注关系 Set 更新失败，删除后等待重建 userId={} targetUserId={}: {}", userId, targetUserId, e.getMessage());
+            redisTemplate.delete(List.of(RedisKey.FOLLOW_FOLLOWING_SET + userId, RedisKey.FOLLOW_FOLLOWERS_SET + targetUserId));
+        }
+    }
+
+    /**
+     * 好友交集缓存：不存在时 SINTERSTORE 一次 (去掉占位成员)
+     */
+    private String friendsKey(Long userId) {
+        String key = RedisKey.FOLLOW_FRIENDS_SET + userId;
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(key))) {
+            return key;
+        }
+        String following = followingKey(userId);
+        String followers = followersKey(userId);
+        redisTemplate.opsForSet().intersectAndStore(following, followers, key);
+        redisTemplate.opsForSet().remove(key, EMPTY_MARKER);
+        redisTemplate.expire(key, friendsTtlSeconds, TimeUnit.SECONDS);
+        return key;
+    }
+
+    private String followingKey(Long userId) {
+        return ensure(RedisKey.FOLLOW_FOLLOWING_SET + userId, "userId", userId, "targetUserId");
+    }
+
+    private String followersKey(Long userId) {
+        return ensure(RedisKey.FOLLOW_FOLLOWERS_SET + userId, "targetUserId", userId, "userId");
+    }
+
+    private Set<Long> membersAmong(String key, Collection<Long> others) {
+        if (CollUtil.isEmpty(others)) return Collections.emptySet();
+        List<Long> ids = new ArrayList<>(others);
+        Map<Object, Boolean> flags = redisTemplate.opsForSet().isMember(key, ids.stream().map(String::valueOf).toArray());
+        if (flags == null) return Collections.emptySet();
+        return ids.stream()
+                .filter(id -> Boolean.TRUE.equals(flags.get(String.valueOf(id))))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Set 不存在时从 Mongo 重建：按 _id 分批读到临时 key，最后原子改名
+     * 重建期间有关注变更 (标记被删) 就丢掉重读，避免把变更前的快照装上去
+     * @param matchField 按哪个字段查 (userId / targetUserId)
+     * @param memberField 取哪个字段做成员
+     */
+    private String ensure(String key, String matchField, Long userId, String memberField) {
+        String marker = key + REBUILDING_SUFFIX;
+        for (int attempt = 1; attempt <= MAX_REBUILD_ATTEMPTS; attempt++) {
+            if (Boolean.TRUE.equals(redisTemplate.hasKey(key))) {
+                return key;
+            }
+            String token = IdUtil.fastSimpleUUID();
+            // 并发重建时后来者覆盖标记，先来的那个上线时会发现标记不是自己的而重读
+            redisTemplate.opsForValue().set(marker, token, 10, TimeUnit.MINUTES);
+            String tmpKey = rebuild(key, matchField, userId, memberField);
+
+            // 最后一次不再重读：照样上线，但只给短过期，很快会按 Mongo 再建一次
+            String contendedTtl = attempt == MAX_REBUILD_ATTEMPTS ? String.valueOf(CONTENDED_TTL_SECONDS) : "";
+            Long result = redisTemplate.execute(INSTALL_SCRIPT, List.of(key, tmpKey, marker),
+                    String.valueOf(TimeUnit.DAYS.toSeconds(ttlDays)), token, contendedTtl);
+            if (result != null && result >= 0) {
+                if (result == 2) {
+                    log.info("关注关系 Set 重建期间持续有变更，按短过期上线 key={}", key);
+                }
+                return key;
+            }
+        }
+        return key;
+    }
+
+    /**
+     * 从 Mongo 读到临时 key (带占位成员，空 Set 也能落下来)
+     * @return 临时 key
+     */
+    private String rebuild(String key, String matchField, Long userId, String memberField) {
+        String tmpKey = key + ":rebuild:" + IdUtil.fastSimpleUUID();
+        redisTemplate.opsForSet().add(tmpKey, EMPTY_MARKER);
+        // 防止重建中途挂掉留下垃圾 key
+        redisTemplate.expire(tmpKey, 10, TimeUnit.MINUTES);
+
+        ObjectId lastId = null;
+        long total = 0;
+        while (true) {
+            Criteria criteria = Criteria.where(matchField).is(userId);
+            if (lastId != null) {
+                criteria.and("_id").gt(lastId);
+            }
+            Query query = Query.query(criteria)
+                    .with(Sort.by(Sort.Direction.ASC, "_id"))
+                    .limit(rebuildBatchSize);
+            query.fields().include(memberField);
+            List<UserFollowDoc> docs = mongoTemplate.find(query, UserFollowDoc.class);
+            if (docs.isEmpty()) break;
+
+            String[] members = docs.stream()
+                    .map(doc -> String.valueOf("userId".equals(memberField) ? doc.getUserId() : doc.getTargetUserId()))
+                    .toArray(String[]::new);
+            redisTemplate.opsForSet().add(tmpKey, members);
+            total += docs.size();
+
+            if (docs.size() < rebuildBatchSize) break;
+            lastId = new ObjectId(docs.get(docs.size() - 1).getId());
+        }
+        log.info("关注关系 Set 重建 key={} size={}", key, total);
+        return tmpKey;
+    }
+
+    private List<Long> toLongs(Collection<String> ids) {
+        if (ids == null) return Collections.emptyList();
+        List<Long> result = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            if (EMPTY_MARKER.equals(id)) continue;
+            try {
+                result.add(Long.parseLong(id));
+            } catch (NumberFormatException ignored) {
+                // 不会出现，防御一下
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,318 @@
+package com.szu.afternoon3.platform.component;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.lang.UUID;
+import cn.hutool.core.thread.NamedThreadFactory;
+import cn.hutool.core.util.StrUtil;
+import com.szu.afternoon3.platform.common.RedisKey;
+import com.szu.afternoon3.platform.entity.mongo.PostDoc;
+import com.szu.afternoon3.platform.vo.TagStatVO;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 热门标签排行榜 (增量维护)
+ * 两个 ZSet：标签 → 有效帖子数 / 标签 → 有效帖子总浏览量，读取只是一次 ZREVRANGE。
+ * 另有一个 Hash 记录每篇 "已计入" 帖子当时的标签，帖子变化时和新状态做差，只加减变动的标签。
+ *
+ * 更新来源：
+ * 1. 帖子发布/修改/删除/审核事件 → refresh(postId)，回 Mongo 取最新状态后做差
+ * 2. 浏览量落库 → addViews，按 Hash 里的标签累加
+ * 3. 定时全量对账 → reconcile，从 Mongo 重算后整体替换，修正并发/漏消息带来的偏差
+ */
+@Slf4j
+@Component
+public class HotTagBoard {
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // 对账锁的最长持有时间
+    @Value("${app.hot-tag.lock-ttl-seconds:600}")
+    private long lockTtlSeconds;
+
+    // 对账时每批写入 Redis 的帖子数
+    @Value("${app.hot-tag.rebuild-batch-size:1000}")
+    private int rebuildBatchSize;
+
+    // Hash 里多个标签的分隔符 (单元分隔符，标签里不会出现)
+    private static final String SEP = "\u001f";
+
+    /**
+     * 帖子状态变化做差：
+     * KEYS[1] 帖子标签 Hash, KEYS[2] 帖子数 ZSet, KEYS[3] 浏览量 ZSet
+     * ARGV[1] postId, ARGV[2] 帖子当前浏览量, ARGV[3..] 新的计入标签 (不计入时为空)
+     */
+    private static final DefaultRedisScript<Long> REFRESH_SCRIPT = new DefaultRedisScript<>(
+            "local old = redis.call('HGET', KEYS[1], ARGV[1]) " +
+            "local views = tonumber(ARGV[2]) " +
+            "local oldSet, newSet = {}, {} " +
+            "if old then for t in string.gmatch(old, '[^\\31]+') do oldSet[t] = true end end " +
+            "for i = 3, #ARGV do newSet[ARGV[i]] = true end " +
+            "local changed = 0 " +
+            "for t, _ in pairs(oldSet) do " +
+            "  if not newSet[t] then " +
+            "    changed = changed + 1 " +
+            "    local c = tonumber(redis.call('ZINCRBY', KEYS[2], -1, t)) " +
+            "    if c <= 0 then redis.call('ZREM', KEYS[2], t) redis.call('ZREM', KEYS[3], t) " +
+            "    else redis.call('ZINCRBY', KEYS[3], -views, t) end " +
+            "  end " +
+            "end " +
+            "for t, _ in pairs(newSet) do " +
+            "  if not oldSet[t] then " +
+            "    changed = changed + 1 " +
+            "    redis.call('ZINCRBY', KEYS[2], 1, t) " +
+            "    redis.call('ZINCRBY', KEYS[3], views, t) " +
+            "  end " +
+            "end " +
+            "if #ARGV >= 3 then redis.call('HSET', KEYS[1], ARGV[1], table.concat(ARGV, '\\31', 3)) " +
+            "else redis.call('HDEL', KEYS[1], ARGV[1]) end " +
+            "return changed",
+            Long.class);
+
+    /**
+     * 对账完成后用临时 key 原子替换正式 key (临时 key 不存在说明没有有效帖子，直接删正式 key)
+     */
+    private static final DefaultRedisScript<Long> SWAP_SCRIPT = new DefaultRedisScript<>(
+            "for i = 1, #KEYS, 2 do " +
+            "  if redis.call('EXISTS', KEYS[i + 1]) == 1 then redis.call('RENAME', KEYS[i + 1], KEYS[i]) " +
+            "  else redis.call('DEL', KEYS[i]) end " +
+            "end " +
+            "return 1",
+            Long.class);
+
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) else return 0 end",
+            Long.class);
+
+    // 排行榜 key 丢失 (首次部署 / Redis 清空) 时后台补建，同一时间只提交一次
+    private final ExecutorService rebuildExecutor =
+            Executors.newSingleThreadExecutor(new NamedThreadFactory("hot-tag-rebuild-", true));
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * 帖子发生变化后调用：按 Mongo 里的最新状态重新计入
+     * 已发布且未删除的帖子计入其标签，其他状态 (审核中/被拒/已删除/不存在) 全部移出
+     */
+    public void refresh(String postId) {
+        if (StrUtil.isBlank(postId)) return;
+        Query query = Query.query(Criteria.where("id").is(postId));
+        query.fields().include("tags", "status", "isDeleted", "viewCount");
+        PostDoc post = mongoTemplate.findOne(query, PostDoc.class);
+
+        List<String> args = new ArrayList<>();
+        args.add(postId);
+        args.add(String.valueOf(post == null || post.getViewCount() == null ? 0 : post.getViewCount()));
+        if (isCounted(post)) {
+            args.addAll(cleanTags(post.getTags()));
+        }
+        redisTemplate.execute(REFRESH_SCRIPT,
+                Arrays.asList(RedisKey.TAG_POST_HASH, RedisKey.TAG_POST_COUNT_ZSET, RedisKey.TAG_VIEW_SUM_ZSET),
+                args.toArray());
+    }
+
+    /**
+     * 浏览量落库时同步累加到标签 (只有已计入的帖子才有标签记录)
+     * @param viewDeltas postId -> 本次新增浏览量
+     */
+    public void addViews(Map<String, Long> viewDeltas) {
+        if (CollUtil.isEmpty(viewDeltas)) return;
+        List<String> postIds = new ArrayList<>(viewDeltas.keySet());
+        List<Object> tagValues = redisTemplate.opsForHash().multiGet(RedisKey.TAG_POST_HASH, new ArrayList<>(postIds));
+
+        Map<String, Long> tagDeltas = new HashMap<>();
+        for (int i = 0; i < postIds.size(); i++) {
+            Object value = tagValues.get(i);
+            if (value == null) continue;
+            long delta = viewDeltas.get(postIds.get(i));
+            for (String tag : StrUtil.split((String) value, SEP)) {
+                if (StrUtil.isNotEmpty(tag)) {
+                    tagDeltas.merge(tag, delta, Long::sum);
+                }
+            }
+        }
+        if (tagDeltas.isEmpty()) return;
+
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            tagDeltas.forEach((tag, delta) -> conn.zIncrBy(RedisKey.TAG_VIEW_SUM_ZSET, delta, tag));
+            return null;
+        });
+    }
+
+    /**
+     * 按帖子数排序的前 N 个标签
+     */
+    public List<String> topTags(int limit) {
+        Set<String> tags = redisTemplate.opsForZSet().reverseRange(RedisKey.TAG_POST_COUNT_ZSET, 0, limit - 1);
+        if (CollUtil.isEmpty(tags)) {
+            triggerRebuildIfMissing();
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(tags);
+    }
+
+    /**
+     * 按总浏览量排序的前 N 个标签，附带帖子数
+     */
+    public List<TagStatVO> topTagStats(int limit) {
+        Set<ZSetOperations.TypedTuple<String>> tuples =
+                redisTemplate.opsForZSet().reverseRangeWithScores(RedisKey.TAG_VIEW_SUM_ZSET, 0, limit - 1);
+        if (CollUtil.isEmpty(tuples)) {
+            triggerRebuildIfMissing();
+            return Collections.emptyList();
+        }
+        List<ZSetOperations.TypedTuple<String>> rows = new ArrayList<>(tuples);
+        List<Object> counts = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            rows.forEach(row -> conn.zScore(RedisKey.TAG_POST_COUNT_ZSET, row.getValue()));
+            return null;
+        });
+
+        List<TagStatVO> result = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Double count = (Double) counts.get(i);
+            // 帖子数为 0 的是浏览量累加和移出并发留下的残留，等对账清理
+            if (count == null || count <= 0) continue;
+            TagStatVO vo = new TagStatVO();
+            vo.setTagName(rows.get(i).getValue());
+            vo.setTotalViews(rows.get(i).getScore() == null ? 0L : rows.get(i).getScore().longValue());
+            vo.setPostCount(count.intValue());
+            result.add(vo);
+        }
+        return result;
+    }
+
+    /**
+     * 定时全量对账：从 Mongo 重算帖子数 / 浏览量 / 帖子标签，写入临时 key 后原子替换
+     * 多副本通过 Redis 锁互斥
+     */
+    @Scheduled(fixedDelayString = "${app.hot-tag.reconcile-interval-ms:1800000}",
+            initialDelayString = "${app.hot-tag.reconcile-initial-delay-ms:10000}")
+    public void reconcile() {
+        String token = UUID.fastUUID().toString(true);
+        Boolean locked = redisTemplate.opsForValue()
+                .setIfAbsent(RedisKey.TAG_REBUILD_LOCK, token, lockTtlSeconds, TimeUnit.SECONDS);
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        String suffix = ":rebuild:" + token;
+        String tmpHash = RedisKey.TAG_POST_HASH + suffix;
+        String tmpCount = RedisKey.TAG_POST_COUNT_ZSET + suffix;
+        String tmpViews = RedisKey.TAG_VIEW_SUM_ZSET + suffix;
+        try {
+            long start = System.currentTimeMillis();
+            Map<String, Long> postCounts = new HashMap<>();
+            Map<String, Long> viewSums = new HashMap<>();
+            Map<String, String> chunk = new HashMap<>();
+            int posts = 0;
+
+            Query query = Query.query(Criteria.where("isDeleted").is(0).and("status").is(1));
+            query.fields().include("tags", "viewCount");
+            try (Stream<PostDoc> stream = mongoTemplate.stream(query, PostDoc.class)) {
+                Iterator<PostDoc> it = stream.iterator();
+                while (it.hasNext()) {
+                    PostDoc post = it.next();
+                    List<String> tags = cleanTags(post.getTags());
+                    if (tags.isEmpty()) continue;
+                    long views = post.getViewCount() == null ? 0 : post.getViewCount();
+                    for (String tag : tags) {
+                        postCounts.merge(tag, 1L, Long::sum);
+                        viewSums.merge(tag, views, Long::sum);
+                    }
+                    chunk.put(post.getId(), String.join(SEP, tags));
+                    posts++;
+                    if (chunk.size() >= rebuildBatchSize) {
+                        redisTemplate.opsForHash().putAll(tmpHash, chunk);
+                        chunk.clear();
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                redisTemplate.opsForHash().putAll(tmpHash, chunk);
+            }
+            if (!postCounts.isEmpty()) {
+                redisTemplate.opsForZSet().add(tmpCount, toTuples(postCounts));
+                redisTemplate.opsForZSet().add(tmpViews, toTuples(viewSums));
+            }
+
+            redisTemplate.execute(SWAP_SCRIPT, Arrays.asList(
+                    RedisKey.TAG_POST_HASH, tmpHash,
+                    RedisKey.TAG_POST_COUNT_ZSET, tmpCount,
+                    RedisKey.TAG_VIEW_SUM_ZSET, tmpViews));
+            log.info("热门标签对账完成 posts={} tags={} cost={}ms", posts, postCounts.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("热门标签对账失败", e);
+            redisTemplate.delete(Arrays.asList(tmpHash, tmpCount, tmpViews));
+        } finally {
+            redisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(RedisKey.TAG_REBUILD_LOCK), token);
+        }
+    }
+
+    // --- Private Methods ---
+
+    private void triggerRebuildIfMissing() {
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(RedisKey.TAG_POST_HASH))) {
+            return;
+        }
+        if (rebuilding.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                try {
+                    reconcile();
+                } finally {
+                    rebuilding.set(false);
+                }
+            });
+        }
+    }
+
+    private static boolean isCounted(PostDoc post) {
+        return post != null
+                && Integer.valueOf(1).equals(post.getStatus())
+                && !Integer.valueOf(1).equals(post.getIsDeleted());
+    }
+
+    private static List<String> cleanTags(List<String> tags) {
+        if (CollUtil.isEmpty(tags)) {
+            return Collections.emptyList();
+        }
+        return tags.stream()
+                .filter(StrUtil::isNotBlank)
+                .map(String::trim)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    private static Set<ZSetOperations.TypedTuple<String>> toTuples(Map<String, Long> scores) {
+        return scores.entrySet().stream()
+                .map(e -> ZSetOperations.TypedTuple.of(e.getKey(), e.getValue().doubleValue()))
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,213 @@
+package com.szu.afternoon3.platform.component;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.RandomUtil;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.szu.afternoon3.platform.common.RedisKey;
+import com.szu.afternoon3.platform.entity.mongo.PostDoc;
+import com.szu.afternoon3.platform.repository.PostRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 帖子二级缓存 (只缓存 PostDoc 本身，不含任何"当前用户"相关状态)
+ * L1: 进程内 Caffeine，容量有限、TTL 很短，挡住热点帖子的重复读
+ * L2: Redis，多节点共享，L1 未命中时先查这里再回源 Mongo
+ *
+ * 失效：写入方先删 L2；再由 post.update / post.delete / post.audit 事件广播到每个节点，
+ * 各节点丢掉自己的 L1 并再删一次 L2 (延迟双删，防止并发读把旧值写回)。
+ * 点赞/评论/浏览等计数不触发失效，靠短 TTL 收敛。
+ *
+ * 注意：返回的 PostDoc 是缓存里的共享对象，调用方只读，不要修改后 save。
+ */
+@Slf4j
+@Component
+public class PostCache {
+
+    @Autowired
+    private PostRepository postRepository;
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.post-cache.enable:true}")
+    private boolean enable;
+
+    @Value("${app.post-cache.l1-max-size:10000}")
+    private long l1MaxSize;
+
+    @Value("${app.post-cache.l1-ttl-seconds:10}")
+    private long l1TtlSeconds;
+
+    @Value("${app.post-cache.l2-ttl-seconds:60}")
+    private long l2TtlSeconds;
+
+    // 不存在的帖子也缓存一个空标记，防止刷不存在的 ID 打穿到 Mongo
+    @Value("${app.post-cache.null-ttl-seconds:30}")
+    private long nullTtlSeconds;
+
+    private static final String NULL_MARKER = "";
+
+    private Cache<String, Optional<PostDoc>> l1;
+    private Counter l2Hit;
+    private Counter l2Miss;
+
+    // 独立的 ObjectMapper：LocalDateTime 按 ISO 存 (保留毫秒，游标分页要用)，忽略未知字段便于字段增减
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    @PostConstruct
+    public void init() {
+        l1 = Caffeine.newBuilder()
+                .maximumSize(l1MaxSize)
+                .expireAfterWrite(Duration.ofSeconds(l1TtlSeconds))
+                .recordStats()
+                .build();
+        // L1 的 hit/miss/eviction 由 Micrometer 自带的 Caffeine binder 导出: cache_gets_total{cache="post.l1"}
+        CaffeineCacheMetrics.monitor(meterRegistry, l1, "post.l1");
+        // L2 沿用同一个指标名，方便一张图里对比两级命中率
+        l2Hit = Counter.builder("cache.gets").tag("cache", "post.l2").tag("result", "hit").register(meterRegistry);
+        l2Miss = Counter.builder("cache.gets").tag("cache", "post.l2").tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * 单个读取 (详情页)
+     * @return 帖子，不存在返回 null (含已逻辑删除的帖子，由调用方判断 isDeleted)
+     */
+    public PostDoc get(String postId) {
+        if (postId == null) return null;
+        if (!enable) {
+            return postRepository.findById(postId).orElse(null);
+        }
+        return getAll(Collections.singletonList(postId)).get(postId);
+    }
+
+    /**
+     * 批量读取 (列表回查)：L1 → Redis MGET → Mongo $in，逐级只查上一级没命中的
+     * @return postId -> PostDoc，不存在的 ID 不在 Map 里
+     */
+    public Map<String, PostDoc> getAll(Collection<String> postIds) {
+        if (CollUtil.isEmpty(postIds)) {
+            return Collections.emptyMap();
+        }
+        List<String> ids = postIds.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        Map<String, PostDoc> result = new HashMap<>();
+        if (!enable) {
+            postRepository.findAllById(ids).forEach(doc -> result.put(doc.getId(), doc));
+            return result;
+        }
+
+        // 1. L1
+        List<String> l1Missed = new ArrayList<>();
+        for (String id : ids) {
+            Optional<PostDoc> cached = l1.getIfPresent(id);
+            if (cached == null) {
+                l1Missed.add(id);
+            } else {
+                cached.ifPresent(doc -> result.put(id, doc));
+            }
+        }
+        if (l1Missed.isEmpty()) return result;
+
+        // 2. L2 (一次 MGET)
+        List<String> l2Missed = new ArrayList<>();
+        List<String> values = readL2(l1Missed);
+        for (int i = 0; i < l1Missed.size(); i++) {
+            String id = l1Missed.get(i);
+            String json = values == null ? null : values.get(i);
+            if (json == null) {
+                l2Missed.add(id);
+                continue;
+            }
+            PostDoc doc = NULL_MARKER.equals(json) ? null : deserialize(json);
+            if (doc == null && !NULL_MARKER.equals(json)) {
+                // 反序列化失败 (字段结构变了)，当作未命中重新回源
+                l2Missed.add(id);
+                continue;
+            }
+            l1.put(id, Optional.ofNullable(doc));
+            if (doc != null) result.put(id, doc);
+        }
+        l2Hit.increment(l1Missed.size() - l2Missed.size());
+        l2Miss.increment(l2Missed.size());
+        if (l2Missed.isEmpty()) return result;
+
+        // 3. 回源 Mongo，回填两级缓存 (查不到的写空标记)
+        Map<String, PostDoc> loaded = new HashMap<>();
+        postRepository.findAllById(l2Missed).forEach(doc -> loaded.put(doc.getId(), doc));
+        for (String id : l2Missed) {
+            PostDoc doc = loaded.get(id);
+            l1.put(id, Optional.ofNullable(doc));
+            writeL2(id, doc);
+            if (doc != null) result.put(id, doc);
+        }
+        return result;
+    }
+
+    /**
+     * 写入方调用：删除 L2 + 本节点 L1，其他节点的 L1 由事件广播清理
+     */
+    public void evict(String postId) {
+        if (postId == null) return;
+        l1.invalidate(postId);
+        try {
+            redisTemplate.delete(RedisKey.POST_CACHE + postId);
+        } catch (Exception e) {
+            log.warn("帖子缓存 L2 删除失败 postId={}: {}", postId, e.getMessage());
+        }
+    }
+
+    private List<String> readL2(List<String> ids) {
+        try {
+            return redisTemplate.opsForValue().multiGet(
+                    ids.stream().map(id -> RedisKey.POST_CACHE + id).collect(Collectors.toList()));
+        } catch (Exception e) {
+            // Redis 故障不影响读，直接回源
+            log.warn("帖子缓存 L2 读取失败，回源 Mongo: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeL2(String id, PostDoc doc) {
+        try {
+            if (doc == null) {
+                redisTemplate.opsForValue().set(RedisKey.POST_CACHE + id, NULL_MARKER, nullTtlSeconds, TimeUnit.SECONDS);
+            } else {
+                // TTL 加随机抖动，避免同一批回填的 key 同时过期
+                long ttl = l2TtlSeconds + RandomUtil.randomLong(0, Math.max(1, l2TtlSeconds / 5));
+                redisTemplate.opsForValue().set(RedisKey.POST_CACHE + id, objectMapper.writeValueAsString(doc), ttl, TimeUnit.SECONDS);
+            }
+        } catch (Exception e) {
+            log.warn("帖子缓存 L2 写入失败 postId={}: {}", id, e.getMessage());
+        }
+    }
+
+    private PostDoc deserialize(String json) {
+        try {
+            return objectMapper.readValue(json, PostDoc.class);
+        } catch (Exception e) {
+            log.warn("帖子缓存 L2 反序列化失败: {}", e.getMessage());
+            return null;
+        }
+    }
+}
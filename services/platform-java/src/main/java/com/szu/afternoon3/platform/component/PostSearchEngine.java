@@ -0,0 +1,271 @@
+package com.szu.afternoon3.platform.component;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.query_dsl.*;
+import co.elastic.clients.json.JsonData;
+import com.szu.afternoon3.platform.entity.es.PostEsDoc;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.NoSuchIndexException;
+import org.springframework.data.elasticsearch.UncategorizedElasticsearchException;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.client.elc.NativeQueryBuilder;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.TotalHitsRelation;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
+import org.springframework.data.elasticsearch.core.query.HighlightQuery;
+import org.springframework.data.elasticsearch.core.query.highlight.Highlight;
+import org.springframework.data.elasticsearch.core.query.highlight.HighlightField;
+import org.springframework.data.elasticsearch.core.query.highlight.HighlightParameters;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * 帖子搜索引擎 (ES)
+ * 负责关键词 / 标签 / 排序查询，只返回命中的帖子 ID、高亮摘要和总数，
+ * 帖子详情由调用方按 ID 回查 Mongo (走主键，代价与集合大小无关)。
+ *
+ * ES 不可用 (连接失败 / 索引不存在 / 5xx) 时抛出 {@link EsUnavailableException}，
+ * 并在冷却期内直接短路，调用方据此降级到 Mongo。
+ */
+@Slf4j
+@Component
+public class PostSearchEngine {
+
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+
+    // 总开关：关闭后所有搜索直接走 Mongo
+    @Value("${app.search.es-enable:true}")
+    private boolean esEnable;
+
+    // track_total_hits 上限，超过后只返回下界 (前端显示 "1万+")，避免为精确计数扫全部命中
+    @Value("${app.search.track-total-hits-up-to:10000}")
+    private int trackTotalHitsUpTo;
+
+    // 单次查询超时
+    @Value("${app.search.timeout-ms:800}")
+    private long timeoutMs;
+
+    // ES 故障后的熔断冷却时间，期间不再尝试 ES
+    @Value("${app.search.cooldown-ms:30000}")
+    private long cooldownMs;
+
+    private volatile long unavailableUntil = 0L;
+
+    // 用于 Function Score 的时间格式化 (ES 要求)
+    private static final DateTimeFormatter ES_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+
+    private static final String[] SOURCE_INCLUDES = {"id"};
+    private static final int SUMMARY_LENGTH = 50;
+
+    /**
+     * 当前是否应该尝试 ES (开关打开且不在熔断冷却期)
+     */
+    public boolean isAvailable() {
+        return esEnable && System.currentTimeMillis() >= unavailableUntil;
+    }
+
+    /**
+     * 执行搜索
+     * @param keyword 关键词 (可空)
+     * @param tag 标签精确过滤 (可空)
+     * @param pageNum 页码 (0 开始)
+     * @param pageSize 每页大小
+     * @param sort 排序: hot(综合热度) / likes / new / old，其余按相关度
+     */
+    public Result search(String keyword, String tag, int pageNum, int pageSize, String sort) {
+        NativeQueryBuilder builder = buildQuery(keyword, tag, sort, System.currentTimeMillis());
+        builder.withPageable(PageRequest.of(pageNum, pageSize))
+                .withTrackTotalHitsUpTo(trackTotalHitsUpTo);
+        return execute(builder.build());
+    }
+
+    /**
+     * 游标 (search_after) 搜索：不算 from 偏移，也不统计总数，深翻页代价恒定
+     * @param after 上一页最后一条的排序值，首页传 null
+     * @param origin 热度排序的衰减原点 (毫秒)，翻页期间保持不变
+     * @param limit 最多返回条数
+     */
+    public Result searchAfter(String keyword, String tag, List<Object> after, long origin, int limit, String sort) {
+        NativeQueryBuilder builder = buildQuery(keyword, tag, sort, origin);
+        builder.withPageable(PageRequest.of(0, limit))
+                .withTrackTotalHits(false);
+        if (CollUtil.isNotEmpty(after)) {
+            builder.withSearchAfter(after);
+        }
+        return execute(builder.build());
+    }
+
+    private Result execute(NativeQuery query) {
+        if (!isAvailable()) {
+            throw new EsUnavailableException("ES search disabled or cooling down", null);
+        }
+        try {
+            SearchHits<PostEsDoc> hits = elasticsearchOperations.search(query, PostEsDoc.class);
+
+            List<String> ids = new ArrayList<>(hits.getSearchHits().size());
+            Map<String, String> summaries = new HashMap<>();
+            List<List<Object>> sortValues = new ArrayList<>(hits.getSearchHits().size());
+            for (SearchHit<PostEsDoc> hit : hits.getSearchHits()) {
+                ids.add(hit.getId());
+                sortValues.add(hit.getSortValues());
+                String summary = pickHighlight(hit);
+                if (summary != null) {
+                    summaries.put(hit.getId(), summary);
+                }
+            }
+            boolean exact = hits.getTotalHitsRelation() != TotalHitsRelation.GREATER_THAN_OR_EQUAL_TO;
+            return new Result(ids, summaries, hits.getTotalHits(), exact, sortValues);
+
+        } catch (DataAccessResourceFailureException | NoSuchIndexException e) {
+            markUnavailable(e);
+            throw new EsUnavailableException("ES unavailable", e);
+        } catch (UncategorizedElasticsearchException e) {
+            // 4xx 是查询本身的问题，不应该降级掩盖；5xx / 无状态码视为集群不可用
+            Integer status = e.getStatusCode();
+            if (status != null && status < 500) {
+                throw e;
+            }
+            markUnavailable(e);
+            throw new EsUnavailableException("ES unavailable", e);
+        }
+    }
+
+    private NativeQueryBuilder buildQuery(String keyword, String tag, String sort, long origin) {
+        // 1. Bool 查询：must 负责相关度，filter 负责精确过滤 (不参与算分，可缓存)
+        BoolQuery.Builder bool = new BoolQuery.Builder();
+        if (StrUtil.isNotBlank(keyword)) {
+            String kw = keyword.trim();
+            bool.must(m -> m.multiMatch(mm -> mm
+                    .query(kw)
+                    .fields("title^3", "title.pinyin^1.5", "content", "tags^2", "tags.pinyin")));
+        } else {
+            bool.must(m -> m.matchAll(ma -> ma));
+        }
+        if (StrUtil.isNotBlank(tag)) {
+            bool.filter(f -> f.term(t -> t.field("tags.keyword").value(tag)));
+        }
+        // 只搜已发布、未删除的帖子，总数才和能翻到的结果一致
+        // (这两个字段加进索引之前写入的旧文档没有它们，按可见处理；重建索引后都会带上)
+        bool.filter(f -> f.bool(b -> b
+                .should(s -> s.term(t -> t.field("status").value(1)))
+                .should(s -> s.bool(nb -> nb.mustNot(mn -> mn.exists(e -> e.field("status")))))));
+        bool.mustNot(m -> m.term(t -> t.field("isDeleted").value(1)));
+        Query boolQuery = bool.build()._toQuery();
+
+        NativeQueryBuilder builder = NativeQuery.builder()
+                .withSourceFilter(new FetchSourceFilter(SOURCE_INCLUDES, null))
+                .withTimeout(Duration.ofMillis(timeoutMs));
+
+        // 2. 排序
+        if ("hot".equalsIgnoreCase(sort)) {
+            // 综合热度：log1p(likeCount) 叠加时间高斯衰减
+            String now = LocalDateTime.ofInstant(Instant.ofEpochMilli(origin), ZoneId.systemDefault()).format(ES_TIME_FORMATTER);
+            builder.withQuery(q -> q.functionScore(fs -> fs
+                    .query(boolQuery)
+                    .functions(f -> f.fieldValueFactor(fv -> fv
+                            .field("likeCount").modifier(FieldValueFactorModifier.Log1p).factor(1.0).missing(0.0)))
+                    .functions(f -> f.gauss(g -> g
+                            .field("createdAt")
+                            .placement(p -> p
+                                    .origin(JsonData.of(now))
+                                    .scale(JsonData.of("3d"))
+                                    .offset(JsonData.of("1d"))
+                                    .decay(0.5))))
+                    .scoreMode(FunctionScoreMode.Sum)
+                    .boostMode(FunctionBoostMode.Multiply)));
+            builder.withSort(s -> s.score(sc -> sc.order(SortOrder.Desc)));
+            builder.withSort(s -> s.field(fs -> fs.field("createdAt").order(SortOrder.Desc)));
+        } else {
+            builder.withQuery(boolQuery);
+            if ("likes".equalsIgnoreCase(sort)) {
+                builder.withSort(s -> s.field(fs -> fs.field("likeCount").order(SortOrder.Desc)));
+                builder.withSort(s -> s.field(fs -> fs.field("createdAt").order(SortOrder.Desc)));
+            } else if ("old".equalsIgnoreCase(sort)) {
+                builder.withSort(s -> s.field(fs -> fs.field("createdAt").order(SortOrder.Asc)));
+            } else if ("new".equalsIgnoreCase(sort) || StrUtil.isBlank(keyword)) {
+                builder.withSort(s -> s.field(fs -> fs.field("createdAt").order(SortOrder.Desc)));
+            } else {
+                builder.withSort(s -> s.score(sc -> sc.order(SortOrder.Desc)));
+                builder.withSort(s -> s.field(fs -> fs.field("createdAt").order(SortOrder.Desc)));
+            }
+        }
+
+        // 最后按 id 兜底，保证排序是全序 (search_after 要求；_id 在 ES 8 默认不能排序，用 source 里的 id keyword)
+        builder.withSort(s -> s.field(fs -> fs.field("id").order(SortOrder.Desc)));
+
+        // 3. 高亮：只有关键词搜索才需要
+        if (StrUtil.isNotBlank(keyword)) {
+            HighlightParameters params = HighlightParameters.builder()
+                    .withPreTags("<em>")
+                    .withPostTags("</em>")
+                    .withFragmentSize(SUMMARY_LENGTH)
+                    .withNumberOfFragments(1)
+                    .withRequireFieldMatch(false)
+                    .build();
+            Highlight highlight = new Highlight(params, List.of(
+                    new HighlightField("content"),
+                    new HighlightField("title"),
+                    new HighlightField("tags")));
+            builder.withHighlightQuery(new HighlightQuery(highlight, PostEsDoc.class));
+        }
+
+        return builder;
+    }
+
+    /**
+     * 摘要优先级：content → title → tags 的第一个非空高亮片段
+     */
+    private String pickHighlight(SearchHit<PostEsDoc> hit) {
+        for (String field : List.of("content", "title", "tags")) {
+            List<String> fragments = hit.getHighlightField(field);
+            if (CollUtil.isNotEmpty(fragments) && StrUtil.isNotBlank(fragments.get(0))) {
+                return fragments.get(0);
+            }
+        }
+        return null;
+    }
+
+    private void markUnavailable(Exception e) {
+        unavailableUntil = System.currentTimeMillis() + cooldownMs;
+        log.warn("ES 搜索不可用，{} ms 内降级到 Mongo: {}", cooldownMs, e.getMessage());
+    }
+
+    /**
+     * 搜索结果：按 ES 排序的帖子 ID + 高亮摘要 + 总数
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Result {
+        private List<String> ids;
+        private Map<String, String> summaries; // postId -> 高亮摘要
+        private long total;
+        private boolean totalExact;            // false 表示 total 只是下界 (命中数超过 track_total_hits 上限)
+        private List<List<Object>> sortValues; // 每条命中的排序值，与 ids 一一对应，用于生成 search_after 游标
+    }
+
+    /**
+     * ES 不可用，调用方应降级
+     */
+    public static class EsUnavailableException extends RuntimeException {
+        public EsUnavailableException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
@@ -3,9 +3,11 @@ package com.szu.afternoon3.platform.component;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.io.IoUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.dfa.FoundWord;
-import cn.hutool.dfa.WordTree;
+import cn.hutool.dfa.StopChar;
+import com.szu.afternoon3.platform.common.DoubleArrayAhoCorasick;
 import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
@@ -15,20 +17,21 @@ import org.springframework.stereotype.Component;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 /**
  * 敏感词过滤器 (纯内存版)
- * 启动时自动扫描 resources/sensitive 目录下的所有 txt 文件加载
+ * 启动时自动扫描 resources/sensitive 目录下的所有 dat 文件，解密后构建双数组 AC 自动机。
+ * 一段文本只扫一遍即可拿到所有命中；多字段 (标题 + 正文 + 标签) 也是一次调用逐段扫完。
+ * 空格、标点等停顿字符 (Hutool StopChar) 在匹配时跳过，口径与原来的 WordTree 一致。
  */
 @Slf4j
 @Component
 public class SensitiveWordFilter {
 
-    private final WordTree wordTree = new WordTree();
+    // 空词典：什么都不命中 (加载失败时也不影响发帖)
+    private volatile DoubleArrayAhoCorasick automaton =
+            new DoubleArrayAhoCorasick(Collections.emptyList(), SensitiveWordFilter::isStopChar);
 
     // 修改 1: 扫描 .dat 文件
     private static final String DICT_PATH = "classpath*:sensitive/*.dat";
@@ -80,7 +83,7 @@ public class SensitiveWordFilter {
             }
 
             if (CollUtil.isNotEmpty(allWords)) {
-                wordTree.addWords(allWords);
+                automaton = new DoubleArrayAhoCorasick(allWords, SensitiveWordFilter::isStopChar);
             }
 
         } catch (IOException e) {
@@ -95,7 +98,7 @@ public class SensitiveWordFilter {
      */
     public boolean hasSensitiveWord(String text) {
         if (StrUtil.isBlank(text)) return false;
-        return wordTree.isMatch(text);
+        return automaton.matches(text);
     }
 
     /**
@@ -103,7 +106,42 @@ public class SensitiveWordFilter {
      */
     public List<String> findAll(String text) {
         if (StrUtil.isBlank(text)) return CollUtil.newArrayList();
-        return wordTree.matchAll(text, -1, false, false);
+        List<String> words = new ArrayList<>();
+        automaton.scan(text, (start, end) -> words.add(text.substring(start, end + 1)));
+        return words;
+    }
+
+    /**
+     * 多字段一次扫完，返回所有命中 (按字段顺序、字段内按位置)
+     * @param fields 各字段文本，允许 null
+     */
+    public List<Hit> findAllInFields(String... fields) {
+        List<Hit> hits = new ArrayList<>();
+        for (int i = 0; i < fields.length; i++) {
+            String text = fields[i];
+            if (StrUtil.isBlank(text)) continue;
+            int field = i;
+            automaton.scan(text, (start, end) -> hits.add(new Hit(field, text.substring(start, end + 1), start, end)));
+        }
+        return hits;
+    }
+
+    /**
+     * 多字段按顺序扫描，返回第一个命中 (命中即停)，没有命中返回 null
+     * 发帖/修帖校验用：标题、正文、标签一次调用，不再先 hasSensitiveWord 再 findAll 扫两遍
+     */
+    public Hit findFirstInFields(String... fields) {
+        Hit[] first = new Hit[1];
+        for (int i = 0; i < fields.length && first[0] == null; i++) {
+            String text = fields[i];
+            if (StrUtil.isBlank(text)) continue;
+            int field = i;
+            automaton.scan(text, (start, end) -> {
+                first[0] = new Hit(field, text.substring(start, end + 1), start, end);
+                return false;
+            });
+        }
+        return first[0];
     }
 
     /**
@@ -111,20 +149,32 @@ public class SensitiveWordFilter {
      */
     public String filter(String text) {
         if (StrUtil.isBlank(text)) return text;
-        
-        // 查找所有匹配的词
-        List<FoundWord> foundWords = wordTree.matchAllWords(text, -1, false, false);
-        if (CollUtil.isEmpty(foundWords)) {
-            return text;
-        }
 
-        StringBuilder result = new StringBuilder(text);
-        // 倒序替换，防止索引错位
-        for (int i = foundWords.size() - 1; i >= 0; i--) {
-            FoundWord fw = foundWords.get(i);
-            String stars = StrUtil.repeat('*', fw.getWord().length());
-            result.replace(fw.getStartIndex(), fw.getEndIndex() + 1, stars);
-        }
-        return result.toString();
+        char[] chars = text.toCharArray();
+        int hits = automaton.scan(text, (start, end) -> {
+            Arrays.fill(chars, start, end + 1, '*');
+            return true;
+        });
+        return hits == 0 ? text : new String(chars);
+    }
+
+    public int size() {
+        return automaton.size();
+    }
+
+    private static boolean isStopChar(int ch) {
+        return StopChar.isStopChar((char) ch);
+    }
+
+    /**
+     * 一次命中
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Hit {
+        private int fieldIndex; // 第几个字段 (findAllInFields / findFirstInFields 的参数下标)
+        private String word;    // 命中的原文 (含中间被跳过的字符)
+        private int start;
+        private int end;        // 含
     }
-}
\ No newline at end of file
+}
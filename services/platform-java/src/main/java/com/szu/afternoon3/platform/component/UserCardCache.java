@@ -0,0 +1,227 @@
+package com.szu.afternoon3.platform.component;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.RandomUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.szu.afternoon3.platform.common.RedisKey;
+import com.szu.afternoon3.platform.entity.User;
+import com.szu.afternoon3.platform.mapper.UserMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 用户名片缓存 (只有昵称、头像、角色、状态)
+ * 发帖、关注、评论、通知、机器人回复都要把昵称头像冗余进 Mongo，以前每次都单独查一次 PostgreSQL
+ * L1: 进程内 Caffeine；L2: Redis；都没有再一次 IN 查询回源
+ *
+ * 失效：本服务改资料后直接 evict；user-rpc 改资料 / 注销发出的 user.update / user.delete
+ * 广播到每个节点 (见 RabbitConfig#userCardEvictQueue)，清本节点 L1 并删 L2。
+ * 权限判断 (是否管理员) 不要用这里的 role，仍以数据库为准。
+ */
+@Slf4j
+@Component
+public class UserCardCache {
+
+    @Autowired
+    private UserMapper userMapper;
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.user-card-cache.enable:true}")
+    private boolean enable;
+
+    @Value("${app.user-card-cache.l1-max-size:20000}")
+    private long l1MaxSize;
+
+    @Value("${app.user-card-cache.l1-ttl-seconds:60}")
+    private long l1TtlSeconds;
+
+    @Value("${app.user-card-cache.l2-ttl-seconds:600}")
+    private long l2TtlSeconds;
+
+    // 不存在 / 已注销的用户缓存空标记
+    @Value("${app.user-card-cache.null-ttl-seconds:60}")
+    private long nullTtlSeconds;
+
+    private static final String NULL_MARKER = "";
+
+    private Cache<Long, Optional<Card>> l1;
+    private Counter l2Hit;
+    private Counter l2Miss;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    @Data
+    public static class Card {
+        private Long id;
+        private String nickname;
+        private String avatar;
+        private String role;
+        private Integer status;
+    }
+
+    @PostConstruct
+    public void init() {
+        l1 = Caffeine.newBuilder()
+                .maximumSize(l1MaxSize)
+                .expireAfterWrite(Duration.ofSeconds(l1TtlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, l1, "user.card.l1");
+        l2Hit = Counter.builder("cache.gets").tag("cache", "user.card.l2").tag("result", "hit").register(meterRegistry);
+        l2Miss = Counter.builder("cache.gets").tag("cache", "user.card.l2").tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * @return 用户名片，不存在 (或已注销) 返回 null
+     */
+    public Card get(Long userId) {
+        if (userId == null) return null;
+        return getAll(Collections.singletonList(userId)).get(userId);
+    }
+
+    /**
+     * 批量读取：L1 → Redis MGET → PostgreSQL IN，逐级只查上一级没命中的
+     * @return userId -> 名片，不存在的 ID 不在 Map 里
+     */
+    public Map<Long, Card> getAll(Collection<Long> userIds) {
+        if (CollUtil.isEmpty(userIds)) {
+            return Collections.emptyMap();
+        }
+        List<Long> ids = userIds.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        Map<Long, Card> result = new HashMap<>();
+        if (ids.isEmpty()) return result;
+        if (!enable) {
+            load(ids).forEach(card -> result.put(card.getId(), card));
+            return result;
+        }
+
+        // 1. L1
+        List<Long> l1Missed = new ArrayList<>();
+        for (Long id : ids) {
+            Optional<Card> cached = l1.getIfPresent(id);
+            if (cached == null) {
+                l1Missed.add(id);
+            } else {
+                cached.ifPresent(card -> result.put(id, card));
+            }
+        }
+        if (l1Missed.isEmpty()) return result;
+
+        // 2. L2 (一次 MGET)
+        List<Long> l2Missed = new ArrayList<>();
+        List<String> values = readL2(l1Missed);
+        for (int i = 0; i < l1Missed.size(); i++) {
+            Long id = l1Missed.get(i);
+            String json = values == null ? null : values.get(i);
+            if (json == null) {
+                l2Missed.add(id);
+                continue;
+            }
+            Card card = NULL_MARKER.equals(json) ? null : deserialize(json);
+            if (card == null && !NULL_MARKER.equals(json)) {
+                l2Missed.add(id);
+                continue;
+            }
+            l1.put(id, Optional.ofNullable(card));
+            if (card != null) result.put(id, card);
+        }
+        l2Hit.increment(l1Missed.size() - l2Missed.size());
+        l2Miss.increment(l2Missed.size());
+        if (l2Missed.isEmpty()) return result;
+
+        // 3. 一次 IN 查询回源，回填两级缓存 (查不到的写空标记)
+        Map<Long, Card> loaded = load(l2Missed).stream()
+                .collect(Collectors.toMap(Card::getId, card -> card));
+        for (Long id : l2Missed) {
+            Card card = loaded.get(id);
+            l1.put(id, Optional.ofNullable(card));
+            writeL2(id, card);
+            if (card != null) result.put(id, card);
+        }
+        return result;
+    }
+
+    /**
+     * 用户资料变更 / 注销后调用：删 L2 + 本节点 L1
+     */
+    public void evict(Long userId) {
+        if (userId == null) return;
+        l1.invalidate(userId);
+        try {
+            redisTemplate.delete(RedisKey.USER_CARD + userId);
+        } catch (Exception e) {
+            log.warn("用户名片缓存 L2 删除失败 userId={}: {}", userId, e.getMessage());
+        }
+    }
+
+    // --- Private Methods ---
+
+    private List<Card> load(List<Long> ids) {
+        // 逻辑删除 (@TableLogic) 的用户查不出来，和 selectById 的行为一致
+        List<User> users = userMapper.selectList(new LambdaQueryWrapper<User>()
+                .select(User::getId, User::getNickname, User::getAvatar, User::getRole, User::getStatus)
+                .in(User::getId, ids));
+        return users.stream().map(user -> {
+            Card card = new Card();
+            card.setId(user.getId());
+            card.setNickname(user.getNickname());
+            card.setAvatar(user.getAvatar());
+            card.setRole(user.getRole());
+            card.setStatus(user.getStatus());
+            return card;
+        }).collect(Collectors.toList());
+    }
+
+    private List<String> readL2(List<Long> ids) {
+        try {
+            return redisTemplate.opsForValue().multiGet(
+                    ids.stream().map(id -> RedisKey.USER_CARD + id).collect(Collectors.toList()));
+        } catch (Exception e) {
+            log.warn("用户名片缓存 L2 读取失败，回源数据库: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeL2(Long id, Card card) {
+        try {
+            if (card == null) {
+                redisTemplate.opsForValue().set(RedisKey.USER_CARD + id, NULL_MARKER, nullTtlSeconds, TimeUnit.SECONDS);
+            } else {
+                long ttl = l2TtlSeconds + RandomUtil.randomLong(0, Math.max(1, l2TtlSeconds / 5));
+                redisTemplate.opsForValue().set(RedisKey.USER_CARD + id, objectMapper.writeValueAsString(card), ttl, TimeUnit.SECONDS);
+            }
+        } catch (Exception e) {
+            log.warn("用户名片缓存 L2 写入失败 userId={}: {}", id, e.getMessage());
+        }
+    }
+
+    private Card deserialize(String json) {
+        try {
+            return objectMapper.readValue(json, Card.class);
+        } catch (Exception e) {
+            log.warn("用户名片缓存 L2 反序列化失败: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.szu.afternoon3.platform.component;
+
+import cn.hutool.core.collection.CollUtil;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.Operator;
+import com.szu.afternoon3.platform.component.PostSearchEngine.EsUnavailableException;
+import com.szu.afternoon3.platform.entity.User;
+import com.szu.afternoon3.platform.entity.es.UserEsDoc;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.NoSuchIndexException;
+import org.springframework.data.elasticsearch.UncategorizedElasticsearchException;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 用户搜索引擎 (ES users 索引)
+ * 替代 PostgreSQL 上的 LIKE '%kw%' 全表扫描，匹配和排序都在 ES 里做：
+ * 昵称完全命中 > 昵称前缀 > 邮箱前缀 > 昵称包含 > 拼音 / 邮箱包含，同分按昵称排序
+ *
+ * 和 PostSearchEngine 一样，ES 不可用时抛 EsUnavailableException 并冷却一段时间，调用方降级到数据库
+ */
+@Slf4j
+@Component
+public class UserSearchEngine {
+
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+
+    // 总开关：关闭后用户搜索走数据库 LIKE，也不再同步索引
+    @Value("${app.user-search.es-enable:true}")
+    private boolean esEnable;
+
+    @Value("${app.user-search.timeout-ms:800}")
+    private long timeoutMs;
+
+    @Value("${app.user-search.cooldown-ms:30000}")
+    private long cooldownMs;
+
+    private volatile long unavailableUntil = 0L;
+
+    public boolean isEnabled() {
+        return esEnable;
+    }
+
+    public boolean isAvailable() {
+        return esEnable && System.currentTimeMillis() >= unavailableUntil;
+    }
+
+    /**
+     * 索引不存在时按 UserEsDoc 的 settings / mapping 建出来
+     * @return 是否新建了索引 (新建后需要全量灌一次)
+     */
+    public boolean ensureIndex() {
+        IndexOperations indexOps = elasticsearchOperations.indexOps(UserEsDoc.class);
+        if (indexOps.exists()) {
+            return false;
+        }
+        indexOps.createWithMapping();
+        log.info("用户搜索索引 users 已创建");
+        return true;
+    }
+
+    /**
+     * @param pageNum 页码 (0 开始)
+     */
+    public Result search(String keyword, int pageNum, int pageSize) {
+        if (!isAvailable()) {
+            throw new EsUnavailableException("ES user search disabled or cooling down", null);
+        }
+        String kw = keyword.trim();
+        String lower = kw.toLowerCase();
+
+        BoolQuery.Builder bool = new BoolQuery.Builder()
+                .filter(f -> f.term(t -> t.field("status").value(1)))
+                .should(s -> s.term(t -> t.field("nickname.keyword").value(lower).boost(10f)))
+                .should(s -> s.match(m -> m.field("nickname.prefix").query(kw).boost(6f)))
+                .should(s -> s.prefix(p -> p.field("email").value(lower).boost(4f)))
+                .should(s -> s.match(m -> m.field("nickname").query(kw).operator(Operator.And).boost(3f)))
+                .should(s -> s.match(m -> m.field("nickname.pinyin").query(kw).boost(1f)))
+                .should(s -> s.match(m -> m.field("email.ngram").query(kw).operator(Operator.And).boost(1f)))
+                .minimumShouldMatch("1");
+
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(q -> q.bool(bool.build()))
+                .withSort(s -> s.score(sc -> sc.order(SortOrder.Desc)))
+                .withSort(s -> s.field(f -> f.field("nickname.keyword").order(SortOrder.Asc)))
+                .withPageable(PageRequest.of(pageNum, pageSize))
+                .withTimeout(Duration.ofMillis(timeoutMs))
+                .build();
+
+        try {
+            SearchHits<UserEsDoc> hits = elasticsearchOperations.search(query, UserEsDoc.class);
+            List<UserEsDoc> users = new ArrayList<>(hits.getSearchHits().size());
+            for (SearchHit<UserEsDoc> hit : hits.getSearchHits()) {
+                users.add(hit.getContent());
+            }
+            return new Result(users, hits.getTotalHits());
+        } catch (DataAccessResourceFailureException | NoSuchIndexException e) {
+            markUnavailable(e);
+            throw new EsUnavailableException("ES unavailable", e);
+        } catch (UncategorizedElasticsearchException e) {
+            Integer status = e.getStatusCode();
+            if (status != null && status < 500) {
+                throw e;
+            }
+            markUnavailable(e);
+            throw new EsUnavailableException("ES unavailable", e);
+        }
+    }
+
+    /**
+     * 批量写入 (一次 bulk)
+     */
+    public void saveAll(List<User> users) {
+        if (CollUtil.isEmpty(users)) return;
+        List<UserEsDoc> docs = new ArrayList<>(users.size());
+        for (User user : users) {
+            docs.add(toDoc(user));
+        }
+        elasticsearchOperations.save(docs);
+    }
+
+    public void delete(Long userId) {
+        elasticsearchOperations.delete(String.valueOf(userId), UserEsDoc.class);
+    }
+
+    private UserEsDoc toDoc(User user) {
+        UserEsDoc doc = new UserEsDoc();
+        doc.setId(String.valueOf(user.getId()));
+        doc.setNickname(user.getNickname());
+        doc.setEmail(user.getEmail());
+        doc.setAvatar(user.getAvatar());
+        doc.setStatus(user.getStatus());
+        return doc;
+    }
+
+    private void markUnavailable(Exception e) {
+        unavailableUntil = System.currentTimeMillis() + cooldownMs;
+        log.warn("ES 用户搜索不可用，{} ms 内降级到数据库: {}", cooldownMs, e.getMessage());
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Result {
+        private List<UserEsDoc> users;
+        private long total;
+    }
+}
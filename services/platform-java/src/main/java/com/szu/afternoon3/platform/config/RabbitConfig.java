@@ -7,6 +7,7 @@ import org.springframework.amqp.support.converter.DefaultJackson2JavaTypeMapper;
 import org.springframework.amqp.support.converter.Jackson2JavaTypeMapper;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -30,6 +31,10 @@ public class RabbitConfig {
     public static final String QUEUE_LOG = "platform.log.queue";
     public static final String QUEUE_NOTIFY_AUDIT = "platform.notify.audit.queue";
     public static final String QUEUE_ES_SYNC = "platform.es.sync.queue";
+    // 用户注销后的关联数据清理 (platform.user.queue 归 sync-sidecar 消费，这里单独一个队列)
+    public static final String QUEUE_USER_CLEANUP = "platform.user.cleanup.queue";
+    // 用户搜索索引 (ES users) 的增量同步
+    public static final String QUEUE_USER_SEARCH = "platform.user.search.queue";
     // 死信队列
     public static final String QUEUE_DEAD_LETTER = "platform.dead.letter.queue";
 
@@ -91,6 +96,25 @@ public class RabbitConfig {
     @Bean
     public Queue esSyncQueue() {return createQueueWithDlq(QUEUE_ES_SYNC);}
 
+    @Bean
+    public Queue userCleanupQueue() {return createQueueWithDlq(QUEUE_USER_CLEANUP);}
+
+    @Bean
+    public Queue userSearchQueue() {return createQueueWithDlq(QUEUE_USER_SEARCH);}
+
+    // 帖子缓存失效广播队列：每个节点一个匿名队列 (非持久、独占、断开自动删除)，
+    // 同一条 post.update/delete/audit 每个节点都能收到，用来清各自的本地缓存
+    @Bean
+    public Queue postCacheEvictQueue() {
+        return new AnonymousQueue(new Base64UrlNamingStrategy("platform.post.cache."));
+    }
+
+    // 用户名片缓存失效广播队列：同上，每个节点一个，user.update / user.delete 时清本节点的 L1
+    @Bean
+    public Queue userCardEvictQueue() {
+        return new AnonymousQueue(new Base64UrlNamingStrategy("platform.user.card."));
+    }
+
     // 死信队列本身 (普通持久化队列，不能套娃再绑死信)
     @Bean
     public Queue deadLetterQueue() {
@@ -142,6 +166,21 @@ public class RabbitConfig {
         return BindingBuilder.bind(notifyAuditQueue()).to(platformExchange()).with("post.audit");
     }
 
+    @Bean
+    public Binding bindingUserCleanup() {
+        return BindingBuilder.bind(userCleanupQueue()).to(platformExchange()).with("user.delete");
+    }
+
+    @Bean
+    public Binding bindingUserSearchUpdate() {
+        return BindingBuilder.bind(userSearchQueue()).to(platformExchange()).with("user.update");
+    }
+
+    @Bean
+    public Binding bindingUserSearchDelete() {
+        return BindingBuilder.bind(userSearchQueue()).to(platformExchange()).with("user.delete");
+    }
+
     @Bean
     public Binding bindingEsSync() {
         return BindingBuilder.bind(esSyncQueue())
@@ -161,6 +200,32 @@ public class RabbitConfig {
         return BindingBuilder.bind(esSyncQueue()).to(platformExchange()).with("post.audit.pass");
     }
 
+    @Bean
+    public Binding bindingPostCacheEvictUpdate() {
+        return BindingBuilder.bind(postCacheEvictQueue()).to(platformExchange()).with("post.update");
+    }
+
+    @Bean
+    public Binding bindingPostCacheEvictDelete() {
+        return BindingBuilder.bind(postCacheEvictQueue()).to(platformExchange()).with("post.delete");
+    }
+
+    @Bean
+    public Binding bindingPostCacheEvictAudit() {
+        // post.audit + post.audit.pass
+        return BindingBuilder.bind(postCacheEvictQueue()).to(platformExchange()).with("post.audit.#");
+    }
+
+    @Bean
+    public Binding bindingUserCardEvictUpdate() {
+        return BindingBuilder.bind(userCardEvictQueue()).to(platformExchange()).with("user.update");
+    }
+
+    @Bean
+    public Binding bindingUserCardEvictDelete() {
+        return BindingBuilder.bind(userCardEvictQueue()).to(platformExchange()).with("user.delete");
+    }
+
     // ==========================================
     // 5. 序列化配置
     // ==========================================
@@ -210,4 +275,79 @@ public class RabbitConfig {
 
         return factory;
     }
-}
\ No newline at end of file
+
+    // ==========================================
+    // 6. 批量消费容器 (高流量队列)
+    // ==========================================
+
+    /**
+     * 交互队列 (点赞/收藏/评分/关注/评论点赞)
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory interactionBatchContainerFactory(
+            ConnectionFactory connectionFactory,
+            @Value("${app.mq.interaction.batch-size:100}") int batchSize,
+            @Value("${app.mq.interaction.receive-timeout-ms:200}") long receiveTimeoutMs,
+            @Value("${app.mq.interaction.prefetch:250}") int prefetch,
+            @Value("${app.mq.interaction.concurrency:2}") int concurrency,
+            @Value("${app.mq.interaction.max-concurrency:8}") int maxConcurrency) {
+        return batchContainerFactory(connectionFactory, batchSize, receiveTimeoutMs, prefetch, concurrency, maxConcurrency);
+    }
+
+    /**
+     * 评论队列
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory commentBatchContainerFactory(
+            ConnectionFactory connectionFactory,
+            @Value("${app.mq.comment.batch-size:50}") int batchSize,
+            @Value("${app.mq.comment.receive-timeout-ms:200}") long receiveTimeoutMs,
+            @Value("${app.mq.comment.prefetch:100}") int prefetch,
+            @Value("${app.mq.comment.concurrency:1}") int concurrency,
+            @Value("${app.mq.comment.max-concurrency:4}") int maxConcurrency) {
+        return batchContainerFactory(connectionFactory, batchSize, receiveTimeoutMs, prefetch, concurrency, maxConcurrency);
+    }
+
+    /**
+     * 接口日志队列：prefetch 即内存里最多积压的日志条数，Mongo 慢时靠它把压力挡在 Broker
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory logBatchContainerFactory(
+            ConnectionFactory connectionFactory,
+            @Value("${app.mq.log.batch-size:50}") int batchSize,
+            @Value("${app.mq.log.receive-timeout-ms:1000}") long receiveTimeoutMs,
+            @Value("${app.mq.log.prefetch:100}") int prefetch,
+            @Value("${app.mq.log.concurrency:1}") int concurrency,
+            @Value("${app.mq.log.max-concurrency:2}") int maxConcurrency) {
+        return batchContainerFactory(connectionFactory, batchSize, receiveTimeoutMs, prefetch, concurrency, maxConcurrency);
+    }
+
+    /**
+     * 批量消费：监听方法收到 List，攒够 batchSize 条或等满 receiveTimeout 就交付一批
+     * 消费者数在 [concurrency, maxConcurrency] 之间按积压自动伸缩
+     */
+    private SimpleRabbitListenerContainerFactory batchContainerFactory(ConnectionFactory connectionFactory,
+                                                                       int batchSize,
+                                                                       long receiveTimeoutMs,
+                                                                       int prefetch,
+                                                                       int concurrency,
+                                                                       int maxConcurrency) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(jsonMessageConverter());
+        factory.setAcknowledgeMode(AcknowledgeMode.AUTO);
+
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(receiveTimeoutMs);
+        // prefetch 小于一批的条数时永远攒不满一批
+        factory.setPrefetchCount(Math.max(prefetch, batchSize));
+        factory.setConcurrentConsumers(concurrency);
+        factory.setMaxConcurrentConsumers(Math.max(concurrency, maxConcurrency));
+
+        // 整批失败时不要重回队列 (否则一条毒消息会让整批无限重投)，直接进死信队列
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+}
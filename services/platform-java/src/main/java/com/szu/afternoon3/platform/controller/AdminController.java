@@ -5,11 +5,9 @@ import com.szu.afternoon3.platform.annotation.OperationLog;
 import com.szu.afternoon3.platform.common.Result;
 import com.szu.afternoon3.platform.dto.*;
 import com.szu.afternoon3.platform.entity.User;
-import com.szu.afternoon3.platform.entity.mongo.PostDoc;
 import com.szu.afternoon3.platform.enums.ResultCode;
 import com.szu.afternoon3.platform.exception.AppException;
 import com.szu.afternoon3.platform.mapper.UserMapper;
-import com.szu.afternoon3.platform.repository.PostRepository;
 import com.szu.afternoon3.platform.service.*;
 import com.szu.afternoon3.platform.vo.*;
 import io.swagger.v3.oas.annotations.Operation;
@@ -45,10 +43,7 @@ public class AdminController {
     private UserMapper userMapper;
 
     @Autowired
-    private PostRepository postRepository;
-
-    @Autowired
-    private AiService aiService;
+    private PostModerationService postModerationService;
 
     @Autowired
     private PostService postService;
@@ -264,33 +259,34 @@ public class AdminController {
         adminService.exportLogs(dto, response);
     }
 
+    /**
+     * 取消日志导出
+     * @param exportId 导出时传的 exportId
+     */
+    @DeleteMapping("/log/export/{exportId}")
+    @OperationLog(module = "后台日志审计", description = "取消导出操作日志", bizId = "#exportId")
+    public Result<Void> cancelLogExport(@PathVariable String exportId) {
+        adminService.cancelLogExport(exportId);
+        return Result.success();
+    }
+
     /**
      * 管理员手动触发 AI 审核
      * @param postId 帖子ID
      */
     @PostMapping("/post/{postId}/audit/ai")
     @OperationLog(module = "后台内容审核", description = "ai审核帖子", bizId = "#postId")
-    public Result<AiAuditResultVO> manualAuditPost(@PathVariable String postId) {
-        // 1. 查库
-        PostDoc post = postRepository.findById(postId).orElse(null);
-        if (post == null) {
-            throw new AppException(ResultCode.RESOURCE_NOT_FOUND);
-        }
-
-        // 2. 只有“非删除”状态的帖子才有审核意义（可选）
-        if (post.getIsDeleted() != null && post.getIsDeleted() == 1) {
-            throw new AppException(ResultCode.RESOURCE_NOT_FOUND, "帖子已被删除");
-        }
-
-        // 3. 调用 AI 审核
-        // 注意：这是一个同步调用，可能会耗时 3-5 秒，前端建议加 Loading
-        AiAuditResultVO result = aiService.auditPostContent(post);
+    public Result<AiAuditResultVO> manualAuditPost(@PathVariable String postId,
+                                                   @RequestParam(defaultValue = "false") boolean refresh) {
+        // 1. 有后台预审过的当前版本结论就直接返回；没有 (或 refresh=true 强制重审) 才同步调用 AI
+        // 注意：同步调用可能会耗时 3-5 秒，前端建议加 Loading
+        AiAuditResultVO result = postModerationService.audit(postId, refresh);
 
         result.setPostId(postId);
 
         log.info("AI 审核结果 - ID: {}, 结论: {}, 原因: {}", postId, result.getConclusion(), result.getSuggestion());
 
-        // 4. 返回给前端展示，暂不自动修改数据库状态，由管理员决定
+        // 2. 返回给前端展示，暂不自动修改数据库状态，由管理员决定
         return Result.success(result);
     }
 
@@ -309,8 +305,10 @@ public class AdminController {
 
     @GetMapping("/stats")
     @OperationLog(module = "数据统计", description = "获取后台首页统计数据")
-    public Result<AdminStatsVO> getStats() {
-        return Result.success(adminService.getDataStatistics());
+    public Result<AdminStatsVO> getStats(@RequestParam(defaultValue = "7") int days) {
+        if (days < 1) days = 7;
+        if (days > 365) days = 365; // 预聚合按天存，一年也就 365 条
+        return Result.success(adminService.getDataStatistics(days));
     }
 
 
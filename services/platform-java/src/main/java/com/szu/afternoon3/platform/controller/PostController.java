@@ -28,6 +28,8 @@ public class PostController {
     private PostService postService;
     /**
      * 获取首页帖子流 (推荐/关注)
+     * 带上 cursor 参数即切换为游标模式 (首页传 cursor= 空串)，返回 hasMore/nextCursor；
+     * 不带 cursor 时保持原有页码模式
      */
     @GetMapping("/list")
     @OperationLog(module = "帖子模块", description = "浏览帖子流")
@@ -36,22 +38,51 @@ public class PostController {
             @RequestParam(required = false, defaultValue = "20") Integer size,
             @RequestParam(required = false, defaultValue = "recommend") String tab,
             @RequestParam(required = false) String tag,
-            @RequestParam(required = false, defaultValue = "hot") String sort // 默认按照最新排序
+            @RequestParam(required = false, defaultValue = "hot") String sort, // 默认按照最新排序
+            @RequestParam(required = false) String cursor
     ) {
+        if (cursor != null) {
+            return Result.success(postService.getPostListByCursor(cursor, size, tab, tag, sort));
+        }
         PageResult<PostVO> data = postService.getPostList(page, size, tab, tag, sort);
         return Result.success(data);
     }
 
+    /**
+     * 搜索帖子 (关键词 / 标签 / 排序)
+     * 优先走 ES，ES 不可用时降级 Mongo；cursor 规则同 /list
+     * @param sort hot / likes / new / old，不传按相关度
+     */
+    @GetMapping("/search")
+    @OperationLog(module = "帖子模块", description = "搜索帖子")
+    public Result<PageResult<PostVO>> searchPosts(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) String tag,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false, defaultValue = "1") Integer page,
+            @RequestParam(required = false, defaultValue = "20") Integer size,
+            @RequestParam(required = false) String cursor) {
+        if (cursor != null) {
+            return Result.success(postService.searchPostsByCursor(keyword, tag, cursor, size, sort));
+        }
+        return Result.success(postService.searchPosts(keyword, tag, page, size, sort));
+    }
+
     /**
      * 获取某用户的帖子列表
      * @param userId 目标用户ID
+     * @param cursor 游标 (可选)，规则同 /list
      */
     @GetMapping("/user/{userId:\\d+}")
     @OperationLog(module = "帖子模块", description = "查看用户帖子", bizId = "#userId")
     public Result<PageResult<PostVO>> getUserPosts(
             @PathVariable String userId,
             @RequestParam(required = false, defaultValue = "1") Integer page,
-            @RequestParam(required = false, defaultValue = "20") Integer size) {
+            @RequestParam(required = false, defaultValue = "20") Integer size,
+            @RequestParam(required = false) String cursor) {
+        if (cursor != null) {
+            return Result.success(postService.getUserPostListByCursor(userId, cursor, size));
+        }
         PageResult<PostVO> data = postService.getUserPostList(userId, page, size);
         return Result.success(data);
     }
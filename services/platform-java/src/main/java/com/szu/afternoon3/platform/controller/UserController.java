@@ -97,20 +97,27 @@ public class UserController {
      */
     @GetMapping("/search")
     @OperationLog(module = "用户模块", description = "搜索用户", bizId = "#keyword")
-    public Result<List<UserSearchVO>> searchUsers(@RequestParam String keyword) {
-        List<UserSearchVO> list = userService.searchUsers(keyword);
+    public Result<List<UserSearchVO>> searchUsers(@RequestParam String keyword,
+                                                  @RequestParam(required = false) Integer page,
+                                                  @RequestParam(required = false) Integer size) {
+        List<UserSearchVO> list = userService.searchUsers(keyword, page, size);
         return Result.success(list);
     }
 
     /**
      * 获取我的点赞列表
      * 返回值改为 PageResult<PostVO>
+     * 带 cursor 参数 (首页传空串) 时走游标分页，返回 hasMore/nextCursor
      */
     @GetMapping("/likes")
     @OperationLog(module = "用户模块", description = "获取点赞列表")
     public Result<PageResult<PostVO>> getMyLikes(
             @RequestParam(required = false, defaultValue = "1") Integer page,
-            @RequestParam(required = false, defaultValue = "20") Integer size) {
+            @RequestParam(required = false, defaultValue = "20") Integer size,
+            @RequestParam(required = false) String cursor) {
+        if (cursor != null) {
+            return Result.success(userService.getMyLikeListByCursor(cursor, size));
+        }
         return Result.success(userService.getMyLikeList(page, size));
     }
 
@@ -122,7 +129,11 @@ public class UserController {
     @OperationLog(module = "用户模块", description = "获取收藏列表")
     public Result<PageResult<PostVO>> getMyCollects(
             @RequestParam(required = false, defaultValue = "1") Integer page,
-            @RequestParam(required = false, defaultValue = "20") Integer size) {
+            @RequestParam(required = false, defaultValue = "20") Integer size,
+            @RequestParam(required = false) String cursor) {
+        if (cursor != null) {
+            return Result.success(userService.getMyCollectListByCursor(cursor, size));
+        }
         return Result.success(userService.getMyCollectList(page, size));
     }
 
@@ -159,7 +170,11 @@ public class UserController {
     @OperationLog(module = "用户模块", description = "获取浏览历史")
     public Result<PageResult<PostVO>> getHistory(
             @RequestParam(required = false, defaultValue = "1") Integer page,
-            @RequestParam(required = false, defaultValue = "20") Integer size) {
+            @RequestParam(required = false, defaultValue = "20") Integer size,
+            @RequestParam(required = false) String cursor) {
+        if (cursor != null) {
+            return Result.success(userService.getBrowsingHistoryByCursor(cursor, size));
+        }
         return Result.success(userService.getBrowsingHistory(page, size));
     }
 
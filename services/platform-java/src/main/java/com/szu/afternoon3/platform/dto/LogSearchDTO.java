@@ -46,4 +46,14 @@ public class LogSearchDTO {
 
     // 【新增】支持按模块精确筛 (对应产品说的“操作类型”)
     private String module;
+
+    /**
+     * 导出格式: xlsx (默认) / csv
+     */
+    private String format;
+
+    /**
+     * 导出ID (前端生成，取消导出时传同一个值)
+     */
+    private String exportId;
 }
\ No newline at end of file
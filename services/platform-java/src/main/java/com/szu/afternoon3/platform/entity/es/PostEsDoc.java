@@ -66,4 +66,12 @@ public class PostEsDoc {
 
     @Field(type = FieldType.Date, format = DateFormat.date_hour_minute_second_millis)
     private LocalDateTime createdAt;
+
+    // --- 可见性 (搜索时在 ES 里过滤，不靠回查 Mongo 后再丢) ---
+
+    @Field(type = FieldType.Integer)
+    private Integer status; // 1: 已发布
+
+    @Field(type = FieldType.Integer)
+    private Integer isDeleted;
 }
\ No newline at end of file
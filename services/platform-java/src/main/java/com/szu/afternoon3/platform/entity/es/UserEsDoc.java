@@ -0,0 +1,44 @@
+package com.szu.afternoon3.platform.entity.es;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.*;
+
+/**
+ * 用户搜索索引 (只放搜索和结果展示要用的字段)
+ * 由 UserSearchEngine 建索引，user.update / user.delete 事件 + 定时增量扫描维护
+ */
+@Data
+@Document(indexName = "users", createIndex = false)
+@Setting(settingPath = "es-user-settings.json")
+public class UserEsDoc {
+
+    @Id
+    private String id; // 对应 PostgreSQL users.id
+
+    // 昵称：主字段 1~3 字 n-gram (包含匹配)，prefix 前缀匹配，keyword 完全匹配，pinyin 拼音 / 首字母
+    @MultiField(
+            mainField = @Field(type = FieldType.Text, analyzer = "user_ngram_analyzer", searchAnalyzer = "user_ngram_analyzer"),
+            otherFields = {
+                    @InnerField(suffix = "prefix", type = FieldType.Text, analyzer = "user_edge_analyzer", searchAnalyzer = "user_keyword_analyzer"),
+                    @InnerField(suffix = "keyword", type = FieldType.Keyword, normalizer = "lowercase_normalizer"),
+                    @InnerField(suffix = "pinyin", type = FieldType.Text, analyzer = "ik_pinyin_analyzer", searchAnalyzer = "ik_pinyin_analyzer")
+            }
+    )
+    private String nickname;
+
+    // 邮箱：keyword 上做前缀查询，ngram 做包含匹配
+    @MultiField(
+            mainField = @Field(type = FieldType.Keyword, normalizer = "lowercase_normalizer"),
+            otherFields = {
+                    @InnerField(suffix = "ngram", type = FieldType.Text, analyzer = "user_ngram_analyzer", searchAnalyzer = "user_ngram_analyzer")
+            }
+    )
+    private String email;
+
+    @Field(type = FieldType.Keyword, index = false)
+    private String avatar;
+
+    @Field(type = FieldType.Integer)
+    private Integer status; // 1 正常，搜索时只查正常用户
+}
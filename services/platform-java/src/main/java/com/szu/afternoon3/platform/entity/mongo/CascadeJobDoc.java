@@ -0,0 +1,46 @@
+package com.szu.afternoon3.platform.entity.mongo;
+
+import com.szu.afternoon3.platform.enums.CascadeType;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * 级联清理任务
+ * 每删一块就把进度写回来，进程重启后由别的节点 (或自己) 从记录的步骤接着删。
+ */
+@Data
+@Document(collection = "cascade_jobs")
+public class CascadeJobDoc {
+    // "{type}:{targetId}"，同一个目标重复投递只会有一个任务
+    @Id
+    private String id;
+
+    private CascadeType type;
+    private String targetId;
+
+    // PENDING: 等待执行, RUNNING: 执行中 (租约过期视为无人执行), DONE: 完成
+    @Indexed
+    private String status;
+
+    // 当前执行到清理计划的第几步 (从 0 开始)
+    private Integer step = 0;
+    // 累计删除的文档数
+    private Long deleted = 0L;
+
+    // 持有者和租约：执行中的节点定期续约，挂掉后租约过期，其他节点可以接手
+    private String owner;
+    private LocalDateTime leaseUntil;
+
+    private String lastError;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    // 完成的任务保留 7 天后自动删除
+    @Indexed(expireAfter = "7d")
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,35 @@
+package com.szu.afternoon3.platform.entity.mongo;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * 按天预聚合的全站统计 (管理后台首页用)
+ * 口径统一为 "当天发生的新增次数"：点赞/收藏/评论/关注只在新增时 +1，之后取消或删除不扣。
+ * 当天的数由各事件消费者增量 $inc (走 CounterBuffer 写合并)，
+ * 每天凌晨的压实任务按源数据纠正前几天：用户/帖子不会物理删除，直接重算覆盖；
+ * 点赞等取消后记录就没了，源数据只能给出下界，压实时取 max (只补丢失的增量，不会把数压回净增)。
+ * 浏览量没有逐条记录，保留增量值。
+ * 后台查任意天数的趋势都只是一次 _id 范围查询，和数据总量无关。
+ */
+@Data
+@Document(collection = "daily_stats")
+public class DailyStatsDoc {
+    // 日期 yyyy-MM-dd，字符串顺序即时间顺序，范围查询直接走主键
+    @Id
+    private String date;
+
+    private Long newUsers;    // 新注册用户
+    private Long newPosts;    // 新发帖
+    private Long likes;       // 帖子点赞 (新增次数)
+    private Long collects;    // 帖子收藏 (新增次数)
+    private Long comments;    // 评论 (新增次数)
+    private Long follows;     // 关注 (新增次数)
+    private Long views;       // 帖子浏览
+
+    // 最近一次按源数据压实的时间，为空说明还是纯增量
+    private LocalDateTime compactedAt;
+}
@@ -0,0 +1,53 @@
+package com.szu.afternoon3.platform.entity.mongo;
+
+import com.szu.afternoon3.platform.vo.AiAuditResultVO;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * 帖子 AI 预审结果 (发帖 / 修帖后后台跑好，管理员打开审核列表时直接展示)
+ * 单独一个集合而不是挂在 posts 上：修帖是整篇 save，会把并发写进去的结论覆盖掉
+ */
+@Data
+@Document(collection = "post_ai_audits")
+public class PostAiAuditDoc {
+    // 帖子ID，一篇帖子只保留最新一次的结论
+    @Id
+    private String postId;
+
+    private String conclusion;  // PASS / BLOCK / REVIEW
+    private String riskType;
+    private Double confidence;
+    private String suggestion;
+
+    // 审核时帖子的 updatedAt，和帖子当前的对不上说明帖子改过，结论作废
+    private LocalDateTime postUpdatedAt;
+
+    // 自动处置的结果: 1-自动通过, 2-自动拒绝, null-未自动处置 (留给管理员)
+    private Integer autoStatus;
+
+    private LocalDateTime createdAt;
+
+    /**
+     * 结论是否对应帖子当前版本：审核时的 updatedAt 没变；或者就是这条结论自动处置的 (处置会改 updatedAt)
+     */
+    public boolean isCurrentFor(PostDoc post) {
+        if (post == null) return false;
+        if (Objects.equals(postUpdatedAt, post.getUpdatedAt())) return true;
+        return autoStatus != null && autoStatus.equals(post.getStatus());
+    }
+
+    public AiAuditResultVO toVO() {
+        return AiAuditResultVO.builder()
+                .postId(postId)
+                .conclusion(conclusion)
+                .riskType(riskType)
+                .confidence(confidence)
+                .suggestion(suggestion)
+                .build();
+    }
+}
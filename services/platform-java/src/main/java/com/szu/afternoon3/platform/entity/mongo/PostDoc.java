@@ -2,6 +2,9 @@ package com.szu.afternoon3.platform.entity.mongo;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
@@ -9,9 +12,16 @@ import org.springframework.data.mongodb.core.mapping.TextScore;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @Data
 @Document(collection = "posts")
+// 游标分页用的复合索引：等值过滤字段在前，排序键 (倒序 + _id 兜底) 在后
+@CompoundIndexes({
+        @CompoundIndex(name = "idx_feed_time", def = "{'status': 1, 'isDeleted': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "idx_feed_likes", def = "{'status': 1, 'isDeleted': 1, 'likeCount': -1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "idx_user_time", def = "{'userId': 1, 'isDeleted': 1, 'createdAt': -1, '_id': -1}")
+})
 public class PostDoc {
     @Id
     private String id;
@@ -74,16 +84,38 @@ public class PostDoc {
      */
     private String cover;
 
-    // 平均分 (默认 0.0)
-    // 前端展示时通常保留一位小数，如 4.5
-    private Double ratingAverage = 0.0;
+    // 评分总分 (分值都是 0.5 的整数倍，double 累加没有误差)
+    // 和 ratingCount、ratingHistogram 一起用 $inc 增量维护，均分读取时现算
+    private Double ratingSum = 0.0;
 
     // 评分总人数
     // 用于显示 "100人已评" 以及计算加权平均
     private Integer ratingCount = 0;
 
+    // 分值分布，Key: 分值 × 2 ("1" = 0.5 分 ... "10" = 5 分)，Value: 人数
+    private Map<String, Integer> ratingHistogram;
+
     // 封面图原始宽度 (px)
     private Integer coverWidth;
     // 封面图原始高度 (px)
     private Integer coverHeight;
-}
\ No newline at end of file
+
+    /**
+     * 平均分 = 总分 / 人数，不落库
+     * 前端展示时通常保留一位小数，如 4.5
+     */
+    @Transient
+    public Double getRatingAverage() {
+        if (ratingSum == null || ratingCount == null || ratingCount <= 0) {
+            return 0.0;
+        }
+        return ratingSum / ratingCount;
+    }
+
+    /**
+     * 分值在 ratingHistogram 里对应的 Key
+     */
+    public static String ratingBucket(double score) {
+        return String.valueOf(Math.round(score * 2));
+    }
+}
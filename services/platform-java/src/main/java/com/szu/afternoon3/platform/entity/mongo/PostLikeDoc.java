@@ -3,13 +3,18 @@ package com.szu.afternoon3.platform.entity.mongo;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
 @Data
 @Document(collection = "post_likes")
 // 关键：联合唯一索引，防止重复点赞
-@CompoundIndex(name = "idx_user_post_unique", def = "{'userId': 1, 'postId': 1}", unique = true)
+@CompoundIndexes({
+        @CompoundIndex(name = "idx_user_post_unique", def = "{'userId': 1, 'postId': 1}", unique = true),
+        // 按时间倒序翻 "我的点赞"
+        @CompoundIndex(name = "idx_user_time", def = "{'userId': 1, 'createdAt': -1, '_id': -1}")
+})
 public class PostLikeDoc {
     @Id
     private String id;
@@ -3,6 +3,7 @@ package com.szu.afternoon3.platform.entity.mongo;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
@@ -10,7 +11,11 @@ import java.time.LocalDateTime;
 @Data
 @Document(collection = "post_view_histories")
 // 联合唯一索引：同一个用户对同一个帖子，只保留一条最新的浏览记录
-@CompoundIndex(name = "idx_user_post_unique", def = "{'userId': 1, 'postId': 1}", unique = true)
+@CompoundIndexes({
+        @CompoundIndex(name = "idx_user_post_unique", def = "{'userId': 1, 'postId': 1}", unique = true),
+        // 浏览历史游标分页
+        @CompoundIndex(name = "idx_user_view_time", def = "{'userId': 1, 'viewTime': -1, '_id': -1}")
+})
 public class PostViewHistoryDoc {
     @Id
     private String id;
@@ -0,0 +1,44 @@
+package com.szu.afternoon3.platform.entity.mongo;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * 用户统计读模型 (主页 / 管理后台用户详情)
+ * 由关注、交互、帖子、评论事件的消费者增量 $inc 维护，读取只需一次主键查询；
+ * 口径与原来的实时统计一致："获得的xx" 只算未删除的帖子。
+ */
+@Data
+@Document(collection = "user_stats")
+public class UserStatsDoc {
+    // 直接用 userId 做主键
+    @Id
+    private Long userId;
+
+    // --- 社交关系 ---
+    private Long followCount;   // 我关注了多少人
+    private Long fanCount;      // 多少人关注了我
+
+    // --- 主动行为 ---
+    private Long postCount;          // 发帖数 (未删除)
+    private Long givenLikeCount;     // 发出的点赞
+    private Long givenCollectCount;  // 发出的收藏
+    private Long givenCommentCount;  // 发出的评论
+    private Long givenRateCount;     // 发出的评分
+
+    // --- 被动影响力 (我的未删除帖子上的计数之和) ---
+    private Long receivedLikeCount;
+    private Long receivedCollectCount;
+    private Long receivedCommentCount;
+
+    // 最近一次从源数据全量重算的时间，定时对账优先重算最旧的
+    @Indexed
+    private LocalDateTime rebuiltAt;
+
+    // 每次增量 $inc 都 +1，重算只在版本没变时覆盖 (不会吞掉重算期间到达的增量)
+    private Long version;
+}
@@ -0,0 +1,11 @@
+package com.szu.afternoon3.platform.enums;
+
+/**
+ * AI 调用场景 (决定超时时间、是否缓存结果，也用于日志和指标)
+ */
+public enum AiScene {
+    TAGS,     // 生成标签：接口同步调用，用户在等
+    SUMMARY,  // 帖子神总结：MQ 消费者里调用
+    REPLY,    // 评论区 @小映：MQ 消费者里调用
+    AUDIT     // 内容审核：后台接口同步调用
+}
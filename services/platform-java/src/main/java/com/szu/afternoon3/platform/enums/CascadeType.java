@@ -0,0 +1,10 @@
+package com.szu.afternoon3.platform.enums;
+
+/**
+ * 级联清理的目标类型 (删掉一个帖子 / 评论 / 用户之后，要跟着清掉的关联数据)
+ */
+public enum CascadeType {
+    POST,     // 帖子：点赞、收藏、评分、评论 (及评论的点赞)
+    COMMENT,  // 评论：评论的点赞
+    USER      // 用户注销：关注关系、发出的点赞/收藏/评分、收到的通知、搜索/浏览历史
+}
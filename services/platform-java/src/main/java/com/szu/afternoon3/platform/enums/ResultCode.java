@@ -32,6 +32,7 @@ public enum ResultCode {
     /* 409: 冲突 */
     EMAIL_ALREADY_EXISTS(40901, "该邮箱已被其他账号绑定"),
     PASSWORD_ALREADY_SET(40902, "已设置过密码，请调用修改密码接口"),
+    EXPORT_CANCELLED(40903, "导出已取消"),
 
     /* 429: 限流 */
     OPERATION_TOO_FREQUENT(42901, "操作太频繁，请稍后再试"),
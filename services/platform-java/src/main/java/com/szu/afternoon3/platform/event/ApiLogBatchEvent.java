@@ -0,0 +1,19 @@
+package com.szu.afternoon3.platform.event;
+
+import com.szu.afternoon3.platform.entity.mongo.ApiLogDoc;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 接口日志批量信封 (routingKey = log.batch)
+ * 一条 MQ 消息携带多条 ApiLogDoc，消费端一次 insertMany
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ApiLogBatchEvent {
+    private List<ApiLogDoc> logs;
+}
@@ -1,9 +1,8 @@
 package com.szu.afternoon3.platform.grpc;
 
 import com.szu.afternoon3.platform.common.UserContext;
+import com.szu.afternoon3.platform.component.UserCardCache;
 import com.szu.afternoon3.platform.dto.CommentCreateDTO;
-import com.szu.afternoon3.platform.entity.User;
-import com.szu.afternoon3.platform.mapper.UserMapper;
 import com.szu.afternoon3.platform.vo.CommentVO;
 import com.szu.afternoon3.platform.vo.SimpleUserVO;
 import com.szu.afternoon3.platform.vo.UserInfo;
@@ -20,11 +19,11 @@ public class CommentRpcClient {
     private comment.CommentServiceGrpc.CommentServiceBlockingStub commentStub;
 
     @Autowired
-    private UserMapper userMapper;
+    private UserCardCache userCardCache;
 
     public CommentVO createComment(CommentCreateDTO dto) {
         Long currentUserId = UserContext.getUserId();
-        User user = currentUserId == null ? null : userMapper.selectById(currentUserId);
+        UserCardCache.Card user = currentUserId == null ? null : userCardCache.get(currentUserId);
 
         comment.CommentOuterClass.Comment response = commentStub.createComment(
                 comment.CommentOuterClass.CreateCommentRequest.newBuilder()
@@ -40,14 +39,14 @@ public class CommentRpcClient {
         return toVO(response);
     }
 
-    private String resolveNickname(User user) {
+    private String resolveNickname(UserCardCache.Card user) {
         if (user != null && user.getNickname() != null) {
             return user.getNickname();
         }
         return UserContext.getNickname() == null ? "" : UserContext.getNickname();
     }
 
-    private String resolveAvatar(User user) {
+    private String resolveAvatar(UserCardCache.Card user) {
         if (user != null && user.getAvatar() != null) {
             return user.getAvatar();
         }
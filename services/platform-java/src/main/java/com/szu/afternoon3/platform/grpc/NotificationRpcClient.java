@@ -1,11 +1,39 @@
 package com.szu.afternoon3.platform.grpc;
 
+import cn.hutool.core.thread.NamedThreadFactory;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.szu.afternoon3.platform.entity.mongo.NotificationDoc;
 import com.szu.afternoon3.platform.enums.NotificationType;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 通知写入派发器
+ * 1. save 只把通知放进内存缓冲区就返回，MQ 消费者不再逐条同步等 notification-rpc
+ * 2. 状态型通知 (点赞/收藏/评分/赞评论/关注) 在缓冲区里按 (接收者, 发送者, 类型, 目标) 合并，
+ *    一个刷新窗口内同一个人反复点赞取消再点赞，只写最后一次
+ * 3. 后台线程按刷新间隔 (或攒够一批) 调 BatchSaveNotifications，一次 RPC 写一批，带 deadline
+ * 4. 背压：缓冲区满时调用方等一小会儿，还满就由调用方线程直接同步写这一条；同时在途的批次数有上限
+ * 5. 批量调用失败 (包括对端还没升级、返回 UNIMPLEMENTED) 时退回逐条调用
+ * 注意：批量写入部分成功后整批退回逐条写，普通通知可能多出一条重复
+ */
 @Slf4j
 @Component
 public class NotificationRpcClient {
@@ -13,27 +41,306 @@ public class NotificationRpcClient {
     @GrpcClient("notification-service")
     private notification.NotificationServiceGrpc.NotificationServiceBlockingStub notificationStub;
 
+    @GrpcClient("notification-service")
+    private notification.NotificationServiceGrpc.NotificationServiceFutureStub notificationFutureStub;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 关闭后 save 退回逐条同步写 (和以前的行为一致)
+    @Value("${app.notification.async:true}")
+    private boolean async;
+
+    // 合并窗口 / 刷新间隔
+    @Value("${app.notification.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${app.notification.batch-size:100}")
+    private int batchSize;
+
+    // 缓冲区最多积压的通知数 (合并后)
+    @Value("${app.notification.buffer-capacity:5000}")
+    private int bufferCapacity;
+
+    // 缓冲区满时调用方最多等多久，等不到就自己同步写
+    @Value("${app.notification.offer-timeout-ms:50}")
+    private long offerTimeoutMs;
+
+    @Value("${app.notification.max-in-flight:4}")
+    private int maxInFlight;
+
+    @Value("${app.notification.rpc-timeout-ms:3000}")
+    private long rpcTimeoutMs;
+
+    // 缓冲区：普通通知按到达顺序，状态型通知按合并 key (LinkedHashMap 保留首次到达的顺序)
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final List<NotificationDoc> pendingCreates = new ArrayList<>();
+    private final Map<String, NotificationDoc> pendingUpserts = new LinkedHashMap<>();
+
+    private ScheduledExecutorService flusher;
+    private Semaphore inFlight;
+    private final AtomicBoolean flushQueued = new AtomicBoolean(false);
+    private volatile boolean closed = false;
+    // 对端不支持批量接口时置 false，之后全部走逐条调用
+    private volatile boolean batchSupported = true;
+
+    @PostConstruct
+    public void init() {
+        inFlight = new Semaphore(maxInFlight);
+        flusher = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("notification-flush-", true));
+        flusher.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        meterRegistry.gauge("notification.dispatch.pending", this, NotificationRpcClient::pendingSize);
+    }
+
+    /**
+     * 停机前把缓冲区写完，再等在途批次返回
+     */
+    @PreDestroy
+    public void shutdown() {
+        closed = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(rpcTimeoutMs, TimeUnit.MILLISECONDS);
+            while (pendingSize() > 0 && drainAndSend()) {
+                // 一批一批发完
+            }
+            if (inFlight.tryAcquire(maxInFlight, rpcTimeoutMs, TimeUnit.MILLISECONDS)) {
+                inFlight.release(maxInFlight);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("停机时写入剩余通知失败", e);
+        }
+        int left = pendingSize();
+        if (left > 0) {
+            log.warn("停机时仍有 {} 条通知未写入", left);
+        }
+    }
+
     public void save(NotificationDoc doc) {
         if (doc == null) {
             return;
         }
+        if (!async || closed) {
+            sendOne(doc);
+            return;
+        }
+
+        boolean full = false;
+        boolean reachBatch;
+        lock.lock();
+        try {
+            // 1. 状态型通知已经在缓冲区里：直接替换成最新的一次，不占新位置
+            if (isStatusNotification(doc.getType())) {
+                String key = coalesceKey(doc);
+                if (pendingUpserts.containsKey(key)) {
+                    pendingUpserts.put(key, doc);
+                    count("coalesced");
+                    return;
+                }
+            }
+            // 2. 缓冲区满：等一小会儿
+            long nanos = TimeUnit.MILLISECONDS.toNanos(offerTimeoutMs);
+            while (pendingSize() >= bufferCapacity) {
+                if (nanos <= 0) {
+                    full = true;
+                    break;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            if (!full) {
+                if (isStatusNotification(doc.getType())) {
+                    pendingUpserts.put(coalesceKey(doc), doc);
+                } else {
+                    pendingCreates.add(doc);
+                }
+            }
+            reachBatch = pendingSize() >= batchSize;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            full = true;
+            reachBatch = false;
+        } finally {
+            lock.unlock();
+        }
+
+        // 3. 还是满的：调用方自己同步写这一条 (相当于把慢下游的压力传回 MQ 消费者)
+        if (full) {
+            count("direct");
+            log.warn("通知缓冲区已满，改为同步写入 receiverId={} type={}", doc.getReceiverId(), doc.getType());
+            sendOne(doc);
+            return;
+        }
+        // 4. 攒够一批就提前刷，不等定时
+        if (reachBatch && flushQueued.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flushSafely);
+            } catch (RejectedExecutionException e) {
+                flushQueued.set(false);
+            }
+        }
+    }
+
+    public long cleanDuplicateNotifications() {
+        notification.NotificationOuterClass.CleanDuplicateNotificationsResponse response =
+                notificationStub.cleanDuplicateNotifications(notification.NotificationOuterClass.CleanDuplicateNotificationsRequest.newBuilder().build());
+        log.info("数据清洗完成，共删除了 {} 条重复通知", response.getDeletedCount());
+        return response.getDeletedCount();
+    }
+
+    // --- Private Methods ---
+
+    private void flushSafely() {
+        flushQueued.set(false);
+        try {
+            // 一轮把积压的都发出去，每批受在途上限约束
+            while (drainAndSend()) {
+                if (pendingSize() < batchSize) break;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("通知批量刷新失败", e);
+        }
+    }
+
+    /**
+     * 从缓冲区取出一批发出去
+     * @return 是否取到了通知
+     */
+    private boolean drainAndSend() throws InterruptedException {
+        List<NotificationDoc> creates = new ArrayList<>();
+        List<NotificationDoc> upserts = new ArrayList<>();
+        lock.lock();
+        try {
+            Iterator<NotificationDoc> createIt = pendingCreates.iterator();
+            while (createIt.hasNext() && creates.size() < batchSize) {
+                creates.add(createIt.next());
+                createIt.remove();
+            }
+            Iterator<NotificationDoc> upsertIt = pendingUpserts.values().iterator();
+            while (upsertIt.hasNext() && creates.size() + upserts.size() < batchSize) {
+                upserts.add(upsertIt.next());
+                upsertIt.remove();
+            }
+            if (!creates.isEmpty() || !upserts.isEmpty()) {
+                notFull.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (creates.isEmpty() && upserts.isEmpty()) {
+            return false;
+        }
+
+        if (!batchSupported) {
+            sendEach(creates, upserts);
+            return true;
+        }
+
+        notification.NotificationOuterClass.BatchSaveNotificationsRequest.Builder request =
+                notification.NotificationOuterClass.BatchSaveNotificationsRequest.newBuilder();
+        creates.forEach(doc -> request.addCreates(toPayload(doc)));
+        upserts.forEach(doc -> request.addUpserts(toPayload(doc)));
+
+        // 在途批次到上限时在这里等，缓冲区继续积压，满了再把压力传给调用方
+        inFlight.acquire();
+        ListenableFuture<notification.NotificationOuterClass.BatchSaveNotificationsResponse> future;
+        try {
+            future = notificationFutureStub
+                    .withDeadlineAfter(rpcTimeoutMs, TimeUnit.MILLISECONDS)
+                    .batchSaveNotifications(request.build());
+        } catch (Exception e) {
+            inFlight.release();
+            log.error("通知批量写入提交失败，改为逐条写入 size={}", creates.size() + upserts.size(), e);
+            sendEach(creates, upserts);
+            return true;
+        }
+        Futures.addCallback(future, new FutureCallback<>() {
+            @Override
+            public void onSuccess(notification.NotificationOuterClass.BatchSaveNotificationsResponse result) {
+                inFlight.release();
+                count("batched", creates.size() + upserts.size());
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                inFlight.release();
+                if (Status.fromThrowable(t).getCode() == Status.Code.UNIMPLEMENTED) {
+                    batchSupported = false;
+                    log.warn("notification-rpc 不支持批量写入，之后改为逐条调用");
+                } else {
+                    log.error("通知批量写入失败，改为逐条写入 size={}", creates.size() + upserts.size(), t);
+                }
+                // 不在 gRPC 回调线程里做阻塞调用，交回刷新线程；刷新线程已经关了就在当前线程做
+                try {
+                    flusher.execute(() -> sendEach(creates, upserts));
+                } catch (RejectedExecutionException e) {
+                    sendEach(creates, upserts);
+                }
+            }
+        }, MoreExecutors.directExecutor());
+        return true;
+    }
+
+    private void sendEach(List<NotificationDoc> creates, List<NotificationDoc> upserts) {
+        for (NotificationDoc doc : creates) {
+            sendOneQuietly(doc);
+        }
+        for (NotificationDoc doc : upserts) {
+            sendOneQuietly(doc);
+        }
+    }
+
+    private void sendOneQuietly(NotificationDoc doc) {
+        try {
+            sendOne(doc);
+        } catch (Exception e) {
+            count("failed");
+            log.error("通知写入失败 receiverId={} type={} targetId={}", doc.getReceiverId(), doc.getType(), doc.getTargetId(), e);
+        }
+    }
+
+    private void sendOne(NotificationDoc doc) {
         notification.NotificationOuterClass.NotificationPayload payload = toPayload(doc);
+        notification.NotificationServiceGrpc.NotificationServiceBlockingStub stub =
+                notificationStub.withDeadlineAfter(rpcTimeoutMs, TimeUnit.MILLISECONDS);
         if (isStatusNotification(doc.getType())) {
-            notificationStub.upsertNotification(notification.NotificationOuterClass.UpsertNotificationRequest.newBuilder()
+            stub.upsertNotification(notification.NotificationOuterClass.UpsertNotificationRequest.newBuilder()
                     .setNotification(payload)
                     .build());
             return;
         }
-        notificationStub.createNotification(notification.NotificationOuterClass.CreateNotificationRequest.newBuilder()
+        stub.createNotification(notification.NotificationOuterClass.CreateNotificationRequest.newBuilder()
                 .setNotification(payload)
                 .build());
     }
 
-    public long cleanDuplicateNotifications() {
-        notification.NotificationOuterClass.CleanDuplicateNotificationsResponse response =
-                notificationStub.cleanDuplicateNotifications(notification.NotificationOuterClass.CleanDuplicateNotificationsRequest.newBuilder().build());
-        log.info("数据清洗完成，共删除了 {} 条重复通知", response.getDeletedCount());
-        return response.getDeletedCount();
+    private int pendingSize() {
+        lock.lock();
+        try {
+            return pendingCreates.size() + pendingUpserts.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 与 notification-rpc 里 upsert 的去重条件一致
+    private String coalesceKey(NotificationDoc doc) {
+        return doc.getReceiverId() + ":" + doc.getSenderId() + ":" + doc.getType() + ":" + doc.getTargetId();
+    }
+
+    private void count(String result) {
+        count(result, 1);
+    }
+
+    private void count(String result, int amount) {
+        Counter.builder("notification.dispatch")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment(amount);
     }
 
     private boolean isStatusNotification(NotificationType type) {
@@ -0,0 +1,96 @@
+package com.szu.afternoon3.platform.listener;
+
+import cn.hutool.core.util.StrUtil;
+import com.szu.afternoon3.platform.config.RabbitConfig;
+import com.szu.afternoon3.platform.entity.mongo.ApiLogDoc;
+import com.szu.afternoon3.platform.event.ApiLogBatchEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 接口日志落库 (platform.log.queue → api_logs)
+ * 批量消费：一批消息里的日志 (log.batch 信封 + 旧的单条 log.info) 合并后按 requestId 去重，
+ * 一次无序 insertMany 写入。
+ *
+ * 背压：容器 prefetch 固定，Mongo 变慢时未确认的消息停在 Broker 不会再推过来，
+ * 本进程内存里最多只有 prefetch 条日志。
+ * 这里是 platform.log.queue 唯一的消费者 (sync-sidecar 已不再消费日志)，
+ * 不能和别的进程共用这个队列，否则消息会被分走，两边各只落一半。
+ */
+@Slf4j
+@Component
+public class ApiLogListener {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @RabbitListener(queues = RabbitConfig.QUEUE_LOG,
+            containerFactory = "logBatchContainerFactory")
+    public void handleLogBatch(List<Message<?>> messages) {
+        // 1. 拆信封
+        List<ApiLogDoc> logs = new ArrayList<>();
+        for (Message<?> message : messages) {
+            Object payload = message.getPayload();
+            if (payload instanceof ApiLogBatchEvent batch && batch.getLogs() != null) {
+                logs.addAll(batch.getLogs());
+            } else if (payload instanceof ApiLogDoc doc) {
+                logs.add(doc);
+            } else {
+                log.warn("未知的日志消息类型: {}", payload == null ? null : payload.getClass().getName());
+            }
+        }
+        if (logs.isEmpty()) return;
+
+        // 2. 去重：批内按 requestId 去重，再排除库里已有的 (消息重投时会出现)
+        List<ApiLogDoc> toInsert = dedupe(logs);
+        if (toInsert.isEmpty()) return;
+
+        // 3. 无序批量写入，个别失败不影响其他
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ApiLogDoc.class);
+            bulk.insert(toInsert);
+            bulk.execute();
+            log.debug("接口日志落库 messages={} logs={} inserted={}", messages.size(), logs.size(), toInsert.size());
+        } catch (BulkOperationException e) {
+            log.warn("接口日志部分写入失败 total={} failed={}", toInsert.size(), e.getErrors().size());
+        }
+        // 其他异常 (Mongo 不可用等) 直接抛出，整批拒绝进死信队列
+    }
+
+    private List<ApiLogDoc> dedupe(List<ApiLogDoc> logs) {
+        Map<String, ApiLogDoc> byRequestId = new LinkedHashMap<>();
+        List<ApiLogDoc> withoutRequestId = new ArrayList<>();
+        for (ApiLogDoc doc : logs) {
+            doc.setId(null);
+            if (StrUtil.isBlank(doc.getRequestId())) {
+                withoutRequestId.add(doc);
+            } else {
+                byRequestId.putIfAbsent(doc.getRequestId(), doc);
+            }
+        }
+
+        if (!byRequestId.isEmpty()) {
+            Query query = Query.query(Criteria.where("requestId").in(byRequestId.keySet()));
+            query.fields().include("requestId");
+            Set<String> existing = mongoTemplate.find(query, ApiLogDoc.class).stream()
+                    .map(ApiLogDoc::getRequestId)
+                    .collect(Collectors.toSet());
+            existing.forEach(byRequestId::remove);
+        }
+
+        List<ApiLogDoc> result = new ArrayList<>(byRequestId.values());
+        result.addAll(withoutRequestId);
+        return result;
+    }
+}
@@ -2,37 +2,43 @@ package com.szu.afternoon3.platform.listener;
 
 import cn.hutool.core.util.StrUtil;
 import com.szu.afternoon3.platform.common.LogMdc;
+import com.szu.afternoon3.platform.component.UserCardCache;
 import com.szu.afternoon3.platform.config.RabbitConfig;
-import com.szu.afternoon3.platform.entity.User;
 import com.szu.afternoon3.platform.entity.mongo.CommentDoc;
 import com.szu.afternoon3.platform.entity.mongo.NotificationDoc;
 import com.szu.afternoon3.platform.entity.mongo.PostDoc;
+import com.szu.afternoon3.platform.enums.CascadeType;
 import com.szu.afternoon3.platform.enums.NotificationType;
 import com.szu.afternoon3.platform.event.CommentEvent;
-import com.szu.afternoon3.platform.mapper.UserMapper;
-import com.szu.afternoon3.platform.repository.CommentLikeRepository;
 import com.szu.afternoon3.platform.repository.CommentRepository;
 import com.szu.afternoon3.platform.repository.PostRepository;
 import com.szu.afternoon3.platform.grpc.NotificationRpcClient;
+import com.szu.afternoon3.platform.service.CascadeCleanupService;
+import com.szu.afternoon3.platform.service.DailyStatsService;
+import com.szu.afternoon3.platform.service.UserStatsService;
 import com.szu.afternoon3.platform.service.impl.AiServiceImpl;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
 import org.springframework.amqp.support.AmqpHeaders;
-import org.springframework.amqp.rabbit.annotation.RabbitHandler;
+import org.bson.Document;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
-import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.Message;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
+import java.util.*;
 
 @Component
 @Slf4j
-@RabbitListener(queues = RabbitConfig.QUEUE_COMMENT)
 public class CommentEventListener {
 
     @Autowired
@@ -42,16 +48,18 @@ public class CommentEventListener {
     private NotificationRpcClient notificationRpcClient;
 
     @Autowired
-    private UserMapper userMapper;
+    private UserCardCache userCardCache;
 
     @Autowired
-    private CommentLikeRepository commentLikeRepository;
+    private CascadeCleanupService cascadeCleanupService;
     // 需要查帖子和评论内容
     @Autowired private PostRepository postRepository;
     @Autowired private CommentRepository commentRepository;
 
     // AI 服务
     @Autowired private AiServiceImpl aiService;
+    @Autowired private UserStatsService userStatsService;
+    @Autowired private DailyStatsService dailyStatsService;
 
     // 机器人配置
     @Value("${ai.bot.user-id}")
@@ -61,67 +69,152 @@ public class CommentEventListener {
     private String botNickname;
 
     /**
-     * 唯一的入口方法
-     * 根据 event.getType() 分发逻辑
+     * 批量消费入口
+     * 1. 整批的帖子 commentCount / 根评论 replyCount 增量按文档合并，一次 bulk 写完
+     * 2. 被删评论的点赞记录一次 $in 清掉
+     * 3. 通知 / AI 回复仍逐条处理
+     * 任何一步失败都在整批跑完后抛 AmqpRejectAndDontRequeueException，整批进死信队列，不再当成消费成功
+     * (计数增量不是幂等的，死信重放前先确认计数是否已经写进去)
      */
-    @RabbitHandler
-    public void handleCommentEvent(CommentEvent event,
-                                   @Header(name = "X-Request-Id", required = false) String requestId,
-                                   @Header(name = AmqpHeaders.RECEIVED_ROUTING_KEY, required = false) String routingKey) {
-        LogMdc.bindMqContext(requestId, routingKey, "platform-java");
-        try {
+    @RabbitListener(queues = RabbitConfig.QUEUE_COMMENT, containerFactory = "commentBatchContainerFactory")
+    public void handleCommentBatch(List<Message<CommentEvent>> messages) {
+        Map<String, Integer> postDeltas = new HashMap<>();
+        Map<String, Integer> replyDeltas = new HashMap<>();
+        List<String> deletedCommentIds = new ArrayList<>();
+        List<Message<CommentEvent>> creates = new ArrayList<>();
+        CommentStatDeltas statDeltas = new CommentStatDeltas();
+
+        for (Message<CommentEvent> message : messages) {
+            CommentEvent event = message.getPayload();
             if (event == null || event.getType() == null) {
                 log.warn("收到无效的 CommentEvent");
-                return;
+                continue;
             }
-
-            log.info("mq consume start routingKey={} type={} commentId={}", routingKey, event.getType(), event.getCommentId());
             switch (event.getType()) {
                 case "CREATE":
-                    processCommentCreate(event);
+                    // 【关键】防止无限死循环：如果是机器人自己发的，直接忽略
+                    if (botUserId.equals(event.getUserId())) break;
+                    // 二级评论对应的一级评论的评论数+1放在service中做了
+                    postDeltas.merge(event.getPostId(), 1, Integer::sum);
+                    statDeltas.add(event, 1);
+                    creates.add(message);
                     break;
                 case "DELETE":
-                    processCommentDelete(event);
+                    // (注意：如果是级联删除帖子引发的，这一步其实是多余的，但在单删评论时是必须的)
+                    postDeltas.merge(event.getPostId(), -1, Integer::sum);
+                    // 删除的是二级评论，同步把根评论的 replyCount -1，否则列表会长期显示膨胀后的"回复数"
+                    if (StrUtil.isNotBlank(event.getParentId())) {
+                        replyDeltas.merge(event.getParentId(), -1, Integer::sum);
+                    }
+                    deletedCommentIds.add(event.getCommentId());
+                    statDeltas.add(event, -1);
                     break;
                 default:
                     log.warn("未知的评论事件类型: {}", event.getType());
             }
+        }
+
+        Exception failure = null;
+        LogMdc.bindMqContext(null, "comment.batch", "platform-java");
+        try {
+            bulkIncNonNegative(PostDoc.class, "commentCount", postDeltas);
+            bulkIncNonNegative(CommentDoc.class, "replyCount", replyDeltas);
+            // 被删评论的点赞交给级联清理任务分块删除
+            deletedCommentIds.forEach(commentId -> cascadeCleanupService.submit(CascadeType.COMMENT, commentId));
+            statDeltas.given.forEach((userId, delta) -> userStatsService.inc(userId, "givenCommentCount", delta));
+            statDeltas.received.forEach((userId, delta) -> userStatsService.inc(userId, "receivedCommentCount", delta));
+            // 每日统计只计新增，删除不扣 (见 DailyStatsDoc)
+            dailyStatsService.inc("comments", creates.size());
+            log.info("评论批量计数 size={} posts={} replies={} deleted={}",
+                    messages.size(), postDeltas.size(), replyDeltas.size(), deletedCommentIds.size());
+        } catch (Exception e) {
+            log.error("评论计数批量写入失败 size={}: ", messages.size(), e);
+            failure = e;
         } finally {
             LogMdc.clear();
         }
+
+        for (Message<CommentEvent> message : creates) {
+            try {
+                handleCommentCreate(message.getPayload(),
+                        message.getHeaders().get("X-Request-Id", String.class),
+                        message.getHeaders().get(AmqpHeaders.RECEIVED_ROUTING_KEY, String.class));
+            } catch (RuntimeException e) {
+                if (failure == null) failure = e;
+            }
+        }
+        if (failure != null) {
+            throw new AmqpRejectAndDontRequeueException("评论消息批处理失败 size=" + messages.size(), failure);
+        }
     }
+
     /**
-     * 处理评论创建事件
+     * 一批评论事件对用户统计的增量：评论者的发出评论数、帖子作者的被评论数
+     * (旧版本 comment-rpc 的 DELETE 事件不带 userId/postAuthorId，Go 端缺省为 0，跳过，由对账修正)
      */
-    private void processCommentCreate(CommentEvent event) {
-        // 0. 【关键】防止无限死循环：如果是机器人自己发的，直接忽略
-        if (botUserId.equals(event.getUserId())) {
-            return;
-        }
-        if (!"CREATE".equals(event.getType())) return;
+    private static class CommentStatDeltas {
+        private final Map<Long, Integer> given = new HashMap<>();
+        private final Map<Long, Integer> received = new HashMap<>();
 
-        log.debug("RabbitMQ 处理评论创建: commentId={}", event.getCommentId());
+        private void add(CommentEvent event, int delta) {
+            if (isUserId(event.getUserId())) {
+                given.merge(event.getUserId(), delta, Integer::sum);
+            }
+            if (isUserId(event.getPostAuthorId())) {
+                received.merge(event.getPostAuthorId(), delta, Integer::sum);
+            }
+        }
 
-        // 更新帖子总评论数 +1 (Atomic)
-        mongoTemplate.updateFirst(
-                Query.query(Criteria.where("id").is(event.getPostId())),
-                new Update().inc("commentCount", 1),
-                PostDoc.class
-        );
+        private static boolean isUserId(Long id) {
+            return id != null && id > 0;
+        }
+    }
 
-        // 二级评论对应的一级评论的评论数+1放在service中做了
+    /**
+     * 评论创建的逐条副作用：通知 + AI 回复
+     */
+    private void handleCommentCreate(CommentEvent event, String requestId, String routingKey) {
+        LogMdc.bindMqContext(requestId, routingKey, "platform-java");
+        try {
+            log.info("mq consume start routingKey={} type={} commentId={}", routingKey, event.getType(), event.getCommentId());
 
-        // 发送通知
-        sendCommentNotification(event);
+            // 发送通知
+            sendCommentNotification(event);
 
-        // 3. 检测是否触发 AI 回复
-        try {
-            checkAndTriggerAiReply(event);
-        } catch (Exception e) {
-            log.error("AI 交互回复处理失败", e);
+            // 3. 检测是否触发 AI 回复
+            try {
+                checkAndTriggerAiReply(event);
+            } catch (Exception e) {
+                log.error("AI 交互回复处理失败", e);
+            }
+        } catch (RuntimeException e) {
+            log.error("评论消息处理失败 commentId={}: ", event.getCommentId(), e);
+            throw e;
+        } finally {
+            LogMdc.clear();
         }
     }
 
+    /**
+     * 按文档合并后的增量一次 bulk 写入，结果不小于 0 (等价于原来 $inc 加 gt(0) 条件的保护)
+     */
+    private void bulkIncNonNegative(Class<?> type, String field, Map<String, Integer> deltas) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, type);
+        int ops = 0;
+        for (Map.Entry<String, Integer> entry : deltas.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == 0) continue;
+            int delta = entry.getValue();
+            // { $set: { field: { $max: [0, { $add: [{ $ifNull: ["$field", 0] }, delta] }] } } }
+            AggregationExpression value = context -> new Document("$max", Arrays.asList(0,
+                    new Document("$add", Arrays.asList(new Document("$ifNull", Arrays.asList("$" + field, 0)), delta))));
+            bulk.updateOne(Query.query(Criteria.where("id").is(entry.getKey())),
+                    AggregationUpdate.update().set(field).toValue(value));
+            ops++;
+        }
+        if (ops > 0) {
+            bulk.execute();
+        }
+    }
     /**
      * 检测并触发 AI 回复逻辑
      */
@@ -188,7 +281,7 @@ public class CommentEventListener {
 
     private void saveAiComment(CommentEvent userEvent, String aiContent) {
         // 获取机器人信息
-        User botUser = userMapper.selectById(botUserId);
+        UserCardCache.Card botUser = userCardCache.get(botUserId);
         if (botUser == null) return;
 
         CommentDoc aiComment = new CommentDoc();
@@ -231,6 +324,9 @@ public class CommentEventListener {
                 new Update().inc("commentCount", 1),
                 PostDoc.class
         );
+        // 机器人的评论不发事件，用户统计在这里直接记
+        userStatsService.inc(botUserId, "givenCommentCount", 1);
+        userStatsService.inc(userEvent.getPostAuthorId(), "receivedCommentCount", 1);
 
         // 2. 【核心修正】更新 一级评论 (Root) 的 replyCount +1
         // 不管是情况 A 还是 B，都要更新 Root 的计数，这样列表页的“展开回复(N)”才会变
@@ -240,38 +336,6 @@ public class CommentEventListener {
                 CommentDoc.class
         );
     }
-    /**
-     * 处理评论删除事件
-     */
-    private void processCommentDelete(CommentEvent event) {
-        if (!"DELETE".equals(event.getType())) return;
-
-        String commentId = event.getCommentId();
-        log.debug("RabbitMQ 处理评论删除: commentId={}", commentId);
-
-        // 1. 【新增】清理该评论的点赞记录
-        // 对应 Repository 里的 void deleteByCommentId(String commentId);
-        commentLikeRepository.deleteByCommentId(commentId);
-
-        // 2. 更新帖子总评论数 -1
-        // (注意：如果是级联删除帖子引发的，这一步其实是多余的，但在单删评论时是必须的)
-        mongoTemplate.updateFirst(
-                Query.query(Criteria.where("id").is(event.getPostId()).and("commentCount").gt(0)),
-                new Update().inc("commentCount", -1),
-                PostDoc.class
-        );
-
-        // 3. 如果删除的是二级评论，还需要同步把根评论的 replyCount -1。
-        // 否则评论列表会长期显示膨胀后的“回复数”。
-        if (StrUtil.isNotBlank(event.getParentId())) {
-            mongoTemplate.updateFirst(
-                    Query.query(Criteria.where("id").is(event.getParentId()).and("replyCount").gt(0)),
-                    new Update().inc("replyCount", -1),
-                    CommentDoc.class
-            );
-        }
-    }
-
     // --- 辅助方法：生成通知 ---
     private void sendCommentNotification(CommentEvent event) {
         Long senderId = event.getUserId(); // 评论者
@@ -297,7 +361,7 @@ public class CommentEventListener {
 
     private void createNotify(Long senderId, Long receiverId, NotificationType type, CommentEvent event) {
         // 1. 查发送者信息 (用于填充 NotificationDoc 的冗余字段)
-        User sender = userMapper.selectById(senderId);
+        UserCardCache.Card sender = userCardCache.get(senderId);
         if (sender == null) return;
 
         // 2. 构建通知对象
@@ -1,25 +1,30 @@
 package com.szu.afternoon3.platform.listener;
 
 import cn.hutool.core.util.StrUtil;
-import com.mongodb.DuplicateKeyException;
 import com.szu.afternoon3.platform.common.LogMdc;
+import com.szu.afternoon3.platform.component.CounterBuffer;
+import com.szu.afternoon3.platform.component.UserCardCache;
 import com.szu.afternoon3.platform.config.RabbitConfig;
-import com.szu.afternoon3.platform.entity.User;
 import com.szu.afternoon3.platform.entity.mongo.*;
 import com.szu.afternoon3.platform.enums.NotificationType;
 import com.szu.afternoon3.platform.event.InteractionEvent;
-import com.szu.afternoon3.platform.mapper.UserMapper;
 import com.szu.afternoon3.platform.repository.*;
 import com.szu.afternoon3.platform.grpc.NotificationRpcClient;
+import com.szu.afternoon3.platform.service.FeedService;
+import com.szu.afternoon3.platform.service.DailyStatsService;
+import com.szu.afternoon3.platform.service.UserStatsService;
+import com.szu.afternoon3.platform.task.PostRatingBackfillTask;
 import lombok.extern.slf4j.Slf4j;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.Document;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
 import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.handler.annotation.Header;
-import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
-import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
-import org.springframework.data.elasticsearch.core.query.ScriptType;
-import org.springframework.data.elasticsearch.core.query.UpdateQuery;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.messaging.Message;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
@@ -27,292 +32,368 @@ import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 @Component
 @Slf4j
 public class InteractionEventListener {
 
     @Autowired
-    private PostLikeRepository postLikeRepository;
+    private PostRepository postRepository; // 用于读取帖子作者
     @Autowired
-    private PostCollectRepository postCollectRepository;
+    private CommentRepository commentRepository;
     @Autowired
-    private PostRatingRepository postRatingRepository;
+    private MongoTemplate mongoTemplate;
     @Autowired
-    private PostRepository postRepository; // 用于读取旧均分
+    private NotificationRpcClient notificationRpcClient;
     @Autowired
-    private CommentRepository commentRepository;
+    private UserCardCache userCardCache;
     @Autowired
-    private CommentLikeRepository commentLikeRepository;
+    private CounterBuffer counterBuffer;
     @Autowired
-    private MongoTemplate mongoTemplate;
+    private FeedService feedService;
     @Autowired
-    private NotificationRpcClient notificationRpcClient;
+    private UserStatsService userStatsService;
     @Autowired
-    private UserMapper userMapper;
+    private PostRatingBackfillTask postRatingBackfillTask;
     @Autowired
-    private ElasticsearchOperations elasticsearchOperations;
+    private DailyStatsService dailyStatsService;
+
+    private static final int DUPLICATE_KEY = 11000;
+
     /**
-     * 监听 Interaction 队列
-     * 自动反序列化 JSON 为 InteractionEvent 对象
+     * 监听 Interaction 队列 (批量消费)
+     * 一批消息里的点赞/收藏/评论点赞合并成每个集合一次 bulk 写；评分、关注仍逐条处理
+     * 某一段失败不影响其它段继续处理，全部跑完后整批抛出 AmqpRejectAndDontRequeueException 进死信队列，
+     * 而不是只打日志当成消费成功 (点赞/收藏靠唯一索引去重，死信重放时已成功的部分不会重复计数)
      */
-    @RabbitListener(queues = RabbitConfig.QUEUE_INTERACTION)
-    public void handleInteraction(InteractionEvent event,
-                                  @Header(name = "X-Request-Id", required = false) String requestId,
-                                  @Header(name = AmqpHeaders.RECEIVED_ROUTING_KEY, required = false) String routingKey) {
+    @RabbitListener(queues = RabbitConfig.QUEUE_INTERACTION, containerFactory = "interactionBatchContainerFactory")
+    public void handleInteractionBatch(List<Message<InteractionEvent>> messages) {
+        log.debug("mq batch consume queue={} size={}", RabbitConfig.QUEUE_INTERACTION, messages.size());
+        // 同一个 (类型, 用户, 目标) 在一批里出现多次时 (比如连点赞/取消)，切成多段按顺序处理，
+        // 保证每段内 key 不重复，段内的插入/删除就可以不分先后地一次 bulk 下去
+        Exception failure = null;
+        for (List<Message<InteractionEvent>> chunk : splitByKey(messages)) {
+            try {
+                processChunk(chunk);
+            } catch (Exception e) {
+                log.error("交互消息批处理失败 size={}: ", chunk.size(), e);
+                if (failure == null) failure = e;
+            }
+        }
+        if (failure != null) {
+            throw new AmqpRejectAndDontRequeueException("交互消息批处理失败 size=" + messages.size(), failure);
+        }
+    }
+
+    private void processChunk(List<Message<InteractionEvent>> chunk) {
+        List<InteractionEvent> likes = new ArrayList<>();
+        List<InteractionEvent> collects = new ArrayList<>();
+        List<InteractionEvent> commentLikes = new ArrayList<>();
+        RuntimeException failure = null;
+        for (Message<InteractionEvent> message : chunk) {
+            InteractionEvent event = message.getPayload();
+            if (event == null || event.getType() == null || event.getUserId() == null || event.getTargetId() == null) {
+                log.warn("收到无效的 InteractionEvent: {}", event);
+                continue;
+            }
+            switch (event.getType()) {
+                case "LIKE" -> likes.add(event);
+                case "COLLECT" -> collects.add(event);
+                case "COMMENT_LIKE" -> commentLikes.add(event);
+                default -> {
+                    try {
+                        handleInteraction(event,
+                                message.getHeaders().get("X-Request-Id", String.class),
+                                message.getHeaders().get(AmqpHeaders.RECEIVED_ROUTING_KEY, String.class));
+                    } catch (RuntimeException e) {
+                        // 单条失败先记下，段里其它消息照常处理，最后再抛
+                        if (failure == null) failure = e;
+                    }
+                }
+            }
+        }
+
+        LogMdc.bindMqContext(null, "interaction.batch", "platform-java");
+        try {
+            // 用户统计里 "获得的赞/收藏" 要记到帖子作者头上，整段一次查出作者
+            Map<String, Long> authors = findPostAuthors(likes, collects);
+
+            // 落盘成功后，再执行计数和 ES 同步 (写合并，定时批量刷出)
+            handleRelationBatch(likes, PostLikeDoc.class, "postId",
+                    (userId, postId) -> {
+                        PostLikeDoc doc = new PostLikeDoc();
+                        doc.setUserId(userId);
+                        doc.setPostId(postId);
+                        doc.setCreatedAt(LocalDateTime.now());
+                        return doc;
+                    },
+                    (event, delta) -> {
+                        counterBuffer.incPost(event.getTargetId(), "likeCount", delta, true);
+                        userStatsService.inc(event.getUserId(), "givenLikeCount", delta);
+                        userStatsService.inc(authors.get(event.getTargetId()), "receivedLikeCount", delta);
+                        if (delta > 0) dailyStatsService.inc("likes", delta); // 只计新增 (见 DailyStatsDoc)
+                    },
+                    event -> sendPostNotification(event, NotificationType.LIKE_POST));
+
+            handleRelationBatch(collects, PostCollectDoc.class, "postId",
+                    (userId, postId) -> {
+                        PostCollectDoc doc = new PostCollectDoc();
+                        doc.setUserId(userId);
+                        doc.setPostId(postId);
+                        doc.setCreatedAt(LocalDateTime.now());
+                        return doc;
+                    },
+                    (event, delta) -> {
+                        counterBuffer.incPost(event.getTargetId(), "collectCount", delta, false);
+                        userStatsService.inc(event.getUserId(), "givenCollectCount", delta);
+                        userStatsService.inc(authors.get(event.getTargetId()), "receivedCollectCount", delta);
+                        if (delta > 0) dailyStatsService.inc("collects", delta); // 只计新增 (见 DailyStatsDoc)
+                    },
+                    event -> sendPostNotification(event, NotificationType.COLLECT_POST));
+
+            handleRelationBatch(commentLikes, CommentLikeDoc.class, "commentId",
+                    (userId, commentId) -> {
+                        CommentLikeDoc doc = new CommentLikeDoc();
+                        doc.setUserId(userId);
+                        doc.setCommentId(commentId);
+                        doc.setCreatedAt(LocalDateTime.now());
+                        return doc;
+                    },
+                    (event, delta) -> counterBuffer.incComment(event.getTargetId(), "likeCount", delta),
+                    this::sendCommentLikeNotification);
+        } finally {
+            LogMdc.clear();
+        }
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * 单条处理 (评分 / 关注)
+     */
+    private void handleInteraction(InteractionEvent event, String requestId, String routingKey) {
         LogMdc.bindMqContext(requestId, routingKey, "platform-java");
         try {
             log.info("mq consume start routingKey={} type={} targetId={}", routingKey, event.getType(), event.getTargetId());
             switch (event.getType()) {
-                case "LIKE":
-                    if (handleLike(event)) {
-                        sendPostNotification(event, NotificationType.LIKE_POST);
-                    }
-                    break;
-                case "COLLECT":
-                    if (handleCollect(event)) {
-                        sendPostNotification(event, NotificationType.COLLECT_POST);
-                    }
-                    break;
                 case "RATE":
                     if (handleRate(event)) {
+                        userStatsService.inc(event.getUserId(), "givenRateCount", 1);
                         sendPostNotification(event, NotificationType.RATE_POST);
                     }
                     break;
                 case "FOLLOW":
+                    handleFollowFeed(event);
+                    handleFollowStats(event);
                     if ("ADD".equals(event.getAction())) {
                         sendFollowNotification(event);
                     }
                     break;
-
-                case "COMMENT_LIKE":
-                    if(handleCommentLike(event)){
-                        sendCommentLikeNotification(event);
-                    }
-                    break;
+                default:
+                    log.warn("未知的交互类型: {}", event.getType());
             }
-        } catch (Exception e) {
+        } catch (RuntimeException e) {
             log.error("交互消息处理失败: ", e);
-            // 可以在这里抛出异常以触发重试，或者记录死信队列
+            throw e;
         } finally {
             LogMdc.clear();
         }
     }
 
-    // --- 点赞处理 ---
-    private boolean handleLike(InteractionEvent event) {
-        String postId = event.getTargetId();
-        Long userId = event.getUserId();
+    /**
+     * 点赞 / 收藏 / 评论点赞 这类 "用户-目标" 关系的批量落库
+     * 1. ADD: 批量插入，依赖联合唯一索引拦截重复 (重复的那几条不计数、不发通知)
+     * 2. REMOVE: 先一次查出真实存在的记录，只对真正删掉的 -1 (避免重复取消把计数减成负数)
+     * 插入和删除合成同一个无序 bulk，一个集合一次往返
+     * 除重复键以外的写入错误：生效的那几条照常计数，然后把异常抛出去让整批进死信 (重放时已生效的靠唯一索引 / 查不到记录跳过)
+     */
+    private <T> void handleRelationBatch(List<InteractionEvent> events,
+                                         Class<T> docType,
+                                         String targetField,
+                                         BiFunction<Long, String, T> docFactory,
+                                         BiConsumer<InteractionEvent, Integer> counter,
+                                         Consumer<InteractionEvent> notifier) {
+        if (events.isEmpty()) return;
+
+        List<InteractionEvent> adds = new ArrayList<>();
+        List<InteractionEvent> removes = new ArrayList<>();
+        for (InteractionEvent event : events) {
+            ("ADD".equals(event.getAction()) ? adds : removes).add(event);
+        }
+
+        // 1. 查出要取消的记录 _id
+        Map<String, Object> existing = findExistingIds(docType, targetField, removes);
+        List<InteractionEvent> toRemove = new ArrayList<>();
+        for (InteractionEvent event : removes) {
+            if (existing.containsKey(relationKey(event.getUserId(), event.getTargetId()))) {
+                toRemove.add(event);
+            }
+        }
+        if (adds.isEmpty() && toRemove.isEmpty()) return;
+
+        // 2. 插入 + 删除一次 bulk
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, docType);
+        for (InteractionEvent event : adds) {
+            bulk.insert(docFactory.apply(event.getUserId(), event.getTargetId()));
+        }
+        for (InteractionEvent event : toRemove) {
+            Object id = existing.get(relationKey(event.getUserId(), event.getTargetId()));
+            bulk.remove(Query.query(Criteria.where("_id").is(id)));
+        }
+        Set<Integer> failed = new HashSet<>();
+        BulkOperationException writeFailure = null;
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                failed.add(error.getIndex());
+                if (error.getCode() == DUPLICATE_KEY) {
+                    log.info("重复操作已被 MongoDB 拦截: type={}, {}", docType.getSimpleName(), error.getMessage());
+                } else {
+                    log.error("交互记录批量写入失败: type={}, {}", docType.getSimpleName(), error.getMessage());
+                    writeFailure = e;
+                }
+            }
+        }
 
-        if ("ADD".equals(event.getAction())) {
+        // 3. 只对真正生效的那几条计数 / 发通知
+        for (int i = 0; i < adds.size(); i++) {
+            if (failed.contains(i)) continue;
+            InteractionEvent event = adds.get(i);
+            counter.accept(event, 1);
             try {
-                PostLikeDoc doc = new PostLikeDoc();
-                doc.setUserId(userId);
-                doc.setPostId(postId);
-                doc.setCreatedAt(LocalDateTime.now());
-                // 依赖联合唯一索引防并发
-                postLikeRepository.save(doc);
-
-                // 落盘成功后，再执行计数和 ES 同步
-                updatePostCount(postId, "likeCount", 1);
-                updateESPostCount(postId, "likeCount", 1);
-
-                return true; // 成功新增，告诉外层可以发通知了
-
-            } catch (DuplicateKeyException e) {
-                log.info("重复点赞已被 MongoDB 拦截: userId={}, postId={}", userId, postId);
-                return false; // 重复操作，别发通知
+                notifier.accept(event);
+            } catch (Exception e) {
+                log.warn("交互通知发送失败 userId={}, targetId={}: {}", event.getUserId(), event.getTargetId(), e.getMessage());
             }
-        } else {
-            postLikeRepository.deleteByUserIdAndPostId(userId, postId);
-            updatePostCount(postId, "likeCount", -1);
-            updateESPostCount(postId, "likeCount", -1);
-            return false;
+        }
+        for (int i = 0; i < toRemove.size(); i++) {
+            if (failed.contains(adds.size() + i)) continue;
+            counter.accept(toRemove.get(i), -1);
+        }
+        log.info("交互批量落库 type={} add={} remove={} failed={}", docType.getSimpleName(), adds.size(), toRemove.size(), failed.size());
+        if (writeFailure != null) {
+            throw writeFailure;
         }
     }
 
     /**
-     * 使用脚本进行原子更新，避免并发覆盖，且效率最高
+     * 一次 $or 查询取回 (userId, targetId) 对应的记录 _id
+     * @return "userId:targetId" -> _id
      */
-    private void updateESPostCount(String postId, String fieldName, int delta) {
-        // 1. 准备脚本
-        // 考虑了字段为 null 的情况
-        String scriptSource = "if (ctx._source." + fieldName + " == null) { " +
-                "   ctx._source." + fieldName + " = params.delta; " +
-                "} else { " +
-                "   ctx._source." + fieldName + " += params.delta; " +
-                "}";
-
-        Map<String, Object> params = new HashMap<>();
-        params.put("delta", delta);
-
-        // 2. 构建更新查询
-        UpdateQuery updateQuery = UpdateQuery.builder(postId)
-                .withScript(scriptSource)
-                .withScriptType(ScriptType.INLINE) // 【关键修正】必须显式指定脚本类型为内联
-                .withParams(params)
-                .withLang("painless")
-                .withRetryOnConflict(3)
-                .build();
-
-        // 3. 执行更新
-        try {
-            elasticsearchOperations.update(updateQuery, IndexCoordinates.of("posts"));
-            log.debug("✅ ES Count Updated: postId={}, field={}, delta={}", postId, fieldName, delta);
-        } catch (org.springframework.data.elasticsearch.ResourceNotFoundException e) {
-            log.warn("ES doc missing, skip count update: postId={}, field={}, delta={}", postId, fieldName, delta);
-        } catch (Exception e) {
-            log.error("❌ Failed to update post count in ES for postId: {}", postId, e);
+    private Map<String, Object> findExistingIds(Class<?> docType, String targetField, List<InteractionEvent> events) {
+        if (events.isEmpty()) {
+            return Collections.emptyMap();
         }
+        List<Criteria> pairs = new ArrayList<>(events.size());
+        for (InteractionEvent event : events) {
+            pairs.add(Criteria.where("userId").is(event.getUserId()).and(targetField).is(event.getTargetId()));
+        }
+        Query query = new Query(new Criteria().orOperator(pairs));
+        query.fields().include("_id", "userId", targetField);
+
+        Map<String, Object> result = new HashMap<>();
+        for (Document doc : mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(docType))) {
+            Object userId = doc.get("userId");
+            if (userId instanceof Number) {
+                result.put(relationKey(((Number) userId).longValue(), doc.getString(targetField)), doc.get("_id"));
+            }
+        }
+        return result;
     }
 
-    // --- 收藏处理 ---
-    private boolean handleCollect(InteractionEvent event) {
-        String postId = event.getTargetId();
-        Long userId = event.getUserId();
+    /**
+     * 一次 $in 查询取回帖子作者 (只取未删除的帖子，已删帖子上的赞不计入作者的获赞数)
+     * @return postId -> 作者 userId
+     */
+    @SafeVarargs
+    private Map<String, Long> findPostAuthors(List<InteractionEvent>... groups) {
+        Set<String> postIds = new HashSet<>();
+        for (List<InteractionEvent> events : groups) {
+            events.forEach(event -> postIds.add(event.getTargetId()));
+        }
+        if (postIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Query query = Query.query(Criteria.where("_id").in(postIds).and("isDeleted").is(0));
+        query.fields().include("userId");
 
-        if ("ADD".equals(event.getAction())) {
-            try {
-                PostCollectDoc doc = new PostCollectDoc();
-                doc.setUserId(userId);
-                doc.setPostId(postId);
-                doc.setCreatedAt(LocalDateTime.now());
-                postCollectRepository.save(doc);
-
-                updatePostCount(postId, "collectCount", 1);
-                return true;
-
-            } catch (DuplicateKeyException e) {
-                log.info("重复收藏已被 MongoDB 拦截: userId={}, postId={}", userId, postId);
-                return false;
+        Map<String, Long> authors = new HashMap<>();
+        for (PostDoc post : mongoTemplate.find(query, PostDoc.class)) {
+            authors.put(post.getId(), post.getUserId());
+        }
+        return authors;
+    }
+
+    private static List<List<Message<InteractionEvent>>> splitByKey(List<Message<InteractionEvent>> messages) {
+        List<List<Message<InteractionEvent>>> chunks = new ArrayList<>();
+        List<Message<InteractionEvent>> current = new ArrayList<>();
+        Set<String> keys = new HashSet<>();
+        for (Message<InteractionEvent> message : messages) {
+            InteractionEvent event = message.getPayload();
+            String key = event == null ? null : event.getType() + ":" + relationKey(event.getUserId(), event.getTargetId());
+            if (key != null && !keys.add(key)) {
+                chunks.add(current);
+                current = new ArrayList<>();
+                keys.clear();
+                keys.add(key);
             }
-        } else {
-            postCollectRepository.deleteByUserIdAndPostId(userId, postId);
-            updatePostCount(postId, "collectCount", -1);
-            return false;
+            current.add(message);
         }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
+    }
+
+    private static String relationKey(Long userId, String targetId) {
+        return userId + ":" + targetId;
     }
 
-    // --- 评分处理 (难点) ---
-    // --- 评分处理 (利用联合唯一索引优化版) ---
+    // --- 评分处理 ---
+    // 评分记录靠 (userId, postId) 联合唯一索引保证一人一条；帖子上的总分 / 人数 / 分布只做一次 $inc，均分读取时现算
     private boolean handleRate(InteractionEvent event) {
         String postId = event.getTargetId();
         Long userId = event.getUserId();
         Double newScore = event.getValue();
-
-        // 1. 查旧评分：评分业务允许修改，所以需要先判断是否存在旧记录
-        Optional<PostRatingDoc> oldRatingOpt = postRatingRepository.findByUserIdAndPostId(userId, postId);
-
-        // 2. 查 Post 当前状态 (需要 totalCount 和 currentAvg 来计算)
-        // 注意：这里读取可能会有微小的并发偏差，但在大作业场景可接受
-        PostDoc post = postRepository.findById(postId).orElse(null);
-        if (post == null) return false;
-
-        double currentAvg = post.getRatingAverage() == null ? 0.0 : post.getRatingAverage();
-        int currentCount = post.getRatingCount() == null ? 0 : post.getRatingCount();
-
-        // 计算当前总分
-        double totalScore = currentAvg * currentCount;
-
-        if (oldRatingOpt.isPresent()) {
-            // === 情况 A: 修改评分 ===
-            PostRatingDoc oldRating = oldRatingOpt.get();
-            Double oldScore = oldRating.getScore();
-
-            // 如果分值没变，啥也不干
-            if (oldScore.equals(newScore)) return false;
-
-            // 更新记录
-            oldRating.setScore(newScore);
-            oldRating.setUpdatedAt(LocalDateTime.now());
-            postRatingRepository.save(oldRating);
-
-            // 重新计算均分: (总分 - 旧分 + 新分) / 总人数
-            double newTotalScore = totalScore - oldScore + newScore;
-            double newAvg = newTotalScore / currentCount; // 人数不变
-
-            // 更新 Post
-            updatePostRating(postId, newAvg, 0); // count 增量为 0
-
+        if (postId == null || userId == null || newScore == null) return false;
+
+        // 1. 评过分的：原子改分并拿回旧分，差值不会被并发改分算乱
+        PostRatingDoc old = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("userId").is(userId).and("postId").is(postId)),
+                new Update().set("score", newScore).set("updatedAt", LocalDateTime.now()),
+                PostRatingDoc.class);
+        if (old != null) {
+            if (newScore.equals(old.getScore())) return false;
+            updatePostRating(postId, old.getScore(), newScore);
             // 修改评分通常不需要发送新通知，返回 false
             return false;
-
-        } else {
-            // === 情况 B: 新增评分 ===
-            try {
-                PostRatingDoc doc = new PostRatingDoc();
-                doc.setUserId(userId);
-                doc.setPostId(postId);
-                doc.setScore(newScore);
-                doc.setCreatedAt(LocalDateTime.now());
-
-                // 关键点：利用联合唯一索引防止并发下的重复新增
-                postRatingRepository.save(doc);
-
-                // 重新计算均分: (总分 + 新分) / (总人数 + 1)
-                double newTotalScore = totalScore + newScore;
-                double newAvg = newTotalScore / (currentCount + 1);
-
-                // 更新 Post
-                updatePostRating(postId, newAvg, 1); // count 增量为 1
-
-                // 真正新增评分成功，返回 true 触发外层发送通知
-                return true;
-
-            } catch (DuplicateKeyException e) {
-                // 如果在执行 exists 判断到 save 之间有另一个请求抢先插入了
-                // 唯一索引会抛出此异常，我们直接拦截，防止 ratingCount 重复增加
-                log.info("并发新增评分已被 MongoDB 联合唯一索引拦截: userId={}, postId={}", userId, postId);
-                return false;
-            }
         }
-    }
 
-    // --- 评论点赞处理逻辑 ---
-    // --- 评论点赞处理 (利用联合唯一索引优化版) ---
-    private boolean handleCommentLike(InteractionEvent event) {
-        String commentId = event.getTargetId();
-        Long userId = event.getUserId();
-
-        if ("ADD".equals(event.getAction())) {
-            // 1. 尝试直接插入流水记录
-            try {
-                CommentLikeDoc doc = new CommentLikeDoc();
-                doc.setUserId(userId);
-                doc.setCommentId(commentId);
-                doc.setCreatedAt(LocalDateTime.now());
-
-                // 关键：利用联合唯一索引拦截重复请求
-                commentLikeRepository.save(doc);
-
-                // 2. 只有 save 成功（没有抛出异常），才执行原子的计数更新 (+1)
-                updateCommentCount(commentId, 1);
-
-                return true; // 真正新增成功，通知外层可以发消息了
+        // 2. 首次评分：利用联合唯一索引防止并发下的重复新增
+        PostRatingDoc doc = new PostRatingDoc();
+        doc.setUserId(userId);
+        doc.setPostId(postId);
+        doc.setScore(newScore);
+        doc.setCreatedAt(LocalDateTime.now());
+        try {
+            mongoTemplate.insert(doc);
+        } catch (DuplicateKeyException e) {
+            // 另一条消息抢先插入了，按改分再走一遍
+            log.info("并发新增评分已被 MongoDB 联合唯一索引拦截，转为修改评分: userId={}, postId={}", userId, postId);
+            return handleRate(event);
+        }
 
-            } catch (DuplicateKeyException e) {
-                // 如果并发请求或者网络重试导致重复插入，会被唯一索引挡在这里
-                log.info("重复评论点赞已被 MongoDB 拦截: userId={}, commentId={}", userId, commentId);
-                return false; // 重复操作，不触发通知
-            }
-        } else {
-            // 取消点赞逻辑保持原样
-            commentLikeRepository.deleteByUserIdAndCommentId(userId, commentId);
-            updateCommentCount(commentId, -1);
+        // 3. 帖子不存在就把刚插入的记录撤回
+        if (!updatePostRating(postId, null, newScore)) {
+            mongoTemplate.remove(doc);
             return false;
         }
-    }
-
-    // 辅助方法：更新评论表中的计数
-    private void updateCommentCount(String commentId, int inc) {
-        mongoTemplate.updateFirst(
-                Query.query(Criteria.where("id").is(commentId)),
-                new Update().inc("likeCount", inc),
-                CommentDoc.class
-        );
+        // 真正新增评分成功，返回 true 触发外层发送通知
+        return true;
     }
 
     // --- 发送评论点赞通知 ---
@@ -328,7 +409,7 @@ public class InteractionEventListener {
         if (comment.getUserId().equals(senderId)) return;
 
         // 3. 查发送者信息
-        User sender = userMapper.selectById(senderId);
+        UserCardCache.Card sender = userCardCache.get(senderId);
         if (sender == null) return;
 
         // 4. 构建通知
@@ -354,29 +435,43 @@ public class InteractionEventListener {
         notificationRpcClient.save(doc);
     }
 
-    // 通用：原子更新简单计数器
-    private void updatePostCount(String postId, String field, int inc) {
-        mongoTemplate.updateFirst(
-                Query.query(Criteria.where("id").is(postId)),
-                new Update().inc(field, inc),
-                PostDoc.class
-        );
-    }
-
-    // 专用：更新评分数据
-    private void updatePostRating(String postId, Double newAvg, int countInc) {
-        Update update = new Update()
-                .set("ratingAverage", newAvg); // 直接覆盖均分
-
-        if (countInc != 0) {
-            update.inc("ratingCount", countInc); // 原子增减人数
+    /**
+     * 专用：一次 $inc 更新帖子评分
+     * 新增 (oldScore 为 null)：总分 + 新分，人数 + 1，分布里新分 + 1
+     * 修改：总分加差值，人数不变，分布里旧分 - 1、新分 + 1
+     * @return 帖子是否存在
+     */
+    private boolean updatePostRating(String postId, Double oldScore, double newScore) {
+        String newBucket = PostDoc.ratingBucket(newScore);
+        Update update = new Update();
+        if (oldScore == null) {
+            update.inc("ratingSum", newScore)
+                    .inc("ratingCount", 1)
+                    .inc("ratingHistogram." + newBucket, 1);
+        } else {
+            update.inc("ratingSum", newScore - oldScore);
+            String oldBucket = PostDoc.ratingBucket(oldScore);
+            if (!oldBucket.equals(newBucket)) {
+                update.inc("ratingHistogram." + oldBucket, -1)
+                        .inc("ratingHistogram." + newBucket, 1);
+            }
         }
 
-        mongoTemplate.updateFirst(
-                Query.query(Criteria.where("id").is(postId)),
+        // 只对已经有分布 (或还没人评过) 的帖子做增量；还没迁移的旧帖子 $inc 会得到一个不完整的分布，
+        // 匹配不上时按评分记录整篇重算 (当前这条评分已经落库，重算会包含它)
+        Criteria migrated = new Criteria().orOperator(
+                Criteria.where("ratingHistogram").exists(true),
+                Criteria.where("ratingCount").not().gt(0));
+        boolean matched = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("id").is(postId).andOperator(migrated)),
                 update,
                 PostDoc.class
-        );
+        ).getMatchedCount() > 0;
+        if (matched) return true;
+        if (!mongoTemplate.exists(Query.query(Criteria.where("id").is(postId)), PostDoc.class)) return false;
+        postRatingBackfillTask.rebuild(Collections.singletonList(postId));
+        log.info("帖子评分分布未迁移，按评分记录重算: postId={}", postId);
+        return true;
     }
 
     /**
@@ -394,7 +489,7 @@ public class InteractionEventListener {
         if (post.getUserId().equals(senderId)) return;
 
         // 3. 查发送者信息 (PostgreSQL)
-        User sender = userMapper.selectById(senderId);
+        UserCardCache.Card sender = userCardCache.get(senderId);
         if (sender == null) return;
 
         // 4. 构建通知
@@ -415,6 +510,32 @@ public class InteractionEventListener {
         notificationRpcClient.save(doc);
     }
 
+    // 关注/取关：同步关注流收件箱
+    private void handleFollowFeed(InteractionEvent event) {
+        try {
+            Long targetUserId = Long.parseLong(event.getTargetId());
+            if ("ADD".equals(event.getAction())) {
+                feedService.onFollow(event.getUserId(), targetUserId);
+            } else {
+                feedService.onUnfollow(event.getUserId(), targetUserId);
+            }
+        } catch (Exception e) {
+            log.warn("关注流收件箱同步失败: userId={}, targetId={}", event.getUserId(), event.getTargetId(), e);
+        }
+    }
+
+    // 关注/取关：双方的关注数、粉丝数 (事件只在关注关系真正变化时发出)
+    private void handleFollowStats(InteractionEvent event) {
+        try {
+            int delta = "ADD".equals(event.getAction()) ? 1 : -1;
+            userStatsService.inc(event.getUserId(), "followCount", delta);
+            userStatsService.inc(Long.parseLong(event.getTargetId()), "fanCount", delta);
+            if (delta > 0) dailyStatsService.inc("follows", delta);
+        } catch (NumberFormatException e) {
+            log.warn("关注统计目标ID格式错误: {}", event.getTargetId());
+        }
+    }
+
     // 发送关注通知
     private void sendFollowNotification(InteractionEvent event) {
         Long senderId = event.getUserId();
@@ -430,7 +551,7 @@ public class InteractionEventListener {
         }
 
         // 2. 查发起者信息 (粉丝的信息)
-        User sender = userMapper.selectById(senderId);
+        UserCardCache.Card sender = userCardCache.get(senderId);
         if (sender == null) return;
 
         // 3. 构建通知
@@ -0,0 +1,57 @@
+package com.szu.afternoon3.platform.listener;
+
+import com.szu.afternoon3.platform.component.PostCache;
+import com.szu.afternoon3.platform.event.PostAuditEvent;
+import com.szu.afternoon3.platform.event.PostAuditPassEvent;
+import com.szu.afternoon3.platform.event.PostDeleteEvent;
+import com.szu.afternoon3.platform.event.PostUpdateEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitHandler;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+/**
+ * 帖子缓存失效监听器
+ * 监听本节点的广播队列 (见 RabbitConfig#postCacheEvictQueue)，
+ * 帖子被修改/删除/审核后清掉本节点的 L1，并再删一次 L2 (延迟双删)
+ */
+@Component
+@Slf4j
+@RabbitListener(queues = "#{postCacheEvictQueue.name}")
+public class PostCacheEvictListener {
+
+    @Autowired
+    private PostCache postCache;
+
+    @RabbitHandler
+    public void onPostUpdate(PostUpdateEvent event,
+                             @Header(name = AmqpHeaders.RECEIVED_ROUTING_KEY, required = false) String routingKey) {
+        evict(event.getPostId(), routingKey);
+    }
+
+    @RabbitHandler
+    public void onPostDelete(PostDeleteEvent event,
+                             @Header(name = AmqpHeaders.RECEIVED_ROUTING_KEY, required = false) String routingKey) {
+        evict(event.getPostId(), routingKey);
+    }
+
+    @RabbitHandler
+    public void onPostAudit(PostAuditEvent event,
+                            @Header(name = AmqpHeaders.RECEIVED_ROUTING_KEY, required = false) String routingKey) {
+        evict(event.getPostId(), routingKey);
+    }
+
+    @RabbitHandler
+    public void onPostAuditPass(PostAuditPassEvent event,
+                                @Header(name = AmqpHeaders.RECEIVED_ROUTING_KEY, required = false) String routingKey) {
+        evict(event.getId(), routingKey);
+    }
+
+    private void evict(String postId, String routingKey) {
+        postCache.evict(postId);
+        log.debug("post cache evict routingKey={} postId={}", routingKey, postId);
+    }
+}
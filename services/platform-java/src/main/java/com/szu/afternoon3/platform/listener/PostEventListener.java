@@ -3,17 +3,23 @@ package com.szu.afternoon3.platform.listener;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.StrUtil;
 import com.szu.afternoon3.platform.common.LogMdc;
+import com.szu.afternoon3.platform.component.HotTagBoard;
+import com.szu.afternoon3.platform.component.UserCardCache;
 import com.szu.afternoon3.platform.config.RabbitConfig;
-import com.szu.afternoon3.platform.entity.User;
 import com.szu.afternoon3.platform.entity.mongo.CommentDoc;
 import com.szu.afternoon3.platform.entity.mongo.NotificationDoc;
 import com.szu.afternoon3.platform.entity.mongo.PostAuditLogDoc;
 import com.szu.afternoon3.platform.entity.mongo.PostDoc;
+import com.szu.afternoon3.platform.enums.CascadeType;
 import com.szu.afternoon3.platform.enums.NotificationType;
 import com.szu.afternoon3.platform.event.*;
-import com.szu.afternoon3.platform.mapper.UserMapper;
 import com.szu.afternoon3.platform.repository.*;
 import com.szu.afternoon3.platform.grpc.NotificationRpcClient;
+import com.szu.afternoon3.platform.service.CascadeCleanupService;
+import com.szu.afternoon3.platform.service.FeedService;
+import com.szu.afternoon3.platform.service.PostModerationService;
+import com.szu.afternoon3.platform.service.DailyStatsService;
+import com.szu.afternoon3.platform.service.UserStatsService;
 import com.szu.afternoon3.platform.service.impl.AiServiceImpl;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.support.AmqpHeaders;
@@ -40,15 +46,18 @@ import java.time.LocalDateTime;
 @RabbitListener(queues = RabbitConfig.QUEUE_POST)
 public class PostEventListener {
 
-    @Autowired private PostLikeRepository postLikeRepository;
-    @Autowired private PostCollectRepository postCollectRepository;
     @Autowired private CommentRepository commentRepository;
-    @Autowired private PostRatingRepository postRatingRepository;
 
     @Autowired private AiServiceImpl aiService;
     @Autowired private MongoTemplate mongoTemplate;
-    @Autowired private UserMapper userMapper;
+    @Autowired private UserCardCache userCardCache;
     @Autowired private NotificationRpcClient notificationRpcClient; // 直接写入 notification-rpc
+    @Autowired private FeedService feedService;
+    @Autowired private HotTagBoard hotTagBoard;
+    @Autowired private UserStatsService userStatsService;
+    @Autowired private DailyStatsService dailyStatsService;
+    @Autowired private CascadeCleanupService cascadeCleanupService;
+    @Autowired private PostModerationService postModerationService;
 
     @Value("${ai.bot.user-id}")
     private Long botUserId;
@@ -61,26 +70,47 @@ public class PostEventListener {
                                  @Header(name = "X-Request-Id", required = false) String requestId,
                                  @Header(name = AmqpHeaders.RECEIVED_ROUTING_KEY, required = false) String routingKey) {
         LogMdc.bindMqContext(requestId, routingKey, "platform-java");
-        log.info("mq consume start routingKey={} postId={}", routingKey, event.getId());
         try {
-            handleAutoComment(event);
-        } catch (Exception e) {
-            log.error("AI 自动评论失败", e);
+            log.info("mq consume start routingKey={} postId={}", routingKey, event.getId());
+            // 关注流写扩散 (先于 AI 评论，避免被慢调用拖住)
+            try {
+                feedService.fanOut(event.getId(), event.getUserId());
+            } catch (Exception e) {
+                log.error("关注流写扩散失败 postId={}", event.getId(), e);
+            }
+            refreshHotTags(event.getId());
+            // AI 预审 (只提交，线程池里异步跑)
+            postModerationService.submit(event.getId());
+            // 计数不是幂等的，放在可能抛异常的步骤之后 (否则重投时会重复计数)
+            userStatsService.inc(event.getUserId(), "postCount", 1);
+            dailyStatsService.inc("newPosts", 1);
+            try {
+                handleAutoComment(event);
+            } catch (Exception e) {
+                log.error("AI 自动评论失败", e);
+            }
         } finally {
             LogMdc.clear();
         }
     }
 
     /**
-     * 处理修帖：(暂留空)
+     * 处理修帖：刷新热门标签 + 重新 AI 预审
      */
     @RabbitHandler
     public void handlePostUpdate(PostUpdateEvent event,
                                  @Header(name = "X-Request-Id", required = false) String requestId,
                                  @Header(name = AmqpHeaders.RECEIVED_ROUTING_KEY, required = false) String routingKey) {
         LogMdc.bindMqContext(requestId, routingKey, "platform-java");
-        log.debug("mq consume routingKey={} postId={}", routingKey, event.getPostId());
-        LogMdc.clear();
+        try {
+            log.debug("mq consume routingKey={} postId={}", routingKey, event.getPostId());
+            // 标签可能改了，重新计入热门标签
+            refreshHotTags(event.getPostId());
+            // 内容改了要重新审核，旧的预审结论按 updatedAt 自动作废
+            postModerationService.submit(event.getPostId());
+        } finally {
+            LogMdc.clear();
+        }
     }
 
     /**
@@ -91,38 +121,59 @@ public class PostEventListener {
                                  @Header(name = "X-Request-Id", required = false) String requestId,
                                  @Header(name = AmqpHeaders.RECEIVED_ROUTING_KEY, required = false) String routingKey) {
         LogMdc.bindMqContext(requestId, routingKey, "platform-java");
-        String postId = event.getPostId();
-        log.info("mq consume start routingKey={} postId={} operatorId={}", routingKey, postId, event.getOperatorId());
-
-        // ----------------------------------------------------
-        // 1. 业务数据清理 (原有逻辑)
-        // ----------------------------------------------------
         try {
-            postLikeRepository.deleteByPostId(postId);
-            postCollectRepository.deleteByPostId(postId);
-            postRatingRepository.deleteByPostId(postId);
-            commentRepository.deleteByPostId(postId); // 直接删除关联评论
-            log.info("删帖关联数据清理完成");
-        } catch (Exception e) {
-            log.error("删帖数据清理失败", e);
-        }
+            String postId = event.getPostId();
+            log.info("mq consume start routingKey={} postId={} operatorId={}", routingKey, postId, event.getOperatorId());
 
-        // ----------------------------------------------------
-        // 2. 管理员删除的特殊处理 (新增逻辑)
-        // ----------------------------------------------------
-        if (event.isAdminOp()) {
-            handleAdminDeleteLogAndNotify(event);
+            // 用户统计要按关联记录扣减，必须赶在清理之前；扣减不是幂等的，后面的步骤都不能再抛异常触发重投
+            try {
+                userStatsService.onPostDeleted(postId);
+            } catch (Exception e) {
+                log.error("删帖用户统计扣减失败 postId={}", postId, e);
+            }
+
+            // ----------------------------------------------------
+            // 1. 业务数据清理：点赞 / 收藏 / 评分 / 评论交给级联清理任务分块限速删除
+            // ----------------------------------------------------
+            try {
+                cascadeCleanupService.submit(CascadeType.POST, postId);
+                log.info("删帖关联数据清理任务已提交");
+            } catch (Exception e) {
+                log.error("删帖数据清理任务提交失败", e);
+            }
+            refreshHotTags(postId);
+
+            // ----------------------------------------------------
+            // 2. 管理员删除的特殊处理 (新增逻辑)
+            // ----------------------------------------------------
+            if (event.isAdminOp()) {
+                try {
+                    handleAdminDeleteLogAndNotify(event);
+                } catch (Exception e) {
+                    log.error("删帖违规通知发送失败 postId={}", postId, e);
+                }
+            }
+        } finally {
+            LogMdc.clear();
         }
-        LogMdc.clear();
     }
 
     // --- Private Methods ---
 
+    private void refreshHotTags(String postId) {
+        try {
+            hotTagBoard.refresh(postId);
+        } catch (Exception e) {
+            // 漏掉的由定时对账修正
+            log.warn("热门标签更新失败 postId={}: {}", postId, e.getMessage());
+        }
+    }
+
     private void handleAutoComment(PostCreateEvent event) {
         String summary = aiService.generatePostSummary(event.getUserId(), event.getTitle(), event.getContent(), event.getImages(), event.getVideo());
         if (StrUtil.isBlank(summary)) return;
 
-        User botUser = userMapper.selectById(botUserId);
+        UserCardCache.Card botUser = userCardCache.get(botUserId);
         if (botUser == null) return;
 
         CommentDoc comment = new CommentDoc();
@@ -142,6 +193,8 @@ public class PostEventListener {
                 new Update().inc("commentCount", 1),
                 PostDoc.class
         );
+        userStatsService.inc(botUserId, "givenCommentCount", 1);
+        userStatsService.inc(event.getUserId(), "receivedCommentCount", 1);
     }
 
     private void handleAdminDeleteLogAndNotify(PostDeleteEvent event) {
@@ -187,8 +240,9 @@ public class PostEventListener {
                                 @Header(name = "X-Request-Id", required = false) String requestId,
                                 @Header(name = AmqpHeaders.RECEIVED_ROUTING_KEY, required = false) String routingKey) {
         LogMdc.bindMqContext(requestId, routingKey, "platform-java");
-        // 这里留空即可，表示“我知道收到了，但我不需要处理，请确认消费成功”
-        log.debug("mq consume ignore routingKey={} postId={}", routingKey, event.getPostId());
+        log.debug("mq consume routingKey={} postId={}", routingKey, event.getPostId());
+        // 审核通过 / 拒绝都会改变帖子是否计入热门标签
+        refreshHotTags(event.getPostId());
         LogMdc.clear();
     }
 
@@ -201,8 +255,14 @@ public class PostEventListener {
                                     @Header(name = "X-Request-Id", required = false) String requestId,
                                     @Header(name = AmqpHeaders.RECEIVED_ROUTING_KEY, required = false) String routingKey) {
         LogMdc.bindMqContext(requestId, routingKey, "platform-java");
-        // 这里留空即可
-        log.debug("mq consume ignore routingKey={} postId={}", routingKey, event.getId());
+        log.debug("mq consume routingKey={} postId={}", routingKey, event.getId());
+
+        // 审核模式下帖子发布时是 status=0，读取时会被过滤；审核通过后重新推送一次 (ZADD 幂等)
+        try {
+            feedService.fanOut(event.getId(), event.getUserId());
+        } catch (Exception e) {
+            log.error("关注流写扩散失败 postId={}", event.getId(), e);
+        }
 
         // 扩展建议：
         // 如果未来想在审核通过后做一些业务（比如给作者加积分、触发某种奖励），
@@ -0,0 +1,43 @@
+package com.szu.afternoon3.platform.listener;
+
+import com.szu.afternoon3.platform.component.UserCardCache;
+import com.szu.afternoon3.platform.event.UserDeleteEvent;
+import com.szu.afternoon3.platform.event.UserUpdateEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitHandler;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+/**
+ * 用户名片缓存失效监听器
+ * 监听本节点的广播队列 (见 RabbitConfig#userCardEvictQueue)，
+ * 用户改资料 / 注销后清掉本节点的 L1，并删一次 L2
+ */
+@Component
+@Slf4j
+@RabbitListener(queues = "#{userCardEvictQueue.name}")
+public class UserCardEvictListener {
+
+    @Autowired
+    private UserCardCache userCardCache;
+
+    @RabbitHandler
+    public void onUserUpdate(UserUpdateEvent event,
+                             @Header(name = AmqpHeaders.RECEIVED_ROUTING_KEY, required = false) String routingKey) {
+        evict(event.getUserId(), routingKey);
+    }
+
+    @RabbitHandler
+    public void onUserDelete(UserDeleteEvent event,
+                             @Header(name = AmqpHeaders.RECEIVED_ROUTING_KEY, required = false) String routingKey) {
+        evict(event.getUserId(), routingKey);
+    }
+
+    private void evict(Long userId, String routingKey) {
+        userCardCache.evict(userId);
+        log.debug("user card evict routingKey={} userId={}", routingKey, userId);
+    }
+}
@@ -0,0 +1,48 @@
+package com.szu.afternoon3.platform.listener;
+
+import com.szu.afternoon3.platform.common.LogMdc;
+import com.szu.afternoon3.platform.component.FollowGraph;
+import com.szu.afternoon3.platform.config.RabbitConfig;
+import com.szu.afternoon3.platform.enums.CascadeType;
+import com.szu.afternoon3.platform.event.UserDeleteEvent;
+import com.szu.afternoon3.platform.service.CascadeCleanupService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+/**
+ * 用户事件监听 (user-rpc 注销账号时发出 user.delete)
+ * 帖子 / 评论的昵称头像脱敏仍由 sync-sidecar 处理，
+ * 关注关系、互动记录、通知、历史这些要物理删除的数据交给级联清理任务分块限速删除。
+ */
+@Slf4j
+@Component
+public class UserEventListener {
+
+    @Autowired
+    private CascadeCleanupService cascadeCleanupService;
+    @Autowired
+    private FollowGraph followGraph;
+
+    @RabbitListener(queues = RabbitConfig.QUEUE_USER_CLEANUP)
+    public void handleUserDelete(UserDeleteEvent event,
+                                 @Header(name = "X-Request-Id", required = false) String requestId,
+                                 @Header(name = AmqpHeaders.RECEIVED_ROUTING_KEY, required = false) String routingKey) {
+        LogMdc.bindMqContext(requestId, routingKey, "platform-java");
+        try {
+            if (event == null || event.getUserId() == null) {
+                log.warn("收到无效的 UserDeleteEvent");
+                return;
+            }
+            log.info("mq consume start routingKey={} userId={}", routingKey, event.getUserId());
+            cascadeCleanupService.submit(CascadeType.USER, String.valueOf(event.getUserId()));
+            // 他自己的关注关系 Set 直接删；别人 Set 里的他在读取好友列表时清理
+            followGraph.evictUser(event.getUserId());
+        } finally {
+            LogMdc.clear();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.szu.afternoon3.platform.listener;
+
+import com.szu.afternoon3.platform.common.LogMdc;
+import com.szu.afternoon3.platform.component.UserSearchEngine;
+import com.szu.afternoon3.platform.config.RabbitConfig;
+import com.szu.afternoon3.platform.entity.User;
+import com.szu.afternoon3.platform.event.UserDeleteEvent;
+import com.szu.afternoon3.platform.event.UserUpdateEvent;
+import com.szu.afternoon3.platform.mapper.UserMapper;
+import com.szu.afternoon3.platform.task.UserSearchSyncTask;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitHandler;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 用户搜索索引实时同步
+ * user.update 时按 ID 回查最新资料整条覆盖 (事件里只有昵称头像)，user.delete 时删文档
+ * 更新失败不重投 (ES 挂了重投也没用)，改为让定时任务下一轮全量重灌；
+ * 删除失败要重投：全量重灌只写未删除的用户，不会把已注销的文档删掉
+ */
+@Slf4j
+@Component
+@RabbitListener(queues = RabbitConfig.QUEUE_USER_SEARCH)
+public class UserSearchSyncListener {
+
+    @Autowired
+    private UserMapper userMapper;
+    @Autowired
+    private UserSearchEngine userSearchEngine;
+    @Autowired
+    private UserSearchSyncTask userSearchSyncTask;
+
+    @RabbitHandler
+    public void onUserUpdate(UserUpdateEvent event,
+                             @Header(name = "X-Request-Id", required = false) String requestId,
+                             @Header(name = AmqpHeaders.RECEIVED_ROUTING_KEY, required = false) String routingKey) {
+        if (event == null || event.getUserId() == null || !userSearchEngine.isEnabled()) return;
+        LogMdc.bindMqContext(requestId, routingKey, "platform-java");
+        try {
+            User user = userMapper.selectById(event.getUserId());
+            if (user == null) {
+                userSearchEngine.delete(event.getUserId());
+            } else {
+                userSearchEngine.saveAll(List.of(user));
+            }
+        } catch (Exception e) {
+            log.error("用户搜索索引更新失败，下一轮定时同步全量重灌 userId={}", event.getUserId(), e);
+            userSearchSyncTask.requestFullResync();
+        } finally {
+            LogMdc.clear();
+        }
+    }
+
+    @RabbitHandler
+    public void onUserDelete(UserDeleteEvent event,
+                             @Header(name = "X-Request-Id", required = false) String requestId,
+                             @Header(name = AmqpHeaders.RECEIVED_ROUTING_KEY, required = false) String routingKey) {
+        if (event == null || event.getUserId() == null || !userSearchEngine.isEnabled()) return;
+        LogMdc.bindMqContext(requestId, routingKey, "platform-java");
+        try {
+            userSearchEngine.delete(event.getUserId());
+        } catch (RuntimeException e) {
+            // 抛出去走重试，重试用完进死信队列；在那之前搜索结果会按数据库回查滤掉它
+            log.error("用户搜索索引删除失败 userId={}", event.getUserId(), e);
+            throw e;
+        } finally {
+            LogMdc.clear();
+        }
+    }
+}
@@ -6,6 +6,8 @@ import org.springframework.stereotype.Repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -20,5 +22,8 @@ public interface PostRatingRepository extends MongoRepository<PostRatingDoc, Str
     // 分页查询某人的评分记录
     Page<PostRatingDoc> findByUserId(Long userId, Pageable pageable);
 
+    // 批量查询某用户对一批帖子的评分 (列表/详情页回显 myScore)
+    List<PostRatingDoc> findByUserIdAndPostIdIn(Long userId, Collection<String> postIds);
+
     void deleteByPostId(String postId);
 }
\ No newline at end of file
@@ -11,7 +11,7 @@ import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface PostRepository extends MongoRepository<PostDoc, String> {
+public interface PostRepository extends MongoRepository<PostDoc, String>, PostRepositoryCustom {
 
     // 1. 查询某人的帖子列表 (支持分页)
     // 自动对应 MongoDB: db.posts.find({"userId": ?, "isDeleted": 0})
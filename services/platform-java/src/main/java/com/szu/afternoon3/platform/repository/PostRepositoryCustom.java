@@ -0,0 +1,20 @@
+package com.szu.afternoon3.platform.repository;
+
+import com.szu.afternoon3.platform.common.PageCursor;
+import com.szu.afternoon3.platform.entity.mongo.PostDoc;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.List;
+
+public interface PostRepositoryCustom {
+    /**
+     * 游标分页 (Keyset)：查询排在游标之后的帖子，不 skip、不 count
+     * 排序固定为倒序：按时间 createdAt,_id；按热度 likeCount,createdAt,_id
+     * @param filter 业务过滤条件 (状态/标签/作者等)
+     * @param cursor 上一页游标，首页传 null
+     * @param byLikes 是否按热度排序
+     * @param limit 最多返回条数 (调用方通常传 size + 1 来判断 hasMore)
+     * @return 帖子列表
+     */
+    List<PostDoc> findByCursor(Criteria filter, PageCursor cursor, boolean byLikes, int limit);
+}
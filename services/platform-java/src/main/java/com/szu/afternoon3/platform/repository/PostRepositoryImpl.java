@@ -0,0 +1,33 @@
+package com.szu.afternoon3.platform.repository;
+
+import com.szu.afternoon3.platform.common.PageCursor;
+import com.szu.afternoon3.platform.entity.mongo.PostDoc;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+
+public class PostRepositoryImpl implements PostRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public List<PostDoc> findByCursor(Criteria filter, PageCursor cursor, boolean byLikes, int limit) {
+        // 1. 过滤条件 + 游标条件 (首页没有游标)
+        Criteria criteria = cursor == null
+                ? filter
+                : new Criteria().andOperator(filter, cursor.toCriteria("createdAt", byLikes));
+
+        // 2. 排序必须和游标条件的比较顺序完全一致，最后用 _id 兜底保证全序
+        Sort sort = byLikes
+                ? Sort.by(Sort.Direction.DESC, "likeCount", "createdAt", "_id")
+                : Sort.by(Sort.Direction.DESC, "createdAt", "_id");
+
+        Query query = new Query(criteria).with(sort).limit(limit);
+        return mongoTemplate.find(query, PostDoc.class);
+    }
+}
@@ -15,8 +15,8 @@ public interface UserFollowRepository extends MongoRepository<UserFollowDoc, Str
     // 1. 检查关注状态 (用于前端显示“关注/已关注”按钮)
     boolean existsByUserIdAndTargetUserId(Long userId, Long targetUserId);
 
-    // 2. 取关 (删除记录)
-    void deleteByUserIdAndTargetUserId(Long userId, Long targetUserId);
+    // 2. 取关 (删除记录)，返回删除条数
+    long deleteByUserIdAndTargetUserId(Long userId, Long targetUserId);
 
     // 3. 获取我关注的人的ID列表 (核心：用于首页“关注”流的筛选)
     // 只需要返回 targetUserId 字段即可，节省流量
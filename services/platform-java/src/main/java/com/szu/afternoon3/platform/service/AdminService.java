@@ -4,6 +4,7 @@ import com.szu.afternoon3.platform.dto.*;
 import com.szu.afternoon3.platform.vo.*;
 import jakarta.servlet.http.HttpServletResponse;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -32,6 +33,13 @@ public interface AdminService {
     // 内容审核 - 审核操作
     void auditPost(String postId, Integer status, String reason);
 
+    /**
+     * 内容审核 - AI 预审自动处置
+     * 只有帖子仍在待审核、未删除，且没有在预审之后被修改过 (updatedAt 不变) 才会生效
+     * @return 是否生效
+     */
+    boolean autoAuditPost(String postId, LocalDateTime postUpdatedAt, Integer status, String reason);
+
     Long createTestUser(TestUserCreateDTO dto);
 
     /**
@@ -51,7 +59,19 @@ public interface AdminService {
      */
     List<PostAuditLogVO> getPostAuditHistory(String postId);
 
-    AdminStatsVO getDataStatistics();
+    /**
+     * 后台首页统计 (只读 daily_stats 预聚合)
+     * @param days 趋势图天数 (含今天)
+     */
+    AdminStatsVO getDataStatistics(int days);
 
+    /**
+     * 流式导出管理员操作日志 (xlsx / csv)
+     */
     void exportLogs(LogSearchDTO dto, HttpServletResponse response);
+
+    /**
+     * 取消正在进行的日志导出
+     */
+    void cancelLogExport(String exportId);
 }
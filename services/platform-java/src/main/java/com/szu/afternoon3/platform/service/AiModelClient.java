@@ -0,0 +1,22 @@
+package com.szu.afternoon3.platform.service;
+
+import com.szu.afternoon3.platform.enums.AiScene;
+
+import java.util.List;
+
+/**
+ * 大模型调用客户端 (只负责一次请求 / 响应，超时、熔断、缓存由 AiExecutor 统一处理)
+ * ai.client = dashscope (默认) 走通义千问 VL；ai.client = stub 走本地桩，离线开发和测试用
+ */
+public interface AiModelClient {
+
+    /**
+     * @param systemPrompt 系统人设
+     * @param userText 用户纯文本内容
+     * @param images 图片URL列表
+     * @param video 视频URL (单个)
+     * @param temperature 随机性 (0.0 - 2.0)
+     * @return 模型返回的文本，失败直接抛异常
+     */
+    String chat(AiScene scene, String systemPrompt, String userText, List<String> images, String video, double temperature) throws Exception;
+}
@@ -0,0 +1,16 @@
+package com.szu.afternoon3.platform.service;
+
+import com.szu.afternoon3.platform.enums.CascadeType;
+
+/**
+ * 级联清理
+ * 删帖 / 删评论 / 注销用户之后的关联数据不在消费者里一把 deleteMany，
+ * 而是记一个任务，由后台线程按块 (每块固定条数，按 _id 删) 限速删除，进度落在 cascade_jobs，重启后续跑。
+ */
+public interface CascadeCleanupService {
+
+    /**
+     * 提交清理任务 (同一目标重复提交只保留一个；已完成的会重新执行一遍)
+     */
+    void submit(CascadeType type, String targetId);
+}
@@ -0,0 +1,36 @@
+package com.szu.afternoon3.platform.service;
+
+import com.szu.afternoon3.platform.entity.mongo.DailyStatsDoc;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * 每日统计 (daily_stats 预聚合)
+ * 管理后台首页原来每次打开都要对 users / posts 做 GROUP BY，
+ * 现在由事件消费者增量维护当天的数，凌晨压实任务按源数据重算前几天，后台只读预聚合结果。
+ */
+public interface DailyStatsService {
+
+    /**
+     * 今天的计数增量，field 为 DailyStatsDoc 的字段名 (如 "newPosts")
+     */
+    void inc(String field, long delta);
+
+    /**
+     * 按天读取 [from, to] 的统计 (一次主键范围查询)
+     * @return 日期 (yyyy-MM-dd) -> 统计，没有数据的日期不在 Map 里
+     */
+    Map<String, DailyStatsDoc> getRange(LocalDate from, LocalDate to);
+
+    /**
+     * 用户地区分布
+     * @return 地区 -> 人数 (空地区记为 "未知")
+     */
+    Map<String, Long> getRegionStats();
+
+    /**
+     * 按源数据重算 [from, to) 的统计并覆盖 (浏览量保留增量值)
+     */
+    void compact(LocalDate from, LocalDate to);
+}
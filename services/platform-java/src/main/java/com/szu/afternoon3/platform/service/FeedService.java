@@ -0,0 +1,46 @@
+package com.szu.afternoon3.platform.service;
+
+import com.szu.afternoon3.platform.common.PageCursor;
+import com.szu.afternoon3.platform.vo.PageResult;
+
+/**
+ * 关注流 Feed 服务 (推拉结合)
+ * 普通作者发帖时写扩散到粉丝收件箱，大V 只写发件箱，读取时再合并
+ */
+public interface FeedService {
+
+    /**
+     * 发帖写扩散：写作者发件箱，非大V 再推送到所有活跃粉丝的收件箱
+     * @param postId 帖子ID
+     * @param authorId 作者ID
+     */
+    void fanOut(String postId, Long authorId);
+
+    /**
+     * 读取关注流的帖子ID (按发帖时间倒序)
+     * @param userId 当前用户
+     * @param page 页码 (1开始)
+     * @param size 每页大小
+     * @return 帖子ID分页，调用方负责批量回查帖子
+     */
+    PageResult<String> getFollowFeedPostIds(Long userId, Integer page, Integer size);
+
+    /**
+     * 游标方式读取关注流的帖子ID (按 score 倒序，相同 score 按 member 倒序)
+     * @param userId 当前用户
+     * @param cursor 上一页游标 (time=score, id=postId)，首页传 null
+     * @param size 每页大小
+     * @return 帖子ID + hasMore/nextCursor
+     */
+    PageResult<String> getFollowFeedPostIdsByCursor(Long userId, PageCursor cursor, Integer size);
+
+    /**
+     * 新关注：把对方最近的帖子并入收件箱
+     */
+    void onFollow(Long userId, Long targetUserId);
+
+    /**
+     * 取消关注：从收件箱移除对方的帖子
+     */
+    void onUnfollow(Long userId, Long targetUserId);
+}
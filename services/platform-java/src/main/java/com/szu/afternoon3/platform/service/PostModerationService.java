@@ -0,0 +1,22 @@
+package com.szu.afternoon3.platform.service;
+
+import com.szu.afternoon3.platform.vo.AiAuditResultVO;
+
+/**
+ * 帖子 AI 预审
+ * 发帖 / 修帖后在后台跑 AI 审核并把结论存进 post_ai_audits，管理员打开待审核列表时直接看结论，不用逐条等模型。
+ * 置信度足够高的 PASS / BLOCK 可以按配置自动处置。
+ * (后台列表 / 详情直接读 post_ai_audits，见 AdminServiceImpl)
+ */
+public interface PostModerationService {
+
+    /**
+     * 提交后台预审 (异步，线程池满了直接丢弃，由定时扫描补上)
+     */
+    void submit(String postId);
+
+    /**
+     * 管理员手动 AI 审核：有当前版本的预审结论就直接返回，否则 (或 refresh = true) 同步审核一次并保存
+     */
+    AiAuditResultVO audit(String postId, boolean refresh);
+}
@@ -0,0 +1,23 @@
+package com.szu.afternoon3.platform.service;
+
+import java.util.Map;
+
+/**
+ * 帖子 ES 索引全量重建 (Mongo -> ES)
+ * 后台建一个新的版本索引 posts_v{时间}，灌完数据后把别名 posts 原子切过去，重建期间搜索照常读旧索引。
+ * 进度和断点存在 Redis，任务中断 (重启 / ES 抖动) 后可以从断点继续。
+ */
+public interface PostReindexService {
+
+    /**
+     * 提交后台重建任务
+     * @param resume 上一次任务没跑完时是否从断点继续 (false 则丢弃断点重新建索引)
+     * @return false 表示已有任务在执行
+     */
+    boolean start(boolean resume);
+
+    /**
+     * 当前 / 最近一次任务的进度
+     */
+    Map<String, Object> progress();
+}
@@ -19,8 +19,19 @@ public interface PostService {
      */
     PageResult<PostVO> getPostList(Integer page, Integer size, String tab, String tag, String sort);
 
+    /**
+     * 获取帖子流列表 (游标模式，App 无限下拉用)
+     * @param cursor 上一页返回的 nextCursor，首页传空串
+     * @param size 每页大小
+     * @return 只含 hasMore / nextCursor，不统计 total
+     */
+    PageResult<PostVO> getPostListByCursor(String cursor, Integer size, String tab, String tag, String sort);
+
     PageResult<PostVO> searchPosts(String keyword, String tag, Integer page, Integer size, String sort);
 
+    // 搜索 (游标模式：ES 走 search_after，降级 Mongo 走 keyset)
+    PageResult<PostVO> searchPostsByCursor(String keyword, String tag, String cursor, Integer size, String sort);
+
     /**
      * 获取用户的帖子列表
      * @param userId 用户ID
@@ -29,6 +40,9 @@ public interface PostService {
      */
     PageResult<PostVO> getUserPostList(String userId, Integer page, Integer size);
 
+    // 获取用户的帖子列表 (游标模式)
+    PageResult<PostVO> getUserPostListByCursor(String userId, String cursor, Integer size);
+
     // 获取帖子详情
     PostVO getPostDetail(String postId);
 
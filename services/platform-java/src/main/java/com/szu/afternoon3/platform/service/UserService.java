@@ -51,16 +51,24 @@ public interface UserService {
     /**
      * 搜索用户
      * @param keyword 昵称或邮箱关键词
-     * @return 按照双向关系状态排序的用户列表
+     * @param page 页码 (从 1 开始，默认 1)
+     * @param size 每页条数 (默认 20，最大 50)
+     * @return 按匹配度排序的用户列表 (带双向关注状态)
      */
-    List<UserSearchVO> searchUsers(String keyword);
+    List<UserSearchVO> searchUsers(String keyword, Integer page, Integer size);
 
     // 获取我的点赞列表
     PageResult<PostVO> getMyLikeList(Integer page, Integer size);
 
+    // 获取我的点赞列表 (游标模式，首页 cursor 传空串)
+    PageResult<PostVO> getMyLikeListByCursor(String cursor, Integer size);
+
     // 获取我的收藏列表
     PageResult<PostVO> getMyCollectList(Integer page, Integer size);
 
+    // 获取我的收藏列表 (游标模式)
+    PageResult<PostVO> getMyCollectListByCursor(String cursor, Integer size);
+
     // 获取我的评分列表
     PageResult<PostVO> getMyRateList(Integer page, Integer size);
 
@@ -70,6 +78,9 @@ public interface UserService {
     // 获取浏览历史
     PageResult<PostVO> getBrowsingHistory(Integer page, Integer size);
 
+    // 获取浏览历史 (游标模式，按浏览时间倒序)
+    PageResult<PostVO> getBrowsingHistoryByCursor(String cursor, Integer size);
+
     // 记录浏览历史 (给 PostService 调用)
     void recordBrowsingHistory(Long userId, String postId);
 
@@ -0,0 +1,43 @@
+package com.szu.afternoon3.platform.service;
+
+import com.szu.afternoon3.platform.entity.mongo.UserStatsDoc;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 用户统计 (user_stats 读模型)
+ * 主页 / 管理后台要的关注数、粉丝数、发帖数、获赞数等，原来每次都是好几条 count + 一次全量聚合，
+ * 现在由各事件消费者增量维护，读取只需一次主键查询。
+ * 增量走 CounterBuffer 写合并，有秒级延迟；漏掉的事件由定时对账从源数据重算修正。
+ */
+public interface UserStatsService {
+
+    /**
+     * 读取单个用户的统计，还没有统计文档时现算一份并落库
+     */
+    UserStatsDoc getStats(Long userId);
+
+    /**
+     * 批量读取 (一次 $in 查询)，缺的现算补齐
+     * @return userId -> 统计
+     */
+    Map<Long, UserStatsDoc> getStats(Collection<Long> userIds);
+
+    /**
+     * 计数增量，field 为 UserStatsDoc 的字段名 (如 "fanCount")
+     */
+    void inc(Long userId, String field, int delta);
+
+    /**
+     * 帖子被删：扣减作者的发帖数 / 获赞 / 被收藏 / 被评论，
+     * 以及在这篇帖子上点赞、收藏、评分、评论过的用户的发出计数。
+     * 必须在清理帖子关联数据之前调用。
+     */
+    void onPostDeleted(String postId);
+
+    /**
+     * 从源数据全量重算并覆盖
+     */
+    UserStatsDoc rebuild(Long userId);
+}
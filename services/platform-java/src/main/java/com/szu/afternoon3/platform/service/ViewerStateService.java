@@ -0,0 +1,49 @@
+package com.szu.afternoon3.platform.service;
+
+import lombok.Data;
+
+import java.util.*;
+
+/**
+ * 当前用户 (viewer) 对一批帖子的交互状态解析
+ * 点赞 / 收藏 / 关注作者 / 我的评分 四类查询并行执行，列表页耗时约等于最慢的一条，而不是四条之和；
+ * 同一个 HTTP 请求内已查过的帖子/作者直接复用，不重复查询。
+ */
+public interface ViewerStateService {
+
+    /**
+     * 批量解析交互状态
+     * @param viewerId 当前用户ID，未登录传 null (返回全 false 的空状态)
+     * @param postIds 帖子ID
+     * @param authorIds 作者ID (用于判断是否已关注)
+     * @param withScore 是否需要 myScore (详情页需要，普通列表不需要)
+     */
+    ViewerState resolve(Long viewerId, Collection<String> postIds, Collection<Long> authorIds, boolean withScore);
+
+    /**
+     * 解析结果 (只读视图)
+     */
+    @Data
+    class ViewerState {
+        private Set<String> likedPostIds = new HashSet<>();
+        private Set<String> collectedPostIds = new HashSet<>();
+        private Set<Long> followedUserIds = new HashSet<>();
+        private Map<String, Double> scores = new HashMap<>(); // postId -> 我的评分
+
+        public boolean isLiked(String postId) {
+            return likedPostIds.contains(postId);
+        }
+
+        public boolean isCollected(String postId) {
+            return collectedPostIds.contains(postId);
+        }
+
+        public boolean isFollowed(Long userId) {
+            return followedUserIds.contains(userId);
+        }
+
+        public Double getScore(String postId) {
+            return scores.get(postId);
+        }
+    }
+}
@@ -3,14 +3,15 @@ package com.szu.afternoon3.platform.service.impl;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.crypto.digest.BCrypt;
-import cn.hutool.poi.excel.ExcelUtil;
-import cn.hutool.poi.excel.ExcelWriter;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.szu.afternoon3.platform.common.UserContext;
 import com.szu.afternoon3.platform.common.MqPublisher;
+import com.szu.afternoon3.platform.component.ApiLogExporter;
+import com.szu.afternoon3.platform.component.HotTagBoard;
+import com.szu.afternoon3.platform.component.PostCache;
+import com.szu.afternoon3.platform.component.UserCardCache;
 import com.szu.afternoon3.platform.dto.*;
 import com.szu.afternoon3.platform.entity.User;
 import com.szu.afternoon3.platform.entity.mongo.*;
@@ -23,6 +24,8 @@ import com.szu.afternoon3.platform.config.RabbitConfig;
 import com.szu.afternoon3.platform.repository.PostRepository;
 import com.szu.afternoon3.platform.repository.UserFollowRepository;
 import com.szu.afternoon3.platform.service.AdminService;
+import com.szu.afternoon3.platform.service.DailyStatsService;
+import com.szu.afternoon3.platform.service.UserStatsService;
 import com.szu.afternoon3.platform.util.JwtUtil;
 import com.szu.afternoon3.platform.util.TencentImUtil;
 import com.szu.afternoon3.platform.vo.*;
@@ -46,13 +49,11 @@ import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.IOException;
-import java.net.URLEncoder;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import user.UserServiceGrpc;
 
@@ -77,6 +78,18 @@ public class AdminServiceImpl implements AdminService {
     private MongoTemplate mongoTemplate;
     @Autowired
     private MqPublisher mqPublisher; // 注入
+    @Autowired
+    private PostCache postCache;
+    @Autowired
+    private UserCardCache userCardCache;
+    @Autowired
+    private HotTagBoard hotTagBoard;
+    @Autowired
+    private UserStatsService userStatsService;
+    @Autowired
+    private DailyStatsService dailyStatsService;
+    @Autowired
+    private ApiLogExporter apiLogExporter;
 
     @GrpcClient("user-service")
     private UserServiceGrpc.UserServiceBlockingStub userStub;
@@ -186,13 +199,13 @@ public class AdminServiceImpl implements AdminService {
         // 3. [MongoDB] 批量聚合查询统计数据 (使用 $in 操作符)
 
         // 3.1 批量查询：帖子数、获赞数、平均分 (数据源: posts)
-        // Group by userId, Count(id), Sum(likeCount), Avg(ratingAverage)
+        // Group by userId, Count(id), Sum(likeCount), Avg(ratingSum / ratingCount)
         Aggregation postAgg = Aggregation.newAggregation(
                 Aggregation.match(Criteria.where("userId").in(userIds).and("isDeleted").is(0)),
                 Aggregation.group("userId")
                         .count().as("postCount")
                         .sum("likeCount").as("totalLikes")
-                        .avg("ratingAverage").as("avgScore")
+                        .avg(postRatingAverage()).as("avgScore")
                         .sum(ConditionalOperators.when(
                                 ComparisonOperators.valueOf("status").equalToValue(0)
                         ).then(1).otherwise(0)).as("pendingPostCount")
@@ -211,29 +224,8 @@ public class AdminServiceImpl implements AdminService {
                         item -> item // Value: 整个统计结果
                 ));
 
-        // 3.2 批量查询：粉丝数 (数据源: user_follows, targetUserId IN userIds)
-        Aggregation fanAgg = Aggregation.newAggregation(
-                Aggregation.match(Criteria.where("targetUserId").in(userIds)),
-                Aggregation.group("targetUserId").count().as("count")
-        );
-        Map<Long, Long> fanCountMap = mongoTemplate.aggregate(fanAgg, UserFollowDoc.class, Map.class)
-                .getMappedResults().stream()
-                .collect(Collectors.toMap(
-                        item -> ((Number) item.get("_id")).longValue(),
-                        item -> ((Number) item.get("count")).longValue()
-                ));
-
-        // 3.3 批量查询：关注数 (数据源: user_follows, userId IN userIds)
-        Aggregation followAgg = Aggregation.newAggregation(
-                Aggregation.match(Criteria.where("userId").in(userIds)),
-                Aggregation.group("userId").count().as("count")
-        );
-        Map<Long, Long> followCountMap = mongoTemplate.aggregate(followAgg, UserFollowDoc.class, Map.class)
-                .getMappedResults().stream()
-                .collect(Collectors.toMap(
-                        item -> ((Number) item.get("_id")).longValue(),
-                        item -> ((Number) item.get("count")).longValue()
-                ));
+        // 3.2 批量查询：粉丝数、关注数 (数据源: user_stats, 一次 $in)
+        Map<Long, UserStatsDoc> userStatsMap = userStatsService.getStats(userIds);
 
         // 4. [内存] 组装最终 VO
         List<AdminUserVO> records = new ArrayList<>();
@@ -263,8 +255,9 @@ public class AdminServiceImpl implements AdminService {
             }
 
             // 填充粉丝/关注
-            vo.setFanCount(fanCountMap.getOrDefault(uid, 0L));
-            vo.setFollowCount(followCountMap.getOrDefault(uid, 0L));
+            UserStatsDoc userStats = userStatsMap.get(uid);
+            vo.setFanCount(userStats != null ? userStats.getFanCount() : 0L);
+            vo.setFollowCount(userStats != null ? userStats.getFollowCount() : 0L);
 
             records.add(vo);
         }
@@ -289,6 +282,8 @@ public class AdminServiceImpl implements AdminService {
             }
             throw new AppException(ResultCode.SERVER_ERROR);
         }
+        // 其他节点的 L1 由 user-rpc 发出的 user.delete 广播清理
+        userCardCache.evict(userId);
 
         log.info("用户注销/删除成功: userId={}, reason={}", userId, reason);
     }
@@ -414,12 +409,15 @@ public class AdminServiceImpl implements AdminService {
                     .in(User::getId, userIds)
                     .select(User::getId, User::getEmail));
             Map<Long, String> emailMap = users.stream().collect(Collectors.toMap(User::getId, User::getEmail));
+            // AI 预审结论一次 $in 查出来，列表里直接展示
+            Map<String, AiAuditResultVO> verdicts = findAiVerdicts(docs);
 
             records = docs.stream().map(doc -> {
                 AdminPostVO vo = new AdminPostVO();
                 BeanUtils.copyProperties(doc, vo);
                 vo.setContent(StrUtil.subPre(doc.getContent(), 50));
                 vo.setUserEmail(emailMap.get(doc.getUserId()));
+                vo.setAiAudit(verdicts.get(doc.getId()));
                 return vo;
             }).collect(Collectors.toList());
         }
@@ -465,6 +463,7 @@ public class AdminServiceImpl implements AdminService {
         // simple formatting
         // TODO 修改时间
         vo.setCreatedAt(doc.getCreatedAt().toString());
+        vo.setAiAudit(findAiVerdicts(List.of(doc)).get(postId));
 
         return vo;
     }
@@ -490,28 +489,37 @@ public class AdminServiceImpl implements AdminService {
         }
         update.set("updatedAt", LocalDateTime.now());
         mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(postId)), update, PostDoc.class);
+        postCache.evict(postId);
 
         // 4. 【修改】发送异步事件 (填入操作人信息)
-        PostAuditEvent event = new PostAuditEvent(
-                post.getId(),
-                post.getUserId(),
-                post.getTitle(),
-                status,
-                reason,
-                adminId,    // set operatorId
-                adminName   // set operatorName
-        );
-        mqPublisher.publish(RabbitConfig.PLATFORM_EXCHANGE, "post.audit", event);
-
-
-        if (status == 1) {
-            PostAuditPassEvent passEvent = new PostAuditPassEvent();
-            BeanUtils.copyProperties(post,passEvent);
-
-            mqPublisher.publish(RabbitConfig.PLATFORM_EXCHANGE, "post.audit.pass", passEvent);
+        publishAuditEvents(post, status, reason, adminId, adminName);
+        log.info("管理员审核帖子 {}: status={}, reason={}, operator={}", postId, status, reason, adminName);
+    }
 
+    @Override
+    public boolean autoAuditPost(String postId, LocalDateTime postUpdatedAt, Integer status, String reason) {
+        // 条件更新：管理员已经处理过、帖子被删或被改过都不动
+        Update update = new Update();
+        update.set("status", status);
+        if (status == 2 && StrUtil.isNotBlank(reason)) {
+            update.set("rejectReason", reason);
         }
-        log.info("管理员审核帖子 {}: status={}, reason={}, operator={}", postId, status, reason, adminName);
+        update.set("updatedAt", LocalDateTime.now());
+        PostDoc post = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("id").is(postId)
+                        .and("status").is(0)
+                        .and("isDeleted").is(0)
+                        .and("updatedAt").is(postUpdatedAt)),
+                update, PostDoc.class);
+        if (post == null) {
+            return false;
+        }
+        postCache.evict(postId);
+
+        // 操作人记为系统 (0)，审核流水里能和人工审核区分开
+        publishAuditEvents(post, status, reason, 0L, "AI 自动审核");
+        log.info("AI 自动审核帖子 {}: status={}, reason={}", postId, status, reason);
+        return true;
     }
 
     @Override
@@ -527,97 +535,40 @@ public class AdminServiceImpl implements AdminService {
         vo.setRegisterTime(user.getCreatedAt());
 
         // =====================================================
-        // 2. [MongoDB] 查询主动行为 (Simple Count Queries)
+        // 2. [MongoDB] 主动行为 + 被动影响力 (user_stats 一次主键查询)
         // =====================================================
-
-        // 2.1 发帖数 (注意过滤已删除的)
-        long postCount = mongoTemplate.count(
-                Query.query(Criteria.where("userId").is(userId).and("isDeleted").is(0)),
-                PostDoc.class
-        );
-        vo.setPostCount(postCount);
-
-        // 2.2 关注数 (我关注了谁)
-        long followCount = mongoTemplate.count(
-                Query.query(Criteria.where("userId").is(userId)),
-                UserFollowDoc.class
-        );
-        vo.setFollowCount(followCount);
-
-        // 2.3 发出的点赞 (查询 post_likes 表)
-        long givenLike = mongoTemplate.count(
-                Query.query(Criteria.where("userId").is(userId)),
-                PostLikeDoc.class
-        );
-        vo.setGivenLikeCount(givenLike);
-
-        // 2.4 发出的收藏 (查询 post_collects 表)
-        long givenCollect = mongoTemplate.count(
-                Query.query(Criteria.where("userId").is(userId)),
-                PostCollectDoc.class
-        );
-        vo.setGivenCollectCount(givenCollect);
-
-        // 2.5 发出的评论 (查询 comments 表) - [新增实现]
-        long givenComment = mongoTemplate.count(
-                Query.query(Criteria.where("userId").is(userId)),
-                CommentDoc.class
-        );
-        vo.setGivenCommentCount(givenComment);
-
-        // 2.6 发出的评分 (查询 post_ratings 表) - [新增实现]
-        long givenRate = mongoTemplate.count(
-                Query.query(Criteria.where("userId").is(userId)),
-                PostRatingDoc.class
-        );
-        vo.setGivenRateCount(givenRate);
-
+        UserStatsDoc stats = userStatsService.getStats(userId);
+        vo.setPostCount(stats.getPostCount());
+        vo.setFollowCount(stats.getFollowCount());
+        vo.setGivenLikeCount(stats.getGivenLikeCount());
+        vo.setGivenCollectCount(stats.getGivenCollectCount());
+        vo.setGivenCommentCount(stats.getGivenCommentCount());
+        vo.setGivenRateCount(stats.getGivenRateCount());
+        vo.setFanCount(stats.getFanCount());
+        vo.setReceivedLikeCount(stats.getReceivedLikeCount());
+        vo.setReceivedCollectCount(stats.getReceivedCollectCount());
+        vo.setReceivedCommentCount(stats.getReceivedCommentCount());
 
         // =====================================================
-        // 3. [MongoDB] 查询被动影响力 (Aggregation)
+        // 3. [MongoDB] 帖子平均分 (各帖均分再取平均，没法增量维护，仍按帖子现算，走 userId 索引)
         // =====================================================
-
-        // 3.1 粉丝数 (谁关注了我) - 直接查关联表
-        long fanCount = mongoTemplate.count(
-                Query.query(Criteria.where("targetUserId").is(userId)),
-                UserFollowDoc.class
-        );
-        vo.setFanCount(fanCount);
-
-        // 3.2 聚合统计：获得的赞、收藏、评论、平均分
-        // 原理：在 posts 表中找到该用户所有未删除的帖子，对各项计数器求和(Sum)或求平均(Avg)
         Aggregation agg = Aggregation.newAggregation(
-                // 步骤A: 筛选该用户的有效帖子
                 Aggregation.match(Criteria.where("userId").is(userId).and("isDeleted").is(0)),
-
-                // 步骤B: 全局分组计算
-                Aggregation.group()
-                        .sum("likeCount").as("totalLikes")       // 累加获赞
-                        .sum("collectCount").as("totalCollects") // 累加被收藏
-                        .sum("commentCount").as("totalComments") // 累加被评论 [新增]
-                        .avg("ratingAverage").as("avgScore")     // 计算平均分
+                Aggregation.group().avg(postRatingAverage()).as("avgScore")
         );
-
-        AggregationResults<Map> results = mongoTemplate.aggregate(agg, PostDoc.class, Map.class);
-        Map<String, Object> map = results.getUniqueMappedResult();
-
-        if (map != null) {
-            // 注意：Mongo聚合返回的数字可能是 Integer, Long 或 Double，建议转 Number 处理
-            vo.setReceivedLikeCount(parseToLong(map.get("totalLikes")));
-            vo.setReceivedCollectCount(parseToLong(map.get("totalCollects")));
-            vo.setReceivedCommentCount(parseToLong(map.get("totalComments"))); // [新增]
-            vo.setAvgPostScore(parseToDouble(map.get("avgScore")));
-        } else {
-            // 如果该用户没发过帖子，各项数据为 0
-            vo.setReceivedLikeCount(0L);
-            vo.setReceivedCollectCount(0L);
-            vo.setReceivedCommentCount(0L);
-            vo.setAvgPostScore(0.0);
-        }
+        Map<String, Object> map = mongoTemplate.aggregate(agg, PostDoc.class, Map.class).getUniqueMappedResult();
+        vo.setAvgPostScore(map != null ? parseToDouble(map.get("avgScore")) : 0.0);
 
         return vo;
     }
 
+    // 辅助方法：帖子均分 (posts 只存总分和人数，没人评过记 0)
+    private AggregationExpression postRatingAverage() {
+        return ConditionalOperators.when(ComparisonOperators.valueOf("ratingCount").greaterThanValue(0))
+                .then(ArithmeticOperators.valueOf("ratingSum").divideBy("ratingCount"))
+                .otherwise(0);
+    }
+
     // 辅助方法：处理 Mongo 返回的数字类型转换安全问题
     private Long parseToLong(Object obj) {
         if (obj instanceof Number) {
@@ -634,6 +585,11 @@ public class AdminServiceImpl implements AdminService {
         }
         return 0.0;
     }
+
+    private static long nullToZero(Long value) {
+        return value == null ? 0L : value;
+    }
+
     @Value("${szu.oss.default-avatar}") private String defaultAvatar;
 
     @Override
@@ -686,6 +642,34 @@ public class AdminServiceImpl implements AdminService {
      * @param allowedDescriptions 允许的操作描述列表 (白名单)。如果为 null 或空，则查询所有。
      */
     private PageResult<ApiLogVO> queryLogs(String logType, LogSearchDTO dto, List<String> allowedDescriptions) {
+        Query query = buildLogQuery(logType, dto, allowedDescriptions);
+
+        // 计算总数 (用于分页)
+        long total = mongoTemplate.count(query, ApiLogDoc.class);
+
+        // 构建分页与排序 (按创建时间倒序)
+        int page = dto.getPage() > 0 ? dto.getPage() - 1 : 0;
+        Pageable pageable = PageRequest.of(page, dto.getSize(), Sort.by(Sort.Direction.DESC, "createdAt"));
+        query.with(pageable);
+
+        // 查询
+        List<ApiLogDoc> docs = mongoTemplate.find(query, ApiLogDoc.class);
+
+        // [新增] Doc 转 VO
+        List<ApiLogVO> records = docs.stream().map(doc -> {
+            ApiLogVO vo = new ApiLogVO();
+            BeanUtils.copyProperties(doc, vo);
+            return vo;
+        }).collect(Collectors.toList());
+
+        // 返回 PageResult
+        return PageResult.of(records, total, dto.getPage(), dto.getSize());
+    }
+
+    /**
+     * 日志查询条件 (列表和导出共用)
+     */
+    private Query buildLogQuery(String logType, LogSearchDTO dto, List<String> allowedDescriptions) {
         Query query = new Query();
 
         // 1. 强制固定日志类型 (Admin/User)
@@ -738,51 +722,15 @@ public class AdminServiceImpl implements AdminService {
                     .lte(dto.getEndTime()));
         }
 
-        // 5. 计算总数 (用于分页)
-        long total = mongoTemplate.count(query, ApiLogDoc.class);
-
-        // 6. 构建分页与排序 (按创建时间倒序)
-        int page = dto.getPage() > 0 ? dto.getPage() - 1 : 0;
-        Pageable pageable = PageRequest.of(page, dto.getSize(), Sort.by(Sort.Direction.DESC, "createdAt"));
-        query.with(pageable);
-
-        // 7. 查询
-        List<ApiLogDoc> docs = mongoTemplate.find(query, ApiLogDoc.class);
-
-        // 8. [新增] Doc 转 VO
-        List<ApiLogVO> records = docs.stream().map(doc -> {
-            ApiLogVO vo = new ApiLogVO();
-            BeanUtils.copyProperties(doc, vo);
-            return vo;
-        }).collect(Collectors.toList());
-
-        // 9. 返回 PageResult
-        return PageResult.of(records, total, dto.getPage(), dto.getSize());
+        return query;
     }
 
     /**
      * 统计热门标签 (基于浏览量总和排序)
+     * 直接读增量维护的标签排行 ZSet，不再每次全表 unwind 聚合
      */
     public List<TagStatVO> getHotTagStats() {
-        // 聚合管道
-        // 1. Unwind: 把 tags 数组拆开 (一帖多标 -> 多条记录)
-        // 2. Group: 按 tag 分组，sum(viewCount), count(id)
-        // 3. Sort: 按浏览量倒序
-        // 4. Limit: 前 20 个
-
-        Aggregation agg = Aggregation.newAggregation(
-                Aggregation.match(Criteria.where("isDeleted").is(0).and("status").is(1)), // 只算有效帖子
-                Aggregation.unwind("tags"),
-                Aggregation.group("tags")
-                        .sum("viewCount").as("totalViews")
-                        .count().as("postCount"),
-                Aggregation.sort(Sort.Direction.DESC, "totalViews"),
-                Aggregation.limit(20),
-                Aggregation.project("totalViews", "postCount").and("_id").as("tagName") // 映射字段
-        );
-
-        AggregationResults<TagStatVO> results = mongoTemplate.aggregate(agg, "posts", TagStatVO.class);
-        return results.getMappedResults();
+        return hotTagBoard.topTagStats(20);
     }
 
     /**
@@ -850,89 +798,46 @@ public class AdminServiceImpl implements AdminService {
     }
 
     @Override
-    public AdminStatsVO getDataStatistics() {
+    public AdminStatsVO getDataStatistics(int days) {
         AdminStatsVO vo = new AdminStatsVO();
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime todayStart = LocalDate.now().atStartOfDay();
-        LocalDateTime sevenDaysAgoStart = LocalDate.now().minusDays(6).atStartOfDay(); // 近7天包含今天
+        LocalDate today = LocalDate.now();
 
-        // ==========================================
-        // 1. 顶部卡片：今日数据
-        // ==========================================
-
-        // 1.1 今日新增用户 (PG)
-        Long todayUserCount = userMapper.selectCount(new LambdaQueryWrapper<User>()
-                .ge(User::getCreatedAt, todayStart));
-        vo.setTodayNewUsers(todayUserCount);
-
-        // 1.2 今日发帖量 (Mongo)
-        long todayPostCount = mongoTemplate.count(Query.query(
-                Criteria.where("createdAt").gte(todayStart)), PostDoc.class);
-        vo.setTodayNewPosts(todayPostCount);
+        // 1. 一次主键范围查询取出整段的日统计 (含今天)，天数再多也是 days 条文档
+        Map<String, DailyStatsDoc> daily = dailyStatsService.getRange(today.minusDays(days - 1), today);
 
+        // 准备日期列表 (作为 X 轴标准)
+        List<String> dates = new ArrayList<>();
+        for (int i = days - 1; i >= 0; i--) {
+            dates.add(today.minusDays(i).toString());
+        }
 
         // ==========================================
-        // 2. 图表数据：近7天趋势
+        // 2. 顶部卡片：今日数据
         // ==========================================
-        // 准备最近 7 天的日期列表 (作为 X 轴标准)
-        List<String> last7Days = new ArrayList<>();
-        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-        for (int i = 6; i >= 0; i--) {
-            last7Days.add(LocalDate.now().minusDays(i).format(fmt));
-        }
-
-        // 2.1 用户增长趋势 (PostgreSQL)
-        // SQL: SELECT TO_CHAR(created_at, 'YYYY-MM-DD') as date, COUNT(*) as count
-        //      FROM users WHERE created_at >= ? GROUP BY date
-        QueryWrapper<User> userQuery = new QueryWrapper<>();
-        userQuery.select("TO_CHAR(created_at, 'yyyy-MM-dd') as date", "COUNT(*) as count")
-                .ge("created_at", sevenDaysAgoStart)
-                .groupBy("TO_CHAR(created_at, 'yyyy-MM-dd')");
-
-        List<Map<String, Object>> userTrendRaw = userMapper.selectMaps(userQuery);
-        // 转 Map 方便查找: {"2023-12-01": 10, ...}
-        Map<String, Long> userTrendMap = userTrendRaw.stream().collect(Collectors.toMap(
-                m -> (String) m.get("date"),
-                m -> ((Number) m.get("count")).longValue()
-        ));
-
-        // 2.2 发帖趋势 (MongoDB Aggregation)
-        Aggregation agg = Aggregation.newAggregation(
-                Aggregation.match(Criteria.where("createdAt").gte(sevenDaysAgoStart)),
-                Aggregation.project().and(DateOperators.dateOf("createdAt").toString("%Y-%m-%d")).as("date"),
-                Aggregation.group("date").count().as("count")
-        );
-        List<Map> postTrendRaw = mongoTemplate.aggregate(agg, "posts", Map.class).getMappedResults();
-        Map<String, Long> postTrendMap = postTrendRaw.stream().collect(Collectors.toMap(
-                m -> (String) m.get("_id"), // group 的 key 是 _id
-                m -> ((Number) m.get("count")).longValue()
-        ));
-
-        // 2.3 组装并补 全 0 值
-        vo.setUserTrend(buildChartData(last7Days, userTrendMap));
-        vo.setPostTrend(buildChartData(last7Days, postTrendMap));
+        DailyStatsDoc todayStats = daily.get(today.toString());
+        vo.setTodayNewUsers(todayStats == null ? 0L : nullToZero(todayStats.getNewUsers()));
+        vo.setTodayNewPosts(todayStats == null ? 0L : nullToZero(todayStats.getNewPosts()));
 
+        // ==========================================
+        // 3. 图表数据：趋势 (没有文档的日期补 0)
+        // ==========================================
+        vo.setUserTrend(buildChartData(dates, daily, DailyStatsDoc::getNewUsers));
+        vo.setPostTrend(buildChartData(dates, daily, DailyStatsDoc::getNewPosts));
+        vo.setViewTrend(buildChartData(dates, daily, DailyStatsDoc::getViews));
+        vo.setLikeTrend(buildChartData(dates, daily, DailyStatsDoc::getLikes));
+        vo.setCollectTrend(buildChartData(dates, daily, DailyStatsDoc::getCollects));
+        vo.setCommentTrend(buildChartData(dates, daily, DailyStatsDoc::getComments));
+        vo.setFollowTrend(buildChartData(dates, daily, DailyStatsDoc::getFollows));
+        vo.setInteractionTrend(buildChartData(dates, daily, doc -> nullToZero(doc.getLikes())
+                + nullToZero(doc.getCollects()) + nullToZero(doc.getComments()) + nullToZero(doc.getFollows())));
 
         // ==========================================
-        // 3. 饼图：用户地区分布 (PostgreSQL)
+        // 4. 饼图：用户地区分布 (预聚合，不再每次 GROUP BY 全表)
         // ==========================================
-        // SQL: SELECT region, COUNT(*) as count FROM users GROUP BY region
-        QueryWrapper<User> regionQuery = new QueryWrapper<>();
-        regionQuery.select("region", "COUNT(*) as count")
-                .groupBy("region");
-        List<Map<String, Object>> regionRaw = userMapper.selectMaps(regionQuery);
-
-        List<AdminStatsVO.NameValueVO> regionStats = regionRaw.stream()
-                .map(m -> {
-                    String region = (String) m.get("region");
-                    // 处理空地区
-                    if (StrUtil.isBlank(region)) region = "未知";
-                    Long count = ((Number) m.get("count")).longValue();
-                    return new AdminStatsVO.NameValueVO(region, count);
-                })
+        List<AdminStatsVO.NameValueVO> regionStats = dailyStatsService.getRegionStats().entrySet().stream()
+                .map(e -> new AdminStatsVO.NameValueVO(e.getKey(), e.getValue()))
                 .sorted((a, b) -> Long.compare(b.getValue(), a.getValue())) // 按人数降序
                 .collect(Collectors.toList());
-
         vo.setRegionStats(regionStats);
 
         return vo;
@@ -941,13 +846,15 @@ public class AdminServiceImpl implements AdminService {
     /**
      * 辅助方法：根据日期基准列表，填充数据，补 0
      */
-    private AdminStatsVO.ChartDataVO buildChartData(List<String> dates, Map<String, Long> dataMap) {
+    private AdminStatsVO.ChartDataVO buildChartData(List<String> dates, Map<String, DailyStatsDoc> daily,
+                                                    Function<DailyStatsDoc, Long> getter) {
         AdminStatsVO.ChartDataVO chartData = new AdminStatsVO.ChartDataVO();
         chartData.setDates(dates);
 
         List<Long> values = new ArrayList<>();
         for (String date : dates) {
-            values.add(dataMap.getOrDefault(date, 0L));
+            DailyStatsDoc doc = daily.get(date);
+            values.add(doc == null ? 0L : nullToZero(getter.apply(doc)));
         }
         chartData.setValues(values);
         return chartData;
@@ -955,13 +862,7 @@ public class AdminServiceImpl implements AdminService {
 
     @Override
     public void exportLogs(LogSearchDTO dto, HttpServletResponse response) {
-        // 1. 准备导出参数
-        // 导出通常不需要翻页，而是“获取前 N 条”
-        // 我们复用分页逻辑，强制查第 1 页，每页 5000 条 (防止 OOM 的硬限制)
-        dto.setPage(1);
-        dto.setSize(5000);
-
-        // 2. 定义关键操作白名单 (与 getAdminLogs 保持一致)
+        // 1. 定义关键操作白名单 (与 getAdminLogs 保持一致)
         List<String> criticalActions = Arrays.asList(
                 "审核帖子",
                 "ai审核帖子",
@@ -969,51 +870,50 @@ public class AdminServiceImpl implements AdminService {
                 "删除用户"
         );
 
-        // 3. 【核心】复用查询逻辑
-        // 这样导出时也会自动应用：logType过滤、关键词搜索、时间范围、以及最重要的【白名单过滤】
-        PageResult<ApiLogVO> queryResult = queryLogs("ADMIN_OPER", dto, criticalActions);
-
-        // 4. 提取数据列表
-        // queryLogs 返回的是 Map，我们需要取出里面的 records
-        @SuppressWarnings("unchecked")
-        List<ApiLogVO> logs = queryResult.getRecords();
-
-        // 如果没有数据，给一个空列表防止报错
-        if (logs == null) {
-            logs = new ArrayList<>();
-        }
-
-        // 5. 转换为 Map 列表 (保持原有的 Excel 生成逻辑)
-        List<Map<String, Object>> rows = logs.stream().map(log -> {
-            Map<String, Object> row = new LinkedHashMap<>();
-            row.put("时间", log.getCreatedAt().toString());
-            row.put("操作人ID", log.getUserId());
-            row.put("角色", log.getRole());
-            row.put("模块", log.getModule());
-            row.put("操作内容", log.getDescription());
-            row.put("业务ID", log.getBizId());
-            row.put("请求路径", log.getUri());
-            row.put("请求方法", log.getMethod());
-            row.put("IP地址", log.getIp());
-            row.put("耗时(ms)", log.getTimeCost());
-            row.put("状态", log.getStatus() == 200 ? "成功" : "失败");
-            row.put("错误信息", log.getErrorMsg());
-            return row;
-        }).collect(Collectors.toList());
+        // 2. 复用查询条件 (logType过滤、关键词搜索、时间范围、白名单)，不分页、不 count
+        Query query = buildLogQuery("ADMIN_OPER", dto, criticalActions)
+                .with(Sort.by(Sort.Direction.DESC, "createdAt"));
 
-        // 6. 使用 Hutool 写入响应流 (保持不变)
-        try (ExcelWriter writer = ExcelUtil.getWriter(true)) {
-            writer.autoSizeColumnAll();
-            writer.write(rows, true);
+        // 3. 游标流式写出 (csv 不限行数；xlsx 有行数上限 app.log-export.xlsx-max-rows，超出时文件末尾和响应头会提示截断)
+        apiLogExporter.export(query, dto.getFormat(), dto.getExportId(), response);
+    }
 
-            response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet;charset=utf-8");
-            String fileName = URLEncoder.encode("管理员操作日志_" + System.currentTimeMillis() + ".xlsx", "UTF-8");
-            response.setHeader("Content-Disposition", "attachment;filename=" + fileName);
+    @Override
+    public void cancelLogExport(String exportId) {
+        apiLogExporter.cancel(exportId);
+    }
 
-            writer.flush(response.getOutputStream(), true);
-        } catch (IOException e) {
-            log.error("导出 Excel 失败", e);
-            throw new AppException(ResultCode.SYSTEM_ERROR, "导出文件失败");
+    /**
+     * 审核结果事件：post.audit (审核流水 + 通知作者)，通过时再发 post.audit.pass (同步 ES)
+     */
+    private void publishAuditEvents(PostDoc post, Integer status, String reason, Long operatorId, String operatorName) {
+        PostAuditEvent event = new PostAuditEvent(
+                post.getId(),
+                post.getUserId(),
+                post.getTitle(),
+                status,
+                reason,
+                operatorId,    // set operatorId
+                operatorName   // set operatorName
+        );
+        mqPublisher.publish(RabbitConfig.PLATFORM_EXCHANGE, "post.audit", event);
+
+        if (status == 1) {
+            PostAuditPassEvent passEvent = new PostAuditPassEvent();
+            BeanUtils.copyProperties(post, passEvent);
+
+            mqPublisher.publish(RabbitConfig.PLATFORM_EXCHANGE, "post.audit.pass", passEvent);
         }
     }
+
+    /**
+     * 查 AI 预审结论 (post_ai_audits)，只要和帖子当前版本对得上的
+     */
+    private Map<String, AiAuditResultVO> findAiVerdicts(List<PostDoc> posts) {
+        Map<String, PostDoc> postMap = posts.stream()
+                .collect(Collectors.toMap(PostDoc::getId, p -> p, (a, b) -> a));
+        return mongoTemplate.find(Query.query(Criteria.where("_id").in(postMap.keySet())), PostAiAuditDoc.class).stream()
+                .filter(audit -> audit.isCurrentFor(postMap.get(audit.getPostId())))
+                .collect(Collectors.toMap(PostAiAuditDoc::getPostId, PostAiAuditDoc::toVO));
+    }
 }
@@ -5,18 +5,13 @@ import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONArray;
 import cn.hutool.json.JSONUtil;
-import com.alibaba.dashscope.aigc.multimodalconversation.MultiModalConversation;
-import com.alibaba.dashscope.aigc.multimodalconversation.MultiModalConversationParam;
-import com.alibaba.dashscope.aigc.multimodalconversation.MultiModalConversationResult;
-import com.alibaba.dashscope.common.Message;
-import com.alibaba.dashscope.common.MultiModalMessage;
-import com.alibaba.dashscope.common.Role;
+import com.szu.afternoon3.platform.component.AiExecutor;
 import com.szu.afternoon3.platform.entity.mongo.PostDoc;
+import com.szu.afternoon3.platform.enums.AiScene;
 import com.szu.afternoon3.platform.service.AiService;
 import com.szu.afternoon3.platform.vo.AiAuditResultVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
@@ -27,16 +22,13 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 public class AiServiceImpl implements AiService {
 
-    @Value("${ai.dashscope.api-key}")
-    private String apiKey;
-
-    // 直接使用qwen-vl-plus
-    @Value("${ai.dashscope.model:qwen-vl-plus}")
-    private String modelName;
-
     @Autowired
     private StringRedisTemplate redisTemplate;
 
+    // 模型调用统一走 AiExecutor (独立线程池 + 超时 + 熔断 + 结果缓存)，失败时返回 null
+    @Autowired
+    private AiExecutor aiExecutor;
+
     private static final int LIMIT_SUMMARY_PER_DAY = 5; // 每天每人最多总结 5 次
     private static final int LIMIT_REPLY_PER_DAY = 10;   // 每天每人最多对话 10 次
 
@@ -68,83 +60,6 @@ public class AiServiceImpl implements AiService {
         return true;
     }
 
-    /**
-     * 通用 Qwen-VL 调用方法 (支持多模态)
-     * @param systemPrompt 系统人设
-     * @param userText 用户纯文本内容
-     * @param images 图片URL列表 (List<String>)
-     * @param video 视频URL (单个 String)
-     * @param temperature 随机性 (0.0 - 2.0)
-     */
-    private String callQwenVL(String systemPrompt, String userText, List<String> images, String video, double temperature) {
-        long startTime = System.currentTimeMillis();
-        String apiCallName = "QwenVL_Call";
-
-        try {
-            MultiModalConversation conversation = new MultiModalConversation();
-
-            // 1. 构建 System Message (人设)
-            MultiModalMessage systemMessage = MultiModalMessage.builder()
-                    .role(Role.SYSTEM.getValue())
-                    .content(List.of(Map.of("text", systemPrompt)))
-                    .build();
-
-            // 2. 构建 User Content (混合图、文、视频)
-            List<Map<String, Object>> contentList = new ArrayList<>();
-
-            // 2.1 添加视频 (如果有) - Qwen-VL 只能处理一个视频
-            if (StrUtil.isNotBlank(video)) {
-                contentList.add(Map.of("video", video));
-                contentList.add(Map.of("text", "（用户上传了一段视频）\n"));
-            }
-
-            // 2.2 添加图片 (支持多张 List<String>)
-            if (CollUtil.isNotEmpty(images)) {
-                for (String imgUrl : images) {
-                    if (StrUtil.isNotBlank(imgUrl)) {
-                        contentList.add(Map.of("image", imgUrl.trim()));
-                    }
-                }
-            }
-
-            // 2.3 添加文本
-            if (StrUtil.isNotBlank(userText)) {
-                contentList.add(Map.of("text", userText));
-            }
-
-            // 2.4 组装 User Message
-            MultiModalMessage userMessage = MultiModalMessage.builder()
-                    .role(Role.USER.getValue())
-                    .content(contentList)
-                    .build();
-
-            // 3. 构建参数
-            MultiModalConversationParam param = MultiModalConversationParam.builder()
-                    .model(modelName)
-                    .apiKey(apiKey)
-                    .messages(Arrays.asList(systemMessage, userMessage))
-                    // topP 控制生成多样性
-                    .topP(0.8)
-                    .build();
-
-            // 4. 发起调用
-            MultiModalConversationResult result = conversation.call(param);
-
-            // 5. 解析结果
-            String content = result.getOutput().getChoices().get(0).getMessage().getContent().get(0).get("text").toString();
-
-            long duration = System.currentTimeMillis() - startTime;
-            log.info("[{}] 调用成功，耗时: {} ms", apiCallName, duration);
-
-            return content;
-
-        } catch (Exception e) {
-            long duration = System.currentTimeMillis() - startTime;
-            log.error("[{}] 调用异常，耗时: {} ms", apiCallName, duration, e);
-            return null;
-        }
-    }
-
     /**
      * 场景 1: 生成标签
      * 传入图片后，AI 可以根据图片内容生成标签
@@ -172,19 +87,16 @@ public class AiServiceImpl implements AiService {
             images = new ArrayList<>(images.stream().limit(4).toList());
         }
 
-        String response = callQwenVL(systemPrompt, input, images, video, 0.5);
+        // 同样的内容生成过就直接用缓存；解析不出标签数组的结果不缓存
+        String response = aiExecutor.call(AiScene.TAGS, systemPrompt, input, images, video, 0.5, r -> !parseTags(r).isEmpty());
 
         if (StrUtil.isBlank(response)) return new ArrayList<>();
 
-        try {
-            // 清洗数据
-            String cleanJson = response.replace("```json", "").replace("```", "").trim();
-            JSONArray array = JSONUtil.parseArray(cleanJson);
-            return array.toList(String.class);
-        } catch (Exception e) {
+        List<String> tags = parseTags(response);
+        if (tags.isEmpty()) {
             log.warn("AI 标签解析失败: {}", response);
-            return new ArrayList<>();
         }
+        return tags;
     }
 
     /**
@@ -218,7 +130,7 @@ public class AiServiceImpl implements AiService {
         if (images != null && !images.isEmpty()) {
             images = new ArrayList<>(images.stream().limit(4).toList());
         }
-        return callQwenVL(systemPrompt, input, images, video, 1.2);
+        return aiExecutor.call(AiScene.SUMMARY, systemPrompt, input, images, video, 1.2, StrUtil::isNotBlank);
     }
 
     /**
@@ -261,13 +173,13 @@ public class AiServiceImpl implements AiService {
         }
 
 
-        // 将帖子的图片/视频传给 AI
-        return callQwenVL(systemPrompt, inputBuilder.toString(), images, postVideo, 1.3);
+        // 将帖子的图片/视频传给 AI (聊天回复每次都该不一样，不走缓存)
+        return aiExecutor.call(AiScene.REPLY, systemPrompt, inputBuilder.toString(), images, postVideo, 1.3, null);
     }
 
     /**
      * 场景 4: 内容安全审核
-     * 复用 callQwenVL 方法，实现统一调用
+     * 走 AiExecutor 统一调用，同样的帖子内容重复审核直接命中缓存
      */
     @Override
     public AiAuditResultVO auditPostContent(PostDoc post) {
@@ -313,33 +225,59 @@ public class AiServiceImpl implements AiService {
             }
         }
 
-        // 4. 复用 callQwenVL 发起调用
-        // temperature 设置为 0.1，让审核结果尽可能稳定，不要发散
-        String jsonResult = callQwenVL(systemPrompt, userText, images, video, 0.1);
+        // 4. 发起调用
+        // temperature 设置为 0.1，让审核结果尽可能稳定，不要发散；能解析出结论的结果才缓存
+        String jsonResult = aiExecutor.call(AiScene.AUDIT, systemPrompt, userText, images, video, 0.1, r -> parseAudit(r) != null);
 
         // 5. 结果处理与兜底
         if (StrUtil.isBlank(jsonResult)) {
             return AiAuditResultVO.builder()
                     .conclusion("REVIEW")
-                    .riskType("服务异常")
+                    .riskType(AiAuditResultVO.RISK_SERVICE_ERROR)
                     .confidence(0.0)
                     .suggestion("AI 服务未响应，请转人工审核")
                     .build();
         }
 
-        try {
-            // 6. JSON 清洗与反序列化
-            String cleanJson = cleanJsonStr(jsonResult);
-            return JSONUtil.toBean(cleanJson, AiAuditResultVO.class);
-        } catch (Exception e) {
-            log.error("[AI Audit] 结果解析失败, 原始内容: {}", jsonResult, e);
+        // 6. JSON 清洗与反序列化
+        AiAuditResultVO result = parseAudit(jsonResult);
+        if (result == null) {
+            log.error("[AI Audit] 结果解析失败, 原始内容: {}", jsonResult);
             return AiAuditResultVO.builder()
                     .conclusion("REVIEW")
-                    .riskType("解析错误")
+                    .riskType(AiAuditResultVO.RISK_PARSE_ERROR)
                     .confidence(0.0)
                     .suggestion("AI 返回格式异常，需人工复核")
                     .build();
         }
+        return result;
+    }
+
+    /**
+     * 辅助方法：解析标签数组，失败返回空列表
+     */
+    private List<String> parseTags(String response) {
+        if (StrUtil.isBlank(response)) return new ArrayList<>();
+        try {
+            // 清洗数据
+            String cleanJson = response.replace("```json", "").replace("```", "").trim();
+            JSONArray array = JSONUtil.parseArray(cleanJson);
+            return array.toList(String.class);
+        } catch (Exception e) {
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * 辅助方法：解析审核结果，格式不对 (解析失败或没有结论) 返回 null
+     */
+    private AiAuditResultVO parseAudit(String jsonResult) {
+        try {
+            AiAuditResultVO result = JSONUtil.toBean(cleanJsonStr(jsonResult), AiAuditResultVO.class);
+            return StrUtil.isBlank(result.getConclusion()) ? null : result;
+        } catch (Exception e) {
+            return null;
+        }
     }
 
     /**
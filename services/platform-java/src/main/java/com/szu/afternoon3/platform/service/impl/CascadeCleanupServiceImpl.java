@@ -0,0 +1,312 @@
+package com.szu.afternoon3.platform.service.impl;
+
+import cn.hutool.core.lang.UUID;
+import cn.hutool.core.thread.NamedThreadFactory;
+import cn.hutool.core.util.StrUtil;
+import com.szu.afternoon3.platform.entity.mongo.*;
+import com.szu.afternoon3.platform.enums.CascadeType;
+import com.szu.afternoon3.platform.service.CascadeCleanupService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 执行方式：
+ * 1. 每个目标一条 cascade_jobs 记录，按清理计划 (一串 "集合 + 关联字段") 一步步往下删
+ * 2. 每块先按关联字段查出最多 chunkSize 个 _id，再按 _id $in 删除，单次删除的规模是固定的
+ * 3. 每块删完按 docsPerSecond 补足间隔再删下一块，大帖子 / 大 V 注销也只是慢慢删，不会打满 Mongo
+ * 4. 每块删完写回进度并续约；进程挂掉后租约过期，定时轮询会把任务捡起来从当前步骤继续
+ *    (已删的不会再查到，重跑一块是幂等的)
+ */
+@Slf4j
+@Service
+public class CascadeCleanupServiceImpl implements CascadeCleanupService {
+
+    private static final String STATUS_PENDING = "PENDING";
+    private static final String STATUS_RUNNING = "RUNNING";
+    private static final String STATUS_DONE = "DONE";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // 每块删除的文档数
+    @Value("${app.cascade.chunk-size:500}")
+    private int chunkSize;
+
+    // 限速：每秒最多删除的文档数
+    @Value("${app.cascade.docs-per-second:2000}")
+    private int docsPerSecond;
+
+    // 执行中任务的租约时长，每删一块续一次
+    @Value("${app.cascade.lease-seconds:120}")
+    private long leaseSeconds;
+
+    // 出错后隔多久重试
+    @Value("${app.cascade.retry-delay-seconds:60}")
+    private long retryDelaySeconds;
+
+    // 本进程的持有者标识
+    private final String owner = UUID.fastUUID().toString(true);
+
+    private final ExecutorService worker =
+            Executors.newSingleThreadExecutor(new NamedThreadFactory("cascade-cleanup-", true));
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    @Override
+    public void submit(CascadeType type, String targetId) {
+        if (type == null || StrUtil.isBlank(targetId)) return;
+        String id = type + ":" + targetId;
+        LocalDateTime now = LocalDateTime.now();
+
+        CascadeJobDoc job = new CascadeJobDoc();
+        job.setId(id);
+        job.setType(type);
+        job.setTargetId(targetId);
+        job.setStatus(STATUS_PENDING);
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+        try {
+            mongoTemplate.insert(job);
+        } catch (DuplicateKeyException e) {
+            // 已有任务：没完成的让它继续；完成过的再从头跑一遍 (比如清理之后又产生了新的关联数据)
+            mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("_id").is(id).and("status").is(STATUS_DONE)),
+                    new Update().set("status", STATUS_PENDING).set("step", 0).set("updatedAt", now).unset("finishedAt"),
+                    CascadeJobDoc.class);
+        }
+        kick();
+    }
+
+    /**
+     * 兜底轮询：重启前没跑完的、别的节点挂掉留下的、出错等待重试的任务
+     */
+    @Scheduled(fixedDelayString = "${app.cascade.poll-interval-ms:30000}",
+            initialDelayString = "${app.cascade.poll-initial-delay-ms:20000}")
+    public void poll() {
+        kick();
+    }
+
+    // --- Private Methods ---
+
+    private void kick() {
+        if (!draining.compareAndSet(false, true)) return;
+        try {
+            worker.execute(() -> {
+                try {
+                    drain();
+                } finally {
+                    draining.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            draining.set(false);
+        }
+    }
+
+    private void drain() {
+        CascadeJobDoc job;
+        while (!Thread.currentThread().isInterrupted() && (job = claim()) != null) {
+            try {
+                run(job);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("级联清理失败 job={} step={}", job.getId(), job.getStep(), e);
+                // 保持 RUNNING，把租约推到重试时间点，到时轮询会重新捡起来
+                mongoTemplate.updateFirst(
+                        Query.query(Criteria.where("_id").is(job.getId()).and("owner").is(owner)),
+                        new Update()
+                                .set("lastError", StrUtil.subPre(e.getMessage(), 500))
+                                .set("leaseUntil", LocalDateTime.now().plusSeconds(retryDelaySeconds))
+                                .set("updatedAt", LocalDateTime.now()),
+                        CascadeJobDoc.class);
+            }
+        }
+    }
+
+    /**
+     * 领一个任务：等待中的，或执行中但租约已过期的 (先提交的先处理)
+     */
+    private CascadeJobDoc claim() {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = Query.query(new Criteria().orOperator(
+                Criteria.where("status").is(STATUS_PENDING),
+                Criteria.where("status").is(STATUS_RUNNING).and("leaseUntil").lt(now)
+        )).with(Sort.by(Sort.Direction.ASC, "createdAt"));
+        Update update = new Update()
+                .set("status", STATUS_RUNNING)
+                .set("owner", owner)
+                .set("leaseUntil", now.plusSeconds(leaseSeconds))
+                .set("updatedAt", now);
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), CascadeJobDoc.class);
+    }
+
+    private void run(CascadeJobDoc job) throws InterruptedException {
+        List<Step> plan = plan(job.getType());
+        Object key = job.getType() == CascadeType.USER ? Long.valueOf(job.getTargetId()) : job.getTargetId();
+        int step = job.getStep() == null ? 0 : job.getStep();
+        long deleted = job.getDeleted() == null ? 0L : job.getDeleted();
+
+        while (step < plan.size()) {
+            long begin = System.currentTimeMillis();
+            int n = deleteChunk(plan.get(step), key);
+            if (n == 0) {
+                step++;
+            } else {
+                deleted += n;
+            }
+            if (!checkpoint(job.getId(), step, deleted)) {
+                log.warn("级联清理任务已被其他节点接手，停止 job={}", job.getId());
+                return;
+            }
+            throttle(n, begin);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(job.getId()).and("owner").is(owner)),
+                new Update()
+                        .set("status", STATUS_DONE)
+                        .set("finishedAt", now)
+                        .set("updatedAt", now)
+                        .unset("leaseUntil")
+                        .unset("lastError"),
+                CascadeJobDoc.class);
+        log.info("级联清理完成 job={} deleted={}", job.getId(), deleted);
+    }
+
+    /**
+     * 删一块
+     * @return 删除的文档数，0 表示这一步删完了
+     */
+    private int deleteChunk(Step step, Object key) throws InterruptedException {
+        String collection = mongoTemplate.getCollectionName(step.type);
+        List<Object> ids = findIds(collection, Criteria.where(step.field).is(key));
+        if (ids.isEmpty()) return 0;
+
+        int extra = 0;
+        if (step.withCommentLikes) {
+            // 先删这批评论的点赞，再删评论；中途挂掉重跑时这批评论还在，会再删一遍它们剩下的点赞
+            List<String> commentIds = ids.stream().map(Object::toString).toList();
+            String likeCollection = mongoTemplate.getCollectionName(CommentLikeDoc.class);
+            List<Object> likeIds;
+            while (!(likeIds = findIds(likeCollection, Criteria.where("commentId").in(commentIds))).isEmpty()) {
+                long begin = System.currentTimeMillis();
+                int n = deleteIds(likeCollection, likeIds);
+                extra += n;
+                throttle(n, begin);
+            }
+        }
+        return deleteIds(collection, ids) + extra;
+    }
+
+    private List<Object> findIds(String collection, Criteria criteria) {
+        Query query = Query.query(criteria).limit(chunkSize);
+        query.fields().include("_id");
+        List<Object> ids = new ArrayList<>();
+        for (Document doc : mongoTemplate.find(query, Document.class, collection)) {
+            ids.add(doc.get("_id"));
+        }
+        return ids;
+    }
+
+    private int deleteIds(String collection, List<Object> ids) {
+        return (int) mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)), collection).getDeletedCount();
+    }
+
+    /**
+     * 写回进度并续约
+     * @return false 表示租约已经不在自己手里
+     */
+    private boolean checkpoint(String jobId, int step, long deleted) {
+        LocalDateTime now = LocalDateTime.now();
+        return mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(jobId).and("owner").is(owner).and("status").is(STATUS_RUNNING)),
+                new Update()
+                        .set("step", step)
+                        .set("deleted", deleted)
+                        .set("leaseUntil", now.plusSeconds(leaseSeconds))
+                        .set("updatedAt", now),
+                CascadeJobDoc.class
+        ).getMatchedCount() > 0;
+    }
+
+    /**
+     * 限速：删 n 条至少要花 n / docsPerSecond 秒，不够就睡够
+     */
+    private void throttle(int n, long begin) throws InterruptedException {
+        if (n <= 0 || docsPerSecond <= 0) return;
+        long wait = n * 1000L / docsPerSecond - (System.currentTimeMillis() - begin);
+        if (wait > 0) {
+            Thread.sleep(wait);
+        }
+    }
+
+    /**
+     * 清理计划：按顺序执行的 (集合, 关联字段)
+     */
+    private static List<Step> plan(CascadeType type) {
+        return switch (type) {
+            case POST -> List.of(
+                    new Step(PostLikeDoc.class, "postId"),
+                    new Step(PostCollectDoc.class, "postId"),
+                    new Step(PostRatingDoc.class, "postId"),
+                    new Step(CommentDoc.class, "postId", true));
+            case COMMENT -> List.of(
+                    new Step(CommentLikeDoc.class, "commentId"));
+            case USER -> List.of(
+                    new Step(UserFollowDoc.class, "userId"),        // 我关注了谁
+                    new Step(UserFollowDoc.class, "targetUserId"),  // 谁关注了我
+                    new Step(PostLikeDoc.class, "userId"),
+                    new Step(PostCollectDoc.class, "userId"),
+                    new Step(PostRatingDoc.class, "userId"),
+                    new Step(CommentLikeDoc.class, "userId"),
+                    new Step(NotificationDoc.class, "receiverId"),
+                    new Step(SearchHistoryDoc.class, "userId"),
+                    new Step(PostViewHistoryDoc.class, "userId"));
+        };
+    }
+
+    /**
+     * 清理计划里的一步
+     */
+    private static class Step {
+        private final Class<?> type;
+        private final String field;
+        // 删评论时顺带删掉这批评论的点赞 (点赞记录上没有 postId，只能按评论找)
+        private final boolean withCommentLikes;
+
+        private Step(Class<?> type, String field) {
+            this(type, field, false);
+        }
+
+        private Step(Class<?> type, String field, boolean withCommentLikes) {
+            this.type = type;
+            this.field = field;
+            this.withCommentLikes = withCommentLikes;
+        }
+    }
+}
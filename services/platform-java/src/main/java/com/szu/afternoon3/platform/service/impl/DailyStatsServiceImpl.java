@@ -0,0 +1,314 @@
+package com.szu.afternoon3.platform.service.impl;
+
+import cn.hutool.core.lang.UUID;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.szu.afternoon3.platform.common.RedisKey;
+import com.szu.afternoon3.platform.component.CounterBuffer;
+import com.szu.afternoon3.platform.entity.User;
+import com.szu.afternoon3.platform.entity.mongo.*;
+import com.szu.afternoon3.platform.mapper.UserMapper;
+import com.szu.afternoon3.platform.service.DailyStatsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Service
+public class DailyStatsServiceImpl implements DailyStatsService {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private UserMapper userMapper;
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+    @Autowired
+    private CounterBuffer counterBuffer;
+
+    @Value("${ai.bot.user-id}")
+    private Long botUserId;
+
+    // 每晚压实最近几天 (不含今天)，覆盖晚到的事件
+    @Value("${app.daily-stats.compact-days:2}")
+    private int compactDays;
+
+    // 首次部署时回填多少天的历史
+    @Value("${app.daily-stats.backfill-days:365}")
+    private int backfillDays;
+
+    // 新用户扫描每批条数
+    @Value("${app.daily-stats.user-scan-batch-size:500}")
+    private int userScanBatchSize;
+
+    @Value("${app.daily-stats.lock-ttl-seconds:600}")
+    private long lockTtlSeconds;
+
+    private static final String UNKNOWN_REGION = "未知";
+
+    // Mongo 里的 LocalDateTime 按服务器时区换算存储，按天分组时要换回同一个时区
+    private static final DateOperators.Timezone ZONE = DateOperators.Timezone.fromZone(ZoneId.systemDefault());
+
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) else return 0 end",
+            Long.class);
+
+    @Override
+    public void inc(String field, long delta) {
+        counterBuffer.incDailyStats(LocalDate.now().toString(), field, delta);
+    }
+
+    @Override
+    public Map<String, DailyStatsDoc> getRange(LocalDate from, LocalDate to) {
+        Query query = Query.query(Criteria.where("_id").gte(from.toString()).lte(to.toString()))
+                .with(Sort.by(Sort.Direction.ASC, "_id"));
+        Map<String, DailyStatsDoc> result = new LinkedHashMap<>();
+        for (DailyStatsDoc doc : mongoTemplate.find(query, DailyStatsDoc.class)) {
+            result.put(doc.getDate(), doc);
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getRegionStats() {
+        Map<Object, Object> raw = redisTemplate.opsForHash().entries(RedisKey.STATS_REGION_HASH);
+        if (raw.isEmpty()) {
+            // Redis 被清空过：现算一次，之后由新用户扫描增量维护
+            return rebuildRegionStats();
+        }
+        Map<String, Long> result = new HashMap<>();
+        raw.forEach((region, count) -> result.put((String) region, Long.parseLong((String) count)));
+        return result;
+    }
+
+    @Override
+    public void compact(LocalDate from, LocalDate to) {
+        if (!from.isBefore(to)) return;
+        LocalDateTime start = from.atStartOfDay();
+        LocalDateTime end = to.atStartOfDay();
+
+        // 每个来源一次按天分组，区间多长都只扫一遍
+        Map<String, Long> users = countUsersByDay(start, end);
+        Map<String, Long> posts = countByDay(PostDoc.class, start, end, null);
+        Map<String, Long> likes = countByDay(PostLikeDoc.class, start, end, null);
+        Map<String, Long> collects = countByDay(PostCollectDoc.class, start, end, null);
+        // 机器人评论不走评论事件，增量里没算，这里也排除掉
+        Map<String, Long> comments = countByDay(CommentDoc.class, start, end, Criteria.where("userId").ne(botUserId));
+        Map<String, Long> follows = countByDay(UserFollowDoc.class, start, end, null);
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DailyStatsDoc.class);
+        LocalDateTime now = LocalDateTime.now();
+        for (LocalDate day = from; day.isBefore(to); day = day.plusDays(1)) {
+            String date = day.toString();
+            // 用户 / 帖子不物理删除，按天计数就是当天新增次数，直接覆盖；
+            // 点赞 / 收藏 / 评论 / 关注取消后记录已删，按天计数只是下界，取 max 只补丢失的增量
+            // 浏览量没有逐条记录可重算，不覆盖
+            Update update = new Update()
+                    .set("newUsers", users.getOrDefault(date, 0L))
+                    .set("newPosts", posts.getOrDefault(date, 0L))
+                    .max("likes", likes.getOrDefault(date, 0L))
+                    .max("collects", collects.getOrDefault(date, 0L))
+                    .max("comments", comments.getOrDefault(date, 0L))
+                    .max("follows", follows.getOrDefault(date, 0L))
+                    .set("compactedAt", now);
+            bulk.upsert(Query.query(Criteria.where("_id").is(date)), update);
+        }
+        bulk.execute();
+    }
+
+    /**
+     * 每天凌晨压实：按源数据重算最近几天 (晚到 / 重复消费的事件在这里被纠正)，顺带重算地区分布
+     * 第一次运行 (回填起点那天还没有文档) 时把 backfill-days 天的历史一起补上
+     */
+    @Scheduled(cron = "${app.daily-stats.compact-cron:0 10 0 * * ?}")
+    public void compactRecent() {
+        withLock(() -> {
+            LocalDate today = LocalDate.now();
+            LocalDate from = today.minusDays(compactDays);
+            LocalDate backfillFrom = today.minusDays(backfillDays);
+            if (!mongoTemplate.exists(Query.query(Criteria.where("_id").is(backfillFrom.toString())), DailyStatsDoc.class)) {
+                from = backfillFrom;
+            }
+            compact(from, today);
+            rebuildRegionStats();
+            log.info("每日统计压实完成 {} ~ {}", from, today.minusDays(1));
+        });
+    }
+
+    /**
+     * 启动后检查一次：首次部署时不用等到凌晨才有历史数据
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        if (mongoTemplate.exists(Query.query(Criteria.where("_id").is(yesterday.toString())
+                .and("compactedAt").ne(null)), DailyStatsDoc.class)) {
+            return;
+        }
+        compactRecent();
+    }
+
+    /**
+     * 新用户计数：注册在 user-rpc，没有事件，按 id 游标增量扫 (主键范围查询)
+     * 昨天及以前由压实任务按 users 表回填；游标第一次 (或 Redis 清空后) 初始化时定到今天零点之前注册的最大 id，
+     * 今天的 newUsers 清零后从那里重扫，部署当天早些时候注册的用户不会漏，也不会重复
+     */
+    @Scheduled(fixedDelayString = "${app.daily-stats.user-scan-interval-ms:60000}",
+            initialDelayString = "${app.daily-stats.user-scan-initial-delay-ms:30000}")
+    public void scanNewUsers() {
+        withLock(() -> {
+            String saved = redisTemplate.opsForValue().get(RedisKey.STATS_USER_CURSOR);
+            long lastId = saved == null ? initUserCursor() : Long.parseLong(saved);
+            while (true) {
+                List<User> users = userMapper.selectList(new LambdaQueryWrapper<User>()
+                        .select(User::getId, User::getCreatedAt, User::getRegion)
+                        .gt(User::getId, lastId)
+                        .orderByAsc(User::getId)
+                        .last("LIMIT " + userScanBatchSize));
+                if (users.isEmpty()) break;
+
+                Map<String, Long> byDay = new HashMap<>();
+                Map<String, Long> byRegion = new HashMap<>();
+                for (User user : users) {
+                    LocalDate day = user.getCreatedAt() == null ? LocalDate.now() : user.getCreatedAt().toLocalDate();
+                    byDay.merge(day.toString(), 1L, Long::sum);
+                    byRegion.merge(regionName(user.getRegion()), 1L, Long::sum);
+                }
+
+                // 直接落库而不是走写合并：游标要在计数写进去之后才能前移
+                BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DailyStatsDoc.class);
+                byDay.forEach((date, count) ->
+                        bulk.upsert(Query.query(Criteria.where("_id").is(date)), new Update().inc("newUsers", count)));
+                bulk.execute();
+                // 地区分布还没建过时不增量，等读取 / 压实时整份重算
+                if (Boolean.TRUE.equals(redisTemplate.hasKey(RedisKey.STATS_REGION_HASH))) {
+                    byRegion.forEach((region, count) ->
+                            redisTemplate.opsForHash().increment(RedisKey.STATS_REGION_HASH, region, count));
+                }
+
+                lastId = users.get(users.size() - 1).getId();
+                redisTemplate.opsForValue().set(RedisKey.STATS_USER_CURSOR, String.valueOf(lastId));
+                if (users.size() < userScanBatchSize) break;
+            }
+        });
+    }
+
+    // --- Private Methods ---
+
+    /**
+     * @return 今天零点之前注册的最大用户 id
+     */
+    private long initUserCursor() {
+        LocalDate today = LocalDate.now();
+        List<User> last = userMapper.selectList(new LambdaQueryWrapper<User>()
+                .select(User::getId)
+                .lt(User::getCreatedAt, today.atStartOfDay())
+                .orderByDesc(User::getId)
+                .last("LIMIT 1"));
+        long cursor = last.isEmpty() ? 0L : last.get(0).getId();
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(today.toString())),
+                new Update().set("newUsers", 0L), DailyStatsDoc.class);
+        // 地区分布里可能已经算过今天的用户，删掉等读取 / 压实时整份重算
+        redisTemplate.delete(RedisKey.STATS_REGION_HASH);
+        redisTemplate.opsForValue().set(RedisKey.STATS_USER_CURSOR, String.valueOf(cursor));
+        log.info("新用户扫描游标初始化 id={}", cursor);
+        return cursor;
+    }
+
+    /**
+     * 扫描和压实都会写 newUsers，用同一把锁串行，也保证多副本只有一个在跑
+     */
+    private void withLock(Runnable task) {
+        String token = UUID.fastUUID().toString(true);
+        Boolean locked = redisTemplate.opsForValue()
+                .setIfAbsent(RedisKey.STATS_DAILY_LOCK, token, lockTtlSeconds, TimeUnit.SECONDS);
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        try {
+            task.run();
+        } catch (Exception e) {
+            log.error("每日统计任务失败", e);
+        } finally {
+            redisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(RedisKey.STATS_DAILY_LOCK), token);
+        }
+    }
+
+    // SQL: SELECT TO_CHAR(created_at, 'YYYY-MM-DD') as date, COUNT(*) as count FROM users WHERE created_at in [start, end) GROUP BY date
+    private Map<String, Long> countUsersByDay(LocalDateTime start, LocalDateTime end) {
+        QueryWrapper<User> query = new QueryWrapper<>();
+        query.select("TO_CHAR(created_at, 'yyyy-MM-dd') as date", "COUNT(*) as count")
+                .ge("created_at", start)
+                .lt("created_at", end)
+                .groupBy("TO_CHAR(created_at, 'yyyy-MM-dd')");
+        Map<String, Long> result = new HashMap<>();
+        for (Map<String, Object> row : userMapper.selectMaps(query)) {
+            result.put((String) row.get("date"), ((Number) row.get("count")).longValue());
+        }
+        return result;
+    }
+
+    private Map<String, Long> countByDay(Class<?> type, LocalDateTime start, LocalDateTime end, Criteria extra) {
+        Criteria criteria = Criteria.where("createdAt").gte(start).lt(end);
+        if (extra != null) {
+            criteria = new Criteria().andOperator(criteria, extra);
+        }
+        Aggregation agg = Aggregation.newAggregation(
+                Aggregation.match(criteria),
+                Aggregation.project().and(DateOperators.dateOf("createdAt").withTimezone(ZONE).toString("%Y-%m-%d")).as("date"),
+                Aggregation.group("date").count().as("count")
+        );
+        Map<String, Long> result = new HashMap<>();
+        for (Map<?, ?> row : mongoTemplate.aggregate(agg, type, Map.class).getMappedResults()) {
+            // group 的 key 是 _id
+            result.put((String) row.get("_id"), ((Number) row.get("count")).longValue());
+        }
+        return result;
+    }
+
+    /**
+     * 地区分布整份重算：写到临时 key 再改名，读取方不会看到半份数据
+     */
+    private Map<String, Long> rebuildRegionStats() {
+        QueryWrapper<User> query = new QueryWrapper<>();
+        query.select("region", "COUNT(*) as count").groupBy("region");
+        Map<String, Long> result = new HashMap<>();
+        for (Map<String, Object> row : userMapper.selectMaps(query)) {
+            result.merge(regionName((String) row.get("region")), ((Number) row.get("count")).longValue(), Long::sum);
+        }
+        if (result.isEmpty()) return result;
+
+        String tmpKey = RedisKey.STATS_REGION_HASH + ":rebuild:" + IdUtil.fastSimpleUUID();
+        Map<String, String> values = new HashMap<>();
+        result.forEach((region, count) -> values.put(region, String.valueOf(count)));
+        redisTemplate.opsForHash().putAll(tmpKey, values);
+        redisTemplate.rename(tmpKey, RedisKey.STATS_REGION_HASH);
+        return result;
+    }
+
+    private String regionName(String region) {
+        return StrUtil.isBlank(region) ? UNKNOWN_REGION : region;
+    }
+}
@@ -0,0 +1,86 @@
+package com.szu.afternoon3.platform.service.impl;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.dashscope.aigc.multimodalconversation.MultiModalConversation;
+import com.alibaba.dashscope.aigc.multimodalconversation.MultiModalConversationParam;
+import com.alibaba.dashscope.aigc.multimodalconversation.MultiModalConversationResult;
+import com.alibaba.dashscope.common.MultiModalMessage;
+import com.alibaba.dashscope.common.Role;
+import com.szu.afternoon3.platform.enums.AiScene;
+import com.szu.afternoon3.platform.service.AiModelClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * 通义千问 VL (DashScope) 客户端
+ */
+@Service
+@ConditionalOnProperty(name = "ai.client", havingValue = "dashscope", matchIfMissing = true)
+public class DashScopeAiModelClient implements AiModelClient {
+
+    @Value("${ai.dashscope.api-key}")
+    private String apiKey;
+
+    // 直接使用qwen-vl-plus
+    @Value("${ai.dashscope.model:qwen-vl-plus}")
+    private String modelName;
+
+    @Override
+    public String chat(AiScene scene, String systemPrompt, String userText, List<String> images, String video, double temperature) throws Exception {
+        MultiModalConversation conversation = new MultiModalConversation();
+
+        // 1. 构建 System Message (人设)
+        MultiModalMessage systemMessage = MultiModalMessage.builder()
+                .role(Role.SYSTEM.getValue())
+                .content(List.of(Map.of("text", systemPrompt)))
+                .build();
+
+        // 2. 构建 User Content (混合图、文、视频)
+        List<Map<String, Object>> contentList = new ArrayList<>();
+
+        // 2.1 添加视频 (如果有) - Qwen-VL 只能处理一个视频
+        if (StrUtil.isNotBlank(video)) {
+            contentList.add(Map.of("video", video));
+            contentList.add(Map.of("text", "（用户上传了一段视频）\n"));
+        }
+
+        // 2.2 添加图片 (支持多张 List<String>)
+        if (CollUtil.isNotEmpty(images)) {
+            for (String imgUrl : images) {
+                if (StrUtil.isNotBlank(imgUrl)) {
+                    contentList.add(Map.of("image", imgUrl.trim()));
+                }
+            }
+        }
+
+        // 2.3 添加文本
+        if (StrUtil.isNotBlank(userText)) {
+            contentList.add(Map.of("text", userText));
+        }
+
+        // 2.4 组装 User Message
+        MultiModalMessage userMessage = MultiModalMessage.builder()
+                .role(Role.USER.getValue())
+                .content(contentList)
+                .build();
+
+        // 3. 构建参数
+        MultiModalConversationParam param = MultiModalConversationParam.builder()
+                .model(modelName)
+                .apiKey(apiKey)
+                .messages(Arrays.asList(systemMessage, userMessage))
+                // topP 控制生成多样性
+                .topP(0.8)
+                .build();
+
+        // 4. 发起调用 (阻塞，由 AiExecutor 放到 AI 线程池里并控制超时)
+        MultiModalConversationResult result = conversation.call(param);
+
+        // 5. 解析结果
+        return result.getOutput().getChoices().get(0).getMessage().getContent().get(0).get("text").toString();
+    }
+}
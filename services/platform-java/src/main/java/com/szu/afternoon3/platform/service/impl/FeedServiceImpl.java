@@ -0,0 +1,346 @@
+package com.szu.afternoon3.platform.service.impl;
+
+import cn.hutool.core.collection.CollUtil;
+import com.szu.afternoon3.platform.common.PageCursor;
+import com.szu.afternoon3.platform.common.RedisKey;
+import com.szu.afternoon3.platform.entity.mongo.PostDoc;
+import com.szu.afternoon3.platform.entity.mongo.UserFollowDoc;
+import com.szu.afternoon3.platform.enums.ResultCode;
+import com.szu.afternoon3.platform.exception.AppException;
+import com.szu.afternoon3.platform.repository.UserFollowRepository;
+import com.szu.afternoon3.platform.service.FeedService;
+import com.szu.afternoon3.platform.vo.PageResult;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class FeedServiceImpl implements FeedService {
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private UserFollowRepository userFollowRepository;
+
+    // 收件箱/发件箱最大长度，超出的旧帖子被裁掉 (更深的翻页意义不大)
+    @Value("${app.feed.inbox-max-size:1000}")
+    private int inboxMaxSize;
+
+    // 粉丝数超过该阈值视为大V，发帖不做写扩散，改为读时拉取
+    @Value("${app.feed.celebrity-threshold:5000}")
+    private long celebrityThreshold;
+
+    // 收件箱过期时间：长期不登录的用户收件箱自然过期，下次读取时重建
+    @Value("${app.feed.inbox-ttl-days:7}")
+    private long inboxTtlDays;
+
+    // 写扩散每批处理的粉丝数 (一批 = 一次 Mongo 查询 + 一次 Lua 调用)
+    @Value("${app.feed.fanout-batch-size:500}")
+    private int fanOutBatchSize;
+
+    // 空收件箱占位成员 (score=0，读取时按 score>=1 自然排除)
+    private static final String EMPTY_MARKER = "_";
+
+    /**
+     * 只推送给收件箱已存在的粉丝 (活跃用户)，不存在的等其下次读取时重建
+     * KEYS: 粉丝收件箱 key 列表; ARGV[1]=score, ARGV[2]=postId, ARGV[3]=最大长度
+     */
+    private static final DefaultRedisScript<Long> FAN_OUT_SCRIPT = new DefaultRedisScript<>(
+            "local n = 0\n" +
+            "for _, key in ipairs(KEYS) do\n" +
+            "  if redis.call('EXISTS', key) == 1 then\n" +
+            "    redis.call('ZADD', key, ARGV[1], ARGV[2])\n" +
+            "    redis.call('ZREMRANGEBYRANK', key, 0, -(tonumber(ARGV[3]) + 1))\n" +
+            "    n = n + 1\n" +
+            "  end\n" +
+            "end\n" +
+            "return n", Long.class);
+
+    /**
+     * 收件箱 + 关注的大V 发件箱去重后的帖子数 (同一帖子在多个 ZSET 里只算一次，score>=1 排除占位成员)
+     * KEYS[1]=临时 key, KEYS[2..]=收件箱和发件箱
+     */
+    private static final DefaultRedisScript<Long> FEED_TOTAL_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('ZUNIONSTORE', KEYS[1], #KEYS - 1, unpack(KEYS, 2))\n" +
+            "local n = redis.call('ZCOUNT', KEYS[1], 1, '+inf')\n" +
+            "redis.call('DEL', KEYS[1])\n" +
+            "return n", Long.class);
+
+    @Override
+    public void fanOut(String postId, Long authorId) {
+        long score = postScore(postId);
+
+        // 1. 发件箱：所有作者都写，用于大V 读扩散和关注/取关时的增删
+        String outboxKey = RedisKey.FEED_OUTBOX_ZSET + authorId;
+        redisTemplate.opsForZSet().add(outboxKey, postId, score);
+        redisTemplate.opsForZSet().removeRange(outboxKey, 0, -(inboxMaxSize + 1));
+
+        // 2. 大V 判定：粉丝数走 targetUserId 索引计数
+        long fanCount = userFollowRepository.countByTargetUserId(authorId);
+        if (fanCount > celebrityThreshold) {
+            redisTemplate.opsForSet().add(RedisKey.FEED_CELEBRITY_SET, String.valueOf(authorId));
+            log.info("大V 发帖跳过写扩散: authorId={}, fans={}", authorId, fanCount);
+            return;
+        }
+        redisTemplate.opsForSet().remove(RedisKey.FEED_CELEBRITY_SET, String.valueOf(authorId));
+
+        // 3. 写扩散：按 _id 游标分批遍历粉丝，避免 skip 深翻页
+        String[] argv = {String.valueOf(score), postId, String.valueOf(inboxMaxSize)};
+        ObjectId lastId = null;
+        int pushed = 0;
+        while (true) {
+            Criteria criteria = Criteria.where("targetUserId").is(authorId);
+            if (lastId != null) {
+                criteria.and("_id").gt(lastId);
+            }
+            Query query = Query.query(criteria)
+                    .with(Sort.by(Sort.Direction.ASC, "_id"))
+                    .limit(fanOutBatchSize);
+            query.fields().include("userId");
+            List<UserFollowDoc> fans = mongoTemplate.find(query, UserFollowDoc.class);
+            if (fans.isEmpty()) break;
+
+            List<String> keys = fans.stream()
+                    .map(f -> RedisKey.FEED_INBOX_ZSET + f.getUserId())
+                    .collect(Collectors.toList());
+            Long n = redisTemplate.execute(FAN_OUT_SCRIPT, keys, (Object[]) argv);
+            pushed += n == null ? 0 : n.intValue();
+
+            if (fans.size() < fanOutBatchSize) break;
+            lastId = new ObjectId(fans.get(fans.size() - 1).getId());
+        }
+        log.info("关注流写扩散完成: postId={}, authorId={}, fans={}, pushed={}", postId, authorId, fanCount, pushed);
+    }
+
+    @Override
+    public PageResult<String> getFollowFeedPostIds(Long userId, Integer page, Integer size) {
+        int pageNum = (page == null || page < 1) ? 0 : page - 1;
+        int pageSize = (size == null || size < 1) ? 20 : size;
+        int need = (pageNum + 1) * pageSize;
+
+        String inboxKey = RedisKey.FEED_INBOX_ZSET + userId;
+        if (!Boolean.TRUE.equals(redisTemplate.hasKey(inboxKey))) {
+            rebuildInbox(userId, inboxKey);
+        }
+        redisTemplate.expire(inboxKey, inboxTtlDays, TimeUnit.DAYS);
+
+        ZSetOperations<String, String> zSetOps = redisTemplate.opsForZSet();
+
+        // 1. 推：收件箱 (score>=1 排除占位成员)
+        List<ZSetOperations.TypedTuple<String>> candidates = new ArrayList<>();
+        Set<ZSetOperations.TypedTuple<String>> inbox =
+                zSetOps.reverseRangeByScoreWithScores(inboxKey, 1, Double.MAX_VALUE, 0, need);
+        if (inbox != null) candidates.addAll(inbox);
+
+        // 2. 拉：我关注的大V 的发件箱 (大V 集合很小，$in 代价可控)
+        List<String> outboxKeys = new ArrayList<>();
+        for (Long celebrityId : followedCelebrities(userId)) {
+            String outboxKey = RedisKey.FEED_OUTBOX_ZSET + celebrityId;
+            Set<ZSetOperations.TypedTuple<String>> outbox =
+                    zSetOps.reverseRangeByScoreWithScores(outboxKey, 1, Double.MAX_VALUE, 0, need);
+            if (outbox != null) candidates.addAll(outbox);
+            outboxKeys.add(outboxKey);
+        }
+        long total = countFeed(inboxKey, outboxKeys);
+
+        // 3. 合并：按时间倒序、去重后截取当前页
+        List<String> ids = candidates.stream()
+                .filter(t -> t.getValue() != null && t.getScore() != null)
+                .sorted(Comparator.comparingDouble((ZSetOperations.TypedTuple<String> t) -> t.getScore()).reversed())
+                .map(ZSetOperations.TypedTuple::getValue)
+                .distinct()
+                .skip((long) pageNum * pageSize)
+                .limit(pageSize)
+                .collect(Collectors.toList());
+
+        return PageResult.of(ids, total, pageNum + 1, pageSize);
+    }
+
+    @Override
+    public PageResult<String> getFollowFeedPostIdsByCursor(Long userId, PageCursor cursor, Integer size) {
+        int pageSize = (size == null || size < 1) ? 20 : size;
+        if (cursor != null && (cursor.getTime() == null || cursor.getId() == null)) {
+            throw new AppException(ResultCode.PARAM_ERROR, "分页游标无效");
+        }
+
+        String inboxKey = RedisKey.FEED_INBOX_ZSET + userId;
+        if (!Boolean.TRUE.equals(redisTemplate.hasKey(inboxKey))) {
+            rebuildInbox(userId, inboxKey);
+        }
+        redisTemplate.expire(inboxKey, inboxTtlDays, TimeUnit.DAYS);
+
+        List<String> keys = new ArrayList<>();
+        keys.add(inboxKey);
+        for (Long celebrityId : followedCelebrities(userId)) {
+            keys.add(RedisKey.FEED_OUTBOX_ZSET + celebrityId);
+        }
+
+        // 1. 每个 ZSET 只取游标之后的 pageSize+1 条，不再从头 offset
+        //    score 是整数毫秒：严格小于用 max=score-1；同分的单独取出来按 member 比较
+        ZSetOperations<String, String> zSetOps = redisTemplate.opsForZSet();
+        List<ZSetOperations.TypedTuple<String>> candidates = new ArrayList<>();
+        double max = cursor == null ? Double.MAX_VALUE : cursor.getTime() - 1;
+        for (String key : keys) {
+            Set<ZSetOperations.TypedTuple<String>> part =
+                    zSetOps.reverseRangeByScoreWithScores(key, 1, max, 0, pageSize + 1);
+            if (part != null) candidates.addAll(part);
+            if (cursor != null) {
+                Set<ZSetOperations.TypedTuple<String>> ties =
+                        zSetOps.reverseRangeByScoreWithScores(key, cursor.getTime(), cursor.getTime());
+                if (ties != null) {
+                    ties.stream()
+                            .filter(t -> t.getValue() != null && t.getValue().compareTo(cursor.getId()) < 0)
+                            .forEach(candidates::add);
+                }
+            }
+        }
+
+        // 2. 合并：score 倒序，同分按 member 倒序 (与游标比较规则一致)，去重后多取一条判断 hasMore
+        Map<String, ZSetOperations.TypedTuple<String>> merged = new LinkedHashMap<>();
+        candidates.stream()
+                .filter(t -> t.getValue() != null && t.getScore() != null)
+                .sorted(Comparator.comparingDouble((ZSetOperations.TypedTuple<String> t) -> t.getScore()).reversed()
+                        .thenComparing(ZSetOperations.TypedTuple::getValue, Comparator.reverseOrder()))
+                .forEach(t -> merged.putIfAbsent(t.getValue(), t));
+
+        List<ZSetOperations.TypedTuple<String>> page = merged.values().stream()
+                .limit(pageSize + 1)
+                .collect(Collectors.toList());
+        boolean hasMore = page.size() > pageSize;
+        if (hasMore) {
+            page = page.subList(0, pageSize);
+        }
+
+        List<String> ids = page.stream().map(ZSetOperations.TypedTuple::getValue).collect(Collectors.toList());
+        String nextCursor = null;
+        if (!page.isEmpty()) {
+            ZSetOperations.TypedTuple<String> last = page.get(page.size() - 1);
+            PageCursor next = new PageCursor();
+            next.setTime(last.getScore().longValue());
+            next.setId(last.getValue());
+            nextCursor = next.encode();
+        }
+        return PageResult.ofCursor(ids, pageSize, hasMore, nextCursor);
+    }
+
+    @Override
+    public void onFollow(Long userId, Long targetUserId) {
+        String inboxKey = RedisKey.FEED_INBOX_ZSET + userId;
+        // 收件箱不存在时无需处理，下次读取会整体重建
+        if (!Boolean.TRUE.equals(redisTemplate.hasKey(inboxKey))) return;
+        // 大V 的帖子读时从发件箱拉取，不进收件箱
+        if (Boolean.TRUE.equals(redisTemplate.opsForSet().isMember(RedisKey.FEED_CELEBRITY_SET, String.valueOf(targetUserId)))) {
+            return;
+        }
+
+        List<PostDoc> posts = findRecentPosts(Collections.singletonList(targetUserId));
+        if (posts.isEmpty()) return;
+
+        Set<ZSetOperations.TypedTuple<String>> tuples = posts.stream()
+                .map(p -> ZSetOperations.TypedTuple.of(p.getId(), (double) postScore(p.getId())))
+                .collect(Collectors.toSet());
+        redisTemplate.opsForZSet().add(inboxKey, tuples);
+        redisTemplate.opsForZSet().removeRange(inboxKey, 0, -(inboxMaxSize + 1));
+    }
+
+    @Override
+    public void onUnfollow(Long userId, Long targetUserId) {
+        String inboxKey = RedisKey.FEED_INBOX_ZSET + userId;
+        if (!Boolean.TRUE.equals(redisTemplate.hasKey(inboxKey))) return;
+
+        List<PostDoc> posts = findRecentPosts(Collections.singletonList(targetUserId));
+        if (posts.isEmpty()) return;
+        redisTemplate.opsForZSet().remove(inboxKey, posts.stream().map(PostDoc::getId).toArray());
+    }
+
+    // --- Private Methods ---
+
+    /**
+     * 收件箱冷启动：按原有方式查一次关注作者的最新帖子写入收件箱
+     * 只在收件箱缺失 (新用户 / 过期 / Redis 重启) 时执行
+     */
+    private void rebuildInbox(Long userId, String inboxKey) {
+        List<UserFollowDoc> follows = userFollowRepository.findFollowingIds(userId);
+        Set<String> celebrities = redisTemplate.opsForSet().members(RedisKey.FEED_CELEBRITY_SET);
+
+        List<Long> authorIds = follows.stream()
+                .map(UserFollowDoc::getTargetUserId)
+                .filter(id -> celebrities == null || !celebrities.contains(String.valueOf(id)))
+                .collect(Collectors.toList());
+
+        Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
+        tuples.add(ZSetOperations.TypedTuple.of(EMPTY_MARKER, 0.0));
+        if (CollUtil.isNotEmpty(authorIds)) {
+            for (PostDoc p : findRecentPosts(authorIds)) {
+                tuples.add(ZSetOperations.TypedTuple.of(p.getId(), (double) postScore(p.getId())));
+            }
+        }
+        redisTemplate.opsForZSet().add(inboxKey, tuples);
+        log.info("关注流收件箱重建: userId={}, authors={}, posts={}", userId, authorIds.size(), tuples.size() - 1);
+    }
+
+    /**
+     * 关注流总数：没有关注大V 时就是收件箱条数；有的话在 Redis 里做一次并集去重计数，
+     * 大V 之前不是大V 时写扩散进收件箱的帖子同时也在发件箱里，直接相加会重复计数
+     */
+    private long countFeed(String inboxKey, List<String> outboxKeys) {
+        Long n;
+        if (outboxKeys.isEmpty()) {
+            n = redisTemplate.opsForZSet().count(inboxKey, 1, Double.MAX_VALUE);
+        } else {
+            List<String> keys = new ArrayList<>();
+            keys.add(inboxKey + ":total");
+            keys.add(inboxKey);
+            keys.addAll(outboxKeys);
+            n = redisTemplate.execute(FEED_TOTAL_SCRIPT, keys);
+        }
+        return n == null ? 0 : n;
+    }
+
+    private List<Long> followedCelebrities(Long userId) {
+        Set<String> celebrities = redisTemplate.opsForSet().members(RedisKey.FEED_CELEBRITY_SET);
+        if (CollUtil.isEmpty(celebrities)) {
+            return Collections.emptyList();
+        }
+        List<Long> celebrityIds = celebrities.stream().map(Long::valueOf).collect(Collectors.toList());
+        return userFollowRepository.findByUserIdAndTargetUserIdIn(userId, celebrityIds).stream()
+                .map(UserFollowDoc::getTargetUserId)
+                .collect(Collectors.toList());
+    }
+
+    private List<PostDoc> findRecentPosts(Collection<Long> authorIds) {
+        Query query = Query.query(Criteria.where("userId").in(authorIds).and("status").is(1).and("isDeleted").is(0))
+                .with(Sort.by(Sort.Direction.DESC, "createdAt"))
+                .limit(inboxMaxSize);
+        query.fields().include("_id");
+        return mongoTemplate.find(query, PostDoc.class);
+    }
+
+    /**
+     * 帖子排序分值：ObjectId 自带创建时间 (秒级，换算成毫秒)，免去回查 createdAt
+     * 写扩散、重建、关注补录都必须用这一个函数：混用 createdAt 毫秒时同一秒内的帖子会错序，
+     * 同一个帖子在收件箱和发件箱里分值不同，游标翻页时会重复或漏掉
+     */
+    private long postScore(String postId) {
+        if (ObjectId.isValid(postId)) {
+            return new ObjectId(postId).getDate().getTime();
+        }
+        return System.currentTimeMillis();
+    }
+}
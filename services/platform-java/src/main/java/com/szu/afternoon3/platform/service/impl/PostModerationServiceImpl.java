@@ -0,0 +1,243 @@
+package com.szu.afternoon3.platform.service.impl;
+
+import cn.hutool.core.thread.NamedThreadFactory;
+import cn.hutool.core.util.StrUtil;
+import com.szu.afternoon3.platform.entity.mongo.PostAiAuditDoc;
+import com.szu.afternoon3.platform.entity.mongo.PostDoc;
+import com.szu.afternoon3.platform.enums.ResultCode;
+import com.szu.afternoon3.platform.exception.AppException;
+import com.szu.afternoon3.platform.service.AdminService;
+import com.szu.afternoon3.platform.service.AiService;
+import com.szu.afternoon3.platform.service.PostModerationService;
+import com.szu.afternoon3.platform.vo.AiAuditResultVO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 执行方式：
+ * 1. post.create / post.update 消费时调 submit，只把帖子 ID 丢进预审线程池就返回，不占 MQ 消费者
+ * 2. 线程池并发数固定 (默认 2)，实际的模型调用再经过 AiExecutor 的超时 / 熔断 / 缓存
+ * 3. 执行时重新读帖子：已经不是待审核 (管理员处理过 / 被删) 就跳过；审核的是执行时的最新内容
+ * 4. 线程池满、AI 调用失败、节点重启丢掉的，由定时扫描待审核帖子补上
+ */
+@Slf4j
+@Service
+public class PostModerationServiceImpl implements PostModerationService {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private AiService aiService;
+    @Autowired
+    private AdminService adminService;
+
+    // 没开审核时帖子直接发布，不需要预审
+    @Value("${app.post.audit-enable:false}")
+    private boolean auditEnable;
+
+    @Value("${app.ai-moderation.enable:true}")
+    private boolean enable;
+
+    // 预审并发数 (同时在跑的 AI 审核数)
+    @Value("${app.ai-moderation.concurrency:2}")
+    private int concurrency;
+
+    @Value("${app.ai-moderation.queue-capacity:200}")
+    private int queueCapacity;
+
+    // 定时扫描每轮最多补提交的帖子数
+    @Value("${app.ai-moderation.scan-batch-size:50}")
+    private int scanBatchSize;
+
+    // 是否自动处置高置信度的结论 (默认只给建议，处置留给管理员)
+    @Value("${app.ai-moderation.auto-apply:false}")
+    private boolean autoApply;
+
+    @Value("${app.ai-moderation.auto-pass-confidence:0.95}")
+    private double autoPassConfidence;
+
+    @Value("${app.ai-moderation.auto-block-confidence:0.95}")
+    private double autoBlockConfidence;
+
+    private ThreadPoolExecutor workers;
+    // 排队中 / 执行中的帖子，同一篇不重复提交
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        workers = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new NamedThreadFactory("post-moderation-", true),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    @Override
+    public void submit(String postId) {
+        if (!enable || !auditEnable || StrUtil.isBlank(postId)) return;
+        if (!inFlight.add(postId)) return;
+        try {
+            workers.execute(() -> {
+                try {
+                    moderate(postId);
+                } catch (Exception e) {
+                    log.error("AI 预审失败 postId={}", postId, e);
+                } finally {
+                    inFlight.remove(postId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(postId);
+            log.warn("AI 预审队列已满，等待定时扫描补上 postId={}", postId);
+        }
+    }
+
+    @Override
+    public AiAuditResultVO audit(String postId, boolean refresh) {
+        PostDoc post = mongoTemplate.findById(postId, PostDoc.class);
+        if (post == null) {
+            throw new AppException(ResultCode.RESOURCE_NOT_FOUND);
+        }
+        if (post.getIsDeleted() != null && post.getIsDeleted() == 1) {
+            throw new AppException(ResultCode.RESOURCE_NOT_FOUND, "帖子已被删除");
+        }
+
+        // 1. 预审过当前版本就直接返回
+        if (!refresh) {
+            PostAiAuditDoc doc = mongoTemplate.findById(postId, PostAiAuditDoc.class);
+            if (doc != null && doc.isCurrentFor(post)) {
+                return doc.toVO();
+            }
+        }
+
+        // 2. 同步审核一次并保存 (兜底结论不保存)
+        AiAuditResultVO result = aiService.auditPostContent(post);
+        if (!result.isFallback()) {
+            save(post, result, null);
+        }
+        return result;
+    }
+
+    /**
+     * 兜底扫描：待审核但还没有当前版本结论的帖子，补提交到预审线程池
+     * 待审核积压一般不多，按 _id 分页把 (ID, updatedAt) 过一遍，凑够一批就停
+     */
+    @Scheduled(fixedDelayString = "${app.ai-moderation.scan-interval-ms:60000}",
+            initialDelayString = "${app.ai-moderation.scan-initial-delay-ms:30000}")
+    public void scan() {
+        if (!enable || !auditEnable) return;
+        int room = Math.min(scanBatchSize, workers.getQueue().remainingCapacity());
+        if (room <= 0) return;
+
+        int submitted = 0;
+        String lastId = null;
+        while (submitted < room) {
+            Criteria criteria = Criteria.where("status").is(0).and("isDeleted").is(0);
+            if (lastId != null) {
+                criteria.and("_id").gt(lastId);
+            }
+            Query query = Query.query(criteria).with(Sort.by(Sort.Direction.ASC, "_id")).limit(500);
+            query.fields().include("_id", "updatedAt", "status");
+            List<PostDoc> page = mongoTemplate.find(query, PostDoc.class);
+            if (page.isEmpty()) break;
+            lastId = page.get(page.size() - 1).getId();
+
+            Set<String> audited = currentVerdicts(page);
+            for (PostDoc post : page) {
+                if (submitted >= room) break;
+                if (audited.contains(post.getId()) || inFlight.contains(post.getId())) continue;
+                submit(post.getId());
+                submitted++;
+            }
+        }
+        if (submitted > 0) {
+            log.info("AI 预审扫描补提交 {} 篇待审核帖子", submitted);
+        }
+    }
+
+    // --- Private Methods ---
+
+    private void moderate(String postId) {
+        PostDoc post = mongoTemplate.findById(postId, PostDoc.class);
+        if (post == null || !Objects.equals(post.getStatus(), 0) || !Objects.equals(post.getIsDeleted(), 0)) {
+            return;
+        }
+        // 已经有当前版本的结论 (比如扫描和事件撞在一起)
+        PostAiAuditDoc existing = mongoTemplate.findById(postId, PostAiAuditDoc.class);
+        if (existing != null && existing.isCurrentFor(post)) {
+            return;
+        }
+
+        AiAuditResultVO result = aiService.auditPostContent(post);
+        if (result.isFallback()) {
+            log.warn("AI 预审未拿到结论，等待下一轮扫描重试 postId={} reason={}", postId, result.getRiskType());
+            return;
+        }
+
+        Integer autoStatus = autoApply ? decide(result) : null;
+        if (autoStatus != null) {
+            String reason = autoStatus == 2 ? "AI 审核判定违规：" + StrUtil.nullToDefault(result.getSuggestion(), result.getRiskType()) : null;
+            if (!adminService.autoAuditPost(postId, post.getUpdatedAt(), autoStatus, reason)) {
+                // 预审期间管理员处理过 / 帖子被改过，不再自动处置
+                autoStatus = null;
+            }
+        }
+        save(post, result, autoStatus);
+        log.info("AI 预审完成 postId={} conclusion={} confidence={} autoStatus={}",
+                postId, result.getConclusion(), result.getConfidence(), autoStatus);
+    }
+
+    /**
+     * 高置信度的 PASS 自动通过，BLOCK 自动拒绝；REVIEW 和置信度不够的留给管理员
+     */
+    private Integer decide(AiAuditResultVO result) {
+        double confidence = result.getConfidence() == null ? 0 : result.getConfidence();
+        if ("PASS".equals(result.getConclusion()) && confidence >= autoPassConfidence) return 1;
+        if ("BLOCK".equals(result.getConclusion()) && confidence >= autoBlockConfidence) return 2;
+        return null;
+    }
+
+    private void save(PostDoc post, AiAuditResultVO result, Integer autoStatus) {
+        PostAiAuditDoc doc = new PostAiAuditDoc();
+        doc.setPostId(post.getId());
+        doc.setConclusion(result.getConclusion());
+        doc.setRiskType(result.getRiskType());
+        doc.setConfidence(result.getConfidence());
+        doc.setSuggestion(result.getSuggestion());
+        doc.setPostUpdatedAt(post.getUpdatedAt());
+        doc.setAutoStatus(autoStatus);
+        doc.setCreatedAt(LocalDateTime.now());
+        mongoTemplate.save(doc);
+    }
+
+    /**
+     * 这批帖子里已经有当前版本结论的 ID
+     */
+    private Set<String> currentVerdicts(List<PostDoc> posts) {
+        Map<String, PostDoc> postMap = posts.stream()
+                .collect(Collectors.toMap(PostDoc::getId, Function.identity()));
+        return mongoTemplate.find(Query.query(Criteria.where("_id").in(postMap.keySet())), PostAiAuditDoc.class).stream()
+                .filter(doc -> doc.isCurrentFor(postMap.get(doc.getPostId())))
+                .map(PostAiAuditDoc::getPostId)
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,509 @@
+package com.szu.afternoon3.platform.service.impl;
+
+import cn.hutool.core.lang.UUID;
+import cn.hutool.core.thread.NamedThreadFactory;
+import cn.hutool.core.util.StrUtil;
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import com.szu.afternoon3.platform.common.RedisKey;
+import com.szu.afternoon3.platform.entity.es.PostEsDoc;
+import com.szu.afternoon3.platform.entity.mongo.PostDoc;
+import com.szu.afternoon3.platform.service.PostReindexService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.index.AliasAction;
+import org.springframework.data.elasticsearch.core.index.AliasActionParameters;
+import org.springframework.data.elasticsearch.core.index.AliasActions;
+import org.springframework.data.elasticsearch.core.index.Settings;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * 流程：
+ * 1. 建新索引 posts_v{时间}，灌数据期间关掉 refresh、副本数置 0
+ * 2. 按 _id 升序游标扫 Mongo (不用 skip 分页)，每 batchSize 条一个 bulk，最多 parallelism 个批次同时在途；
+ *    批次按提交顺序确认，确认一批就把断点 (该批最后一个 _id) 写进 Redis
+ * 3. 恢复 refresh / 副本设置
+ * 4. 追平：重建期间 sidecar 的增量同步写的还是旧索引，按 updatedAt 把这段时间变过的帖子补写 / 删除
+ * 5. 一次 _aliases 请求把 posts 从旧索引挪到新索引 (旧的 posts 还是实体索引时顺带删掉它，首次迁移用)
+ * 6. 再追平一次切换前那一小段，清理更早的版本索引
+ */
+@Slf4j
+@Service
+public class PostReindexServiceImpl implements PostReindexService {
+
+    // 搜索 / sidecar / 计数刷新读写的都是这个名字，重建后它是指向版本索引的别名
+    private static final String ALIAS = "posts";
+    private static final String INDEX_PREFIX = "posts_v";
+    private static final DateTimeFormatter VERSION_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private static final String STATUS_BUILDING = "BUILDING";
+    private static final String STATUS_CATCHING_UP = "CATCHING_UP";
+    private static final String STATUS_DONE = "DONE";
+    private static final String STATUS_FAILED = "FAILED";
+
+    // 单批 bulk 的最多尝试次数
+    private static final int MAX_ATTEMPTS = 3;
+
+    // 写进 ES 的字段，其余 (resources、计数等) 不读
+    private static final String[] ES_FIELDS = {
+            "userId", "userNickname", "userAvatar", "title", "content", "tags",
+            "cover", "type", "coverWidth", "coverHeight", "likeCount", "createdAt", "status", "isDeleted"
+    };
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+    @Autowired
+    private ElasticsearchClient elasticsearchClient;
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    // 每个 bulk 请求的文档数，同时也是 Mongo 游标每次拉取的条数
+    @Value("${app.es-reindex.batch-size:500}")
+    private int batchSize;
+
+    // 同时在途的 bulk 批次数
+    @Value("${app.es-reindex.parallelism:4}")
+    private int parallelism;
+
+    // 灌完数据后恢复的刷新间隔 / 副本数
+    @Value("${app.es-reindex.refresh-interval:1s}")
+    private String refreshInterval;
+
+    @Value("${app.es-reindex.replicas:0}")
+    private int replicas;
+
+    // 追平时 updatedAt 往前多放的余量，覆盖各节点时钟差
+    @Value("${app.es-reindex.catch-up-slack-seconds:60}")
+    private long catchUpSlackSeconds;
+
+    // 锁的最长持有时间，每确认一批续期一次；进程挂掉后到期释放，之后可以续跑
+    @Value("${app.es-reindex.lock-ttl-seconds:600}")
+    private long lockTtlSeconds;
+
+    // 切换后保留上一个版本索引，出问题时可以手动把别名切回去
+    @Value("${app.es-reindex.keep-previous:true}")
+    private boolean keepPrevious;
+
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('EXPIRE', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+
+    // 重建任务本身在这个线程上跑，不占 HTTP 请求线程
+    private final ExecutorService jobExecutor =
+            Executors.newSingleThreadExecutor(new NamedThreadFactory("es-reindex-", true));
+    // 并发发 bulk 请求
+    private ExecutorService bulkExecutor;
+
+    @PostConstruct
+    public void init() {
+        bulkExecutor = Executors.newFixedThreadPool(Math.max(1, parallelism), new NamedThreadFactory("es-reindex-bulk-", true));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+        bulkExecutor.shutdownNow();
+    }
+
+    @Override
+    public boolean start(boolean resume) {
+        String token = UUID.fastUUID().toString(true);
+        Boolean locked = redisTemplate.opsForValue()
+                .setIfAbsent(RedisKey.ES_REINDEX_LOCK, token, lockTtlSeconds, TimeUnit.SECONDS);
+        if (!Boolean.TRUE.equals(locked)) {
+            return false;
+        }
+        try {
+            jobExecutor.execute(() -> run(resume, token));
+        } catch (RejectedExecutionException e) {
+            unlock(token);
+            throw e;
+        }
+        return true;
+    }
+
+    @Override
+    public Map<String, Object> progress() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        redisTemplate.opsForHash().entries(RedisKey.ES_REINDEX_STATE)
+                .forEach((k, v) -> result.put(k.toString(), v));
+        result.put("running", Boolean.TRUE.equals(redisTemplate.hasKey(RedisKey.ES_REINDEX_LOCK)));
+
+        long total = parseLong(result.get("total"));
+        if (total > 0) {
+            result.put("percent", Math.min(100, parseLong(result.get("indexed")) * 100 / total));
+        }
+        return result;
+    }
+
+    // --- Private Methods ---
+
+    private void run(boolean resume, String token) {
+        long begin = System.currentTimeMillis();
+        try {
+            // 1. 续跑或新建
+            Map<Object, Object> state = redisTemplate.opsForHash().entries(RedisKey.ES_REINDEX_STATE);
+            Checkpoint cp;
+            if (resume && isResumable(state)) {
+                cp = new Checkpoint((String) state.get("index"), parseLong(state.get("startedAt")));
+                cp.lastId = (String) state.get("lastId");
+                cp.indexed = parseLong(state.get("indexed"));
+                cp.failed = parseLong(state.get("failed"));
+                log.info("ES 索引重建从断点继续 index={} lastId={} indexed={}", cp.index, cp.lastId, cp.indexed);
+            } else {
+                dropUnfinished(state);
+                cp = new Checkpoint(INDEX_PREFIX + LocalDateTime.now().format(VERSION_FORMAT), System.currentTimeMillis());
+                createIndex(cp.index);
+                redisTemplate.delete(RedisKey.ES_REINDEX_STATE);
+                log.info("ES 索引重建开始 index={}", cp.index);
+            }
+            long total = mongoTemplate.count(Query.query(liveCriteria()), PostDoc.class);
+            saveState(Map.of(
+                    "status", STATUS_BUILDING,
+                    "index", cp.index,
+                    "startedAt", String.valueOf(cp.startedAt),
+                    "total", String.valueOf(total),
+                    "message", ""));
+
+            // 2. 全量灌数据
+            copyAll(cp, token);
+
+            // 3. 恢复正常的刷新 / 副本设置
+            saveState(Map.of("status", STATUS_CATCHING_UP));
+            elasticsearchClient.indices().putSettings(r -> r
+                    .index(cp.index)
+                    .settings(s -> s
+                            .refreshInterval(t -> t.time(refreshInterval))
+                            .numberOfReplicas(String.valueOf(replicas))));
+
+            // 4. 追平重建期间的变更
+            long secondFrom = System.currentTimeMillis();
+            int caughtUp = catchUp(cp.index, cp.startedAt);
+            elasticsearchOperations.indexOps(IndexCoordinates.of(cp.index)).refresh();
+
+            // 5. 原子切换别名
+            List<String> previous = swapAlias(cp.index);
+            log.info("ES 别名已切换 {} -> {} (原: {})", ALIAS, cp.index, previous);
+
+            // 6. 切换之后的写入已经直接进新索引，这里只补切换前那一小段；失败也不影响切换结果
+            try {
+                caughtUp += catchUp(cp.index, secondFrom);
+                cleanup(cp.index, previous);
+            } catch (Exception e) {
+                log.warn("ES 索引切换后的收尾失败 index={}: {}", cp.index, e.getMessage());
+            }
+
+            String msg = String.format("重建完成，共 %d 条 (失败 %d 条，追平 %d 条)，耗时 %d ms",
+                    cp.indexed, cp.failed, caughtUp, System.currentTimeMillis() - begin);
+            saveState(Map.of(
+                    "status", STATUS_DONE,
+                    "finishedAt", String.valueOf(System.currentTimeMillis()),
+                    "message", msg));
+            log.info("ES 索引重建完成 index={} {}", cp.index, msg);
+        } catch (Exception e) {
+            // 断点保留着，下次带 resume 提交即可续跑
+            log.error("ES 索引重建失败", e);
+            saveState(Map.of(
+                    "status", STATUS_FAILED,
+                    "finishedAt", String.valueOf(System.currentTimeMillis()),
+                    "message", StrUtil.nullToEmpty(e.getMessage())));
+        } finally {
+            unlock(token);
+        }
+    }
+
+    private void copyAll(Checkpoint cp, String token) throws Exception {
+        Query query = Query.query(liveCriteria());
+        if (StrUtil.isNotBlank(cp.lastId)) {
+            query.addCriteria(Criteria.where("_id").gt(new ObjectId(cp.lastId)));
+        }
+        query.with(Sort.by(Sort.Direction.ASC, "_id")).cursorBatchSize(batchSize);
+        query.fields().include(ES_FIELDS);
+
+        IndexCoordinates coordinates = IndexCoordinates.of(cp.index);
+        Deque<Batch> inFlight = new ArrayDeque<>();
+        try (Stream<PostDoc> stream = mongoTemplate.stream(query, PostDoc.class)) {
+            Iterator<PostDoc> it = stream.iterator();
+            List<PostDoc> chunk = new ArrayList<>(batchSize);
+            while (it.hasNext()) {
+                chunk.add(it.next());
+                if (chunk.size() >= batchSize || !it.hasNext()) {
+                    List<PostDoc> docs = chunk;
+                    Future<Integer> future = bulkExecutor.submit(() -> bulkIndex(docs, coordinates));
+                    inFlight.add(new Batch(future, docs.get(docs.size() - 1).getId(), docs.size()));
+                    chunk = new ArrayList<>(batchSize);
+                }
+                // 在途批次满了就等最早的那批，断点只能按顺序往前推
+                if (inFlight.size() >= parallelism) {
+                    confirm(inFlight.poll(), cp, token);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                confirm(inFlight.poll(), cp, token);
+            }
+        } catch (Exception e) {
+            inFlight.forEach(batch -> batch.future.cancel(true));
+            throw e;
+        }
+    }
+
+    private void confirm(Batch batch, Checkpoint cp, String token) throws Exception {
+        int failed;
+        try {
+            failed = batch.future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+        cp.lastId = batch.lastId;
+        cp.indexed += batch.size - failed;
+        cp.failed += failed;
+        saveState(Map.of(
+                "lastId", cp.lastId,
+                "indexed", String.valueOf(cp.indexed),
+                "failed", String.valueOf(cp.failed)));
+        redisTemplate.execute(RENEW_SCRIPT, Collections.singletonList(RedisKey.ES_REINDEX_LOCK),
+                token, String.valueOf(lockTtlSeconds));
+    }
+
+    /**
+     * 写一批，部分失败时只重试失败的那些
+     * @return 最终仍然失败的条数
+     */
+    private int bulkIndex(List<PostDoc> docs, IndexCoordinates coordinates) throws InterruptedException {
+        List<IndexQuery> pending = docs.stream().map(this::toIndexQuery).toList();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                elasticsearchOperations.bulkIndex(pending, coordinates);
+                return 0;
+            } catch (BulkFailureException e) {
+                Set<String> failedIds = e.getFailedDocuments().keySet();
+                pending = pending.stream().filter(q -> failedIds.contains(q.getId())).toList();
+                if (attempt >= MAX_ATTEMPTS) {
+                    log.warn("ES bulk 写入有 {} 条失败，例如 {}", pending.size(), e.getFailedDocuments().entrySet().iterator().next());
+                    return pending.size();
+                }
+            } catch (RuntimeException e) {
+                if (attempt >= MAX_ATTEMPTS) throw e;
+                log.warn("ES bulk 写入失败，第 {} 次重试: {}", attempt, e.getMessage());
+            }
+            Thread.sleep(1000L * attempt);
+        }
+    }
+
+    /**
+     * 把 updatedAt 在 fromMillis 之后的帖子按 Mongo 当前状态写进新索引：有效的写入，其余的删除
+     * (updatedAt 没有索引，会扫全表；只在重建收尾跑两次，可以接受)
+     * 注意点赞数的增量刷新不改 updatedAt，重建期间的点赞数变化要等下一次点赞才会带进新索引
+     */
+    private int catchUp(String index, long fromMillis) {
+        LocalDateTime from = LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(fromMillis - catchUpSlackSeconds * 1000), ZoneId.systemDefault());
+        Query query = Query.query(Criteria.where("updatedAt").gte(from))
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .cursorBatchSize(batchSize);
+        query.fields().include(ES_FIELDS);
+
+        IndexCoordinates coordinates = IndexCoordinates.of(index);
+        int count = 0;
+        List<IndexQuery> upserts = new ArrayList<>();
+        try (Stream<PostDoc> stream = mongoTemplate.stream(query, PostDoc.class)) {
+            Iterator<PostDoc> it = stream.iterator();
+            while (it.hasNext()) {
+                PostDoc doc = it.next();
+                if (Integer.valueOf(1).equals(doc.getStatus()) && Integer.valueOf(0).equals(doc.getIsDeleted())) {
+                    upserts.add(toIndexQuery(doc));
+                } else {
+                    elasticsearchOperations.delete(doc.getId(), coordinates);
+                }
+                count++;
+                if (upserts.size() >= batchSize) {
+                    elasticsearchOperations.bulkIndex(upserts, coordinates);
+                    upserts.clear();
+                }
+            }
+        }
+        if (!upserts.isEmpty()) {
+            elasticsearchOperations.bulkIndex(upserts, coordinates);
+        }
+        return count;
+    }
+
+    private void createIndex(String index) {
+        IndexOperations entityOps = elasticsearchOperations.indexOps(PostEsDoc.class);
+        // 设置 / 映射和 PostEsDoc 上注解的一致，只把刷新和副本先关掉
+        Settings settings = entityOps.createSettings().flatten();
+        settings.put("index.refresh_interval", "-1");
+        settings.put("index.number_of_replicas", "0");
+        elasticsearchOperations.indexOps(IndexCoordinates.of(index)).create(settings, entityOps.createMapping());
+    }
+
+    /**
+     * @return 原来别名指向的版本索引
+     */
+    private List<String> swapAlias(String index) {
+        IndexOperations aliasOps = elasticsearchOperations.indexOps(IndexCoordinates.of(ALIAS));
+        // posts 是别名时得到它指向的索引；还是实体索引 (旧部署 / 启动时自动建的) 时得到它自己
+        Set<String> current = aliasOps.exists()
+                ? aliasOps.getAliasesForIndex(ALIAS).keySet()
+                : Collections.emptySet();
+
+        AliasActions actions = new AliasActions(new AliasAction.Add(AliasActionParameters.builder()
+                .withIndices(index).withAliases(ALIAS).withIsWriteIndex(true).build()));
+        List<String> previous = new ArrayList<>();
+        for (String old : current) {
+            if (old.equals(index)) continue;
+            if (old.equals(ALIAS)) {
+                // 实体索引和别名不能重名，同一个请求里删掉它才能原子地换成别名
+                actions.add(new AliasAction.RemoveIndex(AliasActionParameters.builder().withIndices(ALIAS).build()));
+            } else {
+                actions.add(new AliasAction.Remove(AliasActionParameters.builder()
+                        .withIndices(old).withAliases(ALIAS).build()));
+                previous.add(old);
+            }
+        }
+        aliasOps.alias(actions);
+        return previous;
+    }
+
+    /**
+     * 删掉除当前索引 (和上一个版本) 之外的版本索引
+     */
+    private void cleanup(String index, List<String> previous) {
+        IndexOperations ops = elasticsearchOperations.indexOps(IndexCoordinates.of(INDEX_PREFIX + "*"));
+        for (String name : ops.getAliasesForIndex(INDEX_PREFIX + "*").keySet()) {
+            if (name.equals(index) || (keepPrevious && previous.contains(name))) continue;
+            elasticsearchOperations.indexOps(IndexCoordinates.of(name)).delete();
+            log.info("已删除旧的帖子索引 {}", name);
+        }
+    }
+
+    /**
+     * 上一次没跑完又不续跑：它建了一半的索引没用了
+     */
+    private void dropUnfinished(Map<Object, Object> state) throws IOException {
+        String index = (String) state.get("index");
+        if (!isResumable(state) || StrUtil.isBlank(index)) return;
+        IndexOperations ops = elasticsearchOperations.indexOps(IndexCoordinates.of(index));
+        boolean serving = elasticsearchClient.indices().existsAlias(r -> r.index(index).name(ALIAS)).value();
+        if (ops.exists() && !serving) {
+            ops.delete();
+            log.info("已删除未完成的帖子索引 {}", index);
+        }
+    }
+
+    private boolean isResumable(Map<Object, Object> state) {
+        Object status = state.get("status");
+        Object index = state.get("index");
+        if (!(STATUS_BUILDING.equals(status) || STATUS_CATCHING_UP.equals(status) || STATUS_FAILED.equals(status))
+                || index == null) {
+            return false;
+        }
+        return elasticsearchOperations.indexOps(IndexCoordinates.of(index.toString())).exists();
+    }
+
+    private Criteria liveCriteria() {
+        return Criteria.where("status").is(1).and("isDeleted").is(0);
+    }
+
+    private IndexQuery toIndexQuery(PostDoc doc) {
+        return new IndexQueryBuilder().withId(doc.getId()).withObject(toEsDoc(doc)).build();
+    }
+
+    private PostEsDoc toEsDoc(PostDoc doc) {
+        PostEsDoc esDoc = new PostEsDoc();
+        esDoc.setId(doc.getId());
+        esDoc.setUserId(doc.getUserId());
+        esDoc.setUserNickname(doc.getUserNickname());
+        esDoc.setUserAvatar(doc.getUserAvatar());
+        esDoc.setTitle(doc.getTitle());
+        esDoc.setContent(doc.getContent());
+        esDoc.setTags(doc.getTags());
+        esDoc.setCover(doc.getCover());
+        esDoc.setType(doc.getType());
+        esDoc.setCoverWidth(doc.getCoverWidth());
+        esDoc.setCoverHeight(doc.getCoverHeight());
+        esDoc.setLikeCount(doc.getLikeCount() == null ? 0 : doc.getLikeCount());
+        esDoc.setCreatedAt(doc.getCreatedAt() != null ? doc.getCreatedAt() : LocalDateTime.now());
+        esDoc.setStatus(doc.getStatus());
+        esDoc.setIsDeleted(doc.getIsDeleted());
+        return esDoc;
+    }
+
+    private void saveState(Map<String, String> fields) {
+        redisTemplate.opsForHash().putAll(RedisKey.ES_REINDEX_STATE, fields);
+    }
+
+    private void unlock(String token) {
+        redisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(RedisKey.ES_REINDEX_LOCK), token);
+    }
+
+    private static long parseLong(Object value) {
+        if (value == null) return 0L;
+        try {
+            return Long.parseLong(value.toString());
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    /**
+     * 任务进行中的断点
+     */
+    private static class Checkpoint {
+        private final String index;
+        private final long startedAt;
+        private String lastId;
+        private long indexed;
+        private long failed;
+
+        private Checkpoint(String index, long startedAt) {
+            this.index = index;
+            this.startedAt = startedAt;
+        }
+    }
+
+    /**
+     * 一个在途的 bulk 批次
+     */
+    private static class Batch {
+        private final Future<Integer> future;
+        private final String lastId;
+        private final int size;
+
+        private Batch(Future<Integer> future, String lastId, int size) {
+            this.future = future;
+            this.lastId = lastId;
+            this.size = size;
+        }
+    }
+}
@@ -2,19 +2,20 @@ package com.szu.afternoon3.platform.service.impl;
 
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.json.JSONUtil;
 import co.elastic.clients.elasticsearch._types.query_dsl.*;
 import co.elastic.clients.elasticsearch.core.search.Suggester;
 import co.elastic.clients.json.JsonData;
+import com.szu.afternoon3.platform.common.PageCursor;
 import com.szu.afternoon3.platform.common.UserContext;
 import com.szu.afternoon3.platform.common.MqPublisher;
+import com.szu.afternoon3.platform.component.HotTagBoard;
+import com.szu.afternoon3.platform.component.PostCache;
+import com.szu.afternoon3.platform.component.PostSearchEngine;
 import com.szu.afternoon3.platform.component.SensitiveWordFilter;
+import com.szu.afternoon3.platform.component.UserCardCache;
 import com.szu.afternoon3.platform.config.RabbitConfig;
 import com.szu.afternoon3.platform.dto.PostUpdateDTO;
-import com.szu.afternoon3.platform.entity.mongo.PostCollectDoc;
 import com.szu.afternoon3.platform.entity.mongo.PostDoc;
-import com.szu.afternoon3.platform.entity.mongo.PostLikeDoc;
-import com.szu.afternoon3.platform.entity.mongo.UserFollowDoc;
 import com.szu.afternoon3.platform.event.PostCreateEvent;
 import com.szu.afternoon3.platform.event.PostDeleteEvent;
 import com.szu.afternoon3.platform.event.PostUpdateEvent;
@@ -22,8 +23,10 @@ import com.szu.afternoon3.platform.event.UserSearchEvent;
 import com.szu.afternoon3.platform.exception.AppException;
 import com.szu.afternoon3.platform.enums.ResultCode;
 import com.szu.afternoon3.platform.repository.*;
+import com.szu.afternoon3.platform.service.FeedService;
 import com.szu.afternoon3.platform.service.PostService;
 import com.szu.afternoon3.platform.service.UserService;
+import com.szu.afternoon3.platform.service.ViewerStateService;
 
 import com.szu.afternoon3.platform.vo.PostVO;
 import com.szu.afternoon3.platform.vo.UserInfo;
@@ -42,8 +45,6 @@ import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
 import org.springframework.data.elasticsearch.core.query.highlight.HighlightParameters;
 import org.springframework.data.elasticsearch.core.suggest.response.Suggest;
 import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.aggregation.Aggregation;
-import org.springframework.data.mongodb.core.aggregation.AggregationResults;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.redis.core.StringRedisTemplate;
@@ -56,7 +57,6 @@ import org.springframework.data.domain.PageImpl;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.regex.Pattern;
 import com.szu.afternoon3.platform.vo.PageResult;
@@ -70,14 +70,6 @@ public class PostServiceImpl implements PostService {
     @Autowired
     private PostRepository postRepository;
     @Autowired
-    private UserFollowRepository userFollowRepository;
-    @Autowired
-    private PostLikeRepository postLikeRepository;
-    @Autowired
-    private PostCollectRepository postCollectRepository;
-    @Autowired
-    private PostRatingRepository postRatingRepository;
-    @Autowired
     private MongoTemplate mongoTemplate;
     @Autowired
     private UserMapper userMapper;
@@ -92,21 +84,30 @@ public class PostServiceImpl implements PostService {
 
     @Autowired
     private SensitiveWordFilter sensitiveWordFilter;
+    @Autowired
+    private PostSearchEngine postSearchEngine;
+    @Autowired
+    private FeedService feedService;
+    @Autowired
+    private PostCache postCache;
+    @Autowired
+    private UserCardCache userCardCache;
+    @Autowired
+    private ViewerStateService viewerStateService;
+    @Autowired
+    private HotTagBoard hotTagBoard;
 
     // 提取为成员变量，避免重复创建 (DateTimeFormatter 是线程安全的)
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-    // 用于 Function Score 的时间格式化 (ES 要求)
-    private static final DateTimeFormatter ES_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
-
     /**
      * 获取帖子列表 (入口)
      */
     @Override
     public PageResult<PostVO> getPostList(Integer page, Integer size, String tab, String tag, String sort) {
-        // 1. 关注流 (Follow) - 走 Mongo，这是关系链查询，不是搜索
+        // 1. 关注流 (Follow) - 走 Redis 收件箱，这是关系链查询，不是搜索
         if ("follow".equalsIgnoreCase(tab)) {
-            return queryFollowStreamFromMongo(page, size);
+            return queryFollowStream(page, size);
         }
 
         // 2. 其他场景 (推荐/标签) - 走 ES
@@ -114,17 +115,129 @@ public class PostServiceImpl implements PostService {
     }
 
     /**
-     * 核心搜索与列表查询方法 (Mongo 简化版)
+     * 获取帖子列表 (游标模式)
+     * 推荐/标签流走 Mongo keyset，关注流走收件箱 score 游标，均不 skip、不 count
+     */
+    @Override
+    public PageResult<PostVO> getPostListByCursor(String cursor, Integer size, String tab, String tag, String sort) {
+        int pageSize = (size == null || size < 1) ? 20 : size;
+        PageCursor after = PageCursor.decode(cursor);
+
+        if ("follow".equalsIgnoreCase(tab)) {
+            Long currentUserId = UserContext.getUserId();
+            if (currentUserId == null) throw new AppException(ResultCode.UNAUTHORIZED);
+
+            PageResult<String> idPage = feedService.getFollowFeedPostIdsByCursor(currentUserId, after, pageSize);
+            List<PostVO> records = convertToListVOs(findPublishedInOrder(idPage.getRecords()));
+            return PageResult.ofCursor(records, pageSize, Boolean.TRUE.equals(idPage.getHasMore()), idPage.getNextCursor());
+        }
+
+        Criteria filter = Criteria.where("status").is(1).and("isDeleted").is(0);
+        if (StrUtil.isNotBlank(tag)) {
+            filter.and("tags").is(tag);
+        }
+        return queryByCursor(filter, after, isLikesSort(sort), pageSize);
+    }
+
+    /**
+     * 核心搜索与列表查询方法
      * 支持：关键词搜索、标签过滤、排序
+     * 优先走 ES (分词 + 拼音 + 高亮)，ES 不可用时才降级到 Mongo 正则扫描
      */
     @Override
     public PageResult<PostVO> searchPosts(String keyword, String tag, Integer page, Integer size, String sort) {
         int pageNum = (page == null || page < 1) ? 0 : page - 1;
         int pageSize = (size == null || size < 1) ? 20 : size;
 
+        if (postSearchEngine.isAvailable()) {
+            try {
+                return searchPostsFromEs(keyword, tag, pageNum, pageSize, sort);
+            } catch (PostSearchEngine.EsUnavailableException e) {
+                log.warn("ES 搜索失败，降级 Mongo: keyword={}, tag={}", keyword, tag);
+            }
+        }
+        return searchPostsFromMongo(keyword, tag, pageNum, pageSize, sort);
+    }
+
+    /**
+     * ES 只负责召回与排序 (返回 ID + 高亮)，帖子详情按主键回查 Mongo，
+     * 保证计数、评分等字段与详情页一致
+     */
+    private PageResult<PostVO> searchPostsFromEs(String keyword, String tag, int pageNum, int pageSize, String sort) {
+        PostSearchEngine.Result hits = postSearchEngine.search(keyword, tag, pageNum, pageSize, sort);
+        if (CollUtil.isEmpty(hits.getIds())) {
+            return PageResult.of(Collections.emptyList(), hits.getTotal(), pageNum + 1, pageSize);
+        }
+
+        // 按 ES 返回的顺序重排，并过滤掉 ES 同步滞后导致的已删除/未发布帖子
+        List<PostDoc> docs = findPublishedInOrder(hits.getIds());
+
+        Pageable pageable = PageRequest.of(pageNum, pageSize);
+        PageResult<PostVO> result = buildResultMap(new PageImpl<>(docs, pageable, hits.getTotal()));
+        applySummaries(result.getRecords(), hits.getSummaries());
+        return result;
+    }
+
+    /**
+     * 搜索 (游标模式)
+     * 同一次下拉不在 ES / Mongo 之间来回切换：Mongo 发出的游标没有 search_after，只能继续走 Mongo
+     */
+    @Override
+    public PageResult<PostVO> searchPostsByCursor(String keyword, String tag, String cursor, Integer size, String sort) {
+        int pageSize = (size == null || size < 1) ? 20 : size;
+        PageCursor after = PageCursor.decode(cursor);
+
+        boolean stayOnMongo = after != null && after.getAfter() == null;
+        if (!stayOnMongo && postSearchEngine.isAvailable()) {
+            try {
+                return searchPostsFromEsByCursor(keyword, tag, after, pageSize, sort);
+            } catch (PostSearchEngine.EsUnavailableException e) {
+                log.warn("ES 搜索失败，降级 Mongo: keyword={}, tag={}", keyword, tag);
+            }
+        }
+        return queryByCursor(buildSearchCriteria(keyword, tag), after, isLikesSort(sort), pageSize);
+    }
+
+    private PageResult<PostVO> searchPostsFromEsByCursor(String keyword, String tag, PageCursor after, int pageSize, String sort) {
+        // 热度排序的衰减原点跟着游标走，否则翻页过程中算分漂移会导致重复/漏帖
+        long origin = (after != null && after.getOrigin() != null) ? after.getOrigin() : System.currentTimeMillis();
+        PostSearchEngine.Result hits = postSearchEngine.searchAfter(
+                keyword, tag, after == null ? null : after.getAfter(), origin, pageSize + 1, sort);
+
+        boolean hasMore = hits.getIds().size() > pageSize;
+        List<String> pageIds = hasMore ? hits.getIds().subList(0, pageSize) : hits.getIds();
+        List<PostDoc> docs = findPublishedInOrder(pageIds);
+        List<PostVO> records = convertToListVOs(docs);
+        applySummaries(records, hits.getSummaries());
+
+        String nextCursor = null;
+        if (!pageIds.isEmpty()) {
+            // search_after 用 ES 最后一条命中的排序值；同时带上 Mongo keyset，ES 挂掉时可以接着用 Mongo 翻
+            PageCursor next = docs.isEmpty()
+                    ? new PageCursor()
+                    : toCursor(docs.get(docs.size() - 1), isLikesSort(sort));
+            next.setAfter(hits.getSortValues().get(pageIds.size() - 1));
+            next.setOrigin(origin);
+            nextCursor = next.encode();
+        }
+        return PageResult.ofCursor(records, pageSize, hasMore, nextCursor);
+    }
+
+    /**
+     * Mongo 降级搜索 (正则扫描，仅在 ES 不可用时使用)
+     */
+    private PageResult<PostVO> searchPostsFromMongo(String keyword, String tag, int pageNum, int pageSize, String sort) {
         Sort sortBy = buildSort(sort);
         Pageable pageable = PageRequest.of(pageNum, pageSize, sortBy);
 
+        Query query = new Query(buildSearchCriteria(keyword, tag)).with(pageable);
+        List<PostDoc> docs = mongoTemplate.find(query, PostDoc.class);
+        long total = mongoTemplate.count(Query.of(query).limit(-1).skip(-1), PostDoc.class);
+        Page<PostDoc> pageData = new PageImpl<>(docs, pageable, total);
+        return buildResultMap(pageData);
+    }
+
+    private Criteria buildSearchCriteria(String keyword, String tag) {
         Criteria criteria = Criteria.where("isDeleted").is(0).and("status").is(1);
         if (StrUtil.isNotBlank(keyword)) {
             String pattern = ".*" + Pattern.quote(keyword.trim()) + ".*";
@@ -137,37 +250,26 @@ public class PostServiceImpl implements PostService {
         if (StrUtil.isNotBlank(tag)) {
             criteria = new Criteria().andOperator(criteria, Criteria.where("tags").in(tag));
         }
-
-        Query query = new Query(criteria).with(pageable);
-        List<PostDoc> docs = mongoTemplate.find(query, PostDoc.class);
-        long total = mongoTemplate.count(Query.of(query).limit(-1).skip(-1), PostDoc.class);
-        Page<PostDoc> pageData = new PageImpl<>(docs, pageable, total);
-        return buildResultMap(pageData);
+        return criteria;
     }
 
     /**
-     * 辅助方法：从 MongoDB 查询关注流
-     * (保留原有逻辑，抽取为独立方法)
+     * 辅助方法：查询关注流
+     * 帖子ID 来自 Redis 收件箱 (推) + 大V 发件箱 (拉)，再按主键批量回查帖子
      */
-    private PageResult<PostVO> queryFollowStreamFromMongo(Integer page, Integer size) {
+    private PageResult<PostVO> queryFollowStream(Integer page, Integer size) {
         Long currentUserId = UserContext.getUserId();
         if (currentUserId == null) throw new AppException(ResultCode.UNAUTHORIZED);
 
-        int pageNum = (page == null || page < 1) ? 0 : page - 1;
-        int pageSize = (size == null || size < 1) ? 20 : size;
-        Pageable pageable = PageRequest.of(pageNum, pageSize, Sort.by(Sort.Direction.DESC, "createdAt"));
-
-        Page<PostDoc> postDocPage;
-
-        List<UserFollowDoc> follows = userFollowRepository.findFollowingIds(currentUserId);
-        if (CollUtil.isEmpty(follows)) {
-            postDocPage = Page.empty(pageable);
-        } else {
-            List<Long> targetIds = follows.stream().map(UserFollowDoc::getTargetUserId).collect(Collectors.toList());
-            postDocPage = postRepository.findByUserIdInAndStatusAndIsDeleted(targetIds, 1, 0, pageable);
+        PageResult<String> idPage = feedService.getFollowFeedPostIds(currentUserId, page, size);
+        Pageable pageable = PageRequest.of(idPage.getCurrent() - 1, idPage.getSize());
+        if (CollUtil.isEmpty(idPage.getRecords())) {
+            return buildResultMap(new PageImpl<>(Collections.emptyList(), pageable, idPage.getTotal()));
         }
 
-        return buildResultMap(postDocPage);
+        // 按收件箱顺序重排，过滤已删除/未发布的帖子
+        List<PostDoc> docs = findPublishedInOrder(idPage.getRecords());
+        return buildResultMap(new PageImpl<>(docs, pageable, idPage.getTotal()));
     }
 
     /**
@@ -216,15 +318,20 @@ public class PostServiceImpl implements PostService {
     }
 
     private Sort buildSort(String sort) {
-        if ("hot".equalsIgnoreCase(sort) || "likes".equalsIgnoreCase(sort)) {
+        if (isLikesSort(sort)) {
             return Sort.by(Sort.Direction.DESC, "likeCount", "createdAt");
         }
         return Sort.by(Sort.Direction.DESC, "createdAt");
     }
 
+    private static boolean isLikesSort(String sort) {
+        return "hot".equalsIgnoreCase(sort) || "likes".equalsIgnoreCase(sort);
+    }
+
     @Override
     public PostVO getPostDetail(String postId) {
-        PostDoc doc = postRepository.findById(postId).orElse(null);
+        // 走二级缓存 (Caffeine + Redis)，热点帖子不再每次打 Mongo
+        PostDoc doc = postCache.get(postId);
 
         // 1. 基础判空
         if (doc == null || (doc.getIsDeleted() != null && doc.getIsDeleted() == 1)) {
@@ -254,68 +361,20 @@ public class PostServiceImpl implements PostService {
 
 
     /**
-     * 获取热门标签 (Redis缓存 + Mongo聚合)
+     * 获取热门标签 (Redis 排行榜)
      * 策略：
-     * 1. 先查 Redis，有则直接返回
-     * 2. 无缓存则查 Mongo 聚合：筛选->拆分->分组计数->排序->截取
-     * 3. 结果混入默认标签兜底
-     * 4. 写入 Redis (有效期30分钟)
+     * 1. 直接读增量维护的标签排行 ZSet (按有效帖子数倒序)，O(log n)
+     * 2. 结果混入默认标签兜底
      */
     @Override
     public List<String> getHotTags(int limit) {
-        // 定义 Redis Key
-        String cacheKey = "rednote:tags:hot";
-
-        // =================================================
-        // 1. 【缓存层】尝试从 Redis 读取
-        // =================================================
-        String jsonStr = redisTemplate.opsForValue().get(cacheKey);
-        if (StrUtil.isNotBlank(jsonStr)) {
-            // 命中缓存，直接反序列化返回
-            return JSONUtil.toList(jsonStr, String.class);
-        }
-
-        // =================================================
-        // 2. 【数据层】缓存未命中，执行 MongoDB 聚合统计
-        // =================================================
-
-        // 构建聚合管道
-        Aggregation aggregation = Aggregation.newAggregation(
-                // A. 筛选：只统计状态正常(已发布且未删除)的帖子
-                Aggregation.match(Criteria.where("isDeleted").is(0).and("status").is(1)),
-
-                // B. 拆分(Unwind)：将 tags 数组拆解为单条记录
-                // { tags: ["A", "B"] } -> { tags: "A" }, { tags: "B" }
-                Aggregation.unwind("tags"),
-
-                // C. 分组(Group)：按 tags 字段分组，统计出现次数
-                Aggregation.group("tags").count().as("count"),
-
-                // D. 排序(Sort)：按 count 倒序
-                Aggregation.sort(Sort.Direction.DESC, "count"),
-
-                // E. 截取(Limit)：取前 N 个 (稍微多取一点，防止后面有空字符串被过滤掉)
-                Aggregation.limit(limit + 5),
-
-                // F. 投影(Project)：只保留 _id (即标签名)
-                Aggregation.project("_id")
-        );
-
-        // 执行查询
-        // 结果映射为 Map，其中 _id 是标签名
-        AggregationResults<Map> results = mongoTemplate.aggregate(aggregation, PostDoc.class, Map.class);
-
-        // =================================================
-        // 3. 【业务层】结果处理与兜底
-        // =================================================
         List<String> hotTags = new ArrayList<>();
 
-        // 3.1 固定首位："推荐" (前端通常需要这个作为默认 Tab)
+        // 1. 固定首位："推荐" (前端通常需要这个作为默认 Tab)
         hotTags.add("推荐");
 
-        // 3.2 填充聚合结果
-        for (Map row : results.getMappedResults()) {
-            String tag = (String) row.get("_id");
+        // 2. 读排行榜 (稍微多取一点，防止后面有"推荐"被过滤掉)
+        for (String tag : hotTagBoard.topTags(limit + 5)) {
             // 简单清洗：非空且不等于"推荐"（防止重复）
             if (StrUtil.isNotBlank(tag) && !"推荐".equals(tag)) {
                 hotTags.add(tag);
@@ -324,7 +383,7 @@ public class PostServiceImpl implements PostService {
             if (hotTags.size() >= limit + 1) break;
         }
 
-        // 3.3 兜底逻辑：如果数据库没帖子，或者聚合出来的标签太少，用默认词填充
+        // 3. 兜底逻辑：如果数据库没帖子，或者标签太少，用默认词填充
         // 保证首页 Tab 栏看起来是满的
         if (hotTags.size() < limit) {
             List<String> defaults = Arrays.asList(
@@ -339,12 +398,6 @@ public class PostServiceImpl implements PostService {
             }
         }
 
-        // =================================================
-        // 4. 【缓存回写】存入 Redis
-        // =================================================
-        // 热门标签不需要实时更新，10分钟更新一次足够了
-        redisTemplate.opsForValue().set(cacheKey, JSONUtil.toJsonStr(hotTags), 10, TimeUnit.SECONDS);
-
         return hotTags;
     }
 
@@ -384,6 +437,27 @@ public class PostServiceImpl implements PostService {
         return buildResultMap(postDocPage);
     }
 
+    /**
+     * 获取用户的帖子列表 (游标模式)，可见性规则同 getUserPostList
+     */
+    @Override
+    public PageResult<PostVO> getUserPostListByCursor(String userIdStr, String cursor, Integer size) {
+        long targetUserId;
+        try {
+            targetUserId = Long.parseLong(userIdStr);
+        } catch (NumberFormatException e) {
+            throw new AppException(ResultCode.PARAM_ERROR, "用户ID格式错误");
+        }
+        int pageSize = (size == null || size < 1) ? 20 : size;
+
+        Long currentUserId = UserContext.getUserId();
+        Criteria filter = Criteria.where("userId").is(targetUserId).and("isDeleted").is(0);
+        if (currentUserId == null || !currentUserId.equals(targetUserId)) {
+            filter.and("status").is(1);
+        }
+        return queryByCursor(filter, PageCursor.decode(cursor), false, pageSize);
+    }
+
     // 阿里云 OSS 视频截帧参数: 截取第1000ms, 输出jpg, 模式为fast
     private static final String OSS_VIDEO_SNAPSHOT_PARAM = "?x-oss-process=video/snapshot,t_1000,f_jpg,w_0,h_0,m_fast";
     // 【新增】读取配置文件中的审核开关
@@ -398,30 +472,11 @@ public class PostServiceImpl implements PostService {
             throw new AppException(ResultCode.UNAUTHORIZED);
         }
         // ================== 【新增】敏感词拦截 ==================
-        // 1. 校验标题
-        if (sensitiveWordFilter.hasSensitiveWord(dto.getTitle())) {
-            List<String> words = sensitiveWordFilter.findAll(dto.getTitle());
-            throw new AppException(ResultCode.PARAM_ERROR, "标题包含违规词：" + words.get(0));
-//            throw new AppException(ResultCode.PARAM_ERROR, "标题包含敏感词，请修改");
-        }
-        // 2. 校验正文
-        if (sensitiveWordFilter.hasSensitiveWord(dto.getContent())) {
-            // 进阶写法：告诉用户具体哪个词违规（可选，看需求）
-             List<String> words = sensitiveWordFilter.findAll(dto.getContent());
-             throw new AppException(ResultCode.PARAM_ERROR, "内容包含违规词：" + words.get(0));
-//            throw new AppException(ResultCode.PARAM_ERROR, "内容包含敏感词，请修改");
-        }
-        // 3. 校验标签 (遍历 List)
-        if (dto.getTags() != null) {
-            for (String tag : dto.getTags()) {
-                if (sensitiveWordFilter.hasSensitiveWord(tag)) {
-                    throw new AppException(ResultCode.PARAM_ERROR, "标签包含敏感词：" + tag);
-                }
-            }
-        }
+        // 标题 -> 正文 -> 标签 依次扫一遍，命中即停
+        checkSensitiveWords(dto.getTitle(), dto.getContent(), dto.getTags());
         // =======================================================
-        // 2. 获取用户详细信息 (用于 MongoDB 冗余存储)
-        User user = userMapper.selectById(userId);
+        // 2. 获取用户昵称头像 (用于 MongoDB 冗余存储)
+        UserCardCache.Card user = userCardCache.get(userId);
         if (user == null) {
             throw new AppException(ResultCode.USER_NOT_FOUND);
         }
@@ -477,7 +532,7 @@ public class PostServiceImpl implements PostService {
         post.setLikeCount(0);
         post.setCollectCount(0);
         post.setCommentCount(0);
-        post.setRatingAverage(0.0);
+        post.setRatingSum(0.0);
         post.setRatingCount(0);
 
         // 根据配置决定初始状态
@@ -549,6 +604,7 @@ public class PostServiceImpl implements PostService {
         // TODO 新增帖子的删除状态，其他地方也要跟着维护
         post.setUpdatedAt(java.time.LocalDateTime.now());
         postRepository.save(post);
+        postCache.evict(postId);
 
         // 5. 【增强】发布事件
         // 将必要信息带给 Listener，实现异步解耦
@@ -583,36 +639,21 @@ public class PostServiceImpl implements PostService {
 
         boolean needAudit = false;
 
+        // 【新增】校验本次要改的标题 / 正文 / 标签 (没传的字段为空，扫描时自动跳过)
+        checkSensitiveWords(dto.getTitle(), dto.getContent(), dto.getTags());
+
         // 1. 更新基本文本 (修改此处逻辑)
         if (StrUtil.isNotBlank(dto.getTitle())) {
-            // 【新增】校验新标题
-            if (sensitiveWordFilter.hasSensitiveWord(dto.getTitle())) {
-                List<String> words = sensitiveWordFilter.findAll(dto.getTitle());
-                throw new AppException(ResultCode.PARAM_ERROR, "标题包含违规词：" + words.get(0));
-//                throw new AppException(ResultCode.PARAM_ERROR, "标题包含敏感词");
-            }
             post.setTitle(dto.getTitle());
             needAudit = true;
         }
 
         if (StrUtil.isNotBlank(dto.getContent())) {
-            // 【新增】校验新内容
-            if (sensitiveWordFilter.hasSensitiveWord(dto.getContent())) {
-                List<String> words = sensitiveWordFilter.findAll(dto.getContent());
-                throw new AppException(ResultCode.PARAM_ERROR, "内容包含违规词：" + words.get(0));
-//                throw new AppException(ResultCode.PARAM_ERROR, "内容包含敏感词");
-            }
             post.setContent(dto.getContent());
             needAudit = true;
         }
 
         if (dto.getTags() != null) {
-            // 【新增】校验新标签
-            for (String tag : dto.getTags()) {
-                if (sensitiveWordFilter.hasSensitiveWord(tag)) {
-                    throw new AppException(ResultCode.PARAM_ERROR, "标签包含敏感词：" + tag);
-                }
-            }
             post.setTags(dto.getTags());
             needAudit = true;
         }
@@ -663,6 +704,8 @@ public class PostServiceImpl implements PostService {
         }
         post.setUpdatedAt(java.time.LocalDateTime.now());
         postRepository.save(post);
+        // 本节点立即失效，其他节点等 post.update 广播
+        postCache.evict(postId);
 
         // 5. 发布事件
         if (needAudit) {
@@ -671,6 +714,78 @@ public class PostServiceImpl implements PostService {
     }
     // --- Private Methods ---
 
+    /**
+     * 敏感词校验：标题、正文、每个标签按顺序放进同一次扫描，命中即停
+     */
+    private void checkSensitiveWords(String title, String content, List<String> tags) {
+        List<String> fields = new ArrayList<>();
+        fields.add(title);
+        fields.add(content);
+        if (tags != null) {
+            fields.addAll(tags);
+        }
+        SensitiveWordFilter.Hit hit = sensitiveWordFilter.findFirstInFields(fields.toArray(new String[0]));
+        if (hit == null) return;
+
+        switch (hit.getFieldIndex()) {
+            case 0 -> throw new AppException(ResultCode.PARAM_ERROR, "标题包含违规词：" + hit.getWord());
+            case 1 -> throw new AppException(ResultCode.PARAM_ERROR, "内容包含违规词：" + hit.getWord());
+            default -> throw new AppException(ResultCode.PARAM_ERROR, "标签包含敏感词：" + fields.get(hit.getFieldIndex()));
+        }
+    }
+
+    /**
+     * 游标分页通用方法：多查一条判断 hasMore，用最后一条生成下一页游标
+     */
+    private PageResult<PostVO> queryByCursor(Criteria filter, PageCursor cursor, boolean byLikes, int pageSize) {
+        List<PostDoc> docs = postRepository.findByCursor(filter, cursor, byLikes, pageSize + 1);
+        boolean hasMore = docs.size() > pageSize;
+        if (hasMore) {
+            docs = docs.subList(0, pageSize);
+        }
+        String nextCursor = docs.isEmpty() ? null : toCursor(docs.get(docs.size() - 1), byLikes).encode();
+        return PageResult.ofCursor(convertToListVOs(docs), pageSize, hasMore, nextCursor);
+    }
+
+    private PageCursor toCursor(PostDoc last, boolean byLikes) {
+        // likeCount 为空不能当 0：Mongo 里空值排在 0 后面，游标条件要区分 (见 PageCursor#toCriteria)
+        Long likes = null;
+        if (byLikes && last.getLikeCount() != null) {
+            likes = last.getLikeCount().longValue();
+        }
+        return PageCursor.of(last.getCreatedAt(), likes, last.getId());
+    }
+
+    /**
+     * 按主键批量回查帖子 (走二级缓存)，保持传入 ID 的顺序，并过滤掉已删除/未发布的
+     * (ES / 收件箱与 Mongo 之间存在同步延迟)
+     */
+    private List<PostDoc> findPublishedInOrder(List<String> ids) {
+        if (CollUtil.isEmpty(ids)) {
+            return Collections.emptyList();
+        }
+        Map<String, PostDoc> docMap = new HashMap<>();
+        for (PostDoc doc : postCache.getAll(ids).values()) {
+            if (Integer.valueOf(0).equals(doc.getIsDeleted()) && Integer.valueOf(1).equals(doc.getStatus())) {
+                docMap.put(doc.getId(), doc);
+            }
+        }
+        return ids.stream()
+                .map(docMap::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    // 用 ES 高亮片段替换列表摘要
+    private void applySummaries(List<PostVO> records, Map<String, String> summaries) {
+        for (PostVO vo : records) {
+            String summary = summaries.get(vo.getId());
+            if (summary != null) {
+                vo.setContent(summary);
+            }
+        }
+    }
+
     /**
      * [重构] 通用分页构建方法：将 Mongo Page 对象转为标准 PageResult<PostVO>
      */
@@ -682,72 +797,51 @@ public class PostServiceImpl implements PostService {
             return PageResult.empty(pageData.getNumber() + 1, pageData.getSize());
         }
 
-        // 2. 批量查询交互状态 (保持原有的高性能逻辑)
-        Set<String> likedPostIds = new HashSet<>();
-        Set<String> collectedPostIds = new HashSet<>();
-        Set<Long> followedUserIds = new HashSet<>();
-        Long currentUserId = UserContext.getUserId();
-
-        if (currentUserId != null) {
-            List<String> postIds = postDocs.stream().map(PostDoc::getId).collect(Collectors.toList());
-            List<Long> authorIds = postDocs.stream().map(PostDoc::getUserId).distinct().collect(Collectors.toList());
+        // 2. 转换 (含批量查询交互状态)
+        List<PostVO> records = convertToListVOs(postDocs);
 
-            List<PostLikeDoc> likes = postLikeRepository.findByUserIdAndPostIdIn(currentUserId, postIds);
-            likedPostIds = likes.stream().map(PostLikeDoc::getPostId).collect(Collectors.toSet());
-
-            List<PostCollectDoc> collects = postCollectRepository.findByUserIdAndPostIdIn(currentUserId, postIds);
-            collectedPostIds = collects.stream().map(PostCollectDoc::getPostId).collect(Collectors.toSet());
+        // 3. 返回标准 PageResult (注意: Spring Data Page 页码是从 0 开始，VO 通常习惯从 1 开始)
+        return PageResult.of(records, pageData.getTotalElements(), pageData.getNumber() + 1, pageData.getSize());
+    }
 
-            List<UserFollowDoc> follows = userFollowRepository.findByUserIdAndTargetUserIdIn(currentUserId, authorIds);
-            followedUserIds = follows.stream().map(UserFollowDoc::getTargetUserId).collect(Collectors.toSet());
+    /**
+     * 列表页批量转换：交互状态一次性批量查出，避免 N+1
+     */
+    private List<PostVO> convertToListVOs(List<PostDoc> postDocs) {
+        if (CollUtil.isEmpty(postDocs)) {
+            return Collections.emptyList();
         }
 
-        // 3. 转换为 PostVO List
-        Set<String> finalLiked = likedPostIds;
-        Set<String> finalCollected = collectedPostIds;
-        Set<Long> finalFollowed = followedUserIds;
+        // 1. 批量查询交互状态 (点赞/收藏/关注三类查询并行)
+        List<String> postIds = postDocs.stream().map(PostDoc::getId).collect(Collectors.toList());
+        List<Long> authorIds = postDocs.stream().map(PostDoc::getUserId).distinct().collect(Collectors.toList());
+        ViewerStateService.ViewerState state = viewerStateService.resolve(UserContext.getUserId(), postIds, authorIds, false);
 
-        List<PostVO> records = postDocs.stream()
-                .map(doc -> convertToVO(doc, false, finalLiked, finalCollected, finalFollowed))
+        // 2. 转换为 PostVO List
+        return postDocs.stream()
+                .map(doc -> convertToVO(doc, false, state))
                 .collect(Collectors.toList());
-
-        // 4. 返回标准 PageResult (注意: Spring Data Page 页码是从 0 开始，VO 通常习惯从 1 开始)
-        return PageResult.of(records, pageData.getTotalElements(), pageData.getNumber() + 1, pageData.getSize());
     }
 
     // 3. 重载 convertToVO 方法 (用于列表页，接受批量查询的结果)
-    private PostVO convertToVO(PostDoc doc, boolean isDetail,
-                               Set<String> likedSet,
-                               Set<String> collectedSet,
-                               Set<Long> followedSet) {
+    private PostVO convertToVO(PostDoc doc, boolean isDetail, ViewerStateService.ViewerState state) {
         // 先调用基础转换逻辑 (复用代码)
         PostVO vo = baseConvertToVO(doc, isDetail);
 
-        // 直接从内存 Set 中判断，不再查库
-        vo.setIsLiked(likedSet.contains(doc.getId()));
-        vo.setIsCollected(collectedSet.contains(doc.getId()));
-        vo.setIsFollowed(followedSet.contains(doc.getUserId()));
+        // 直接从内存中判断，不再查库
+        vo.setIsLiked(state.isLiked(doc.getId()));
+        vo.setIsCollected(state.isCollected(doc.getId()));
+        vo.setIsFollowed(state.isFollowed(doc.getUserId()));
 
         return vo;
     }
-    // 4. 原有的 convertToVO 方法 (用于详情页，单条查询)
-    // 详情页本身就只查一次，不需要批量优化，保留原有逻辑即可，或者调用 base
+    // 4. 详情页：点赞/收藏/关注/我的评分 四个查询并行，耗时取最慢的一个
     private PostVO convertToVO(PostDoc doc, boolean isDetail) {
-        PostVO vo = baseConvertToVO(doc, isDetail);
+        ViewerStateService.ViewerState state = viewerStateService.resolve(UserContext.getUserId(),
+                Collections.singletonList(doc.getId()), Collections.singletonList(doc.getUserId()), true);
 
-        Long currentUserId = UserContext.getUserId();
-        if (currentUserId != null) {
-            vo.setIsLiked(postLikeRepository.existsByUserIdAndPostId(currentUserId, doc.getId()));
-            vo.setIsCollected(postCollectRepository.existsByUserIdAndPostId(currentUserId, doc.getId()));
-            vo.setIsFollowed(userFollowRepository.existsByUserIdAndTargetUserId(currentUserId, doc.getUserId()));
-            // 【新增】 查询当前用户对该帖子的具体评分 (myScore)
-            postRatingRepository.findByUserIdAndPostId(currentUserId, doc.getId())
-                    .ifPresent(rating -> vo.setMyScore(rating.getScore()));
-        } else {
-            vo.setIsLiked(false);
-            vo.setIsCollected(false);
-            vo.setIsFollowed(false);
-        }
+        PostVO vo = convertToVO(doc, isDetail, state);
+        vo.setMyScore(state.getScore(doc.getId()));
         return vo;
     }
 
@@ -799,8 +893,11 @@ public class PostServiceImpl implements PostService {
         vo.setCollectCount(doc.getCollectCount());
         vo.setCommentCount(doc.getCommentCount());
 
-        vo.setRatingAverage(doc.getRatingAverage()); // 这里的 doc.getRatingAverage() 对应 PostDoc 的字段
+        vo.setRatingAverage(doc.getRatingAverage()); // 由 PostDoc 的总分 / 人数现算
         vo.setRatingCount(doc.getRatingCount());
+        if (isDetail) {
+            vo.setRatingHistogram(doc.getRatingHistogram());
+        }
 
         if (doc.getCreatedAt() != null) {
             vo.setCreatedAt(doc.getCreatedAt().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
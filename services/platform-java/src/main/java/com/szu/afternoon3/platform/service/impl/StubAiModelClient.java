@@ -0,0 +1,48 @@
+package com.szu.afternoon3.platform.service.impl;
+
+import cn.hutool.core.util.StrUtil;
+import com.szu.afternoon3.platform.enums.AiScene;
+import com.szu.afternoon3.platform.service.AiModelClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * 本地 AI 桩 (Mock 大模型)
+ * 当配置文件中 ai.client = stub 时生效：不联网、不花钱，按场景返回固定格式的结果，
+ * 可以配置延迟和失败率来验证超时 / 熔断。
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "ai.client", havingValue = "stub")
+public class StubAiModelClient implements AiModelClient {
+
+    // 模拟模型耗时
+    @Value("${ai.stub.latency-ms:200}")
+    private long latencyMs;
+
+    // 模拟失败概率 (0 - 1)
+    @Value("${ai.stub.fail-rate:0}")
+    private double failRate;
+
+    @Override
+    public String chat(AiScene scene, String systemPrompt, String userText, List<String> images, String video, double temperature) throws Exception {
+        if (latencyMs > 0) {
+            Thread.sleep(latencyMs);
+        }
+        if (failRate > 0 && Math.random() < failRate) {
+            throw new IllegalStateException("AI 桩模拟调用失败");
+        }
+
+        int media = (images == null ? 0 : images.size()) + (StrUtil.isBlank(video) ? 0 : 1);
+        return switch (scene) {
+            case TAGS -> "[\"本地测试\", \"AI桩\"]";
+            case SUMMARY -> "省流：" + StrUtil.subPre(StrUtil.nullToEmpty(userText).replace("\n", " "), 40);
+            case REPLY -> "（小映本地桩）收到啦，帖子里有 " + media + " 个图片/视频~";
+            case AUDIT -> "{\"conclusion\": \"PASS\", \"riskType\": \"无\", \"confidence\": 1.0, \"suggestion\": \"本地桩默认通过\"}";
+        };
+    }
+}
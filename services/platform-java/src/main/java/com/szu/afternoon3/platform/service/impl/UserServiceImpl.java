@@ -4,7 +4,14 @@ import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.crypto.digest.BCrypt;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.szu.afternoon3.platform.common.PageCursor;
+import com.szu.afternoon3.platform.common.RedisKey;
 import com.szu.afternoon3.platform.common.UserContext;
+import com.szu.afternoon3.platform.component.FollowGraph;
+import com.szu.afternoon3.platform.component.PostCache;
+import com.szu.afternoon3.platform.component.PostSearchEngine;
+import com.szu.afternoon3.platform.component.UserCardCache;
+import com.szu.afternoon3.platform.component.UserSearchEngine;
 import com.szu.afternoon3.platform.common.MqPublisher;
 import com.szu.afternoon3.platform.config.RabbitConfig;
 import com.szu.afternoon3.platform.dto.*;
@@ -17,19 +24,21 @@ import com.szu.afternoon3.platform.enums.ResultCode;
 import com.szu.afternoon3.platform.mapper.UserMapper;
 import com.szu.afternoon3.platform.repository.*;
 import com.szu.afternoon3.platform.service.UserService;
+import com.szu.afternoon3.platform.service.UserStatsService;
+import com.szu.afternoon3.platform.service.ViewerStateService;
 import com.szu.afternoon3.platform.vo.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.aggregation.Aggregation;
-import org.springframework.data.mongodb.core.aggregation.AggregationResults;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -40,6 +49,7 @@ import java.time.LocalDateTime;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -64,7 +74,6 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private PostRepository postRepository;
 
-    private static final String CACHE_POST_VIEWS = "rednote:post:views:buffer";
 
     @Override
     public UserProfileVO getUserProfile() {
@@ -84,6 +93,18 @@ public class UserServiceImpl implements UserService {
 
     @Autowired
     private MongoTemplate mongoTemplate;
+    @Autowired
+    private PostCache postCache;
+    @Autowired
+    private UserCardCache userCardCache;
+    @Autowired
+    private FollowGraph followGraph;
+    @Autowired
+    private UserSearchEngine userSearchEngine;
+    @Autowired
+    private ViewerStateService viewerStateService;
+    @Autowired
+    private UserStatsService userStatsService;
 
 
     @Override
@@ -121,19 +142,24 @@ public class UserServiceImpl implements UserService {
             }
         }
 
-        // 发送 RabbitMQ 消息 (UserUpdateEvent)
-        if (dto.getNickname() != null || dto.getAvatar() != null) {
-            UserUpdateEvent event = new UserUpdateEvent(
-                    user.getId(),
-                    user.getNickname(),
-                    user.getAvatar()
-            );
-            // 路由键: user.update
-            mqPublisher.publish(RabbitConfig.PLATFORM_EXCHANGE, "user.update", event);
-        }
         if (changed) {
             userMapper.updateById(user);
         }
+
+        // 删缓存 + 发消息都放到事务提交之后：提交前删掉的缓存可能被并发读用旧资料重新填回去，
+        // 消费者回查数据库也可能读到旧值
+        boolean cardChanged = dto.getNickname() != null || dto.getAvatar() != null;
+        if (changed) {
+            Long userId = user.getId();
+            UserUpdateEvent event = new UserUpdateEvent(userId, user.getNickname(), user.getAvatar());
+            runAfterCommit(() -> {
+                userCardCache.evict(userId);
+                if (cardChanged) {
+                    // 发送 RabbitMQ 消息 (UserUpdateEvent)，路由键: user.update
+                    mqPublisher.publish(RabbitConfig.PLATFORM_EXCHANGE, "user.update", event);
+                }
+            });
+        }
     }
 
     @Override
@@ -301,10 +327,10 @@ public class UserServiceImpl implements UserService {
             return; // 已经关注了，直接返回成功，或者抛异常提示
         }
 
-        // 3. 获取双方信息 (为了填充 Mongo 冗余字段)
-        // 使用 Postgres 查询，确保数据最新
-        User currentUser = userMapper.selectById(currentUserId);
-        User targetUser = userMapper.selectById(targetUserId);
+        // 3. 获取双方信息 (为了填充 Mongo 冗余字段)，走名片缓存，一次批量读
+        Map<Long, UserCardCache.Card> cards = userCardCache.getAll(List.of(currentUserId, targetUserId));
+        UserCardCache.Card currentUser = cards.get(currentUserId);
+        UserCardCache.Card targetUser = cards.get(targetUserId);
 
         if (targetUser == null) {
             throw new AppException(ResultCode.USER_NOT_FOUND, "关注的用户不存在");
@@ -326,6 +352,7 @@ public class UserServiceImpl implements UserService {
         followDoc.setCreatedAt(java.time.LocalDateTime.now());
 
         userFollowRepository.save(followDoc);
+        followGraph.onFollow(currentUserId, targetUserId);
 
         // 发送 RabbitMQ 消息 (InteractionEvent)
         InteractionEvent event = new InteractionEvent(
@@ -349,58 +376,73 @@ public class UserServiceImpl implements UserService {
             throw new AppException(ResultCode.PARAM_ERROR);
         }
 
-        userFollowRepository.deleteByUserIdAndTargetUserId(currentUserId, targetUserId);
+        long deleted = userFollowRepository.deleteByUserIdAndTargetUserId(currentUserId, targetUserId);
+        if (deleted == 0) {
+            return; // 本来就没关注，幂等返回 (不发事件，避免关注数/粉丝数被重复扣减)
+        }
+        followGraph.onUnfollow(currentUserId, targetUserId);
+
+        // 发送 RabbitMQ 消息 (InteractionEvent)，用于异步清理关注流收件箱 + 更新双方统计
+        InteractionEvent event = new InteractionEvent(
+                currentUserId,
+                targetUserIdStr,
+                "FOLLOW",
+                "REMOVE",
+                null
+        );
+        mqPublisher.publish(RabbitConfig.PLATFORM_EXCHANGE, "interaction.delete", event);
     }
 
     @Override
     public PageResult<SimpleUserVO> getFriendList(FriendSearchDTO dto) {
         Long currentUserId = UserContext.getUserId();
+        int pageNum = Math.max(0, dto.getPage() - 1);
 
-        // 1. 查 "我关注了谁"
-        Query followingQuery = Query.query(Criteria.where("userId").is(currentUserId));
-        followingQuery.fields().include("targetUserId");
-
-        List<UserFollowDoc> myFollowings = mongoTemplate.find(followingQuery, UserFollowDoc.class);
-
-        if (CollUtil.isEmpty(myFollowings)) {
-            // 使用通用 VO 的静态方法快速返回空
-            return PageResult.empty(dto.getPage(), dto.getSize());
+        // 1. 没有昵称筛选：直接在 Redis 里对好友交集分页 (SCARD + SORT LIMIT)，只回查这一页的人
+        if (StrUtil.isBlank(dto.getNickname())) {
+            long total = followGraph.countFriends(currentUserId);
+            if (total == 0) {
+                return PageResult.empty(dto.getPage(), dto.getSize());
+            }
+            List<Long> pageIds = followGraph.pageFriends(currentUserId, (long) pageNum * dto.getSize(), dto.getSize());
+            Map<Long, UserCardCache.Card> cards = userCardCache.getAll(pageIds);
+
+            List<SimpleUserVO> records = new ArrayList<>();
+            List<Long> stale = new ArrayList<>();
+            for (Long id : pageIds) {
+                UserCardCache.Card card = cards.get(id);
+                if (card == null) {
+                    // 对方已注销，顺手从关注关系 Set 里清掉
+                    stale.add(id);
+                    continue;
+                }
+                SimpleUserVO simpleUserVO = new SimpleUserVO();
+                simpleUserVO.setUserId(String.valueOf(id));
+                simpleUserVO.setNickname(card.getNickname());
+                simpleUserVO.setAvatar(card.getAvatar());
+                records.add(simpleUserVO);
+            }
+            followGraph.removeStaleFriends(currentUserId, stale);
+            return PageResult.of(records, total - stale.size(), dto.getPage(), dto.getSize());
         }
 
-        List<Long> followingIds = myFollowings.stream()
-                .map(UserFollowDoc::getTargetUserId)
-                .collect(Collectors.toList());
-
-        // 2. 查 "互相关注" + "昵称搜索"
-        Query friendQuery = new Query();
-
-        Criteria criteria = Criteria.where("targetUserId").is(currentUserId)
-                .and("userId").in(followingIds);
-
-        // 动态条件：昵称搜索
-        if (StrUtil.isNotBlank(dto.getNickname())) {
-            criteria.and("userNickname").regex(dto.getNickname(), "i");
+        // 2. 带昵称筛选：好友交集 (只是互关的人，不是全部关注) + 昵称正则交给 Mongo
+        Set<Long> friendIds = followGraph.allFriends(currentUserId);
+        if (friendIds.isEmpty()) {
+            return PageResult.empty(dto.getPage(), dto.getSize());
         }
+        Query friendQuery = Query.query(Criteria.where("targetUserId").is(currentUserId)
+                .and("userId").in(friendIds)
+                .and("userNickname").regex(dto.getNickname(), "i"));
 
-        friendQuery.addCriteria(criteria);
-
-        // 3. 查总数 (用于分页)
         long total = mongoTemplate.count(friendQuery, UserFollowDoc.class);
-
         if (total == 0) {
             return PageResult.empty(dto.getPage(), dto.getSize());
         }
 
-        // 4. 构建分页
-        // 注意：MongoDB 的 skip 是基于 0 开始的，但你的 DTO 默认是 1
-        int pageNum = Math.max(0, dto.getPage() - 1);
-        Pageable pageable = PageRequest.of(pageNum, dto.getSize());
-        friendQuery.with(pageable);
-
-        // 5. 查数据
+        friendQuery.with(PageRequest.of(pageNum, dto.getSize()));
         List<UserFollowDoc> docs = mongoTemplate.find(friendQuery, UserFollowDoc.class);
 
-        // 6. 转换 List<UserInfo>
         List<SimpleUserVO> records = docs.stream().map(doc -> {
             SimpleUserVO simpleUserVO = new SimpleUserVO();
             simpleUserVO.setUserId(String.valueOf(doc.getUserId()));
@@ -410,7 +452,6 @@ public class UserServiceImpl implements UserService {
             return simpleUserVO;
         }).collect(Collectors.toList());
 
-        // 7. 返回标准 VO
         return PageResult.of(records, total, dto.getPage(), dto.getSize());
     }
     // Private Helpers
@@ -440,40 +481,11 @@ public class UserServiceImpl implements UserService {
         BeanUtils.copyProperties(targetUser, vo);
         vo.setUserId(targetUser.getId().toString()); // Long -> String
 
-        // 3. 【逻辑复用】填充统计数据 (关注数、粉丝数、获赞数)
-
-        // 查询关注数 (我关注了谁 -> userId = 我)
-        long followCount = mongoTemplate.count(
-                Query.query(Criteria.where("userId").is(targetUserId)),
-                UserFollowDoc.class
-        );
-        vo.setFollowCount(followCount);
-
-        // 查询粉丝数 (谁关注了我 -> targetUserId = 我)
-        long fanCount = mongoTemplate.count(
-                Query.query(Criteria.where("targetUserId").is(targetUserId)),
-                UserFollowDoc.class
-        );
-        vo.setFanCount(fanCount);
-
-        // 查询获赞总数 (聚合查询)
-        // 逻辑：找出该用户所有未删除的帖子，累加它们的 likeCount
-        Aggregation agg = Aggregation.newAggregation(
-                // 筛选：我的帖子 && 未删除
-                Aggregation.match(Criteria.where("userId").is(targetUserId).and("isDeleted").is(0)),
-                // 分组：求和
-                Aggregation.group().sum("likeCount").as("totalLikes")
-        );
-
-        AggregationResults<Map> results = mongoTemplate.aggregate(agg, PostDoc.class, Map.class);
-        Map<String, Object> result = results.getUniqueMappedResult();
-
-        if (result != null && result.get("totalLikes") != null) {
-            // Mongo 聚合返回的数值类型可能不固定，转 Number 再取 longValue 比较稳妥
-            vo.setReceivedLikeCount(((Number) result.get("totalLikes")).longValue());
-        } else {
-            vo.setReceivedLikeCount(0L);
-        }
+        // 3. 【逻辑复用】填充统计数据 (关注数、粉丝数、获赞数)，user_stats 一次主键查询
+        UserStatsDoc stats = userStatsService.getStats(targetUserId);
+        vo.setFollowCount(stats.getFollowCount());
+        vo.setFanCount(stats.getFanCount());
+        vo.setReceivedLikeCount(stats.getReceivedLikeCount());
 
         // 4. 【核心差异】判断当前用户是否关注了目标用户
         Long currentUserId = UserContext.getUserId();
@@ -506,42 +518,12 @@ public class UserServiceImpl implements UserService {
         vo.setHasPassword(StrUtil.isNotBlank(user.getPassword()));
 
         // =====================================================
-        // 2. 查询统计数据 (MongoDB)
+        // 2. 查询统计数据 (MongoDB user_stats，一次主键查询)
         // =====================================================
-        Long userId = user.getId();
-
-        // 2.1 查询关注数 (我关注了谁 -> userId = 我)
-        long followCount = mongoTemplate.count(
-                Query.query(Criteria.where("userId").is(userId)),
-                UserFollowDoc.class
-        );
-        vo.setFollowCount(followCount);
-
-        // 2.2 查询粉丝数 (谁关注了我 -> targetUserId = 我)
-        long fanCount = mongoTemplate.count(
-                Query.query(Criteria.where("targetUserId").is(userId)),
-                UserFollowDoc.class
-        );
-        vo.setFanCount(fanCount);
-
-        // 2.3 查询获赞总数 (聚合查询)
-        // 逻辑：找出该用户所有未删除的帖子，累加它们的 likeCount
-        Aggregation agg = Aggregation.newAggregation(
-                // 筛选：我的帖子 && 未删除
-                Aggregation.match(Criteria.where("userId").is(userId).and("isDeleted").is(0)),
-                // 分组：求和
-                Aggregation.group().sum("likeCount").as("totalLikes")
-        );
-
-        AggregationResults<Map> results = mongoTemplate.aggregate(agg, PostDoc.class, Map.class);
-        Map<String, Object> result = results.getUniqueMappedResult();
-
-        if (result != null && result.get("totalLikes") != null) {
-            // Mongo 聚合返回的数值类型可能不固定，转 Number 再取 longValue 比较稳妥
-            vo.setReceivedLikeCount(((Number) result.get("totalLikes")).longValue());
-        } else {
-            vo.setReceivedLikeCount(0L);
-        }
+        UserStatsDoc stats = userStatsService.getStats(user.getId());
+        vo.setFollowCount(stats.getFollowCount());
+        vo.setFanCount(stats.getFanCount());
+        vo.setReceivedLikeCount(stats.getReceivedLikeCount());
 
         return vo;
     }
@@ -563,68 +545,71 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    public List<UserSearchVO> searchUsers(String keyword) {
+    public List<UserSearchVO> searchUsers(String keyword, Integer page, Integer size) {
         if (StrUtil.isBlank(keyword)) {
             return new ArrayList<>();
         }
+        int pageNum = (page == null || page < 1) ? 1 : page;
+        int pageSize = (size == null || size < 1) ? 20 : Math.min(size, 50);
 
-        String normalizedKeyword = keyword.trim().toLowerCase();
-
-        // 1. [PostgreSQL] 模糊查询
-        // 注意：这里 LIMIT 50 稍微放宽一点，增加命中熟人的概率
-        List<User> users = userMapper.selectList(new LambdaQueryWrapper<User>()
-                .and(w -> w.like(User::getNickname, keyword)
-                        .or()
-                        .like(User::getEmail, keyword))
-                .eq(User::getStatus, 1)
-                .last("LIMIT 50"));
+        // 1. [ES] users 索引检索，匹配和排序都在 ES 里做，可以一直往后翻页
+        List<UserSearchVO> resultList;
+        boolean rankedByEngine = true;
+        try {
+            UserSearchEngine.Result esResult = userSearchEngine.search(keyword, pageNum - 1, pageSize);
+            resultList = esResult.getUsers().stream().map(doc -> {
+                UserSearchVO vo = new UserSearchVO();
+                vo.setUserId(doc.getId());
+                vo.setNickname(doc.getNickname());
+                vo.setAvatar(doc.getAvatar());
+                vo.setEmail(doc.getEmail());
+                return vo;
+            }).collect(Collectors.toList());
+            // 索引可能落后于数据库 (删除消息还在重试 / 进了死信)，已注销、已封禁的用户按库里的状态滤掉
+            resultList = filterActiveUsers(resultList);
+        } catch (PostSearchEngine.EsUnavailableException e) {
+            // 2. [PostgreSQL] ES 不可用时降级到原来的模糊查询
+            resultList = searchUsersFromDb(keyword, pageNum, pageSize);
+            rankedByEngine = false;
+        }
 
-        if (CollUtil.isEmpty(users)) {
-            return new ArrayList<>();
+        if (resultList.isEmpty()) {
+            return resultList;
         }
 
-        // 2. 准备 ID 列表
+        // 3. [Redis] 批量判断关系 (关注关系 Set，各一次 SMISMEMBER)
         Long currentUserId = UserContext.getUserId();
-        List<Long> searchedUserIds = users.stream().map(User::getId).collect(Collectors.toList());
+        List<Long> searchedUserIds = resultList.stream()
+                .map(vo -> Long.valueOf(vo.getUserId()))
+                .collect(Collectors.toList());
 
         Set<Long> myFollowingSet = new HashSet<>();
         Set<Long> myFansSet = new HashSet<>();
-
-        // 3. [MongoDB] 批量查询关系
         if (currentUserId != null) {
-            // A. 查 "我关注了谁"
-            List<UserFollowDoc> followings = userFollowRepository.findByUserIdAndTargetUserIdIn(currentUserId, searchedUserIds);
-            myFollowingSet = followings.stream().map(UserFollowDoc::getTargetUserId).collect(Collectors.toSet());
+            // A. "我关注了谁"
+            myFollowingSet = followGraph.followingAmong(currentUserId, searchedUserIds);
 
-            // B. 查 "谁关注了我"
-            List<UserFollowDoc> fans = userFollowRepository.findByUserIdInAndTargetUserId(searchedUserIds, currentUserId);
-            myFansSet = fans.stream().map(UserFollowDoc::getUserId).collect(Collectors.toSet());
+            // B. "谁关注了我"
+            myFansSet = followGraph.followersAmong(currentUserId, searchedUserIds);
         }
 
-        Set<Long> finalMyFollowingSet = myFollowingSet;
-        Set<Long> finalMyFansSet = myFansSet;
-
-        // 4. 组装 VO 列表
-        List<UserSearchVO> resultList = users.stream().map(user -> {
-            UserSearchVO vo = new UserSearchVO();
-            vo.setUserId(String.valueOf(user.getId()));
-            vo.setNickname(user.getNickname());
-            vo.setAvatar(user.getAvatar());
-            vo.setEmail(user.getEmail());
-
-            if (currentUserId != null && currentUserId.equals(user.getId())) {
+        for (UserSearchVO vo : resultList) {
+            Long userId = Long.valueOf(vo.getUserId());
+            if (currentUserId != null && currentUserId.equals(userId)) {
                 vo.setIsFollowed(false);
                 vo.setIsFollowingMe(false);
             } else {
-                vo.setIsFollowed(finalMyFollowingSet.contains(user.getId()));
-                vo.setIsFollowingMe(finalMyFansSet.contains(user.getId()));
+                vo.setIsFollowed(myFollowingSet.contains(userId));
+                vo.setIsFollowingMe(myFansSet.contains(userId));
             }
-            return vo;
-        }).collect(Collectors.toList());
+        }
+
+        if (rankedByEngine) {
+            return resultList;
+        }
 
-        // 5. 内存排序
-        // 先按搜索匹配质量排序，再用关注关系做次级加权，
-        // 避免“模糊命中很多但真正最相关的人排不到前面”的体验问题。
+        // 4. 降级路径：页内按匹配质量排序，再用关注关系做次级加权
+        String normalizedKeyword = keyword.trim().toLowerCase();
         resultList.sort((o1, o2) -> {
             int matchScore1 = calculateSearchWeight(o1, normalizedKeyword);
             int matchScore2 = calculateSearchWeight(o2, normalizedKeyword);
@@ -644,6 +629,65 @@ public class UserServiceImpl implements UserService {
         return resultList;
     }
 
+    /**
+     * 降级：PostgreSQL 模糊查询 (全表扫描，只在 ES 不可用时走)
+     */
+    /**
+     * ES 命中的用户回查一次数据库 (逻辑删除的查不出来)，只保留状态正常的
+     */
+    private List<UserSearchVO> filterActiveUsers(List<UserSearchVO> resultList) {
+        if (resultList.isEmpty()) {
+            return resultList;
+        }
+        List<Long> ids = resultList.stream().map(vo -> Long.valueOf(vo.getUserId())).collect(Collectors.toList());
+        Set<String> active = userMapper.selectList(new LambdaQueryWrapper<User>()
+                        .select(User::getId)
+                        .in(User::getId, ids)
+                        .eq(User::getStatus, 1))
+                .stream()
+                .map(user -> String.valueOf(user.getId()))
+                .collect(Collectors.toSet());
+        if (active.size() == resultList.size()) {
+            return resultList;
+        }
+        return resultList.stream().filter(vo -> active.contains(vo.getUserId())).collect(Collectors.toList());
+    }
+
+    /**
+     * 在当前事务提交后执行 (没有事务时立即执行)
+     */
+    private void runAfterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private List<UserSearchVO> searchUsersFromDb(String keyword, int pageNum, int pageSize) {
+        List<User> users = userMapper.selectList(new LambdaQueryWrapper<User>()
+                .and(w -> w.like(User::getNickname, keyword)
+                        .or()
+                        .like(User::getEmail, keyword))
+                .eq(User::getStatus, 1)
+                .orderByAsc(User::getId)
+                .last("LIMIT " + pageSize + " OFFSET " + (long) (pageNum - 1) * pageSize));
+
+        return users.stream().map(user -> {
+            UserSearchVO vo = new UserSearchVO();
+            vo.setUserId(String.valueOf(user.getId()));
+            vo.setNickname(user.getNickname());
+            vo.setAvatar(user.getAvatar());
+            vo.setEmail(user.getEmail());
+            return vo;
+        }).collect(Collectors.toList());
+    }
+
     /**
      * 辅助方法：计算搜索匹配权重
      * 昵称完全命中 > 昵称前缀命中 > 昵称包含 > 邮箱前缀命中 > 邮箱包含
@@ -715,6 +759,12 @@ public class UserServiceImpl implements UserService {
         return buildPostListResult(postIds, docPage.getTotalElements(), null, page, size);
     }
 
+    @Override
+    public PageResult<PostVO> getMyLikeListByCursor(String cursor, Integer size) {
+        return buildRelationCursorResult(PostLikeDoc.class, "createdAt", cursor, size,
+                PostLikeDoc::getId, PostLikeDoc::getCreatedAt, PostLikeDoc::getPostId);
+    }
+
     // ================== 2. 获取我的收藏列表 ==================
     @Override
     public PageResult<PostVO> getMyCollectList(Integer page, Integer size) {
@@ -730,6 +780,12 @@ public class UserServiceImpl implements UserService {
         return buildPostListResult(postIds, docPage.getTotalElements(), null, page, size);
     }
 
+    @Override
+    public PageResult<PostVO> getMyCollectListByCursor(String cursor, Integer size) {
+        return buildRelationCursorResult(PostCollectDoc.class, "createdAt", cursor, size,
+                PostCollectDoc::getId, PostCollectDoc::getCreatedAt, PostCollectDoc::getPostId);
+    }
+
     // ================== 3. 获取我的评分列表 ==================
     @Override
     public PageResult<PostVO> getMyRateList(Integer page, Integer size) {
@@ -789,6 +845,12 @@ public class UserServiceImpl implements UserService {
         return buildPostListResult(postIds, historyPage.getTotalElements(), null, page, size);
     }
 
+    @Override
+    public PageResult<PostVO> getBrowsingHistoryByCursor(String cursor, Integer size) {
+        return buildRelationCursorResult(PostViewHistoryDoc.class, "viewTime", cursor, size,
+                PostViewHistoryDoc::getId, PostViewHistoryDoc::getViewTime, PostViewHistoryDoc::getPostId);
+    }
+
     // 记录用户浏览记录
     @Override
     public void recordBrowsingHistory(Long userId, String postId) {
@@ -808,7 +870,7 @@ public class UserServiceImpl implements UserService {
         mongoTemplate.upsert(query, update, PostViewHistoryDoc.class);
 
         // 4. Redis计数器 + 1
-        redisTemplate.opsForHash().increment(CACHE_POST_VIEWS, postId, 1);
+        redisTemplate.opsForHash().increment(RedisKey.POST_VIEWS_BUFFER, postId, 1);
     }
 
     @Override
@@ -879,22 +941,62 @@ public class UserServiceImpl implements UserService {
             return PageResult.empty(page, size);
         }
 
-        // 1. 批量查帖子详情
-        List<PostDoc> posts = postRepository.findAllById(postIds);
+        List<PostVO> voList = convertDocsToVOs(findPostsInOrder(postIds), scoreMap);
+        return PageResult.of(voList, total, page, size);
+    }
 
-        // 2. 为了保证顺序 (MongoDB findAllById 不保证顺序)，我们需要按 postIds 的顺序重排 posts
-        Map<String, PostDoc> map = posts.stream().collect(Collectors.toMap(PostDoc::getId, p -> p));
+    /**
+     * 场景 A': 关系表 (点赞/收藏/历史) 游标分页
+     * 按 (时间倒序, _id 倒序) 做 keyset，多查一条判断 hasMore，不 skip、不 count
+     * @param timeField 关系表中的时间字段 (createdAt / viewTime)
+     */
+    private <T> PageResult<PostVO> buildRelationCursorResult(Class<T> clazz, String timeField, String cursor, Integer size,
+                                                             Function<T, String> idGetter,
+                                                             Function<T, LocalDateTime> timeGetter,
+                                                             Function<T, String> postIdGetter) {
+        Long userId = UserContext.getUserId();
+        int pageSize = (size == null || size < 1) ? 20 : size;
+        PageCursor after = PageCursor.decode(cursor);
+
+        Criteria criteria = Criteria.where("userId").is(userId);
+        if (after != null) {
+            criteria = new Criteria().andOperator(criteria, after.toCriteria(timeField, false));
+        }
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, timeField, "_id"))
+                .limit(pageSize + 1);
+        List<T> relations = mongoTemplate.find(query, clazz);
+
+        boolean hasMore = relations.size() > pageSize;
+        if (hasMore) {
+            relations = relations.subList(0, pageSize);
+        }
+        // 游标取关系记录本身 (而不是帖子)，帖子被删了也不影响继续往下翻
+        String nextCursor = null;
+        if (!relations.isEmpty()) {
+            T last = relations.get(relations.size() - 1);
+            nextCursor = PageCursor.of(timeGetter.apply(last), null, idGetter.apply(last)).encode();
+        }
+
+        List<String> postIds = relations.stream().map(postIdGetter).collect(Collectors.toList());
+        List<PostVO> voList = CollUtil.isEmpty(postIds)
+                ? Collections.emptyList()
+                : convertDocsToVOs(findPostsInOrder(postIds), null);
+        return PageResult.ofCursor(voList, pageSize, hasMore, nextCursor);
+    }
+
+    /**
+     * 批量查帖子详情 (走二级缓存)，并按 postIds 的顺序重排
+     */
+    private List<PostDoc> findPostsInOrder(List<String> postIds) {
+        Map<String, PostDoc> map = postCache.getAll(postIds);
         List<PostDoc> sortedPosts = new ArrayList<>();
         for (String id : postIds) {
             if (map.containsKey(id)) {
                 sortedPosts.add(map.get(id));
             }
         }
-
-        // 3. 转 VO
-        List<PostVO> voList = convertDocsToVOs(sortedPosts, scoreMap);
-
-        return PageResult.of(voList, total, page, size);
+        return sortedPosts;
     }
 
     /**
@@ -908,23 +1010,12 @@ public class UserServiceImpl implements UserService {
 
         // 1. 提取 ID 用于批量查状态
         List<String> postIds = posts.stream().map(PostDoc::getId).collect(Collectors.toList());
-        Long currentUserId = UserContext.getUserId();
+        List<Long> authorIds = posts.stream().map(PostDoc::getUserId).distinct().collect(Collectors.toList());
 
-        // 2. 批量查交互状态 (优化 N+1)
-        Set<String> likedPostIds = new HashSet<>();
-        Set<String> collectedPostIds = new HashSet<>();
-
-        if (currentUserId != null) {
-            List<PostLikeDoc> likes = postLikeRepository.findByUserIdAndPostIdIn(currentUserId, postIds);
-            likedPostIds = likes.stream().map(PostLikeDoc::getPostId).collect(Collectors.toSet());
-
-            List<PostCollectDoc> collects = postCollectRepository.findByUserIdAndPostIdIn(currentUserId, postIds);
-            collectedPostIds = collects.stream().map(PostCollectDoc::getPostId).collect(Collectors.toSet());
-        }
+        // 2. 批量查交互状态 (优化 N+1，点赞/收藏/关注并行查)
+        ViewerStateService.ViewerState state = viewerStateService.resolve(UserContext.getUserId(), postIds, authorIds, false);
 
         // 3. 转换
-        Set<String> finalLikedIds = likedPostIds;
-        Set<String> finalCollectedIds = collectedPostIds;
 
         return posts.stream()
                 .filter(Objects::nonNull)
@@ -948,8 +1039,9 @@ public class UserServiceImpl implements UserService {
                     // 如果 AdminPostVO 有 viewCount/commentCount，这里也可以设
 
                     // --- 交互状态 ---
-                    vo.setIsLiked(finalLikedIds.contains(doc.getId()));
-                    vo.setIsCollected(finalCollectedIds.contains(doc.getId()));
+                    vo.setIsLiked(state.isLiked(doc.getId()));
+                    vo.setIsCollected(state.isCollected(doc.getId()));
+                    vo.setIsFollowed(state.isFollowed(doc.getUserId()));
 
                     // --- 评分 (仅评分列表需要) ---
                     if (scoreMap != null && scoreMap.containsKey(doc.getId())) {
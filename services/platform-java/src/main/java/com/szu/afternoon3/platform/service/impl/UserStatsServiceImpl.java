@@ -0,0 +1,240 @@
+package com.szu.afternoon3.platform.service.impl;
+
+import cn.hutool.core.collection.CollUtil;
+import com.szu.afternoon3.platform.component.CounterBuffer;
+import com.szu.afternoon3.platform.entity.mongo.*;
+import com.szu.afternoon3.platform.service.UserStatsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+@Slf4j
+@Service
+public class UserStatsServiceImpl implements UserStatsService {
+
+    // 重算期间撞上并发增量时的重试次数，用完就留给下一轮对账
+    private static final int MAX_REBUILD_ATTEMPTS = 3;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private CounterBuffer counterBuffer;
+
+    // 每轮对账重算多少个用户 (按 rebuiltAt 从旧到新)
+    @Value("${app.user-stats.reconcile-batch-size:200}")
+    private int reconcileBatchSize;
+
+    @Override
+    public UserStatsDoc getStats(Long userId) {
+        UserStatsDoc stats = mongoTemplate.findById(userId, UserStatsDoc.class);
+        return stats != null ? stats : createIfAbsent(userId);
+    }
+
+    @Override
+    public Map<Long, UserStatsDoc> getStats(Collection<Long> userIds) {
+        if (CollUtil.isEmpty(userIds)) {
+            return Collections.emptyMap();
+        }
+        Map<Long, UserStatsDoc> result = new HashMap<>();
+        for (UserStatsDoc stats : mongoTemplate.find(Query.query(Criteria.where("_id").in(userIds)), UserStatsDoc.class)) {
+            result.put(stats.getUserId(), stats);
+        }
+        for (Long userId : userIds) {
+            if (!result.containsKey(userId)) {
+                result.put(userId, createIfAbsent(userId));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void inc(Long userId, String field, int delta) {
+        counterBuffer.incUserStats(userId, field, delta);
+    }
+
+    @Override
+    public void onPostDeleted(String postId) {
+        // 先把这篇帖子还在缓冲里的点赞/收藏增量刷进去，下面读到的计数才是全的
+        counterBuffer.flush();
+        PostDoc post = mongoTemplate.findById(postId, PostDoc.class);
+        if (post == null || post.getUserId() == null) return;
+
+        // 1. 作者：少一篇帖子，这篇帖子上的计数不再算作 "获得的"
+        Long authorId = post.getUserId();
+        inc(authorId, "postCount", -1);
+        inc(authorId, "receivedLikeCount", -nullToZero(post.getLikeCount()));
+        inc(authorId, "receivedCollectCount", -nullToZero(post.getCollectCount()));
+        inc(authorId, "receivedCommentCount", -nullToZero(post.getCommentCount()));
+
+        // 2. 参与者：关联记录马上会被级联删除，按人聚合后各自扣减
+        decGivenByPost(PostLikeDoc.class, postId, "givenLikeCount");
+        decGivenByPost(PostCollectDoc.class, postId, "givenCollectCount");
+        decGivenByPost(PostRatingDoc.class, postId, "givenRateCount");
+        decGivenByPost(CommentDoc.class, postId, "givenCommentCount");
+    }
+
+    /**
+     * 从源数据重算并覆盖
+     * 覆盖以读到的 version 为条件：重算期间有增量 $inc 进来 (version 变了) 就不覆盖，重新读版本再算一遍，
+     * 否则那次增量会被现算的旧值吞掉。
+     */
+    @Override
+    public UserStatsDoc rebuild(Long userId) {
+        // 本机缓冲里还没刷出的增量先落库，免得源数据里已经有了、重算完又被 $inc 一次
+        counterBuffer.flush();
+        for (int attempt = 0; attempt < MAX_REBUILD_ATTEMPTS; attempt++) {
+            Query query = Query.query(Criteria.where("_id").is(userId));
+            query.fields().include("version");
+            UserStatsDoc current = mongoTemplate.findOne(query, UserStatsDoc.class);
+            if (current == null) {
+                return createIfAbsent(userId);
+            }
+            UserStatsDoc stats = compute(userId);
+            stats.setVersion(current.getVersion());
+            if (overwrite(stats)) {
+                return stats;
+            }
+        }
+        log.info("用户统计重算时一直有并发增量, 留到下一轮 userId={}", userId);
+        return mongoTemplate.findById(userId, UserStatsDoc.class);
+    }
+
+    /**
+     * 定时对账：每轮挑最久没重算过的一批用户，从源数据重算覆盖
+     * 修正的是漏消费 / 绕过事件的批量删除 / 写合并未刷出就宕机 这类偏差；
+     * 重算和并发增量撞上时不覆盖 (见 rebuild)，rebuiltAt 没更新，下一轮还会排在前面。
+     * 多副本同时跑只是重复计算，结果一致，不加锁。
+     */
+    @Scheduled(fixedDelayString = "${app.user-stats.reconcile-interval-ms:600000}",
+            initialDelayString = "${app.user-stats.reconcile-initial-delay-ms:60000}")
+    public void reconcile() {
+        Query query = new Query()
+                .with(Sort.by(Sort.Direction.ASC, "rebuiltAt"))
+                .limit(reconcileBatchSize);
+        query.fields().include("_id");
+        List<UserStatsDoc> stale = mongoTemplate.find(query, UserStatsDoc.class);
+
+        int done = 0;
+        for (UserStatsDoc doc : stale) {
+            try {
+                rebuild(doc.getUserId());
+                done++;
+            } catch (Exception e) {
+                log.warn("用户统计重算失败 userId={}: {}", doc.getUserId(), e.getMessage());
+            }
+        }
+        if (done > 0) {
+            log.info("用户统计对账完成, 重算 {} 个用户", done);
+        }
+    }
+
+    // --- Private Methods ---
+
+    /**
+     * 首次读取：现算一份插入；并发插入时以先插入的为准
+     */
+    private UserStatsDoc createIfAbsent(Long userId) {
+        UserStatsDoc stats = compute(userId);
+        try {
+            mongoTemplate.insert(stats);
+            return stats;
+        } catch (DuplicateKeyException e) {
+            UserStatsDoc existing = mongoTemplate.findById(userId, UserStatsDoc.class);
+            return existing != null ? existing : stats;
+        }
+    }
+
+    /**
+     * 版本没变才覆盖 (老文档没有 version 字段，按 null 匹配)
+     * @return false 表示期间有并发增量
+     */
+    private boolean overwrite(UserStatsDoc stats) {
+        Query query = Query.query(Criteria.where("_id").is(stats.getUserId()).and("version").is(stats.getVersion()));
+        Update update = new Update()
+                .set("followCount", stats.getFollowCount())
+                .set("fanCount", stats.getFanCount())
+                .set("postCount", stats.getPostCount())
+                .set("givenLikeCount", stats.getGivenLikeCount())
+                .set("givenCollectCount", stats.getGivenCollectCount())
+                .set("givenCommentCount", stats.getGivenCommentCount())
+                .set("givenRateCount", stats.getGivenRateCount())
+                .set("receivedLikeCount", stats.getReceivedLikeCount())
+                .set("receivedCollectCount", stats.getReceivedCollectCount())
+                .set("receivedCommentCount", stats.getReceivedCommentCount())
+                .set("rebuiltAt", stats.getRebuiltAt());
+        return mongoTemplate.updateFirst(query, update, UserStatsDoc.class).getMatchedCount() > 0;
+    }
+
+    /**
+     * 从源数据现算 (即原来主页 / 用户详情里的那一串查询)
+     */
+    private UserStatsDoc compute(Long userId) {
+        UserStatsDoc stats = new UserStatsDoc();
+        stats.setUserId(userId);
+
+        stats.setFollowCount(count("userId", userId, UserFollowDoc.class));
+        stats.setFanCount(count("targetUserId", userId, UserFollowDoc.class));
+
+        stats.setPostCount(mongoTemplate.count(
+                Query.query(Criteria.where("userId").is(userId).and("isDeleted").is(0)), PostDoc.class));
+        stats.setGivenLikeCount(count("userId", userId, PostLikeDoc.class));
+        stats.setGivenCollectCount(count("userId", userId, PostCollectDoc.class));
+        stats.setGivenCommentCount(count("userId", userId, CommentDoc.class));
+        stats.setGivenRateCount(count("userId", userId, PostRatingDoc.class));
+
+        // 我的未删除帖子上的计数求和
+        Aggregation agg = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("userId").is(userId).and("isDeleted").is(0)),
+                Aggregation.group()
+                        .sum("likeCount").as("totalLikes")
+                        .sum("collectCount").as("totalCollects")
+                        .sum("commentCount").as("totalComments")
+        );
+        Map<?, ?> sums = mongoTemplate.aggregate(agg, PostDoc.class, Map.class).getUniqueMappedResult();
+        stats.setReceivedLikeCount(sums == null ? 0L : toLong(sums.get("totalLikes")));
+        stats.setReceivedCollectCount(sums == null ? 0L : toLong(sums.get("totalCollects")));
+        stats.setReceivedCommentCount(sums == null ? 0L : toLong(sums.get("totalComments")));
+
+        stats.setRebuiltAt(LocalDateTime.now());
+        return stats;
+    }
+
+    private long count(String field, Long userId, Class<?> type) {
+        return mongoTemplate.count(Query.query(Criteria.where(field).is(userId)), type);
+    }
+
+    /**
+     * 按 userId 聚合某篇帖子上的关联记录条数，每人扣减对应的发出计数
+     */
+    private void decGivenByPost(Class<?> type, String postId, String field) {
+        Aggregation agg = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("postId").is(postId)),
+                Aggregation.group("userId").count().as("count")
+        );
+        for (Map<?, ?> row : mongoTemplate.aggregate(agg, type, Map.class).getMappedResults()) {
+            if (row.get("_id") instanceof Number userId) {
+                inc(userId.longValue(), field, -(int) toLong(row.get("count")));
+            }
+        }
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+
+    private static int nullToZero(Integer value) {
+        return value == null ? 0 : value;
+    }
+}
@@ -0,0 +1,218 @@
+package com.szu.afternoon3.platform.service.impl;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.thread.NamedThreadFactory;
+import com.szu.afternoon3.platform.entity.mongo.PostCollectDoc;
+import com.szu.afternoon3.platform.entity.mongo.PostLikeDoc;
+import com.szu.afternoon3.platform.entity.mongo.PostRatingDoc;
+import com.szu.afternoon3.platform.entity.mongo.UserFollowDoc;
+import com.szu.afternoon3.platform.repository.PostCollectRepository;
+import com.szu.afternoon3.platform.repository.PostLikeRepository;
+import com.szu.afternoon3.platform.repository.PostRatingRepository;
+import com.szu.afternoon3.platform.repository.UserFollowRepository;
+import com.szu.afternoon3.platform.service.ViewerStateService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class ViewerStateServiceImpl implements ViewerStateService {
+
+    @Autowired
+    private PostLikeRepository postLikeRepository;
+    @Autowired
+    private PostCollectRepository postCollectRepository;
+    @Autowired
+    private UserFollowRepository userFollowRepository;
+    @Autowired
+    private PostRatingRepository postRatingRepository;
+
+    // 并行查询线程数 (每次解析最多 4 个任务)，队列满时由调用线程自己执行，退化为串行但不丢请求
+    @Value("${app.viewer-state.pool-size:16}")
+    private int poolSize;
+
+    @Value("${app.viewer-state.queue-capacity:512}")
+    private int queueCapacity;
+
+    // 等待并行查询的上限，超时的那一类状态按 "未交互" 降级，不影响列表返回
+    @Value("${app.viewer-state.timeout-ms:500}")
+    private long timeoutMs;
+
+    // 请求级缓存的 key (存放在 RequestAttributes 里，请求结束自动释放)
+    private static final String MEMO_ATTR = ViewerStateServiceImpl.class.getName() + ".MEMO";
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new NamedThreadFactory("viewer-state-", true),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public ViewerState resolve(Long viewerId, Collection<String> postIds, Collection<Long> authorIds, boolean withScore) {
+        if (viewerId == null) {
+            return new ViewerState();
+        }
+        Memo memo = currentMemo(viewerId);
+
+        // 1. 只查本次请求里还没查过的
+        List<String> newPostIds = distinctMissing(postIds, memo.checkedPostIds);
+        List<Long> newAuthorIds = distinctMissing(authorIds, memo.checkedAuthorIds);
+        List<String> newScorePostIds = withScore
+                ? distinctMissing(postIds, memo.checkedScorePostIds)
+                : Collections.emptyList();
+
+        // 2. 四类查询并行
+        CompletableFuture<Set<String>> liked = submit(newPostIds.isEmpty(), Collections.emptySet(), () ->
+                postLikeRepository.findByUserIdAndPostIdIn(viewerId, newPostIds).stream()
+                        .map(PostLikeDoc::getPostId).collect(Collectors.toSet()));
+        CompletableFuture<Set<String>> collected = submit(newPostIds.isEmpty(), Collections.emptySet(), () ->
+                postCollectRepository.findByUserIdAndPostIdIn(viewerId, newPostIds).stream()
+                        .map(PostCollectDoc::getPostId).collect(Collectors.toSet()));
+        CompletableFuture<Set<Long>> followed = submit(newAuthorIds.isEmpty(), Collections.emptySet(), () ->
+                userFollowRepository.findByUserIdAndTargetUserIdIn(viewerId, newAuthorIds).stream()
+                        .map(UserFollowDoc::getTargetUserId).collect(Collectors.toSet()));
+        CompletableFuture<Map<String, Double>> scores = submit(newScorePostIds.isEmpty(), Collections.emptyMap(), () ->
+                postRatingRepository.findByUserIdAndPostIdIn(viewerId, newScorePostIds).stream()
+                        .filter(r -> r.getScore() != null)
+                        .collect(Collectors.toMap(PostRatingDoc::getPostId, PostRatingDoc::getScore, (a, b) -> a)));
+
+        try {
+            CompletableFuture.allOf(liked, collected, followed, scores).get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("viewer state 查询超时 {}ms, viewerId={}, posts={}", timeoutMs, viewerId, newPostIds.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("viewer state 查询失败 viewerId={}: {}", viewerId, e.getCause() == null ? e.getMessage() : e.getCause().getMessage());
+        }
+
+        // 3. 合并进请求级缓存；失败/超时的那一类不标记为已查，同一请求内下次还会再试
+        Set<String> likedSet = doneOrNull(liked);
+        Set<String> collectedSet = doneOrNull(collected);
+        if (likedSet != null && collectedSet != null) {
+            memo.state.getLikedPostIds().addAll(likedSet);
+            memo.state.getCollectedPostIds().addAll(collectedSet);
+            memo.checkedPostIds.addAll(newPostIds);
+        } else {
+            if (likedSet != null) memo.state.getLikedPostIds().addAll(likedSet);
+            if (collectedSet != null) memo.state.getCollectedPostIds().addAll(collectedSet);
+        }
+        Set<Long> followedSet = doneOrNull(followed);
+        if (followedSet != null) {
+            memo.state.getFollowedUserIds().addAll(followedSet);
+            memo.checkedAuthorIds.addAll(newAuthorIds);
+        }
+        Map<String, Double> scoreMap = doneOrNull(scores);
+        if (scoreMap != null) {
+            memo.state.getScores().putAll(scoreMap);
+            memo.checkedScorePostIds.addAll(newScorePostIds);
+        }
+        return memo.state;
+    }
+
+    // --- Private Methods ---
+
+    /**
+     * Web 请求内复用同一个 Memo；MQ 消费者等非 Web 线程每次新建
+     */
+    private Memo currentMemo(Long viewerId) {
+        RequestAttributes attrs = RequestContextHolder.getRequestAttributes();
+        if (attrs == null) {
+            return new Memo(viewerId);
+        }
+        Object existing = attrs.getAttribute(MEMO_ATTR, RequestAttributes.SCOPE_REQUEST);
+        if (existing instanceof Memo memo && viewerId.equals(memo.viewerId)) {
+            return memo;
+        }
+        Memo memo = new Memo(viewerId);
+        attrs.setAttribute(MEMO_ATTR, memo, RequestAttributes.SCOPE_REQUEST);
+        return memo;
+    }
+
+    /**
+     * 提交一类查询；没有新 ID 要查时直接返回空结果，不占线程
+     */
+    private <T> CompletableFuture<T> submit(boolean skip, T empty, Supplier<T> task) {
+        if (skip) {
+            return CompletableFuture.completedFuture(empty);
+        }
+        // 把 requestId 等 MDC 上下文带到工作线程，日志才能串起来
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        return CompletableFuture.supplyAsync(() -> {
+            // 队列满时 CallerRunsPolicy 会在请求线程上直接执行，结束后要还原原来的 MDC 而不是清空，
+            // 否则请求线程后续的日志和 access log 都丢了 requestId
+            Map<String, String> previous = MDC.getCopyOfContextMap();
+            if (mdc != null) {
+                MDC.setContextMap(mdc);
+            } else {
+                MDC.clear();
+            }
+            try {
+                return task.get();
+            } finally {
+                if (previous != null) {
+                    MDC.setContextMap(previous);
+                } else {
+                    MDC.clear();
+                }
+            }
+        }, executor);
+    }
+
+    /**
+     * 取已完成任务的结果，未完成 (超时) / 异常返回 null
+     */
+    private <T> T doneOrNull(CompletableFuture<T> future) {
+        if (!future.isDone() || future.isCompletedExceptionally()) {
+            return null;
+        }
+        return future.getNow(null);
+    }
+
+    private static <T> List<T> distinctMissing(Collection<T> ids, Set<T> checked) {
+        if (CollUtil.isEmpty(ids)) {
+            return Collections.emptyList();
+        }
+        return ids.stream()
+                .filter(Objects::nonNull)
+                .filter(id -> !checked.contains(id))
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 请求级缓存：已查过的 ID + 累积的结果
+     */
+    private static class Memo {
+        private final Long viewerId;
+        private final Set<String> checkedPostIds = new HashSet<>();
+        private final Set<Long> checkedAuthorIds = new HashSet<>();
+        private final Set<String> checkedScorePostIds = new HashSet<>();
+        private final ViewerState state = new ViewerState();
+
+        private Memo(Long viewerId) {
+            this.viewerId = viewerId;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.szu.afternoon3.platform.task;
+
+import com.szu.afternoon3.platform.entity.mongo.PostDoc;
+import com.szu.afternoon3.platform.entity.mongo.PostRatingDoc;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * 帖子评分字段迁移：ratingAverage (存均分) → ratingSum / ratingCount / ratingHistogram (存总分和分布)
+ * 启动后把有人评过但还没有 ratingHistogram 的旧帖子，按 post_ratings 重算一遍覆盖。
+ * 迁移完之后每次启动只剩一次空查询；多副本同时跑写入的值相同，不加锁。
+ * 迁移完成前有人给旧帖子评分时，评分消费者的增量更新只匹配已有 ratingHistogram 的帖子，
+ * 匹配不上就调 {@link #rebuild} 对那一篇整篇重算，不会 $inc 出不完整的分布。
+ */
+@Component
+@Slf4j
+public class PostRatingBackfillTask {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // 每批重算的帖子数
+    @Value("${app.post-rating.backfill-batch-size:500}")
+    private int batchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        Query pending = Query.query(Criteria.where("ratingHistogram").exists(false).and("ratingCount").gt(0))
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(batchSize);
+        pending.fields().include("_id");
+
+        int total = 0;
+        try {
+            while (true) {
+                List<String> postIds = mongoTemplate.find(pending, PostDoc.class).stream()
+                        .map(PostDoc::getId)
+                        .toList();
+                if (postIds.isEmpty()) break;
+                rebuild(postIds);
+                total += postIds.size();
+            }
+        } catch (Exception e) {
+            log.error("帖子评分迁移失败，已处理 {} 篇", total, e);
+            return;
+        }
+        if (total > 0) {
+            log.info("帖子评分迁移完成，共 {} 篇", total);
+        }
+    }
+
+    /**
+     * 按 (帖子, 分值) 聚合评分记录，一批帖子一次聚合 + 一次 bulk
+     */
+    public void rebuild(List<String> postIds) {
+        Aggregation agg = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("postId").in(postIds)),
+                Aggregation.group("postId", "score").count().as("count")
+        );
+
+        Map<String, Double> sums = new HashMap<>();
+        Map<String, Integer> counts = new HashMap<>();
+        Map<String, Map<String, Integer>> histograms = new HashMap<>();
+        for (Map<?, ?> row : mongoTemplate.aggregate(agg, PostRatingDoc.class, Map.class).getMappedResults()) {
+            // 多字段分组：_id = {postId, score}
+            if (!(row.get("_id") instanceof Map<?, ?> id)) continue;
+            String postId = (String) id.get("postId");
+            if (postId == null || !(id.get("score") instanceof Number score)) continue;
+            int n = ((Number) row.get("count")).intValue();
+            sums.merge(postId, score.doubleValue() * n, Double::sum);
+            counts.merge(postId, n, Integer::sum);
+            histograms.computeIfAbsent(postId, k -> new HashMap<>())
+                    .merge(PostDoc.ratingBucket(score.doubleValue()), n, Integer::sum);
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PostDoc.class);
+        for (String postId : postIds) {
+            Update update = new Update()
+                    .set("ratingSum", sums.getOrDefault(postId, 0.0))
+                    .set("ratingCount", counts.getOrDefault(postId, 0))
+                    .set("ratingHistogram", histograms.getOrDefault(postId, new HashMap<>()))
+                    .unset("ratingAverage");
+            bulk.updateOne(Query.query(Criteria.where("_id").is(postId)), update);
+        }
+        bulk.execute();
+    }
+}
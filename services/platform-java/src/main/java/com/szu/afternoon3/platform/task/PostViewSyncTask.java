@@ -1,19 +1,27 @@
 package com.szu.afternoon3.platform.task;
 
-import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.lang.UUID;
+import com.szu.afternoon3.platform.common.RedisKey;
+import com.szu.afternoon3.platform.component.HotTagBoard;
 import com.szu.afternoon3.platform.entity.mongo.PostDoc;
+import com.szu.afternoon3.platform.service.DailyStatsService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.mongodb.core.BulkOperations;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 @Component
 @Slf4j
@@ -23,45 +31,125 @@ public class PostViewSyncTask {
     private StringRedisTemplate redisTemplate;
     @Autowired
     private MongoTemplate mongoTemplate;
+    @Autowired
+    private HotTagBoard hotTagBoard;
+    @Autowired
+    private DailyStatsService dailyStatsService;
+
+    // 每批写 Mongo 的帖子数 (也是 HSCAN 的 COUNT 提示)
+    @Value("${app.post-view-sync.batch-size:500}")
+    private int batchSize;
 
-    private static final String CACHE_POST_VIEWS = "rednote:post:views:buffer";
+    // 锁的最长持有时间，进程挂掉时到期自动释放
+    @Value("${app.post-view-sync.lock-ttl-seconds:300}")
+    private long lockTtlSeconds;
+
+    /**
+     * 交换缓冲区：
+     * 上一轮还有没落完的 draining → 返回 2，先接着落它，不能覆盖
+     * 缓冲区为空 → 返回 0
+     * 否则 RENAME buffer → draining，返回 1 (之后的新浏览写进新建的 buffer，不会丢)
+     */
+    private static final DefaultRedisScript<Long> SWAP_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[2]) == 1 then return 2 end " +
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "redis.call('RENAME', KEYS[1], KEYS[2]) " +
+            "return 1",
+            Long.class);
+
+    // 只释放自己持有的锁
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) else return 0 end",
+            Long.class);
 
     /**
      * 每 1 分钟执行一次同步
-     * 策略：读取 Redis -> 批量更新 Mongo -> 删除 Redis 已处理的 Key
+     * 策略：抢锁 -> 原子交换缓冲区 -> HSCAN 分批 -> 每批 bulk 写 Mongo 后从 draining 里 HDEL 掉 -> 全部完成删 draining
+     * 每批落库后立刻删掉，进程中途挂掉时下一轮只会重放最后那一批，而不是整张表
      */
-    @Scheduled(fixedRate = 60000) // 60秒
+    @Scheduled(fixedRateString = "${app.post-view-sync.interval-ms:60000}")
     public void syncPostViewsToMongo() {
-        // 1. 获取 Redis 中所有的浏览计数
-        Map<Object, Object> viewMap = redisTemplate.opsForHash().entries(CACHE_POST_VIEWS);
-        if (CollUtil.isEmpty(viewMap)) {
+        // 1. 多副本只允许一个在跑，否则同一批增量会被加两次
+        String token = UUID.fastUUID().toString(true);
+        Boolean locked = redisTemplate.opsForValue()
+                .setIfAbsent(RedisKey.POST_VIEWS_SYNC_LOCK, token, lockTtlSeconds, TimeUnit.SECONDS);
+        if (!Boolean.TRUE.equals(locked)) {
+            log.debug("浏览量同步任务正在其他节点执行，跳过");
             return;
         }
 
-        log.info("开始同步浏览量，共 {} 条数据", viewMap.size());
-
-        // 2. 准备批量操作 (BulkOperations 性能远高于循环 save)
-        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PostDoc.class);
+        try {
+            // 2. 交换缓冲区
+            Long swap = redisTemplate.execute(SWAP_SCRIPT,
+                    Arrays.asList(RedisKey.POST_VIEWS_BUFFER, RedisKey.POST_VIEWS_DRAINING));
+            if (swap == null || swap == 0) {
+                return;
+            }
+            if (swap == 2) {
+                log.warn("发现上一轮未落完的浏览量，先续传");
+            }
 
-        for (Map.Entry<Object, Object> entry : viewMap.entrySet()) {
-            String postId = (String) entry.getKey();
-            // Redis 里存的是字符串，转成 Integer
-            Integer increment = Integer.parseInt((String) entry.getValue());
+            // 3. 分批落库
+            int total = drain();
+            log.info("浏览量同步完成，共 {} 个帖子", total);
+        } catch (Exception e) {
+            // draining 保留着，下一轮续传
+            log.error("浏览量同步失败", e);
+        } finally {
+            redisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(RedisKey.POST_VIEWS_SYNC_LOCK), token);
+        }
+    }
 
-            Query query = Query.query(Criteria.where("id").is(postId));
-            Update update = new Update().inc("viewCount", increment); // 累加
-            
-            bulkOps.updateOne(query, update);
+    private int drain() {
+        int total = 0;
+        Map<String, Long> batch = new LinkedHashMap<>();
+        ScanOptions options = ScanOptions.scanOptions().count(batchSize).build();
+        try (Cursor<Map.Entry<Object, Object>> cursor =
+                     redisTemplate.opsForHash().scan(RedisKey.POST_VIEWS_DRAINING, options)) {
+            while (cursor.hasNext()) {
+                Map.Entry<Object, Object> entry = cursor.next();
+                try {
+                    // Redis 里存的是字符串
+                    batch.merge((String) entry.getKey(), Long.parseLong((String) entry.getValue()), Long::sum);
+                } catch (NumberFormatException e) {
+                    log.warn("浏览量缓冲里有非法值 postId={}, value={}", entry.getKey(), entry.getValue());
+                }
+                if (batch.size() >= batchSize) {
+                    total += flush(batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            total += flush(batch);
         }
+        // 全部落完 (非法值也一并清掉)
+        redisTemplate.delete(RedisKey.POST_VIEWS_DRAINING);
+        return total;
+    }
 
-        // 3. 执行批量更新
+    /**
+     * 一批 bulk 写 Mongo，成功后从 draining 里删掉这些 field
+     */
+    private int flush(Map<String, Long> batch) {
+        // BulkOperations 性能远高于循环 save
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PostDoc.class);
+        for (Map.Entry<String, Long> entry : batch.entrySet()) {
+            Query query = Query.query(Criteria.where("id").is(entry.getKey()));
+            bulkOps.updateOne(query, new Update().inc("viewCount", entry.getValue())); // 累加
+        }
         bulkOps.execute();
 
-        // 4. 清理 Redis (这里有个并发小坑，生产环境通常用 Lua 脚本原子删除，
-        // 但为了简化，我们直接删除 Key。在这 1 秒间产生的新增量可能会丢失，这对浏览量来说可接受)
-        // 更好的做法是：刚才读了哪些 Key，就只从 Hash 里删掉哪些 Key
-        redisTemplate.opsForHash().delete(CACHE_POST_VIEWS, viewMap.keySet().toArray());
+        // 同步累加到热门标签的浏览量 (失败不影响落库，偏差由对账修正)
+        try {
+            hotTagBoard.addViews(batch);
+        } catch (Exception e) {
+            log.warn("热门标签浏览量累加失败: {}", e.getMessage());
+        }
+        // 每日浏览量趋势 (按落库时间记到当天，最多差一个同步周期)
+        dailyStatsService.inc("views", batch.values().stream().mapToLong(Long::longValue).sum());
 
-        log.info("浏览量同步完成");
+        redisTemplate.opsForHash().delete(RedisKey.POST_VIEWS_DRAINING, batch.keySet().toArray());
+        return batch.size();
     }
-}
\ No newline at end of file
+}
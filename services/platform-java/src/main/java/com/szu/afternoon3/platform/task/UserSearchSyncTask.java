@@ -0,0 +1,163 @@
+package com.szu.afternoon3.platform.task;
+
+import cn.hutool.core.lang.UUID;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.szu.afternoon3.platform.common.RedisKey;
+import com.szu.afternoon3.platform.component.UserSearchEngine;
+import com.szu.afternoon3.platform.entity.User;
+import com.szu.afternoon3.platform.mapper.UserMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户搜索索引增量同步
+ * 1. 新用户：按 id 游标扫 id > lastId 的用户 (注册在 user-rpc，没有 user.create 事件)；
+ *    索引刚建好或 lastId 被清掉时从 0 开始，就是一次全量灌入
+ * 2. 资料变更：user.update / user.delete 由 UserSearchSyncListener 实时处理；
+ *    没有事件的改动 (绑定邮箱、后台改状态等) 靠 (updatedAt, id) 游标补上
+ * 进度存在 Redis Hash 里，多副本抢锁只有一个在跑
+ */
+@Component
+@Slf4j
+public class UserSearchSyncTask {
+
+    @Autowired
+    private UserMapper userMapper;
+    @Autowired
+    private UserSearchEngine userSearchEngine;
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Value("${app.user-search.sync-batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.user-search.lock-ttl-seconds:300}")
+    private long lockTtlSeconds;
+
+    // updatedAt 游标往回多放的余量，覆盖事务提交晚于时间戳的情况
+    @Value("${app.user-search.sync-slack-seconds:60}")
+    private long slackSeconds;
+
+    private static final String FIELD_LAST_ID = "lastId";
+    private static final String FIELD_UPDATED_AT = "updatedAt";
+    private static final String FIELD_UPDATED_ID = "updatedId";
+
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) else return 0 end",
+            Long.class);
+
+    @Scheduled(fixedDelayString = "${app.user-search.sync-interval-ms:30000}",
+            initialDelayString = "${app.user-search.sync-initial-delay-ms:20000}")
+    public void sync() {
+        if (!userSearchEngine.isAvailable()) return;
+
+        String token = UUID.fastUUID().toString(true);
+        Boolean locked = redisTemplate.opsForValue()
+                .setIfAbsent(RedisKey.USER_SEARCH_SYNC_LOCK, token, lockTtlSeconds, TimeUnit.SECONDS);
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        try {
+            if (userSearchEngine.ensureIndex()) {
+                redisTemplate.delete(RedisKey.USER_SEARCH_SYNC_STATE);
+            }
+            int created = syncNewUsers();
+            int updated = syncUpdatedUsers();
+            if (created > 0 || updated > 0) {
+                log.info("用户搜索索引同步完成: 新增 {} 人, 更新 {} 人", created, updated);
+            }
+        } catch (Exception e) {
+            // 进度按批记录，下一轮从断点接着跑
+            log.error("用户搜索索引同步失败", e);
+        } finally {
+            redisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(RedisKey.USER_SEARCH_SYNC_LOCK), token);
+        }
+    }
+
+    /**
+     * 下一轮从头全量重灌 (事件处理失败时调用)
+     */
+    public void requestFullResync() {
+        redisTemplate.opsForHash().delete(RedisKey.USER_SEARCH_SYNC_STATE, FIELD_LAST_ID);
+    }
+
+    // --- Private Methods ---
+
+    private int syncNewUsers() {
+        Object saved = redisTemplate.opsForHash().get(RedisKey.USER_SEARCH_SYNC_STATE, FIELD_LAST_ID);
+        long lastId = saved == null ? 0L : Long.parseLong((String) saved);
+        // 全量灌入开始前记下时间，灌入期间的改动交给 updatedAt 游标
+        if (lastId == 0L) {
+            markUpdatedCursor(LocalDateTime.now().minusSeconds(slackSeconds), 0L);
+        }
+
+        int total = 0;
+        while (true) {
+            List<User> users = userMapper.selectList(new LambdaQueryWrapper<User>()
+                    .gt(User::getId, lastId)
+                    .orderByAsc(User::getId)
+                    .last("LIMIT " + batchSize));
+            if (users.isEmpty()) break;
+
+            userSearchEngine.saveAll(users);
+            lastId = users.get(users.size() - 1).getId();
+            redisTemplate.opsForHash().put(RedisKey.USER_SEARCH_SYNC_STATE, FIELD_LAST_ID, String.valueOf(lastId));
+            total += users.size();
+            if (users.size() < batchSize) break;
+        }
+        return total;
+    }
+
+    private int syncUpdatedUsers() {
+        Object savedAt = redisTemplate.opsForHash().get(RedisKey.USER_SEARCH_SYNC_STATE, FIELD_UPDATED_AT);
+        Object savedId = redisTemplate.opsForHash().get(RedisKey.USER_SEARCH_SYNC_STATE, FIELD_UPDATED_ID);
+        if (savedAt == null) {
+            markUpdatedCursor(LocalDateTime.now().minusSeconds(slackSeconds), 0L);
+            return 0;
+        }
+        LocalDateTime cursorAt = LocalDateTime.parse((String) savedAt);
+        long cursorId = savedId == null ? 0L : Long.parseLong((String) savedId);
+
+        int total = 0;
+        while (true) {
+            LocalDateTime at = cursorAt;
+            long id = cursorId;
+            List<User> users = userMapper.selectList(new LambdaQueryWrapper<User>()
+                    .and(w -> w.gt(User::getUpdatedAt, at)
+                            .or(o -> o.eq(User::getUpdatedAt, at).gt(User::getId, id)))
+                    .orderByAsc(User::getUpdatedAt, User::getId)
+                    .last("LIMIT " + batchSize));
+            if (users.isEmpty()) break;
+
+            userSearchEngine.saveAll(users);
+            User last = users.get(users.size() - 1);
+            cursorAt = last.getUpdatedAt();
+            cursorId = last.getId();
+            total += users.size();
+            if (users.size() < batchSize) break;
+        }
+        // 游标停在 "现在 - 余量" 之前，晚提交的事务下一轮还能扫到 (重复写入是幂等的)
+        LocalDateTime floor = LocalDateTime.now().minusSeconds(slackSeconds);
+        if (cursorAt.isAfter(floor)) {
+            markUpdatedCursor(floor, 0L);
+        } else {
+            markUpdatedCursor(cursorAt, cursorId);
+        }
+        return total;
+    }
+
+    private void markUpdatedCursor(LocalDateTime at, long id) {
+        redisTemplate.opsForHash().put(RedisKey.USER_SEARCH_SYNC_STATE, FIELD_UPDATED_AT, at.toString());
+        redisTemplate.opsForHash().put(RedisKey.USER_SEARCH_SYNC_STATE, FIELD_UPDATED_ID, String.valueOf(id));
+    }
+}
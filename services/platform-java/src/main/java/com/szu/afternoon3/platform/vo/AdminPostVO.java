@@ -39,4 +39,6 @@ public class AdminPostVO {
     private Integer collectCount = 0;
     private Integer commentCount = 0;
 
+    // AI 预审结论 (待审核帖子发出后后台跑好的，没有或已过期则为空)
+    private AiAuditResultVO aiAudit;
 }
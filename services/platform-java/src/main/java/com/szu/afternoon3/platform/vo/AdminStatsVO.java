@@ -12,6 +12,13 @@ public class AdminStatsVO {
     // 2. 折线图/柱状图数据 (X轴: 日期, Y轴: 数量)
     private ChartDataVO userTrend;
     private ChartDataVO postTrend;
+    private ChartDataVO viewTrend;
+    // 互动趋势：点赞 + 收藏 + 评论 + 关注 (新增次数)
+    private ChartDataVO interactionTrend;
+    private ChartDataVO likeTrend;
+    private ChartDataVO collectTrend;
+    private ChartDataVO commentTrend;
+    private ChartDataVO followTrend;
 
     // 3. 饼图数据 (用户地区分布)
     private List<NameValueVO> regionStats;
@@ -1,5 +1,6 @@
 package com.szu.afternoon3.platform.vo;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.Builder;
 import lombok.AllArgsConstructor;
@@ -12,6 +13,10 @@ import java.io.Serializable;
 @NoArgsConstructor
 @AllArgsConstructor
 public class AiAuditResultVO implements Serializable {
+    // AI 调用失败时的兜底结论使用的风险类型
+    public static final String RISK_SERVICE_ERROR = "服务异常";
+    public static final String RISK_PARSE_ERROR = "解析错误";
+
     /**
      * 审核结论: PASS(通过), BLOCK(违规), REVIEW(需人工复审)
      */
@@ -34,4 +39,11 @@ public class AiAuditResultVO implements Serializable {
 
     private String postId;
 
+    /**
+     * 是否为 AI 调用失败时的兜底结论 (不是模型真正给出的判断，不落库也不自动处置)
+     */
+    @JsonIgnore
+    public boolean isFallback() {
+        return RISK_SERVICE_ERROR.equals(riskType) || RISK_PARSE_ERROR.equals(riskType);
+    }
 }
\ No newline at end of file
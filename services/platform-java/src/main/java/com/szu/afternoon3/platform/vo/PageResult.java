@@ -1,5 +1,6 @@
 package com.szu.afternoon3.platform.vo;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -9,6 +10,9 @@ import java.util.List;
 
 /**
  * 通用分页响应包装类
+ * 两种模式：
+ * 1. 页码模式 (管理后台)：total / current / size
+ * 2. 游标模式 (App 无限下拉)：hasMore / nextCursor，不查 total
  * @param <T> 列表项的类型 (如 UserInfo, PostVO)
  */
 @Data
@@ -21,13 +25,23 @@ public class PageResult<T> {
     private Integer current; // 当前页
     private Integer size;    // 每页大小
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean hasMore;     // 游标模式：是否还有下一页
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;   // 游标模式：下一页游标，原样回传即可
+
     // 静态辅助方法：快速返回空页
     public static <T> PageResult<T> empty(Integer current, Integer size) {
-        return new PageResult<>(Collections.emptyList(), 0L, current, size);
+        return new PageResult<>(Collections.emptyList(), 0L, current, size, null, null);
     }
     
     // 静态辅助方法：快速构建
     public static <T> PageResult<T> of(List<T> records, Long total, Integer current, Integer size) {
-        return new PageResult<>(records, total, current, size);
+        return new PageResult<>(records, total, current, size, null, null);
+    }
+
+    // 静态辅助方法：游标模式 (没有下一页时 nextCursor 为 null)
+    public static <T> PageResult<T> ofCursor(List<T> records, Integer size, boolean hasMore, String nextCursor) {
+        return new PageResult<>(records, null, null, size, hasMore, hasMore ? nextCursor : null);
     }
-}
\ No newline at end of file
+}
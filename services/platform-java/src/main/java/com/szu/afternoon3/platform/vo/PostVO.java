@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
 import java.util.List;
+import java.util.Map;
 
 @Data
 @JsonInclude(JsonInclude.Include.NON_EMPTY)
@@ -45,6 +46,8 @@ public class PostVO {
     // 【新增】评分统计
     private Double ratingAverage; // 平均分 (e.g. 4.5)
     private Integer ratingCount;  // 评分人数 (e.g. 102)
+    private Map<String, Integer> ratingHistogram; // 分值分布，仅详情页返回 (Key: 分值 × 2，"10" 即 5 分)
+    private AiAuditResultVO aiAudit; // AI 预审结论，仅后台审核详情返回
 
     // 【新增】我的评分状态
     private Double myScore;      // 我给出的评分 (若未评分则为 null 或 0.0)
@@ -0,0 +1,179 @@
+package com.szu.afternoon3.platform.common;
+
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.dfa.StopChar;
+import cn.hutool.dfa.WordTree;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 双数组 AC 自动机单测 (纯内存，不起 Spring)
+ * 除了常见的重叠/嵌套/前缀场景，还拿真实词库和 Hutool WordTree 的非密集、非贪婪匹配对比结果
+ */
+public class DoubleArrayAhoCorasickTest {
+
+    private static final byte[] KEY = "REDNOTE_SECURE_2025".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testOverlapping() {
+        // 命中后从终点之后继续，区间不重叠
+        Assertions.assertEquals(List.of("ab"), find(List.of("ab", "bc"), "abc"));
+        Assertions.assertEquals(List.of("aa", "aa"), find(List.of("aa"), "aaaaa"));
+        Assertions.assertEquals(List.of("he", "she"), find(List.of("he", "she", "hers"), "heshe"));
+    }
+
+    @Test
+    public void testNested() {
+        // 最左起点优先：先结束的 bc 不算，取从 a 开始的 abcd
+        Assertions.assertEquals(List.of("abcd"), find(List.of("abcd", "bc"), "abcd"));
+        // 从 a 开始的词没完整出现，退回到后面的 bc
+        Assertions.assertEquals(List.of("bc"), find(List.of("abcd", "bc"), "abce"));
+        Assertions.assertEquals(List.of("abcd", "bc"), find(List.of("abcd", "bc"), "abcdxbc"));
+        Assertions.assertEquals(List.of("b"), find(List.of("abc", "b"), "abx"));
+    }
+
+    @Test
+    public void testPrefix() {
+        // 同一起点取最短
+        Assertions.assertEquals(List.of("ab"), find(List.of("ab", "abc"), "abc"));
+        Assertions.assertEquals(List.of("ab", "ab"), find(List.of("ab", "abc"), "ab abc"));
+        Assertions.assertEquals(List.of("敏感"), find(List.of("敏感", "敏感词"), "有敏感词"));
+    }
+
+    @Test
+    public void testEmpty() {
+        DoubleArrayAhoCorasick ac = new DoubleArrayAhoCorasick(List.of("敏感"), DoubleArrayAhoCorasickTest::isStopChar);
+        Assertions.assertEquals(0, ac.scan("", null));
+        Assertions.assertFalse(ac.matches(""));
+        Assertions.assertFalse(ac.matches("正常内容"));
+
+        DoubleArrayAhoCorasick empty = new DoubleArrayAhoCorasick(Collections.emptyList(), DoubleArrayAhoCorasickTest::isStopChar);
+        Assertions.assertFalse(empty.matches("敏感"));
+        Assertions.assertEquals(List.of(), find(Arrays.asList("", null, " "), "敏感 内容"));
+    }
+
+    @Test
+    public void testSkipChars() {
+        // 词中间的停顿字符算进命中区间，开头的不算
+        Assertions.assertEquals(List.of("敏 感"), find(List.of("敏感"), "  敏 感"));
+        Assertions.assertEquals(List.of("敏感"), find(List.of("敏 感"), "敏感"));
+        Assertions.assertEquals(List.of("敏，，感"), find(List.of("敏感"), "敏，，感，"));
+    }
+
+    @Test
+    public void testStopEarly() {
+        DoubleArrayAhoCorasick ac = new DoubleArrayAhoCorasick(List.of("ab"), DoubleArrayAhoCorasickTest::isStopChar);
+        List<Integer> starts = new ArrayList<>();
+        int hits = ac.scan("ab ab ab", (start, end) -> {
+            starts.add(start);
+            return false;
+        });
+        Assertions.assertEquals(1, hits);
+        Assertions.assertEquals(List.of(0), starts);
+        Assertions.assertTrue(ac.matches("xxab"));
+    }
+
+    /**
+     * 小字母表随机词典，逐条和 WordTree 对比 (嵌套、前缀、重叠的组合都会出现)
+     */
+    @Test
+    public void testRandomParityWithWordTree() {
+        Random random = new Random(20250101);
+        for (int round = 0; round < 2000; round++) {
+            Set<String> words = new HashSet<>();
+            int count = 1 + random.nextInt(8);
+            for (int i = 0; i < count; i++) {
+                words.add(randomText(random, "abc", 1 + random.nextInt(4)));
+            }
+            String text = randomText(random, "abcd ", random.nextInt(30));
+            Assertions.assertEquals(hutool(words, text), find(words, text), "words=" + words + " text=[" + text + "]");
+        }
+    }
+
+    /**
+     * 真实词库：拿每个词 (以及词的一部分) 拼成文本，和 WordTree 的结果逐条对比
+     */
+    @Test
+    public void testRealDictParityWithWordTree() throws Exception {
+        List<String> words = new ArrayList<>(loadDict());
+        Assertions.assertFalse(words.isEmpty(), "词库为空");
+        // 以停顿字符结尾的词 WordTree 命不中 (见 DoubleArrayAhoCorasick 类注释)，不参与对比
+        words.removeIf(w -> StopChar.isStopChar(w.charAt(w.length() - 1)));
+        Collections.sort(words);
+
+        WordTree tree = new WordTree();
+        tree.addWords(words);
+        DoubleArrayAhoCorasick ac = new DoubleArrayAhoCorasick(words, DoubleArrayAhoCorasickTest::isStopChar);
+
+        Random random = new Random(42);
+        String[] fillers = {"今天天气不错，", " ", "", "。", "abc", "分享一下"};
+        for (int round = 0; round < 20000; round++) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 3; i++) {
+                sb.append(fillers[random.nextInt(fillers.length)]);
+                String word = words.get(random.nextInt(words.size()));
+                // 偶尔只取词的一段，制造只匹配了前缀又失配的情况
+                sb.append(random.nextInt(4) == 0 ? word.substring(random.nextInt(word.length())) : word);
+            }
+            String text = sb.toString();
+            Assertions.assertEquals(tree.matchAll(text, -1, false, false), find(ac, text), "text=[" + text + "]");
+        }
+    }
+
+    // --- Private Methods ---
+
+    private List<String> find(Collection<String> words, String text) {
+        return find(new DoubleArrayAhoCorasick(words, DoubleArrayAhoCorasickTest::isStopChar), text);
+    }
+
+    private List<String> find(DoubleArrayAhoCorasick ac, String text) {
+        List<String> hits = new ArrayList<>();
+        ac.scan(text, (start, end) -> hits.add(text.substring(start, end + 1)));
+        return hits;
+    }
+
+    private List<String> hutool(Collection<String> words, String text) {
+        WordTree tree = new WordTree();
+        tree.addWords(words);
+        return tree.matchAll(text, -1, false, false);
+    }
+
+    private String randomText(Random random, String alphabet, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+
+    private static boolean isStopChar(int ch) {
+        return StopChar.isStopChar((char) ch);
+    }
+
+    // 和 SensitiveWordFilter 一样的加载方式：classpath 下 sensitive/*.dat，XOR 解密后按行分割
+    private Set<String> loadDict() throws Exception {
+        Set<String> words = new HashSet<>();
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources("classpath*:sensitive/*.dat");
+        for (Resource resource : resources) {
+            try (InputStream in = resource.getInputStream()) {
+                byte[] data = IoUtil.readBytes(in);
+                for (int i = 0; i < data.length; i++) {
+                    data[i] ^= KEY[i % KEY.length];
+                }
+                for (String line : new String(data, StandardCharsets.UTF_8).split("\\r?\\n")) {
+                    if (StrUtil.isNotBlank(line)) {
+                        words.add(line.trim());
+                    }
+                }
+            }
+        }
+        return words;
+    }
+}
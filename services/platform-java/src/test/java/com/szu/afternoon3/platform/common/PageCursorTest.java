@@ -0,0 +1,114 @@
+package com.szu.afternoon3.platform.common;
+
+import cn.hutool.core.codec.Base64;
+import com.szu.afternoon3.platform.enums.ResultCode;
+import com.szu.afternoon3.platform.exception.AppException;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keyset 游标单测 (纯内存，不起 Spring)
+ * 编解码往返、非法游标，以及按时间 / 按热度 (含 likeCount 为空那一段) 生成的 Mongo 条件
+ */
+public class PageCursorTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 3, 1, 12, 30, 15, 123_000_000);
+    private static final ObjectId ID = new ObjectId("65f0c0ffee0000000000abcd");
+
+    @Test
+    public void testRoundTrip() {
+        PageCursor cursor = PageCursor.of(TIME, 42L, ID.toHexString());
+        cursor.setAfter(Arrays.asList(3.5, 17L, "65f0c0ffee0000000000abcd"));
+        cursor.setOrigin(1_700_000_000_000L);
+
+        PageCursor decoded = PageCursor.decode(cursor.encode());
+        Assertions.assertEquals(cursor, decoded);
+        // search_after 里的数字还原成 ES 认识的 Double / Long
+        Assertions.assertInstanceOf(Double.class, decoded.getAfter().get(0));
+        Assertions.assertInstanceOf(Long.class, decoded.getAfter().get(1));
+
+        // 按热度翻到 likeCount 为空的那一段时，likes 要保持为空而不是变成 0
+        PageCursor nullLikes = PageCursor.decode(PageCursor.of(TIME, null, ID.toHexString()).encode());
+        Assertions.assertNull(nullLikes.getLikes());
+        Assertions.assertEquals(PageCursor.toMillis(TIME), nullLikes.getTime());
+        Assertions.assertTrue(nullLikes.hasKeyset());
+    }
+
+    @Test
+    public void testFirstPage() {
+        Assertions.assertNull(PageCursor.decode(null));
+        Assertions.assertNull(PageCursor.decode(""));
+        Assertions.assertNull(PageCursor.decode("  "));
+    }
+
+    @Test
+    public void testMalformedCursor() {
+        assertInvalid(() -> PageCursor.decode("这不是游标"));
+        assertInvalid(() -> PageCursor.decode(Base64.encodeUrlSafe("not json", StandardCharsets.UTF_8)));
+
+        // 能解析但缺少 keyset (ES 游标 / 字段类型不对 / 非法 ObjectId) 时，拼 Mongo 条件要拒绝
+        PageCursor badTime = PageCursor.decode(Base64.encodeUrlSafe(
+                "{\"t\":\"abc\",\"i\":\"" + ID.toHexString() + "\"}", StandardCharsets.UTF_8));
+        Assertions.assertFalse(badTime.hasKeyset());
+        assertInvalid(() -> badTime.toCriteria("createdAt", false));
+        PageCursor noId = PageCursor.decode(Base64.encodeUrlSafe("{\"t\":1}", StandardCharsets.UTF_8));
+        Assertions.assertFalse(noId.hasKeyset());
+        assertInvalid(() -> noId.toCriteria("createdAt", false));
+        PageCursor badId = PageCursor.of(TIME, 1L, "123");
+        Assertions.assertFalse(badId.hasKeyset());
+        assertInvalid(() -> badId.toCriteria("createdAt", true));
+    }
+
+    @Test
+    public void testTimeCriteria() {
+        PageCursor cursor = PageCursor.decode(PageCursor.of(TIME, 42L, ID.toHexString()).encode());
+        // 按时间排序时 likes 不参与
+        Assertions.assertEquals(timeAfter("viewTime"), cursor.toCriteria("viewTime", false).getCriteriaObject());
+    }
+
+    @Test
+    public void testLikesCriteria() {
+        PageCursor cursor = PageCursor.decode(PageCursor.of(TIME, 42L, ID.toHexString()).encode());
+        Document expected = new Document("$or", List.of(
+                new Document("likeCount", new Document("$lt", 42L)),
+                new Document("$and", List.of(new Document("likeCount", 42L), timeAfter("createdAt"))),
+                // likeCount 为空的帖子排在 0 之后，从有值的段翻过去时不能漏掉
+                new Document("likeCount", null)
+        ));
+        Assertions.assertEquals(expected, cursor.toCriteria("createdAt", true).getCriteriaObject());
+    }
+
+    @Test
+    public void testLikesCriteriaInNullSegment() {
+        // 游标已经停在 likeCount 为空的那一段：只在这一段里按时间往后翻，不能回到有值的段
+        PageCursor cursor = PageCursor.decode(PageCursor.of(TIME, null, ID.toHexString()).encode());
+        Document expected = new Document("$and", List.of(
+                new Document("likeCount", null),
+                timeAfter("createdAt")
+        ));
+        Assertions.assertEquals(expected, cursor.toCriteria("createdAt", true).getCriteriaObject());
+    }
+
+    // --- Private Methods ---
+
+    private Document timeAfter(String timeField) {
+        // TIME 只到毫秒，编解码后不丢精度
+        LocalDateTime t = TIME;
+        return new Document("$or", List.of(
+                new Document(timeField, new Document("$lt", t)),
+                new Document("$and", List.of(new Document(timeField, t), new Document("_id", new Document("$lt", ID))))
+        ));
+    }
+
+    private void assertInvalid(Runnable action) {
+        AppException e = Assertions.assertThrows(AppException.class, action::run);
+        Assertions.assertEquals(ResultCode.PARAM_ERROR.getCode(), e.getCode());
+    }
+}
@@ -0,0 +1,136 @@
+package com.szu.afternoon3.platform.common;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * 无锁环形队列单测 (纯内存，不起 Spring)
+ */
+public class RingBufferTest {
+
+    @Test
+    public void testCapacityRounding() {
+        Assertions.assertEquals(2, new RingBuffer<Integer>(0).capacity());
+        Assertions.assertEquals(2, new RingBuffer<Integer>(1).capacity());
+        Assertions.assertEquals(4, new RingBuffer<Integer>(3).capacity());
+        Assertions.assertEquals(8, new RingBuffer<Integer>(8).capacity());
+        Assertions.assertEquals(8192, new RingBuffer<Integer>(5000).capacity());
+    }
+
+    @Test
+    public void testFullAndSlotReuse() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertTrue(buffer.offer(i));
+        }
+        // 满了直接返回 false，不阻塞
+        Assertions.assertFalse(buffer.offer(4));
+        Assertions.assertEquals(4, buffer.size());
+
+        // 取走一个，空出来的槽位可以再写
+        Assertions.assertEquals(0, buffer.poll());
+        Assertions.assertTrue(buffer.offer(4));
+        Assertions.assertFalse(buffer.offer(5));
+
+        List<Integer> drained = new ArrayList<>();
+        Assertions.assertEquals(4, buffer.drainTo(drained, 10));
+        Assertions.assertEquals(List.of(1, 2, 3, 4), drained);
+        Assertions.assertNull(buffer.poll());
+        Assertions.assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void testWraparound() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(4);
+        // 写读交替绕很多圈，顺序和内容都不能乱
+        int next = 0;
+        int expected = 0;
+        for (int round = 0; round < 1000; round++) {
+            // 每轮开始时最多剩 2 个，再写 1~2 个不会超过容量
+            int writes = 1 + round % 2;
+            for (int i = 0; i < writes; i++) {
+                Assertions.assertTrue(buffer.offer(next++));
+            }
+            List<Integer> drained = new ArrayList<>();
+            // 每轮只取一部分，让读写位置在不同槽位上错开
+            buffer.drainTo(drained, 1 + round % 3);
+            for (Integer value : drained) {
+                Assertions.assertEquals(expected++, value);
+            }
+            while (buffer.size() > 2) {
+                Assertions.assertEquals(expected++, buffer.poll());
+            }
+        }
+        Integer value;
+        while ((value = buffer.poll()) != null) {
+            Assertions.assertEquals(expected++, value);
+        }
+        Assertions.assertEquals(next, expected);
+    }
+
+    /**
+     * 多个生产者并发写，单个消费者边写边读：offer 成功的元素一个不丢、不重复，同一生产者内保持顺序
+     */
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        int producers = 8;
+        int perProducer = 50_000;
+        RingBuffer<Long> buffer = new RingBuffer<>(1024);
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            futures.add(pool.submit(() -> {
+                start.await();
+                int accepted = 0;
+                for (int i = 0; i < perProducer; i++) {
+                    // 满了就重试，保证每个元素最终都写进去
+                    while (!buffer.offer(producer << 32 | i)) {
+                        Thread.yield();
+                    }
+                    accepted++;
+                }
+                return accepted;
+            }));
+        }
+
+        int[] lastSeen = new int[producers];
+        Arrays.fill(lastSeen, -1);
+        long received = 0;
+        long total = (long) producers * perProducer;
+        start.countDown();
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+            while (received < total) {
+                Long value = buffer.poll();
+                if (value == null) {
+                    Assertions.assertTrue(System.nanoTime() < deadline, "消费超时，已收到 " + received);
+                    Thread.yield();
+                    continue;
+                }
+                int producer = (int) (value >>> 32);
+                int seq = (int) (value & 0xFFFFFFFFL);
+                // 同一生产者的序号必须严格 +1：丢了会跳号，重复会回退
+                Assertions.assertEquals(lastSeen[producer] + 1, seq, "producer=" + producer);
+                lastSeen[producer] = seq;
+                received++;
+            }
+            for (Future<Integer> future : futures) {
+                Assertions.assertEquals(perProducer, future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        Assertions.assertNull(buffer.poll());
+        Assertions.assertEquals(0, buffer.size());
+        for (int p = 0; p < producers; p++) {
+            Assertions.assertEquals(perProducer - 1, lastSeen[p]);
+        }
+    }
+}
@@ -85,7 +85,7 @@ public class InteractionIntegrationTest {
         post.setIsDeleted(0);
         post.setLikeCount(0);
         post.setCollectCount(0);
-        post.setRatingAverage(0.0);
+        post.setRatingSum(0.0);
         post.setRatingCount(0);
         postRepository.save(post);
         this.postId = post.getId();
@@ -184,6 +184,8 @@ public class InteractionIntegrationTest {
         post = postRepository.findById(postId).orElseThrow();
         Assertions.assertEquals(5.0, post.getRatingAverage());
         Assertions.assertEquals(1, post.getRatingCount()); // 人数不变
+        Assertions.assertEquals(0, post.getRatingHistogram().get("8")); // 分布：4 分挪到 5 分
+        Assertions.assertEquals(1, post.getRatingHistogram().get("10"));
 
         // 验证 Redis
         Object score = redisTemplate.opsForHash().get(RedisKey.POST_RATE_HASH + postId, userId.toString());
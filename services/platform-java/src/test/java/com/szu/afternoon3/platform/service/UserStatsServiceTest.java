@@ -0,0 +1,155 @@
+package com.szu.afternoon3.platform.service;
+
+import com.szu.afternoon3.platform.component.CounterBuffer;
+import com.szu.afternoon3.platform.entity.mongo.UserFollowDoc;
+import com.szu.afternoon3.platform.entity.mongo.UserStatsDoc;
+import com.szu.afternoon3.platform.service.impl.UserStatsServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * user_stats 读模型：首次读取建档 + 定时对账不吞并发增量
+ * 需要本地 Mongo (同 MongodbTest)，用随机的大 userId 避免和真实数据撞上，跑完清掉
+ */
+@SpringBootTest
+public class UserStatsServiceTest {
+
+    @Autowired
+    private UserStatsServiceImpl userStatsService;
+    @Autowired
+    private CounterBuffer counterBuffer;
+    @SpyBean
+    private MongoTemplate mongoTemplate;
+
+    private Long userId;
+    private final List<Long> relatedUserIds = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        userId = ThreadLocalRandom.current().nextLong(9_000_000_000L, 9_900_000_000L);
+        relatedUserIds.clear();
+        // 他关注了两个人
+        follow(userId, userId + 1);
+        follow(userId, userId + 2);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        List<Long> ids = new ArrayList<>(relatedUserIds);
+        ids.add(userId);
+        mongoTemplate.remove(Query.query(new Criteria().orOperator(
+                Criteria.where("userId").in(ids), Criteria.where("targetUserId").in(ids))), UserFollowDoc.class);
+        mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)), UserStatsDoc.class);
+    }
+
+    @Test
+    public void testCreateIfAbsent() {
+        Assertions.assertNull(mongoTemplate.findById(userId, UserStatsDoc.class));
+
+        // 第一次读：现算一份并落库
+        UserStatsDoc stats = userStatsService.getStats(userId);
+        Assertions.assertEquals(2L, stats.getFollowCount());
+        Assertions.assertEquals(0L, stats.getFanCount());
+        Assertions.assertNotNull(stats.getRebuiltAt());
+
+        UserStatsDoc saved = mongoTemplate.findById(userId, UserStatsDoc.class);
+        Assertions.assertNotNull(saved);
+        Assertions.assertEquals(2L, saved.getFollowCount());
+
+        // 建档之后增量直接 $inc 到文档上
+        userStatsService.inc(userId, "fanCount", 1);
+        counterBuffer.flush();
+        Assertions.assertEquals(1L, userStatsService.getStats(userId).getFanCount());
+    }
+
+    @Test
+    public void testCreateIfAbsentConcurrently() throws Exception {
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<UserStatsDoc>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(pool.submit(() -> {
+                ready.countDown();
+                go.await();
+                return userStatsService.getStats(userId);
+            }));
+        }
+        ready.await();
+        go.countDown();
+        try {
+            // 并发插入撞主键的一方读回先插入的那份，不抛异常
+            for (Future<UserStatsDoc> future : futures) {
+                Assertions.assertEquals(2L, future.get(10, TimeUnit.SECONDS).getFollowCount());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        Assertions.assertEquals(1L, mongoTemplate.count(Query.query(Criteria.where("_id").is(userId)), UserStatsDoc.class));
+    }
+
+    @Test
+    public void testReconcileKeepsConcurrentInc() {
+        userStatsService.getStats(userId);
+        // 人为造一个偏差，并让它排在对账队列最前面
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(userId)),
+                new Update().set("followCount", 5L).set("rebuiltAt", LocalDateTime.of(1970, 1, 1, 0, 0)),
+                UserStatsDoc.class);
+
+        // 重算刚数完粉丝数、还没写回时，有人关注了他，增量也已经刷进 user_stats
+        Long fanId = userId + 3;
+        AtomicBoolean fired = new AtomicBoolean();
+        Mockito.doAnswer(invocation -> {
+            Object real = invocation.callRealMethod();
+            if (fired.compareAndSet(false, true)) {
+                follow(fanId, userId);
+                userStatsService.inc(userId, "fanCount", 1);
+                counterBuffer.flush();
+            }
+            return real;
+        }).when(mongoTemplate).count(
+                ArgumentMatchers.<Query>argThat(q -> q != null && userId.equals(q.getQueryObject().get("targetUserId"))),
+                ArgumentMatchers.eq(UserFollowDoc.class));
+
+        userStatsService.reconcile();
+
+        Assertions.assertTrue(fired.get(), "对账没有重算到测试用户");
+        UserStatsDoc stats = mongoTemplate.findById(userId, UserStatsDoc.class);
+        Assertions.assertNotNull(stats);
+        // 并发进来的 +1 没被重算的旧值覆盖
+        Assertions.assertEquals(1L, stats.getFanCount());
+        // 偏差照样被纠正
+        Assertions.assertEquals(2L, stats.getFollowCount());
+        Assertions.assertTrue(stats.getRebuiltAt().isAfter(LocalDateTime.of(1970, 1, 1, 0, 0)));
+    }
+
+    // --- Private Methods ---
+
+    private void follow(Long from, Long to) {
+        UserFollowDoc doc = new UserFollowDoc();
+        doc.setUserId(from);
+        doc.setTargetUserId(to);
+        doc.setCreatedAt(LocalDateTime.now());
+        mongoTemplate.insert(doc);
+        if (!from.equals(userId)) relatedUserIds.add(from);
+        if (!to.equals(userId)) relatedUserIds.add(to);
+    }
+}
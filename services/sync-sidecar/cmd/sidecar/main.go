@@ -35,7 +35,6 @@ func main() {
 	defer infra.Close()
 
 	// 3. 初始化 Handlers
-	logHandler := &handler.LogHandler{Infra: infra}
 	syncHandler := &handler.SyncHandler{Infra: infra}
 	userHandler := &handler.UserHandler{Infra: infra}
 
@@ -58,8 +57,7 @@ func main() {
 	// 4. 启动多队列消费者
 	var wg sync.WaitGroup
 
-	// Group 1: 日志
-	infra.StartConsumerGroup(&wg, cfg.QueueLog, logHandler.Handle)
+	// Group 1: 日志 —— 已交给 platform-java 的 ApiLogListener 批量落库，这里不再消费 platform.log.queue
 
 	// Group 2: 搜索历史
 
@@ -20,7 +20,6 @@ type AppConfig struct {
 	AdminToken   string
 
 	// 队列名称配置 (与 Java RabbitConfig 保持一致)
-	QueueLog    string
 	QueueEsSync string
 	QueueUser   string
 
@@ -50,7 +49,6 @@ func LoadConfig() *AppConfig {
 		AdminToken:   getEnv("ADMIN_TOKEN", "szu123"),
 
 		// 队列名硬编码以匹配 Java 配置
-		QueueLog:    "platform.log.queue",
 		QueueEsSync: "platform.es.sync.queue",
 		QueueUser:   "platform.user.queue",
 
@@ -58,7 +56,6 @@ func LoadConfig() *AppConfig {
 		ExchangeDLX:  "platform.dlx.exchange",
 
 		QueueBindings: map[string][]string{
-			"platform.log.queue":     {"log.#"},
 			"platform.user.queue":    {"user.#"},
 			"platform.es.sync.queue": {"post.#", "user.update", "post.audit.pass"},
 		},
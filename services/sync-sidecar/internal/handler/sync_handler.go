@@ -139,6 +139,8 @@ func (h *SyncHandler) handleCreate(ctx context.Context, es *elasticsearch.Client
 		UserAvatar:   e.UserAvatar,
 		LikeCount:    0,
 		CreatedAt:    formattedTime,
+		Status:       1, // 只有未开启审核时才走这里，发帖即发布
+		IsDeleted:    0,
 	}
 
 	err := h.indexEs(ctx, es, doc.Id, doc)
@@ -197,6 +199,8 @@ func (h *SyncHandler) handleUpdate(ctx context.Context, es *elasticsearch.Client
 		UserAvatar:   mongoDoc.UserAvatar,
 		LikeCount:    mongoDoc.LikeCount,
 		CreatedAt:    formattedTime,
+		Status:       mongoDoc.Status,
+		IsDeleted:    mongoDoc.IsDeleted,
 	}
 
 	err = h.indexEs(ctx, es, esDoc.Id, esDoc)
@@ -409,6 +413,8 @@ func (h *SyncHandler) reindexPostsFromMongo(ctx context.Context) (int, error) {
 			UserAvatar:   mongoDoc.UserAvatar,
 			LikeCount:    mongoDoc.LikeCount,
 			CreatedAt:    formattedTime,
+			Status:       mongoDoc.Status,
+			IsDeleted:    mongoDoc.IsDeleted,
 		}
 
 		if err := h.indexEs(ctx, h.Infra.ES, esDoc.Id, esDoc); err != nil {
@@ -153,40 +153,11 @@ func (h *UserHandler) handleUserDelete(e event.UserDeleteEvent) error {
 	)
 
 	// ==========================================
-	// 2. 【关系清理】: 关注、粉丝、点赞、收藏、评分
-	//    这些数据代表"活跃状态"，人走了关系自然要断开，建议物理删除
+	// 2. 【关系清理】: 关注、粉丝、点赞、收藏、评分、通知、历史
+	//    这些数据要物理删除，大 V 注销时一次 DeleteMany 会打满 Mongo，
+	//    改由 platform-java 消费 user.delete (platform.user.cleanup.queue) 后分块限速删除，这里不再处理。
 	// ==========================================
 
-	// 2.1 删除 关注/粉丝 关系
-	// 我关注了谁 -> 删
-	h.deleteManySafe(ctx, db.Collection("user_follows"), bson.M{"userId": e.UserId})
-	// 谁关注了我 -> 删 (这样我就从别人的粉丝列表消失了)
-	h.deleteManySafe(ctx, db.Collection("user_follows"), bson.M{"targetUserId": e.UserId})
-
-	// 2.2 删除 互动数据 (点赞、收藏等)
-	// 注意：删除这些数据后，相关帖子的 likeCount/collectCount 可能会偏高(因为没有触发减1逻辑)
-	// 如果对数字精确性要求极高，这里需要发消息去触发计数减少，或者跑定时任务修正。
-	// 但作为"注销"场景，通常可以容忍这一点点数据偏差，直接删即可。
-	interactionCollections := []string{
-		"post_likes",
-		"post_collects",
-		"post_ratings",
-		"comment_likes",
-		"notifications", // 通知的接收者是该用户，或者发送者是该用户，都建议清理
-	}
-
-	for _, collName := range interactionCollections {
-		// 删除 "我" 发起的操作
-		h.deleteManySafe(ctx, db.Collection(collName), bson.M{"userId": e.UserId})
-	}
-
-	// 清理以我为接收者的通知 (也没人看了)
-	h.deleteManySafe(ctx, db.Collection("notifications"), bson.M{"receiverId": e.UserId})
-
-	// 2.3 删除 隐私历史
-	h.deleteManySafe(ctx, db.Collection("search_histories"), bson.M{"userId": e.UserId})
-	h.deleteManySafe(ctx, db.Collection("post_view_histories"), bson.M{"userId": e.UserId})
-
 	return nil
 }
 
@@ -199,13 +170,3 @@ func (h *UserHandler) updateManySafe(ctx context.Context, coll *mongo.Collection
 		obslog.Infof("user mongo updateMany collection=%s modified=%d", coll.Name(), res.ModifiedCount)
 	}
 }
-
-// 辅助方法：安全的 DeleteMany
-func (h *UserHandler) deleteManySafe(ctx context.Context, coll *mongo.Collection, filter interface{}) {
-	res, err := coll.DeleteMany(ctx, filter)
-	if err != nil {
-		obslog.Errorf("user mongo deleteMany failed collection=%s err=%v", coll.Name(), err)
-	} else if res.DeletedCount > 0 {
-		obslog.Infof("user mongo deleteMany collection=%s deleted=%d", coll.Name(), res.DeletedCount)
-	}
-}
@@ -42,4 +42,6 @@ type PostEsDoc struct {
 	UserAvatar   string   `json:"userAvatar"`
 	LikeCount    int      `json:"likeCount"`
 	CreatedAt    string   `json:"createdAt"` // ES 建议用 ISO String
+	Status       int      `json:"status"`    // 搜索时按 status=1 / isDeleted=0 过滤
+	IsDeleted    int      `json:"isDeleted"`
 }